@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.broker;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DataStoreUtils.getTransferMsg benchmark, the conversion of a stored message to
+ * the transferred message, from the heap read buffer (copied) and from the mapped
+ * region (wrapped), with or without the message attribute.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DataStoreUtilsBenchmark {
+
+    @Param({"256", "4096"})
+    public int msgSize;
+    @Param({"false", "true"})
+    public boolean directBuffer;
+    @Param({"false", "true"})
+    public boolean withAttr;
+
+    private ByteBuffer dataBuffer;
+    private int dataTotalSize;
+    private final HashMap<String, TrafficInfo> countMap = new HashMap<>();
+    private final StringBuilder sBuilder = new StringBuilder(512);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ByteBuffer dataEntry =
+                StoreBenchmarkUtils.buildDataEntry(0, 0, 1L, msgSize, withAttr);
+        dataTotalSize = dataEntry.remaining();
+        if (directBuffer) {
+            dataBuffer = ByteBuffer.allocateDirect(dataTotalSize);
+            dataBuffer.put(dataEntry);
+            dataBuffer.flip();
+        } else {
+            dataBuffer = dataEntry;
+        }
+    }
+
+    @Benchmark
+    public ClientBroker.TransferedMessage getTransferMsg() {
+        countMap.clear();
+        return DataStoreUtils.getTransferMsg(dataBuffer,
+                dataTotalSize, countMap, "bench#0", sBuilder);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.broker;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.BrokerDefMetadata;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MsgFileStore benchmark, the read of the consumers from the file store.
+ *
+ * The file store is created in a temporary directory and filled through the memory
+ * cache flush as the broker does, the sealed segments are read by copying or through
+ * mmap as configured. The pages are mostly in the page cache after the fill, so the
+ * benchmark measures the read path itself rather than the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgFileStoreBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 32 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 100000;
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_TRANSFER_SIZE = 512 * 1024;
+    private static final int PARTITION_CNT = 10;
+
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"256", "4096"})
+        public int msgSize;
+        @Param({"false", "true"})
+        public boolean mmapFileRead;
+        @Param({"64"})
+        public int storeSizeInMB;
+
+        private File baseDir;
+        private MessageStore messageStore;
+        private MsgFileStore msgFileStore;
+        private long maxIndexOffset;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable {
+            baseDir = Files.createTempDirectory("tubemq-bench-").toFile();
+            final BrokerConfig brokerConfig = StoreBenchmarkUtils.loadBrokerConfig(
+                    baseDir, MAX_SEGMENT_SIZE, mmapFileRead);
+            TopicMetadata topicMetadata =
+                    new TopicMetadata(new BrokerDefMetadata(), "bench", 1, PARTITION_CNT);
+            // the message store only provides the store key and the statistics here
+            messageStore = new MessageStore(null, topicMetadata, 0,
+                    brokerConfig, MAX_TRANSFER_SIZE);
+            msgFileStore = new MsgFileStore(messageStore, brokerConfig,
+                    new File(baseDir, "bench").getAbsolutePath(), 0);
+            // fill the file store through the memory cache
+            final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize;
+            final long totalMsgCnt = storeSizeInMB * 1024L * 1024L / msgBufLen;
+            final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+            final AppendResult appendResult = new AppendResult();
+            final StringBuilder strBuffer = new StringBuilder(512);
+            MsgMemStore msgMemStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT,
+                    msgFileStore.getDataMaxOffset(), msgFileStore.getIndexMaxOffset());
+            for (long msgId = 0; msgId < totalMsgCnt; msgId++) {
+                int partitionId = (int) (msgId % PARTITION_CNT);
+                ByteBuffer indexEntry =
+                        StoreBenchmarkUtils.buildIndexEntry(partitionId, partitionId, msgBufLen);
+                ByteBuffer dataEntry = StoreBenchmarkUtils.buildDataEntry(
+                        partitionId, partitionId, msgId, msgSize, true);
+                if (!msgMemStore.appendMsg(memStatsHolder, partitionId, partitionId,
+                        System.currentTimeMillis(), indexEntry, msgBufLen, dataEntry, appendResult)) {
+                    msgMemStore.batchFlush(msgFileStore, strBuffer);
+                    msgMemStore.resetMemStoreStatus(msgFileStore.getDataMaxOffset(),
+                            msgFileStore.getIndexMaxOffset());
+                    msgMemStore.appendMsg(memStatsHolder, partitionId, partitionId,
+                            System.currentTimeMillis(), indexEntry, msgBufLen, dataEntry, appendResult);
+                }
+            }
+            msgMemStore.batchFlush(msgFileStore, strBuffer);
+            msgMemStore.close();
+            msgFileStore.flushDiskFile(true);
+            maxIndexOffset = msgFileStore.getIndexMaxOffset();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            msgFileStore.close();
+            messageStore.close();
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        private final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(1000 * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        private long readIndexOffset = 0;
+        private int partitionId = 0;
+    }
+
+    @Benchmark
+    public GetMessageResult getMessages(FileState state, ReaderState reader) throws Exception {
+        ByteBuffer indexBuffer = reader.indexBuffer;
+        indexBuffer.clear();
+        Segment indexRecordView =
+                state.msgFileStore.indexSlice(reader.readIndexOffset, indexBuffer.capacity());
+        if (indexRecordView == null) {
+            reader.readIndexOffset = 0;
+            return null;
+        }
+        try {
+            indexRecordView.read(indexBuffer, reader.readIndexOffset);
+        } finally {
+            indexRecordView.relViewRef();
+        }
+        indexBuffer.flip();
+        GetMessageResult result = state.msgFileStore.getMessages(reader.partitionId,
+                0, reader.readIndexOffset, indexBuffer, false, null,
+                "bench", MAX_TRANSFER_SIZE, 0);
+        if (result.isSuccess && result.getLastReadOffset() > 0) {
+            reader.readIndexOffset += result.getLastReadOffset();
+        }
+        if (!result.isSuccess || result.getLastReadOffset() <= 0
+                || reader.readIndexOffset >= state.maxIndexOffset) {
+            // read the store from the start again by the next partition
+            reader.readIndexOffset = 0;
+            reader.partitionId = (reader.partitionId + 1) % PARTITION_CNT;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.broker;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MsgMemStore benchmark, the append of the producers and the read of the consumers
+ * against the memory cache, in the locked and the lock-free append mode.
+ *
+ * The append benchmark keeps a store per thread, and resets it when full,
+ * the concurrent append throughput is measured by the ad hoc MsgMemStoreBenchmark
+ * in the tubemq-server tests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MsgMemStoreBenchmark {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_MSG_COUNT = 200000;
+    private static final int PARTITION_CNT = 10;
+
+    @State(Scope.Thread)
+    public static class AppendState {
+        @Param({"false", "true"})
+        public boolean lockFree;
+        @Param({"256", "4096"})
+        public int msgSize;
+
+        private MsgMemStore msgMemStore;
+        private MsgStoreStatsHolder memStatsHolder;
+        private ByteBuffer[] dataEntries;
+        private ByteBuffer[] indexEntries;
+        private AppendResult appendResult;
+        private int msgBufLen;
+        private int appendCnt = 0;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize;
+            msgMemStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0, 0, lockFree);
+            memStatsHolder = new MsgStoreStatsHolder();
+            appendResult = new AppendResult();
+            dataEntries = new ByteBuffer[PARTITION_CNT];
+            indexEntries = new ByteBuffer[PARTITION_CNT];
+            for (int i = 0; i < PARTITION_CNT; i++) {
+                dataEntries[i] =
+                        StoreBenchmarkUtils.buildDataEntry(i, i, i, msgSize, false);
+                indexEntries[i] =
+                        StoreBenchmarkUtils.buildIndexEntry(i, i, msgBufLen);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            msgMemStore.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReadState {
+        @Param({"false", "true"})
+        public boolean lockFree;
+        @Param({"256", "4096"})
+        public int msgSize;
+
+        private MsgMemStore msgMemStore;
+        private long maxIndexOffset;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + msgSize;
+            msgMemStore = new MsgMemStore(MAX_CACHE_SIZE, MAX_MSG_COUNT, 0, 0, lockFree);
+            MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+            AppendResult appendResult = new AppendResult();
+            for (long msgId = 0; ; msgId++) {
+                int partitionId = (int) (msgId % PARTITION_CNT);
+                if (!msgMemStore.appendMsg(memStatsHolder, partitionId, partitionId,
+                        System.currentTimeMillis(),
+                        StoreBenchmarkUtils.buildIndexEntry(partitionId, partitionId, msgBufLen),
+                        msgBufLen, StoreBenchmarkUtils.buildDataEntry(partitionId,
+                                partitionId, msgId, msgSize, false), appendResult)) {
+                    break;
+                }
+            }
+            maxIndexOffset = msgMemStore.getIndexCacheSize();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            msgMemStore.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        private long readIndexOffset = 0;
+        private int partitionId = 0;
+    }
+
+    @Benchmark
+    public boolean appendMsg(AppendState state) {
+        int partitionId = state.appendCnt++ % PARTITION_CNT;
+        ByteBuffer dataEntry = state.dataEntries[partitionId];
+        ByteBuffer indexEntry = state.indexEntries[partitionId];
+        if (state.msgMemStore.appendMsg(state.memStatsHolder, partitionId, partitionId,
+                System.currentTimeMillis(), indexEntry, state.msgBufLen,
+                dataEntry, state.appendResult)) {
+            return true;
+        }
+        // the cache is full, start over as after a flush
+        state.msgMemStore.resetMemStoreStatus(0, 0);
+        return state.msgMemStore.appendMsg(state.memStatsHolder, partitionId, partitionId,
+                System.currentTimeMillis(), indexEntry, state.msgBufLen,
+                dataEntry, state.appendResult);
+    }
+
+    @Benchmark
+    public GetCacheMsgResult getMessages(ReadState state, ReaderState reader) {
+        GetCacheMsgResult result = state.msgMemStore.getMessages(0,
+                reader.readIndexOffset, 512 * 1024, 1000,
+                reader.partitionId, false, false, null, 0);
+        if (result.isSuccess && result.dltOffset > 0) {
+            reader.readIndexOffset += result.dltOffset;
+        }
+        if (!result.isSuccess || result.dltOffset <= 0
+                || reader.readIndexOffset >= state.maxIndexOffset) {
+            // read the cache from the start again by the next partition
+            reader.readIndexOffset = 0;
+            reader.partitionId = (reader.partitionId + 1) % PARTITION_CNT;
+        }
+        return result;
+    }
+}
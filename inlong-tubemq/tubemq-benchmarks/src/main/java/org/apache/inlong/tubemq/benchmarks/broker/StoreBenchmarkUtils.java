@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.broker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * Utilities for the store benchmarks, build the stored message entries
+ * and the broker configure against a temporary directory.
+ */
+public final class StoreBenchmarkUtils {
+
+    private StoreBenchmarkUtils() {
+    }
+
+    /**
+     * Build a stored data entry, laid out as the broker writes it.
+     *
+     * @param partitionId   the partition id
+     * @param keyCode       the filter item hash code
+     * @param msgId         the message id
+     * @param payloadSize   the payload size
+     * @param withAttr      whether the payload starts with a message attribute
+     * @return  the data entry, flipped for reading
+     */
+    public static ByteBuffer buildDataEntry(int partitionId, int keyCode,
+                                            long msgId, int payloadSize,
+                                            boolean withAttr) {
+        byte[] payload = new byte[payloadSize];
+        for (int i = 0; i < payloadSize; i++) {
+            payload[i] = (byte) ('a' + i % 26);
+        }
+        if (withAttr) {
+            byte[] attrData = new StringBuilder(64)
+                    .append(TokenConstants.TOKEN_MSG_TIME).append(TokenConstants.EQ)
+                    .append("202201011200").toString().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer attrBuffer = ByteBuffer.wrap(payload);
+            attrBuffer.putInt(attrData.length);
+            attrBuffer.put(attrData);
+        }
+        ByteBuffer dataEntry =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + payloadSize);
+        dataEntry.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + payloadSize);
+        dataEntry.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataEntry.putInt(CheckSum.crc32(payload));
+        dataEntry.putInt(partitionId);
+        dataEntry.putLong(-1L);
+        dataEntry.putLong(System.currentTimeMillis());
+        dataEntry.putInt(0);
+        dataEntry.putInt(keyCode);
+        dataEntry.putLong(msgId);
+        dataEntry.putInt(withAttr ? 1 : 0);
+        dataEntry.put(payload);
+        dataEntry.flip();
+        return dataEntry;
+    }
+
+    /**
+     * Build a stored index entry.
+     *
+     * @param partitionId   the partition id
+     * @param keyCode       the filter item hash code
+     * @param dataSize      the size of the data entry
+     * @return  the index entry, flipped for reading
+     */
+    public static ByteBuffer buildIndexEntry(int partitionId, int keyCode, int dataSize) {
+        ByteBuffer indexEntry = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexEntry.putInt(partitionId);
+        indexEntry.putLong(-1L);
+        indexEntry.putInt(dataSize);
+        indexEntry.putInt(keyCode);
+        indexEntry.putLong(System.currentTimeMillis());
+        indexEntry.flip();
+        return indexEntry;
+    }
+
+    /**
+     * Load a broker configure storing the data under the given directory.
+     *
+     * @param baseDir         the base directory
+     * @param maxSegmentSize  the max data segment size
+     * @param mmapFileRead    whether to read the sealed segments through mmap
+     * @return  the broker configure
+     * @throws IOException  the exception while writing the configure file
+     */
+    public static BrokerConfig loadBrokerConfig(File baseDir, int maxSegmentSize,
+                                                boolean mmapFileRead) throws IOException {
+        File dataDir = new File(baseDir, "data");
+        File iniFile = new File(baseDir, "broker.ini");
+        String iniContent = new StringBuilder(512)
+                .append("[broker]\n")
+                .append("brokerId=1\n")
+                .append("hostName=127.0.0.1\n")
+                .append("port=8123\n")
+                .append("webPort=8081\n")
+                .append("masterAddressList=127.0.0.1:8715\n")
+                .append("primaryPath=").append(dataDir.getAbsolutePath()).append("\n")
+                .append("maxSegmentSize=").append(maxSegmentSize).append("\n")
+                .append("transferSize=524288\n")
+                .append("enableMmapFileRead=").append(mmapFileRead).append("\n")
+                .append("[zookeeper]\n")
+                .append("zkNodeRoot=/tubemq\n")
+                .append("zkServerAddr=localhost:2181\n")
+                .toString();
+        Files.write(iniFile.toPath(), iniContent.getBytes(StandardCharsets.UTF_8));
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.loadFromFile(iniFile.getAbsolutePath());
+        return brokerConfig;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.client.producer.LatencyAwarePartitionRouter;
+import org.apache.inlong.tubemq.client.producer.PartitionRouter;
+import org.apache.inlong.tubemq.client.producer.RoundRobinPartitionRouter;
+import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PartitionRouter benchmark, the producer sends to the brokers of a simulated
+ * cluster in which broker 0 is slowFactor times slower than the others.
+ *
+ * Each operation routes a message, "sends" it at a virtual time, and completes the
+ * requests whose simulated latency has elapsed, the send and receive statistics are
+ * fed to DefaultBrokerRcvQltyStats as the producer does. The score is the routing
+ * overhead, the simulated send latency and the share of the slow broker are printed
+ * after each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PartitionRouterBenchmark {
+
+    private static final int BROKER_CNT = 4;
+    private static final int PART_CNT = 8;
+    private static final long FAST_LATENCY_US = 2000L;
+    // 20k messages per second
+    private static final long SEND_INTERVAL_US = 50L;
+    private static final int MAX_LATENCY_MS = 1000;
+
+    @Param({"roundRobin", "latencyAware"})
+    public String router;
+    @Param({"10"})
+    public int slowFactor;
+
+    private PartitionRouter partitionRouter;
+    private DefaultBrokerRcvQltyStats brokerRcvQltyStats;
+    private List<Partition> partitions;
+    private Message message;
+    private long[] brokerLatencyUs;
+    // the in-flight requests: {complete time, send time, broker id}
+    private PriorityQueue<long[]> inFlightReqs;
+    private long virtualTimeUs;
+    private long[] latencyMsCounts;
+    private long completedCnt;
+    private long slowBrokerSentCnt;
+    private long totalSentCnt;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        brokerRcvQltyStats = new DefaultBrokerRcvQltyStats(null,
+                new TubeClientConfig("127.0.0.1:8715"));
+        if ("latencyAware".equals(router)) {
+            partitionRouter = new LatencyAwarePartitionRouter(brokerRcvQltyStats);
+        } else {
+            partitionRouter = new RoundRobinPartitionRouter();
+        }
+        partitions = new ArrayList<>();
+        brokerLatencyUs = new long[BROKER_CNT];
+        for (int brokerId = 0; brokerId < BROKER_CNT; brokerId++) {
+            BrokerInfo brokerInfo = new BrokerInfo(brokerId, "127.0.0.1", 8123 + brokerId);
+            for (int partId = 0; partId < PART_CNT; partId++) {
+                partitions.add(new Partition(brokerInfo, "topic", partId));
+            }
+            brokerLatencyUs[brokerId] =
+                    brokerId == 0 ? FAST_LATENCY_US * slowFactor : FAST_LATENCY_US;
+        }
+        message = new Message("topic", new byte[]{1, 2, 3});
+        inFlightReqs = new PriorityQueue<>((o1, o2) -> Long.compare(o1[0], o2[0]));
+        virtualTimeUs = 0;
+        latencyMsCounts = new long[MAX_LATENCY_MS + 1];
+        completedCnt = 0;
+        slowBrokerSentCnt = 0;
+        totalSentCnt = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        long count = 0;
+        long p50 = -1;
+        long p99 = -1;
+        for (int latencyMs = 0; latencyMs <= MAX_LATENCY_MS; latencyMs++) {
+            count += latencyMsCounts[latencyMs];
+            if (p50 < 0 && count >= completedCnt * 0.5) {
+                p50 = latencyMs;
+            }
+            if (p99 < 0 && count >= completedCnt * 0.99) {
+                p99 = latencyMs;
+            }
+        }
+        System.out.println(String.format(
+                "%n[%s] sent %d, slow broker share %.2f%%, latency p50 %dms, p99 %dms",
+                router, totalSentCnt, slowBrokerSentCnt * 100.0 / Math.max(1, totalSentCnt),
+                p50, p99));
+    }
+
+    @Benchmark
+    public Partition sendMessage() throws TubeClientException {
+        virtualTimeUs += SEND_INTERVAL_US;
+        // complete the requests whose latency has elapsed
+        long[] request = inFlightReqs.peek();
+        while (request != null && request[0] <= virtualTimeUs) {
+            inFlightReqs.poll();
+            long latencyMs = (request[0] - request[1]) / 1000L;
+            brokerRcvQltyStats.addReceiveStatistic((int) request[2], true, latencyMs);
+            latencyMsCounts[(int) Math.min(latencyMs, MAX_LATENCY_MS)]++;
+            completedCnt++;
+            request = inFlightReqs.peek();
+        }
+        Partition partition = partitionRouter.getPartition(message, partitions);
+        int brokerId = partition.getBrokerId();
+        brokerRcvQltyStats.addSendStatistic(brokerId);
+        inFlightReqs.add(new long[]{virtualTimeUs + brokerLatencyUs[brokerId],
+                virtualTimeUs, brokerId});
+        totalSentCnt++;
+        if (brokerId == 0) {
+            slowBrokerSentCnt++;
+        }
+        return partition;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.corebase;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CheckSum.crc32 benchmark, the checksum is calculated for each message
+ * by the producer and verified by the broker.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckSumBenchmark {
+
+    @Param({"64", "1024", "16384", "1048576"})
+    public int dataSize;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = new byte[dataSize + 8];
+        new Random(dataSize).nextBytes(data);
+    }
+
+    @Benchmark
+    public int crc32() {
+        return CheckSum.crc32(data, 0, dataSize);
+    }
+
+    @Benchmark
+    public int crc32Unaligned() {
+        return CheckSum.crc32(data, 3, dataSize);
+    }
+}
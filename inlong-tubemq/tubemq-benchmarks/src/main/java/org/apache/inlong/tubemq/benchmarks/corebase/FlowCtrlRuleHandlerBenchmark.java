@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.corebase;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlItem;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlResult;
+import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FlowCtrlRuleHandler benchmark, the flow control rules evaluated by the broker
+ * on each fetch request, and the parse of the rules pushed by the Master.
+ *
+ * The "legacy" benchmarks evaluate the decoded rule lists with a Calendar per call
+ * as the handler did before the rules were precompiled, for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowCtrlRuleHandlerBenchmark {
+
+    // 0: current limit, 1: frequency limit, 3: request frequency control,
+    // the current limit rules cover the whole day so they are always evaluated
+    private static final String FLOW_CTRL_INFO =
+            "[{\"type\":0,\"rule\":[{\"start\":\"00:00\",\"end\":\"11:59\",\"dltInM\":1024,"
+            + "\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"12:00\",\"end\":\"23:59\","
+            + "\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":5000}]},"
+            + "{\"type\":1,\"rule\":[{\"zeroCnt\":3,\"freqInMs\":300},{\"zeroCnt\":8,\"freqInMs\""
+            + ":1000}]},{\"type\":3,\"rule\":[{\"normFreqInMs\":0,\"filterFreqInMs\":100,"
+            + "\"minDataFilterFreqInMs\":400}]}]";
+
+    private final TimeZone timeZone = TimeZone.getTimeZone("GMT+8:00");
+    private FlowCtrlRuleHandler flowCtrlRuleHandler;
+    private Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        flowCtrlRuleHandler = new FlowCtrlRuleHandler(true);
+        flowCtrlRuleHandler.updateFlowCtrlInfo(2, 10, FLOW_CTRL_INFO);
+        flowCtrlRuleSet = flowCtrlRuleHandler.parseFlowCtrlInfo(FLOW_CTRL_INFO);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimit() {
+        // 2 GB lag, above the lag threshold of the rules
+        return flowCtrlRuleHandler.getCurDataLimit(2048L * 1024L * 1024L);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimitBelowDlt() {
+        return flowCtrlRuleHandler.getCurDataLimit(1024L);
+    }
+
+    @Benchmark
+    public FlowCtrlResult getCurDataLimitLegacy() {
+        Calendar rightNow = Calendar.getInstance(timeZone);
+        int hour = rightNow.get(Calendar.HOUR_OF_DAY);
+        int minu = rightNow.get(Calendar.MINUTE);
+        for (FlowCtrlItem flowCtrlItem : flowCtrlRuleSet.get(0)) {
+            FlowCtrlResult flowCtrlResult =
+                    flowCtrlItem.getDataLimit(2048L * 1024L * 1024L, hour, minu);
+            if (flowCtrlResult != null) {
+                return flowCtrlResult;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int getCurFreqLimitTime() {
+        return flowCtrlRuleHandler.getCurFreqLimitTime(10, 0);
+    }
+
+    @Benchmark
+    public int getCurFreqLimitTimeLegacy() {
+        for (FlowCtrlItem flowCtrlItem : flowCtrlRuleSet.get(1)) {
+            int ruleVal = flowCtrlItem.getFreLimit(10);
+            if (ruleVal >= 0) {
+                return ruleVal;
+            }
+        }
+        return 0;
+    }
+
+    @Benchmark
+    public FlowCtrlItem getFilterCtrlItem() {
+        return flowCtrlRuleHandler.getFilterCtrlItem();
+    }
+
+    @Benchmark
+    public Map<Integer, List<FlowCtrlItem>> parseFlowCtrlInfo() throws Exception {
+        return flowCtrlRuleHandler.parseFlowCtrlInfo(FLOW_CTRL_INFO);
+    }
+}
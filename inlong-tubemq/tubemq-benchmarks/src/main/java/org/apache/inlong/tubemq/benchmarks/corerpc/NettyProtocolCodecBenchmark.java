@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.benchmarks.corerpc;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolDecoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyProtocolEncoder;
+import org.apache.inlong.tubemq.corerpc.netty.NettyRpcDataPack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NettyProtocolEncoder and NettyProtocolDecoder benchmark, encode and decode
+ * a RPC data pack through the codec handlers with the pooled allocator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class NettyProtocolCodecBenchmark {
+
+    @Param({"128", "8192", "262144"})
+    public int packSize;
+
+    private EmbeddedChannel encChannel;
+    private EmbeddedChannel decChannel;
+    private RpcDataPack dataPack;
+    private ByteBuf encodedPack;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // split the pack into frames as the RPC layer does
+        List<ByteBuffer> dataList = new ArrayList<>();
+        for (int remain = packSize; remain > 0; remain -= RpcConstants.RPC_MAX_BUFFER_SIZE) {
+            dataList.add(ByteBuffer.allocate(Math.min(remain, RpcConstants.RPC_MAX_BUFFER_SIZE)));
+        }
+        dataPack = new RpcDataPack(1, dataList);
+        encChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        encChannel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        decChannel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        encChannel.writeOutbound(dataPack);
+        encodedPack = encChannel.readOutbound();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encodedPack.release();
+        encChannel.finishAndReleaseAll();
+        decChannel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public int encode() {
+        encChannel.writeOutbound(dataPack);
+        ByteBuf encoded = encChannel.readOutbound();
+        int encodedSize = encoded.readableBytes();
+        encoded.release();
+        return encodedSize;
+    }
+
+    @Benchmark
+    public long decode() {
+        decChannel.writeInbound(encodedPack.retainedDuplicate());
+        NettyRpcDataPack decoded = decChannel.readInbound();
+        long decodedSize = decoded.getDataSize();
+        decoded.release();
+        return decodedSize;
+    }
+}
@@ -33,6 +33,13 @@ public class TClientConstants {
     public static final long CFG_DEFAULT_HEARTBEAT_PERIOD_AFTER_RETRY_FAIL = 60000;
     public static final int CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT =
             Runtime.getRuntime().availableProcessors();
+    public static final int CFG_DEFAULT_CLIENT_PUSH_CONSUME_THREAD_CNT =
+            Runtime.getRuntime().availableProcessors();
+    // 0 means the push consumer does not prefetch messages
+    public static final long CFG_DEFAULT_PUSH_PREFETCH_MAX_BYTES = 0L;
+    // the max prefetched bytes of all the push consumers of a session factory
+    public static final long CFG_DEFAULT_PUSH_PREFETCH_TOTAL_MAX_BYTES = 256L * 1024 * 1024;
+    public static final int CFG_DEFAULT_MSG_COMPRESS_MIN_SIZE = 512;
 
     public static final int MAX_CONNECTION_FAILURE_LOG_TIMES = 10;
     public static final int MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES = 6;
@@ -41,6 +41,7 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.MAX_SUBSCRIBE_REPORT_INTERVAL_TIMES;
     private long msgNotFoundWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_MSG_NOTFOUND_WAIT_PERIOD_MS;
+    private long longPollMaxWaitMs = 0;
     private long pullConsumeReadyWaitPeriodMs =
             TClientConstants.CFG_DEFAULT_CONSUME_READ_WAIT_PERIOD_MS;
     private long pullConsumeReadyChkSliceMs =
@@ -51,6 +52,10 @@ public class ConsumerConfig extends TubeClientConfig {
             TClientConstants.CFG_DEFAULT_META_QUERY_WAIT_PERIOD_MS;
     private int pushFetchThreadCnt =
             TClientConstants.CFG_DEFAULT_CLIENT_PUSH_FETCH_THREAD_CNT;
+    private int pushConsumeThreadCnt =
+            TClientConstants.CFG_DEFAULT_CLIENT_PUSH_CONSUME_THREAD_CNT;
+    private long pushPrefetchMaxBytes =
+            TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_MAX_BYTES;
     private boolean pushListenerWaitTimeoutRollBack = true;
     private boolean pushListenerThrowedRollBack = false;
     private long pushListenerWaitPeriodMs =
@@ -61,6 +66,7 @@ public class ConsumerConfig extends TubeClientConfig {
     private long pullProtectConfirmTimeoutMs =
             TClientConstants.CFG_DEFAULT_PULL_PROTECT_CONFIRM_WAIT_PERIOD_MS;
     private boolean pullConfirmInLocal = false;
+    private boolean cooperativeRebalance = false;
 
     public ConsumerConfig(String masterAddrInfo, String consumerGroup) {
         this(new MasterInfo(masterAddrInfo), consumerGroup);
@@ -122,6 +128,22 @@ public class ConsumerConfig extends TubeClientConfig {
         this.msgNotFoundWaitPeriodMs = msgNotFoundWaitPeriodMs;
     }
 
+    public long getLongPollMaxWaitMs() {
+        return longPollMaxWaitMs;
+    }
+
+    // setLongPollMaxWaitMs() use note:
+    // If set to a positive value, the broker parks the fetch request of a caught up partition
+    // until new messages arrive or the wait time is reached, and the time spent in the broker
+    // is deducted from the msgNotFoundWaitPeriodMs wait; the broker caps the wait time by its
+    // own configure and the rpc timeout. 0 disables the long-poll fetch.
+    public void setLongPollMaxWaitMs(long longPollMaxWaitMs) {
+        if (longPollMaxWaitMs >= 0
+                && longPollMaxWaitMs <= Integer.MAX_VALUE) {
+            this.longPollMaxWaitMs = longPollMaxWaitMs;
+        }
+    }
+
     public long getPullConsumeReadyWaitPeriodMs() {
         return pullConsumeReadyWaitPeriodMs;
     }
@@ -184,6 +206,38 @@ public class ConsumerConfig extends TubeClientConfig {
         }
     }
 
+    public int getPushConsumeThreadCnt() {
+        return pushConsumeThreadCnt;
+    }
+
+    // setPushConsumeThreadCnt() use note:
+    // The count of threads calling the message listeners with the prefetched messages,
+    // only takes effect when the prefetch is enabled by setPushPrefetchMaxBytes().
+    public void setPushConsumeThreadCnt(int pushConsumeThreadCnt) {
+        if (pushConsumeThreadCnt <= 0) {
+            this.pushConsumeThreadCnt = TClientConstants.CFG_DEFAULT_CLIENT_PUSH_CONSUME_THREAD_CNT;
+        } else {
+            this.pushConsumeThreadCnt = pushConsumeThreadCnt;
+        }
+    }
+
+    public long getPushPrefetchMaxBytes() {
+        return pushPrefetchMaxBytes;
+    }
+
+    // setPushPrefetchMaxBytes() use note:
+    // If set to a positive value, the fetch threads keep fetching the other partitions
+    // while the fetched messages wait for the consume threads, until the fetched but
+    // unprocessed messages of the consumer reach the given bytes; otherwise each fetch
+    // thread calls the message listener before it fetches again.
+    public void setPushPrefetchMaxBytes(long pushPrefetchMaxBytes) {
+        if (pushPrefetchMaxBytes <= 0) {
+            this.pushPrefetchMaxBytes = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_MAX_BYTES;
+        } else {
+            this.pushPrefetchMaxBytes = pushPrefetchMaxBytes;
+        }
+    }
+
     public boolean isPushListenerWaitTimeoutRollBack() {
         return pushListenerWaitTimeoutRollBack;
     }
@@ -240,6 +294,18 @@ public class ConsumerConfig extends TubeClientConfig {
         this.pullProtectConfirmTimeoutMs = pullProtectConfirmTimeoutMs;
     }
 
+    public boolean isCooperativeRebalance() {
+        return cooperativeRebalance;
+    }
+
+    // setCooperativeRebalance() use note:
+    // If set to true, only the partitions revoked by the Master stop being selected
+    // while the rebalance waits for them to be released, the other partitions keep
+    // being consumed; otherwise all partitions are paused until the revocation completes.
+    public void setCooperativeRebalance(boolean cooperativeRebalance) {
+        this.cooperativeRebalance = cooperativeRebalance;
+    }
+
     public int getMaxSubInfoReportIntvlTimes() {
         return maxSubInfoReportIntvlTimes;
     }
@@ -274,8 +340,11 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append("\",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"consumePosition\":").append(this.consumePosition)
                 .append(",\"msgNotFoundWaitPeriodMs\":").append(this.msgNotFoundWaitPeriodMs)
+                .append(",\"longPollMaxWaitMs\":").append(this.longPollMaxWaitMs)
                 .append(",\"shutDownRebalanceWaitPeriodMs\":").append(this.shutDownRebalanceWaitPeriodMs)
                 .append(",\"pushFetchThreadCnt\":").append(this.pushFetchThreadCnt)
+                .append(",\"pushConsumeThreadCnt\":").append(this.pushConsumeThreadCnt)
+                .append(",\"pushPrefetchMaxBytes\":").append(this.pushPrefetchMaxBytes)
                 .append(",\"pushListenerWaitTimeoutRollBack\":").append(this.pushListenerWaitTimeoutRollBack)
                 .append(",\"pushListenerThrowedRollBack\":").append(this.pushListenerThrowedRollBack)
                 .append(",\"pushListenerWaitPeriodMs\":").append(this.pushListenerWaitPeriodMs)
@@ -283,6 +352,7 @@ public class ConsumerConfig extends TubeClientConfig {
                 .append(",\"pullConfirmWaitPeriodMs\":").append(this.pullRebConfirmWaitPeriodMs)
                 .append(",\"pullProtectConfirmTimeoutPeriodMs\":").append(this.pullProtectConfirmTimeoutMs)
                 .append(",\"pullConfirmInLocal\":").append(this.pullConfirmInLocal)
+                .append(",\"cooperativeRebalance\":").append(this.cooperativeRebalance)
                 .append(",\"maxSubInfoReportIntvlTimes\":").append(this.maxSubInfoReportIntvlTimes)
                 .append(",\"partMetaInfoCheckPeriodMs\":").append(this.partMetaInfoCheckPeriodMs)
                 .append(",\"ClientConfig\":").append(toJsonString())
@@ -23,6 +23,8 @@ import org.apache.inlong.tubemq.client.common.TClientConstants;
 import org.apache.inlong.tubemq.corebase.cluster.MasterInfo;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MsgAckType;
+import org.apache.inlong.tubemq.corebase.utils.MsgCompressType;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 
@@ -95,6 +97,16 @@ public class TubeClientConfig {
     private String usrPassWord = "";
     // TLS configuration.
     private TLSConfig tlsConfig = new TLSConfig();
+    // The compression type of produced message data.
+    private MsgCompressType msgCompressType = MsgCompressType.NONE;
+    // The min message data size to compress.
+    private int msgCompressMinSize = TClientConstants.CFG_DEFAULT_MSG_COMPRESS_MIN_SIZE;
+    // The acknowledge type of produced message.
+    private MsgAckType msgAckType = MsgAckType.LEADER;
+    // Whether route the produced messages by the latency and the in-flight requests of brokers.
+    private boolean latencyAwareRouting = false;
+    // The max prefetched bytes of all the push consumers created by the session factory.
+    private long pushPrefetchTotalMaxBytes = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_TOTAL_MAX_BYTES;
 
     public TubeClientConfig(String masterAddrInfo) {
         this(new MasterInfo(masterAddrInfo));
@@ -466,6 +478,86 @@ public class TubeClientConfig {
         return usrPassWord;
     }
 
+    public MsgCompressType getMsgCompressType() {
+        return msgCompressType;
+    }
+
+    public int getMsgCompressMinSize() {
+        return msgCompressMinSize;
+    }
+
+    /**
+     * Set the compression of produced message data, the message data is compressed
+     * only if its size is not less than msgCompressMinSize and the compressed
+     * data is smaller; consumers decompress the data automatically.
+     *
+     * @param msgCompressType      the compression type
+     * @param msgCompressMinSize   the min message data size to compress
+     */
+    public void setMsgCompressInfo(MsgCompressType msgCompressType, int msgCompressMinSize) {
+        if (msgCompressType == null) {
+            throw new IllegalArgumentException("Illegal parameter: msgCompressType is null!");
+        }
+        if (msgCompressMinSize < 0) {
+            throw new IllegalArgumentException("Illegal parameter: msgCompressMinSize is negative!");
+        }
+        this.msgCompressType = msgCompressType;
+        this.msgCompressMinSize = msgCompressMinSize;
+    }
+
+    public MsgAckType getMsgAckType() {
+        return msgAckType;
+    }
+
+    /**
+     * Set the acknowledge type of produced message, with {@link MsgAckType#ALL}
+     * the broker responds after all the in-sync replicas of the partition stored
+     * the message, or fails the request with a timeout error.
+     *
+     * @param msgAckType      the acknowledge type
+     */
+    public void setMsgAckType(MsgAckType msgAckType) {
+        if (msgAckType == null) {
+            throw new IllegalArgumentException("Illegal parameter: msgAckType is null!");
+        }
+        this.msgAckType = msgAckType;
+    }
+
+    public boolean isLatencyAwareRouting() {
+        return latencyAwareRouting;
+    }
+
+    /**
+     * Set whether route the produced messages by the broker status, if true the
+     * partitions of the brokers with lower send latency and fewer in-flight requests
+     * are preferred, instead of sending to all the partitions in turn.
+     *
+     * @param latencyAwareRouting      whether route by the broker status
+     */
+    public void setLatencyAwareRouting(boolean latencyAwareRouting) {
+        this.latencyAwareRouting = latencyAwareRouting;
+    }
+
+    public long getPushPrefetchTotalMaxBytes() {
+        return pushPrefetchTotalMaxBytes;
+    }
+
+    /**
+     * Set the max prefetched bytes of all the push consumers created by the session
+     * factory, it caps the memory of the prefetch besides the limit of each consumer
+     * set by ConsumerConfig.setPushPrefetchMaxBytes(), and only takes effect in the
+     * configure used to create the session factory.
+     *
+     * @param pushPrefetchTotalMaxBytes      the max prefetched bytes, the default if not positive
+     */
+    public void setPushPrefetchTotalMaxBytes(long pushPrefetchTotalMaxBytes) {
+        if (pushPrefetchTotalMaxBytes <= 0) {
+            this.pushPrefetchTotalMaxBytes = TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_TOTAL_MAX_BYTES;
+        } else {
+            this.pushPrefetchTotalMaxBytes = pushPrefetchTotalMaxBytes;
+        }
+    }
+
     public StatsConfig getStatsConfig() {
         return this.statsConfig;
     }
@@ -565,6 +657,21 @@ public class TubeClientConfig {
         if (!usrPassWord.equals(that.usrPassWord)) {
             return false;
         }
+        if (msgCompressType != that.msgCompressType) {
+            return false;
+        }
+        if (msgCompressMinSize != that.msgCompressMinSize) {
+            return false;
+        }
+        if (msgAckType != that.msgAckType) {
+            return false;
+        }
+        if (latencyAwareRouting != that.latencyAwareRouting) {
+            return false;
+        }
+        if (pushPrefetchTotalMaxBytes != that.pushPrefetchTotalMaxBytes) {
+            return false;
+        }
         if (!this.tlsConfig.equals(that.tlsConfig)) {
             return false;
         }
@@ -619,6 +726,11 @@ public class TubeClientConfig {
                 .append(",\"sessionMaxAllowedDelayedMsgCount\":").append(this.sessionMaxAllowedDelayedMsgCount)
                 .append(",\"unAvailableFbdDurationMs\":").append(this.unAvailableFbdDurationMs)
                 .append(",\"enableUserAuthentic\":").append(this.enableUserAuthentic)
+                .append(",\"msgCompressType\":\"").append(this.msgCompressType.getName())
+                .append("\",\"msgCompressMinSize\":").append(this.msgCompressMinSize)
+                .append(",\"msgAckType\":\"").append(this.msgAckType.getName()).append("\"")
+                .append(",\"latencyAwareRouting\":").append(this.latencyAwareRouting)
+                .append(",\"pushPrefetchTotalMaxBytes\":").append(this.pushPrefetchTotalMaxBytes)
                 .append(",").append(this.statsConfig.toString())
                 .append(",\"usrName\":\"").append(this.usrName)
                 .append("\",\"usrPassWord\":\"").append(this.usrPassWord)
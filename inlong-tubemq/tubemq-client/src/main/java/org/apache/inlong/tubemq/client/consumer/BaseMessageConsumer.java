@@ -778,6 +778,9 @@ public class BaseMessageConsumer implements MessageConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        if (this.consumerConfig.getLongPollMaxWaitMs() > 0) {
+            builder.setMaxWaitMs((int) this.consumerConfig.getLongPollMaxWaitMs());
+        }
         return builder.build();
     }
 
@@ -1325,6 +1328,10 @@ public class BaseMessageConsumer implements MessageConsumer {
                         }
                         case TErrCodeConstants.NOT_FOUND: {
                             limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            if (consumerConfig.getLongPollMaxWaitMs() > 0) {
+                                // the request may have been parked in the broker
+                                limitDlt = Math.max(0, limitDlt - dltTime);
+                            }
                             break;
                         }
                         default: {
@@ -28,6 +28,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Fetch messages with multiple threads.
+ *
+ * If the prefetch is enabled, the fetch threads only fetch messages into the prefetch
+ * buffer, and the consume threads deliver the buffered messages to the listeners.
  */
 public class MessageFetchManager {
 
@@ -43,6 +46,7 @@ public class MessageFetchManager {
     // 1: Started
     private AtomicInteger managerStatus = new AtomicInteger(-1);
     private Thread[] fetchWorkerPool;
+    private Thread[] consumeWorkerPool;
 
     public MessageFetchManager(final ConsumerConfig consumerConfig,
                                final SimplePushMessageConsumer pushConsumer) {
@@ -80,6 +84,26 @@ public class MessageFetchManager {
                     .append("-").append(i).toString());
             sBuilder.delete(0, sBuilder.length());
         }
+        if (this.pushConsumer.isPrefetchEnabled()) {
+            this.consumeWorkerPool =
+                    new Thread[this.consumerConfig.getPushConsumeThreadCnt()];
+            for (int i = 0; i < this.consumeWorkerPool.length; i++) {
+                this.consumeWorkerPool[i] = new Thread(new ConsumeTaskWorker());
+                this.fetchWorkerStatusMap.put(this.consumeWorkerPool[i].getId(), -1);
+                this.consumeWorkerPool[i].setName(sBuilder.append("Consume_Worker_")
+                        .append(this.consumerConfig.getConsumerGroup())
+                        .append("-").append(i).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+            for (final Thread thread : this.consumeWorkerPool) {
+                thread.start();
+            }
+            logger.info(sBuilder
+                    .append("Consume Worker Pool started, total count:")
+                    .append(consumeWorkerPool.length).append(", prefetch max bytes:")
+                    .append(this.consumerConfig.getPushPrefetchMaxBytes()).toString());
+            sBuilder.delete(0, sBuilder.length());
+        }
         for (final Thread thread : this.fetchWorkerPool) {
             thread.start();
         }
@@ -125,25 +149,36 @@ public class MessageFetchManager {
         }
         logger.info("[STOP_FetchWorker] Wait all fetch workers exist:");
         if (waitAllFetchRequestHolds(this.consumerConfig.getPushListenerWaitPeriodMs())) {
-            for (final Thread thread : this.fetchWorkerPool) {
-                if (thread != null) {
-                    thread.interrupt();
-                }
-            }
-            for (final Thread thread : this.fetchWorkerPool) {
-                if (thread != null) {
-                    thread.join();
-                    logger.info(sBuilder.append("[STOP_FetchWorker]").append(thread).toString());
-                    sBuilder.delete(0, sBuilder.length());
-                }
-            }
+            interruptAndJoin(this.fetchWorkerPool, sBuilder);
+            interruptAndJoin(this.consumeWorkerPool, sBuilder);
         }
+        // all workers exited, roll back the messages left in the prefetch buffer
+        this.pushConsumer.rollbackPrefetched();
         this.pushConsumer
                 .getBaseConsumer().notifyAllMessageListenerStopped();
         Thread.sleep(200);
         logger.info("[STOP_FetchWorker] All fetch workers are stopped.");
     }
 
+    private void interruptAndJoin(Thread[] workerPool,
+                                  StringBuilder sBuilder) throws InterruptedException {
+        if (workerPool == null) {
+            return;
+        }
+        for (final Thread thread : workerPool) {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        for (final Thread thread : workerPool) {
+            if (thread != null) {
+                thread.join();
+                logger.info(sBuilder.append("[STOP_FetchWorker]").append(thread).toString());
+                sBuilder.delete(0, sBuilder.length());
+            }
+        }
+    }
+
     private boolean waitAllFetchRequestHolds(long waitTimeInMills) {
         boolean haveProcessingThread = false;
         long startWaitTime = System.currentTimeMillis();
@@ -177,6 +212,9 @@ public class MessageFetchManager {
                     }
                     fetchWorkerStatusMap.put(curThreadId, 1);
                     MessageFetchManager.this.pushConsumer.allowConsumeWait();
+                    if (!MessageFetchManager.this.pushConsumer.allowPrefetchWait(200)) {
+                        continue;
+                    }
                     partSelectResult =
                             MessageFetchManager.this.pushConsumer
                                     .getBaseConsumer().pushSelectPartition();
@@ -227,4 +265,32 @@ public class MessageFetchManager {
             fetchWorkerStatusMap.remove(curThreadId);
         }
     }
+
+    private class ConsumeTaskWorker implements Runnable {
+        @Override
+        public void run() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            final Long curThreadId = Thread.currentThread().getId();
+            fetchWorkerStatusMap.put(curThreadId, 0);
+            while (!isShutdown()) {
+                fetchWorkerStatusMap.put(curThreadId, 0);
+                MessageFetchManager.this.pushConsumer.allowConsumeWait();
+                FetchContext taskContext =
+                        MessageFetchManager.this.pushConsumer.pollPrefetched(200);
+                if (taskContext == null) {
+                    continue;
+                }
+                fetchWorkerStatusMap.put(curThreadId, 2);
+                try {
+                    MessageFetchManager.this.pushConsumer.processPrefetched(taskContext, sBuilder);
+                } catch (Throwable e) {
+                    sBuilder.delete(0, sBuilder.length());
+                    logger.warn(sBuilder.append("Process prefetched messages failure in ")
+                            .append(Thread.currentThread().getName()).toString(), e);
+                    sBuilder.delete(0, sBuilder.length());
+                }
+            }
+            fetchWorkerStatusMap.remove(curThreadId);
+        }
+    }
 }
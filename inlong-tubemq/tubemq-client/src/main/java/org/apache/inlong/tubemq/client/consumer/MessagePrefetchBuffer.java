@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.inlong.tubemq.corebase.Message;
+
+/**
+ * The prefetch buffer of the push consumer, holds the fetched but unprocessed
+ * messages of the partitions in fetch order.
+ *
+ * The buffered bytes are counted from a pack being added until it is released after
+ * the listener processed it, and the fetch threads wait for capacity before selecting
+ * another partition. The bytes may exceed the limit by at most one pack per fetch
+ * thread, since the size of a pack is unknown until it is fetched. The bytes are also
+ * counted in the memory limiter shared by the consumers of the same session factory.
+ */
+public class MessagePrefetchBuffer {
+    private final long maxBufferBytes;
+    private final PrefetchMemoryLimiter memoryLimiter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<FetchContext> bufferedPacks = new ArrayDeque<>();
+    private long bufferedBytes = 0;
+
+    public MessagePrefetchBuffer(long maxBufferBytes, PrefetchMemoryLimiter memoryLimiter) {
+        this.maxBufferBytes = maxBufferBytes;
+        this.memoryLimiter = memoryLimiter;
+    }
+
+    /**
+     * Wait until the buffered bytes and the bytes of the memory limiter are below the limits
+     *
+     * @param waitMs   the max wait time in milliseconds
+     * @return whether the buffer has capacity
+     * @throws InterruptedException   Exception thrown
+     */
+    public boolean awaitCapacity(long waitMs) throws InterruptedException {
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMs);
+        lock.lockInterruptibly();
+        try {
+            while (bufferedBytes >= maxBufferBytes) {
+                if (waitNanos <= 0) {
+                    return false;
+                }
+                waitNanos = notFull.awaitNanos(waitNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return memoryLimiter.awaitCapacity(waitNanos);
+    }
+
+    /**
+     * Add a fetched pack to the buffer
+     *
+     * @param fetchContext   the fetched pack
+     */
+    public void offer(FetchContext fetchContext) {
+        final long packSize = getPackSize(fetchContext);
+        memoryLimiter.acquire(packSize);
+        lock.lock();
+        try {
+            bufferedPacks.offer(fetchContext);
+            bufferedBytes += packSize;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the earliest fetched pack, the pack must be released after processed
+     *
+     * @param waitMs   the max wait time in milliseconds
+     * @return the fetched pack, null if no pack is buffered after the wait
+     * @throws InterruptedException   Exception thrown
+     */
+    public FetchContext poll(long waitMs) throws InterruptedException {
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMs);
+        lock.lockInterruptibly();
+        try {
+            while (bufferedPacks.isEmpty()) {
+                if (waitNanos <= 0) {
+                    return null;
+                }
+                waitNanos = notEmpty.awaitNanos(waitNanos);
+            }
+            return bufferedPacks.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the bytes of a processed pack
+     *
+     * @param fetchContext   the pack taken from the buffer
+     */
+    public void release(FetchContext fetchContext) {
+        final long packSize = getPackSize(fetchContext);
+        lock.lock();
+        try {
+            bufferedBytes = Math.max(0, bufferedBytes - packSize);
+            if (bufferedBytes < maxBufferBytes) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        memoryLimiter.release(packSize);
+    }
+
+    /**
+     * Remove all the packs not taken yet, the packs must be released by the caller
+     *
+     * @return the removed packs
+     */
+    public List<FetchContext> drain() {
+        lock.lock();
+        try {
+            List<FetchContext> result = new ArrayList<>(bufferedPacks);
+            bufferedPacks.clear();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxBufferBytes() {
+        return maxBufferBytes;
+    }
+
+    public long getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedPackCnt() {
+        lock.lock();
+        try {
+            return bufferedPacks.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long getPackSize(FetchContext fetchContext) {
+        long packSize = 0;
+        if (fetchContext.getMessageList() != null) {
+            for (Message message : fetchContext.getMessageList()) {
+                if (message.getData() != null) {
+                    packSize += message.getData().length;
+                }
+            }
+        }
+        return packSize;
+    }
+}
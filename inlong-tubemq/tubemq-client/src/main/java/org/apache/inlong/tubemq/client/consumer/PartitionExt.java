@@ -226,7 +226,9 @@ public class PartitionExt extends Partition {
     }
 
     public void setCurAllowedMsgSize(int curAllowedMsgSize) {
-        this.curFlowCtrlVal.setDataLtInSize(curAllowedMsgSize);
+        // the flow control result may be shared by the rule handler, replace it
+        this.curFlowCtrlVal =
+                new FlowCtrlResult(curAllowedMsgSize, this.curFlowCtrlVal.freqLtInMs);
     }
 
     public long getNextStatTime() {
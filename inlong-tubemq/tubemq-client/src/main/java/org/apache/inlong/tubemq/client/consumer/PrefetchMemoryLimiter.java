@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The limiter of the prefetched bytes of all the push consumers created by a session factory.
+ *
+ * Each prefetch buffer adds the bytes of its buffered packs to the limiter, and the fetch
+ * threads wait for the capacity of both their buffer and the limiter before selecting
+ * another partition, so the prefetched memory of the process is capped besides the limit
+ * of each consumer.
+ */
+public class PrefetchMemoryLimiter {
+    private final long maxTotalBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private long usedBytes = 0;
+
+    public PrefetchMemoryLimiter(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Wait until the used bytes are below the limit
+     *
+     * @param waitNanos   the max wait time in nanoseconds
+     * @return whether the limiter has capacity
+     * @throws InterruptedException   Exception thrown
+     */
+    public boolean awaitCapacity(long waitNanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (usedBytes >= maxTotalBytes) {
+                if (waitNanos <= 0) {
+                    return false;
+                }
+                waitNanos = notFull.awaitNanos(waitNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the bytes of a buffered pack
+     *
+     * @param bytes   the bytes of the pack
+     */
+    public void acquire(long bytes) {
+        lock.lock();
+        try {
+            usedBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the bytes of a processed pack
+     *
+     * @param bytes   the bytes of the pack
+     */
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            usedBytes = Math.max(0, usedBytes - bytes);
+            if (usedBytes < maxTotalBytes) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -17,6 +17,10 @@
 
 package org.apache.inlong.tubemq.client.consumer;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -46,10 +50,6 @@ import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timeout;
-import org.jboss.netty.util.Timer;
-import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -116,6 +116,9 @@ public class RmtDataCache implements Closeable {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String/* partitionKey */, Integer> partRegisterBookMap =
             new ConcurrentHashMap<>();
+    // the partitions being revoked in cooperative rebalance, not selected any more
+    private final Set<String/* partitionKey */> revokingPartSet =
+            ConcurrentHashMap.newKeySet();
     private AtomicBoolean isClosed = new AtomicBoolean(false);
     private CountDownLatch dataProcessSync = new CountDownLatch(0);
 
@@ -678,7 +681,7 @@ public class RmtDataCache implements Closeable {
                         TErrCodeConstants.NO_PARTITION_ASSIGNED,
                         "No partition info in local, please wait and try later");
             }
-            String key = indexPartition.poll();
+            String key = pollIdlePartition();
             if (key == null) {
                 if (hasPartitionWait()) {
                     return new PartitionSelectResult(false,
@@ -707,6 +710,11 @@ public class RmtDataCache implements Closeable {
                         TErrCodeConstants.BAD_REQUEST,
                         "No valid partition to consume, retry later 2");
             }
+            if (isRevokedAfterSelect(key)) {
+                return new PartitionSelectResult(false,
+                        TErrCodeConstants.BAD_REQUEST,
+                        "No valid partition to consume, retry later 3");
+            }
             return new PartitionSelectResult(true, TErrCodeConstants.SUCCESS, "Ok!",
                     partitionExt, curTime, partitionExt.getAndResetLastPackConsumed());
         } catch (Throwable e1) {
@@ -749,7 +757,7 @@ public class RmtDataCache implements Closeable {
             do {
                 if (!indexPartition.isEmpty()) {
                     // If there are idle partitions, poll
-                    key = indexPartition.poll();
+                    key = pollIdlePartition();
                     if (key != null) {
                         break;
                     }
@@ -769,7 +777,7 @@ public class RmtDataCache implements Closeable {
             }
             long curTime = System.currentTimeMillis();
             Long newTime = partitionUsedMap.putIfAbsent(key, curTime);
-            if (newTime != null) {
+            if (newTime != null || isRevokedAfterSelect(key)) {
                 return null;
             }
             return new PartitionSelectResult(partitionExt,
@@ -1009,7 +1017,8 @@ public class RmtDataCache implements Closeable {
         StringBuilder sBuilder = new StringBuilder(512);
         HashMap<BrokerInfo, List<PartitionSelectResult>> unNewRegisterInfoMap =
                 new HashMap<>();
-        pauseProcess();
+        boolean isCooperative = consumerConfig.isCooperativeRebalance();
+        startRevoke(isCooperative, partitionKeys);
         try {
             waitPartitions(partitionKeys, inUseWaitPeriodMs);
             boolean lastPackConsumed = false;
@@ -1060,7 +1069,7 @@ public class RmtDataCache implements Closeable {
                 }
             }
         } finally {
-            resumeProcess();
+            finishRevoke(isCooperative, partitionKeys);
         }
         return unNewRegisterInfoMap;
     }
@@ -1071,7 +1080,8 @@ public class RmtDataCache implements Closeable {
         boolean lastPackConsumed = false;
         List<String> partitionKeys = new ArrayList<>();
         partitionKeys.add(partitionKey);
-        pauseProcess();
+        boolean isCooperative = consumerConfig.isCooperativeRebalance();
+        startRevoke(isCooperative, partitionKeys);
         try {
             waitPartitions(partitionKeys, inUseWaitPeriodMs);
             PartitionExt partitionExt =
@@ -1115,7 +1125,7 @@ public class RmtDataCache implements Closeable {
             result.setSuccResult(partitionExt);
             return result.isSuccess();
         } finally {
-            resumeProcess();
+            finishRevoke(isCooperative, partitionKeys);
         }
     }
 
@@ -1447,7 +1457,8 @@ public class RmtDataCache implements Closeable {
 
     public boolean isRebProcessing() {
         return (this.dataProcessSync != null
-                && this.dataProcessSync.getCount() != 0);
+                && this.dataProcessSync.getCount() != 0)
+                || !this.revokingPartSet.isEmpty();
     }
 
     private void pauseProcess() {
@@ -1458,6 +1469,81 @@ public class RmtDataCache implements Closeable {
         this.dataProcessSync.countDown();
     }
 
+    /**
+     * Check whether the partition is being revoked in cooperative rebalance
+     *
+     * @param partitionKey   the partition key
+     * @return whether the partition is being revoked
+     */
+    public boolean isPartitionRevoking(String partitionKey) {
+        return revokingPartSet.contains(partitionKey);
+    }
+
+    /**
+     * Start revoking partitions, in cooperative mode only the revoked partitions
+     * stop being selected, otherwise the selection of all partitions is paused.
+     *
+     * @param isCooperative   whether in cooperative mode
+     * @param partitionKeys   the revoked partitions
+     */
+    private void startRevoke(boolean isCooperative, List<String> partitionKeys) {
+        if (isCooperative) {
+            for (String partitionKey : partitionKeys) {
+                revokingPartSet.add(partitionKey);
+            }
+        } else {
+            pauseProcess();
+        }
+    }
+
+    private void finishRevoke(boolean isCooperative, List<String> partitionKeys) {
+        if (isCooperative) {
+            for (String partitionKey : partitionKeys) {
+                revokingPartSet.remove(partitionKey);
+            }
+        } else {
+            resumeProcess();
+        }
+    }
+
+    /**
+     * Check whether the selected partition began to be revoked before it was
+     * marked in use, if so, give it back to be removed as an idle partition.
+     *
+     * @param partitionKey   the selected partition
+     * @return whether the partition is being revoked
+     */
+    private boolean isRevokedAfterSelect(String partitionKey) {
+        if (!revokingPartSet.contains(partitionKey)) {
+            return false;
+        }
+        partitionUsedMap.remove(partitionKey);
+        releaseIdlePartition(partitionKey);
+        return true;
+    }
+
+    /**
+     * Poll an idle partition, the partitions being revoked are put back
+     * and skipped until they are removed.
+     *
+     * @return the partition key, or null if no selectable idle partition
+     */
+    private String pollIdlePartition() {
+        String key = indexPartition.poll();
+        if (key == null || revokingPartSet.isEmpty()) {
+            return key;
+        }
+        int checkCnt = partitionMap.size();
+        while (key != null && revokingPartSet.contains(key)) {
+            indexPartition.offer(key);
+            if (checkCnt-- <= 0) {
+                return null;
+            }
+            key = indexPartition.poll();
+        }
+        return key;
+    }
+
     private boolean cancelTimeTask(String indexId) {
         Timeout timeout = timeouts.remove(indexId);
         if (timeout != null) {
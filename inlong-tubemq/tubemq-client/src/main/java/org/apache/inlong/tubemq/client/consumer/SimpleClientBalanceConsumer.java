@@ -826,6 +826,10 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
                         }
                         case TErrCodeConstants.NOT_FOUND: {
                             limitDlt = consumerConfig.getMsgNotFoundWaitPeriodMs();
+                            if (consumerConfig.getLongPollMaxWaitMs() > 0) {
+                                // the request may have been parked in the broker
+                                limitDlt = Math.max(0, limitDlt - dltTime);
+                            }
                             break;
                         }
                         default: {
@@ -1575,6 +1579,9 @@ public class SimpleClientBalanceConsumer implements ClientBalanceConsumer {
         builder.setPartitionId(partition.getPartitionId());
         builder.setLastPackConsumed(isLastConsumed);
         builder.setManualCommitOffset(false);
+        if (this.consumerConfig.getLongPollMaxWaitMs() > 0) {
+            builder.setMaxWaitMs((int) this.consumerConfig.getLongPollMaxWaitMs());
+        }
         return builder.build();
     }
 
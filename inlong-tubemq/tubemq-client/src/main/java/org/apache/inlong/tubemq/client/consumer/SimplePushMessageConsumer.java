@@ -39,6 +39,8 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
     private static final int MAX_FAILURE_LOG_TIMES = 10;
     private final MessageFetchManager fetchManager;
     private final BaseMessageConsumer baseConsumer;
+    // the fetched but unprocessed messages, null if the prefetch is disabled
+    private final MessagePrefetchBuffer prefetchBuffer;
     private AtomicLong lastLogPrintTime = new AtomicLong(0);
     private AtomicLong lastFailureCount = new AtomicLong(0);
     private CountDownLatch consumeSync = new CountDownLatch(0);
@@ -47,6 +49,13 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
                                      final ConsumerConfig consumerConfig) throws TubeClientException {
         baseConsumer =
                 new BaseMessageConsumer(messageSessionFactory, consumerConfig, false);
+        if (baseConsumer.consumerConfig.getPushPrefetchMaxBytes() > 0) {
+            this.prefetchBuffer = new MessagePrefetchBuffer(
+                    baseConsumer.consumerConfig.getPushPrefetchMaxBytes(),
+                    messageSessionFactory.getPrefetchMemoryLimiter());
+        } else {
+            this.prefetchBuffer = null;
+        }
         this.fetchManager =
                 new MessageFetchManager(baseConsumer.consumerConfig, this);
         this.fetchManager.startFetchWorkers();
@@ -147,6 +156,79 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
         }
     }
 
+    protected boolean isPrefetchEnabled() {
+        return this.prefetchBuffer != null;
+    }
+
+    /**
+     * Wait until the prefetch buffer has capacity for another pack.
+     *
+     * @param waitMs   the max wait time in milliseconds
+     * @return whether a partition can be fetched
+     */
+    protected boolean allowPrefetchWait(long waitMs) {
+        if (this.prefetchBuffer == null) {
+            return true;
+        }
+        try {
+            return this.prefetchBuffer.awaitCapacity(waitMs);
+        } catch (InterruptedException ee) {
+            return false;
+        }
+    }
+
+    /**
+     * Take the earliest prefetched pack.
+     *
+     * @param waitMs   the max wait time in milliseconds
+     * @return the prefetched pack, null if none after the wait
+     */
+    protected FetchContext pollPrefetched(long waitMs) {
+        try {
+            return this.prefetchBuffer.poll(waitMs);
+        } catch (InterruptedException ee) {
+            return null;
+        }
+    }
+
+    /**
+     * Process a prefetched pack, the packs of the partitions being revoked in cooperative
+     * rebalance or already removed are rolled back instead of being delivered to the
+     * listener. In the other rebalance the revoke waits for the buffered packs to be
+     * processed like the packs being delivered to the listener.
+     *
+     * @param taskContext   the prefetched pack
+     * @param sBuilder      a string builder
+     */
+    protected void processPrefetched(FetchContext taskContext, final StringBuilder sBuilder) {
+        try {
+            if (baseConsumer.rmtDataCache.isPartitionRevoking(taskContext.getPartitionKey())
+                    || !baseConsumer.rmtDataCache.isPartitionInUse(
+                            taskContext.getPartitionKey(), taskContext.getUsedToken())) {
+                baseConsumer.rmtDataCache.errReqRelease(taskContext.getPartitionKey(),
+                        taskContext.getUsedToken(), false);
+                return;
+            }
+            processFetchResult(taskContext, System.currentTimeMillis(), sBuilder);
+        } finally {
+            this.prefetchBuffer.release(taskContext);
+        }
+    }
+
+    /**
+     * Roll back the prefetched packs not delivered to the listener yet.
+     */
+    protected void rollbackPrefetched() {
+        if (this.prefetchBuffer == null) {
+            return;
+        }
+        for (FetchContext taskContext : this.prefetchBuffer.drain()) {
+            baseConsumer.rmtDataCache.errReqRelease(taskContext.getPartitionKey(),
+                    taskContext.getUsedToken(), false);
+            this.prefetchBuffer.release(taskContext);
+        }
+    }
+
     @Override
     public void resumeConsume() {
         this.consumeSync.countDown();
@@ -188,6 +270,21 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             }
             return;
         }
+        // hand over the fetched messages to the consume threads, the partition
+        // stays in use until the messages are processed
+        if (this.prefetchBuffer != null
+                && !fetchManager.isShutdown()
+                && taskContext.getMessageList() != null
+                && !taskContext.getMessageList().isEmpty()) {
+            this.prefetchBuffer.offer(taskContext);
+            return;
+        }
+        processFetchResult(taskContext, startTime, sBuilder);
+    }
+
+    private void processFetchResult(FetchContext taskContext,
+                                    long startTime,
+                                    final StringBuilder sBuilder) {
         boolean isConsumed = false;
         if (!isShutdown()) {
             if (taskContext.getMessageList() == null
@@ -221,7 +318,7 @@ public class SimplePushMessageConsumer implements PushMessageConsumer {
             logger.info(sBuilder.append("Consuming Partition; current processing thread ")
                     .append(Thread.currentThread().getName())
                     .append("-->Process[")
-                    .append(partSelectResult.getPartition().toString())
+                    .append(taskContext.getPartition().toString())
                     .append("] cost:").append(cost).append(" Ms").toString());
             sBuilder.delete(0, sBuilder.length());
         }
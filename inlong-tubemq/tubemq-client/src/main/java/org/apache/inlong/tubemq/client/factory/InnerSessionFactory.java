@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.client.factory;
 
+import org.apache.inlong.tubemq.client.consumer.PrefetchMemoryLimiter;
 import org.apache.inlong.tubemq.client.producer.ProducerManager;
 import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
@@ -28,4 +29,6 @@ public interface InnerSessionFactory extends MessageSessionFactory {
     ProducerManager getProducerManager();
 
     DefaultBrokerRcvQltyStats getBrokerRcvQltyStats();
+
+    PrefetchMemoryLimiter getPrefetchMemoryLimiter();
 }
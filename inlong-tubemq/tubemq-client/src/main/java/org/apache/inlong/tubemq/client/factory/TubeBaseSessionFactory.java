@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.inlong.tubemq.client.config.ConsumerConfig;
 import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.consumer.ClientBalanceConsumer;
+import org.apache.inlong.tubemq.client.consumer.PrefetchMemoryLimiter;
 import org.apache.inlong.tubemq.client.consumer.PullMessageConsumer;
 import org.apache.inlong.tubemq.client.consumer.PushMessageConsumer;
 import org.apache.inlong.tubemq.client.consumer.SimpleClientBalanceConsumer;
@@ -51,6 +52,8 @@ public class TubeBaseSessionFactory implements InnerSessionFactory {
     private final CopyOnWriteArrayList<Shutdownable> clientLst =
             new CopyOnWriteArrayList<>();
     private final DefaultBrokerRcvQltyStats brokerRcvQltyStats;
+    // the limiter of the prefetched bytes of all the push consumers
+    private final PrefetchMemoryLimiter prefetchMemoryLimiter;
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
 
     /**
@@ -79,6 +82,8 @@ public class TubeBaseSessionFactory implements InnerSessionFactory {
         this.producerManager = new ProducerManager(this, this.tubeClientConfig);
         this.brokerRcvQltyStats =
                 new DefaultBrokerRcvQltyStats(this.getRpcServiceFactory(), this.tubeClientConfig);
+        this.prefetchMemoryLimiter =
+                new PrefetchMemoryLimiter(tubeClientConfig.getPushPrefetchTotalMaxBytes());
         logger.info(new StringBuilder(512)
                 .append("Created Session Factory, the config is: ")
                 .append(tubeClientConfig.toJsonString()).toString());
@@ -107,6 +112,11 @@ public class TubeBaseSessionFactory implements InnerSessionFactory {
         return this.brokerRcvQltyStats;
     }
 
+    @Override
+    public PrefetchMemoryLimiter getPrefetchMemoryLimiter() {
+        return this.prefetchMemoryLimiter;
+    }
+
     @Override
     public void shutdown() throws TubeClientException {
         logger.info("[SHUTDOWN_TUBE] Shutting down tube factory...");
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.client.producer.qltystats.BrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+
+/**
+ * Partition router weighted by the broker status.
+ *
+ * Each message samples two partitions at random, preferably on different brokers,
+ * and takes the one whose broker has the lower cost, the cost is the EWMA of the
+ * broker's send latency multiplied by its in-flight requests. So a slow but alive
+ * broker gets a small share of the messages, while it is still sampled now and then
+ * to refresh its latency.
+ *
+ * The messages with a partition key are routed by rendezvous hashing of the key
+ * instead, they stay on the same partition as long as the partition is available,
+ * and only the keys of an unavailable partition move when the partitions change.
+ */
+public class LatencyAwarePartitionRouter implements PartitionRouter {
+    // the max times to sample the second partition on another broker
+    private static final int MAX_SAMPLE_TIMES = 3;
+
+    private final BrokerRcvQltyStats brokerRcvQltyStats;
+
+    public LatencyAwarePartitionRouter(BrokerRcvQltyStats brokerRcvQltyStats) {
+        this.brokerRcvQltyStats = brokerRcvQltyStats;
+    }
+
+    @Override
+    public Partition getPartition(final Message message,
+                                  final List<Partition> partitions) throws TubeClientException {
+        if (partitions == null || partitions.isEmpty()) {
+            throw new TubeClientException(new StringBuilder(512)
+                    .append("No available partition for topic: ")
+                    .append(message.getTopic()).toString());
+        }
+        long curTime = System.currentTimeMillis();
+        if (TStringUtils.isNotEmpty(message.getPartitionKey())) {
+            return getKeyPartition(message.getPartitionKey(), partitions, curTime);
+        }
+        int partSize = partitions.size();
+        if (partSize == 1) {
+            return partitions.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int firstIndex = random.nextInt(partSize);
+        Partition first = partitions.get(firstIndex);
+        Partition second = null;
+        for (int i = 0; i < MAX_SAMPLE_TIMES; i++) {
+            second = partitions.get((firstIndex + 1 + random.nextInt(partSize - 1)) % partSize);
+            if (second.getBrokerId() != first.getBrokerId()) {
+                break;
+            }
+        }
+        boolean isFirstDelayed = first.getDelayTimeStamp() >= curTime;
+        boolean isSecondDelayed = second.getDelayTimeStamp() >= curTime;
+        if (isFirstDelayed != isSecondDelayed) {
+            return isFirstDelayed ? second : first;
+        }
+        if (first.getBrokerId() == second.getBrokerId()) {
+            return first;
+        }
+        return getBrokerCost(first.getBrokerId())
+                <= getBrokerCost(second.getBrokerId()) ? first : second;
+    }
+
+    /**
+     * Get the cost of sending a message to the broker
+     *
+     * @param brokerId   the broker id
+     * @return the cost, the lower the better
+     */
+    public double getBrokerCost(int brokerId) {
+        return (brokerRcvQltyStats.getBrokerSentDelayEwma(brokerId) + 1.0)
+                * (brokerRcvQltyStats.getBrokerCurSentReqNum(brokerId) + 1);
+    }
+
+    private Partition getKeyPartition(String partitionKey,
+                                      List<Partition> partitions,
+                                      long curTime) {
+        // the partition with the highest score of the key wins,
+        // the delayed partitions are used only if all of them are delayed
+        int keyHash = partitionKey.hashCode();
+        Partition selected = null;
+        long maxScore = Long.MIN_VALUE;
+        boolean isSelectedDelayed = true;
+        for (Partition partition : partitions) {
+            if (partition == null) {
+                continue;
+            }
+            boolean isDelayed = partition.getDelayTimeStamp() >= curTime;
+            if (isDelayed && !isSelectedDelayed) {
+                continue;
+            }
+            long score = mixHash(keyHash, partition.getPartitionKey().hashCode());
+            if (selected == null || (isSelectedDelayed && !isDelayed) || score > maxScore) {
+                selected = partition;
+                maxScore = score;
+                isSelectedDelayed = isDelayed;
+            }
+        }
+        return selected == null ? partitions.get(0) : selected;
+    }
+
+    private static long mixHash(int keyHash, int partHash) {
+        // the finalizer of MurmurHash3
+        long value = ((long) keyHash << 32) | (partHash & 0xFFFFFFFFL);
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.apache.inlong.tubemq.client.producer;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import org.apache.inlong.tubemq.client.exception.TubeClientException;
 import org.apache.inlong.tubemq.corebase.Message;
@@ -37,4 +39,25 @@ public interface MessageProducer extends Shutdownable {
 
     void sendMessage(Message message, MessageSentCallback cb)
             throws TubeClientException, InterruptedException;
+
+    /**
+     * Send a list of messages synchronously, the result list keeps the order
+     * of the message list.
+     *
+     * The default implementation sends the messages one by one, the implementations
+     * supporting the batch produce RPC override it.
+     *
+     * @param messages   the messages to send
+     * @return           the sent results
+     * @throws TubeClientException   the exception while sending the messages
+     * @throws InterruptedException  the exception while interrupted
+     */
+    default List<MessageSentResult> sendMessages(List<Message> messages)
+            throws TubeClientException, InterruptedException {
+        List<MessageSentResult> results = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            results.add(sendMessage(message));
+        }
+        return results;
+    }
 }
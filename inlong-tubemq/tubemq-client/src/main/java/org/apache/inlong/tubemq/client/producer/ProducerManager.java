@@ -364,6 +364,17 @@ public class ProducerManager {
      */
     public ClientBroker.SendMessageRequestP2B.Builder setAuthorizedTokenInfo(
             ClientBroker.SendMessageRequestP2B.Builder builder) {
+        builder.setAuthInfo(genAuthorizedInfo());
+        return builder;
+    }
+
+    public ClientBroker.SendMessageBatchRequestP2B.Builder setAuthorizedTokenInfo(
+            ClientBroker.SendMessageBatchRequestP2B.Builder builder) {
+        builder.setAuthInfo(genAuthorizedInfo());
+        return builder;
+    }
+
+    private ClientBroker.AuthorizedInfo genAuthorizedInfo() {
         ClientBroker.AuthorizedInfo.Builder authInfoBuilder =
                 ClientBroker.AuthorizedInfo.newBuilder();
         authInfoBuilder.setVisitAuthorizedToken(this.visitToken.get());
@@ -371,8 +382,7 @@ public class ProducerManager {
         if (TStringUtils.isNotBlank(authAuthorizedToken)) {
             authInfoBuilder.setAuthAuthorizedToken(authAuthorizedToken);
         }
-        builder.setAuthInfo(authInfoBuilder.build());
-        return builder;
+        return authInfoBuilder.build();
     }
 
     /**
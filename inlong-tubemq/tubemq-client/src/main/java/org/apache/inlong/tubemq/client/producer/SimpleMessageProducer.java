@@ -18,8 +18,12 @@
 package org.apache.inlong.tubemq.client.producer;
 
 import com.google.protobuf.ByteString;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -38,7 +42,11 @@ import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
+import org.apache.inlong.tubemq.corebase.utils.MsgAckType;
+import org.apache.inlong.tubemq.corebase.utils.MsgCompressType;
+import org.apache.inlong.tubemq.corebase.utils.MsgCompressUtils;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
@@ -85,7 +93,11 @@ public class SimpleMessageProducer implements MessageProducer {
         this.rpcServiceFactory = this.sessionFactory.getRpcServiceFactory();
         this.producerManager = this.sessionFactory.getProducerManager();
         this.brokerRcvQltyStats = sessionFactory.getBrokerRcvQltyStats();
-        this.partitionRouter = new RoundRobinPartitionRouter();
+        if (tubeClientConfig.isLatencyAwareRouting()) {
+            this.partitionRouter = new LatencyAwarePartitionRouter(this.brokerRcvQltyStats);
+        } else {
+            this.partitionRouter = new RoundRobinPartitionRouter();
+        }
         this.rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
         this.rpcConfig.put(RpcConstants.REQUEST_TIMEOUT,
             tubeClientConfig.getRpcTimeoutMs());
@@ -218,7 +230,8 @@ public class SimpleMessageProducer implements MessageProducer {
                             createSendMessageRequest(partition, message),
                             AddressUtils.getLocalAddress(), producerConfig.isTlsEnable());
             rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, response.getSuccess());
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                    response.getSuccess(), System.currentTimeMillis() - startTime);
             if (!response.getSuccess()
                 && response.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
                 rpcServiceFactory.addUnavailableBroker(brokerId);
@@ -232,7 +245,8 @@ public class SimpleMessageProducer implements MessageProducer {
             producerManager.getClientMetrics().bookFailRpcCall(
                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
             partition.increRetries(1);
-            this.brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                    false, System.currentTimeMillis() - startTime);
             throw new TubeClientException("Send message failed", e);
         }
     }
@@ -264,7 +278,8 @@ public class SimpleMessageProducer implements MessageProducer {
                                             message, partition, responseB2P);
                             partition.resetRetries();
                             brokerRcvQltyStats.addReceiveStatistic(brokerId,
-                                    responseB2P.getSuccess());
+                                    responseB2P.getSuccess(),
+                                    System.currentTimeMillis() - startTime);
                             if (!responseB2P.getSuccess()
                                 && responseB2P.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
                                 rpcServiceFactory.addUnavailableBroker(brokerId);
@@ -277,7 +292,8 @@ public class SimpleMessageProducer implements MessageProducer {
                             producerManager.getClientMetrics().bookFailRpcCall(
                                     TErrCodeConstants.UNSPECIFIED_ABNORMAL);
                             partition.increRetries(1);
-                            brokerRcvQltyStats.addReceiveStatistic(brokerId, false);
+                            brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                                    false, System.currentTimeMillis() - startTime);
                             cb.onException(error);
                         }
                     });
@@ -293,6 +309,114 @@ public class SimpleMessageProducer implements MessageProducer {
         }
     }
 
+    /**
+     * Send a list of messages synchronously.
+     *
+     * The messages routed to the same partition are packed into batch requests,
+     * so that one RPC carries many messages. Each message gets its own result,
+     * the result list keeps the order of the message list.
+     *
+     * @param messages   the messages to send
+     * @return           the sent results
+     * @throws TubeClientException   the exception while checking the messages
+     * @throws InterruptedException  the exception while interrupted
+     */
+    @Override
+    public List<MessageSentResult> sendMessages(final List<Message> messages)
+            throws TubeClientException, InterruptedException {
+        if (messages == null || messages.isEmpty()) {
+            throw new TubeClientException("Illegal parameter: null or empty message list!");
+        }
+        final Map<Partition, List<Integer>> partMsgIndexes = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            checkMessageAndStatus(messages.get(i));
+            Partition partition =
+                    this.selectPartition(messages.get(i), BrokerWriteService.class);
+            List<Integer> msgIndexes = partMsgIndexes.get(partition);
+            if (msgIndexes == null) {
+                msgIndexes = new ArrayList<>();
+                partMsgIndexes.put(partition, msgIndexes);
+            }
+            msgIndexes.add(i);
+        }
+        final MessageSentResult[] results = new MessageSentResult[messages.size()];
+        for (Map.Entry<Partition, List<Integer>> entry : partMsgIndexes.entrySet()) {
+            List<Integer> msgIndexes = entry.getValue();
+            int fromIndex = 0;
+            long batchSize = 0;
+            for (int i = 0; i < msgIndexes.size(); i++) {
+                int msgSize = messages.get(msgIndexes.get(i)).getData().length;
+                if (i > fromIndex
+                        && (i - fromIndex >= TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT
+                        || batchSize + msgSize > TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT)) {
+                    sendMessageBatch(entry.getKey(), messages,
+                            msgIndexes.subList(fromIndex, i), results);
+                    fromIndex = i;
+                    batchSize = 0;
+                }
+                batchSize += msgSize;
+            }
+            sendMessageBatch(entry.getKey(), messages,
+                    msgIndexes.subList(fromIndex, msgIndexes.size()), results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void sendMessageBatch(final Partition partition,
+                                  final List<Message> messages,
+                                  final List<Integer> msgIndexes,
+                                  final MessageSentResult[] results) {
+        int brokerId = partition.getBrokerId();
+        long startTime = System.currentTimeMillis();
+        try {
+            this.brokerRcvQltyStats.addSendStatistic(brokerId);
+            ClientBroker.SendMessageBatchResponseB2P response =
+                    getBrokerService(partition.getBroker()).sendMessagesP2B(
+                            createSendMessageBatchRequest(partition, messages, msgIndexes),
+                            AddressUtils.getLocalAddress(), producerConfig.isTlsEnable());
+            rpcServiceFactory.resetRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                    response.getSuccess(), System.currentTimeMillis() - startTime);
+            if (!response.getSuccess()
+                    && response.getErrCode() == TErrCodeConstants.SERVICE_UNAVAILABLE) {
+                rpcServiceFactory.addUnavailableBroker(brokerId);
+            }
+            final long dltTime = System.currentTimeMillis() - startTime;
+            for (int i = 0; i < msgIndexes.size(); i++) {
+                final Message message = messages.get(msgIndexes.get(i));
+                if (i < response.getMessageIdsCount()) {
+                    producerManager.getClientMetrics().bookSuccSendMsg(dltTime,
+                            message.getTopic(), partition.getPartitionKey(),
+                            message.getData().length);
+                    results[msgIndexes.get(i)] = new MessageSentResult(true,
+                            TErrCodeConstants.SUCCESS, "Ok!", message,
+                            response.getMessageIds(i), partition,
+                            response.getAppendTime(), response.getAppendOffsets(i));
+                } else {
+                    producerManager.getClientMetrics().bookFailRpcCall(response.getErrCode());
+                    results[msgIndexes.get(i)] = new MessageSentResult(false,
+                            response.getErrCode(), response.getErrMsg(), message,
+                            TBaseConstants.META_VALUE_UNDEFINED, partition);
+                }
+            }
+        } catch (final Throwable e) {
+            if (e instanceof LocalConnException) {
+                rpcServiceFactory.addRmtAddrErrCount(partition.getBroker().getBrokerAddr());
+            }
+            producerManager.getClientMetrics().bookFailRpcCall(
+                    TErrCodeConstants.UNSPECIFIED_ABNORMAL);
+            partition.increRetries(1);
+            this.brokerRcvQltyStats.addReceiveStatistic(brokerId,
+                    false, System.currentTimeMillis() - startTime);
+            final String errMsg = "Send message failed: " + e.getMessage();
+            for (Integer msgIndex : msgIndexes) {
+                results[msgIndex] = new MessageSentResult(false,
+                        TErrCodeConstants.UNSPECIFIED_ABNORMAL, errMsg,
+                        messages.get(msgIndex), TBaseConstants.META_VALUE_UNDEFINED, partition);
+            }
+        }
+    }
+
     private void checkMessageAndStatus(final Message message) throws TubeClientException {
         if (message == null) {
             throw new TubeClientException("Illegal parameter: null message package!");
@@ -335,8 +459,9 @@ public class SimpleMessageProducer implements MessageProducer {
         builder.setClientId(this.producerManager.getProducerId());
         builder.setTopicName(partition.getTopic());
         builder.setPartitionId(partition.getPartitionId());
-        builder.setData(ByteString.copyFrom(encodePayload(message)));
-        builder.setFlag(MessageFlagUtils.getFlag(message));
+        Tuple2<MsgCompressType, byte[]> msgData = compressMsgData(message);
+        builder.setData(ByteString.copyFrom(encodePayload(message, msgData.getF1())));
+        builder.setFlag(MessageFlagUtils.getFlag(message, msgData.getF0()));
         builder.setSentAddr(this.producerManager.getProducerAddrId());
         builder.setCheckSum(-1);
         if (TStringUtils.isNotBlank(message.getMsgType())) {
@@ -345,12 +470,63 @@ public class SimpleMessageProducer implements MessageProducer {
         if (TStringUtils.isNotBlank(message.getMsgTime())) {
             builder.setMsgTime(message.getMsgTime());
         }
+        if (this.producerConfig.getMsgAckType() != MsgAckType.LEADER) {
+            builder.setAckType(this.producerConfig.getMsgAckType().getId());
+        }
         builder = this.producerManager.setAuthorizedTokenInfo(builder);
         return builder.build();
     }
 
-    private byte[] encodePayload(final Message message) {
-        final byte[] payload = message.getData();
+    private ClientBroker.SendMessageBatchRequestP2B createSendMessageBatchRequest(
+            Partition partition, List<Message> messages, List<Integer> msgIndexes) {
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder =
+                ClientBroker.SendMessageBatchRequestP2B.newBuilder();
+        builder.setClientId(this.producerManager.getProducerId());
+        builder.setTopicName(partition.getTopic());
+        builder.setPartitionId(partition.getPartitionId());
+        builder.setSentAddr(this.producerManager.getProducerAddrId());
+        for (Integer msgIndex : msgIndexes) {
+            final Message message = messages.get(msgIndex);
+            ClientBroker.BatchMessageItem.Builder itemBuilder =
+                    ClientBroker.BatchMessageItem.newBuilder();
+            Tuple2<MsgCompressType, byte[]> msgData = compressMsgData(message);
+            itemBuilder.setData(ByteString.copyFrom(encodePayload(message, msgData.getF1())));
+            itemBuilder.setFlag(MessageFlagUtils.getFlag(message, msgData.getF0()));
+            itemBuilder.setCheckSum(-1);
+            if (TStringUtils.isNotBlank(message.getMsgType())) {
+                itemBuilder.setMsgType(message.getMsgType());
+            }
+            if (TStringUtils.isNotBlank(message.getMsgTime())) {
+                itemBuilder.setMsgTime(message.getMsgTime());
+            }
+            builder.addMessages(itemBuilder.build());
+        }
+        if (this.producerConfig.getMsgAckType() != MsgAckType.LEADER) {
+            builder.setAckType(this.producerConfig.getMsgAckType().getId());
+        }
+        builder = this.producerManager.setAuthorizedTokenInfo(builder);
+        return builder.build();
+    }
+
+    private Tuple2<MsgCompressType, byte[]> compressMsgData(final Message message) {
+        final byte[] msgData = message.getData();
+        final MsgCompressType compressType = this.producerConfig.getMsgCompressType();
+        if (compressType == MsgCompressType.NONE
+                || msgData.length < this.producerConfig.getMsgCompressMinSize()) {
+            return new Tuple2<>(MsgCompressType.NONE, msgData);
+        }
+        try {
+            byte[] compressedData = MsgCompressUtils.compress(compressType, msgData);
+            if (compressedData.length < msgData.length) {
+                return new Tuple2<>(compressType, compressedData);
+            }
+        } catch (IOException e) {
+            logger.warn("Compress message data failure, send without compression", e);
+        }
+        return new Tuple2<>(MsgCompressType.NONE, msgData);
+    }
+
+    private byte[] encodePayload(final Message message, final byte[] payload) {
         final String attribute = message.getAttribute();
         if (TStringUtils.isBlank(attribute)) {
             return payload;
@@ -33,6 +33,12 @@ public interface BrokerRcvQltyStats {
 
     void addReceiveStatistic(int brokerId, boolean isSuccess);
 
+    void addReceiveStatistic(int brokerId, boolean isSuccess, long dltTimeMs);
+
+    long getBrokerCurSentReqNum(int brokerId);
+
+    double getBrokerSentDelayEwma(int brokerId);
+
     void removeUnRegisteredBroker(List<Integer> registeredBrokerIdList);
 
     void stopBrokerStatistic();
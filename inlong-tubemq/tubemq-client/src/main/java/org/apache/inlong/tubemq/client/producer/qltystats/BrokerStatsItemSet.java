@@ -29,6 +29,9 @@ public class BrokerStatsItemSet {
     private AtomicLong recSucNumSnapshot = new AtomicLong();
     private long dltSendNum = 0;
     private long dltRecSucNum = 0;
+    // The EWMA of the send latency in microseconds, negative if no sample,
+    // updated as the smoothed RTT of TCP: ewma += (sample - ewma) / 8
+    private final AtomicLong sentDelayEwmaUs = new AtomicLong(-1);
 
     public BrokerStatsItemSet() {
         sendNum.set(0);
@@ -65,6 +68,35 @@ public class BrokerStatsItemSet {
         return recSucNum.incrementAndGet();
     }
 
+    /**
+     * Add a send latency sample into the latency EWMA
+     *
+     * @param dltTimeMs   the send latency in milliseconds
+     */
+    public void updSentDelayEwma(long dltTimeMs) {
+        long sampleUs = Math.max(0, dltTimeMs) * 1000L;
+        long curEwma;
+        long newEwma;
+        do {
+            curEwma = sentDelayEwmaUs.get();
+            if (curEwma < 0) {
+                newEwma = sampleUs;
+            } else {
+                newEwma = curEwma + ((sampleUs - curEwma) >> 3);
+            }
+        } while (!sentDelayEwmaUs.compareAndSet(curEwma, newEwma));
+    }
+
+    /**
+     * Get the EWMA of the send latency
+     *
+     * @return the latency in milliseconds, 0 if no sample
+     */
+    public double getSentDelayEwma() {
+        long curEwma = sentDelayEwmaUs.get();
+        return curEwma < 0 ? 0 : curEwma / 1000.0;
+    }
+
     public long getDltAndSnapshotSendNum() {
         long tmpSendNum = sendNum.get();
         long dltNum = tmpSendNum - sendNumSnapshot.get();
@@ -103,6 +135,7 @@ public class BrokerStatsItemSet {
                 + this.recSucNum.longValue() + TokenConstants.ATTR_SEP + ",sendNumSnapshot:"
                 + this.sendNumSnapshot.longValue() + TokenConstants.ATTR_SEP + ",recSucNumSnapshot:"
                 + this.recSucNumSnapshot.longValue() + TokenConstants.ATTR_SEP + ",dltSendNum:"
-                + this.dltSendNum + TokenConstants.ATTR_SEP + ",dltRecSucNum:" + this.dltSendNum;
+                + this.dltSendNum + TokenConstants.ATTR_SEP + ",dltRecSucNum:" + this.dltSendNum
+                + TokenConstants.ATTR_SEP + ",sentDelayEwma:" + getSentDelayEwma();
     }
 }
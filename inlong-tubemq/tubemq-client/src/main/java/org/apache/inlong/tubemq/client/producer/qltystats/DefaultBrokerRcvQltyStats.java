@@ -407,8 +407,23 @@ public class DefaultBrokerRcvQltyStats implements BrokerRcvQltyStats {
 
     @Override
     public void addReceiveStatistic(int brokerId, boolean isSuccess) {
+        addReceiveStatistic(brokerId, isSuccess, -1);
+    }
+
+    /**
+     * Add the receive statistic of a request
+     *
+     * @param brokerId    the broker id
+     * @param isSuccess   whether the request is success
+     * @param dltTimeMs   the latency of the request, negative if unknown
+     */
+    @Override
+    public void addReceiveStatistic(int brokerId, boolean isSuccess, long dltTimeMs) {
         BrokerStatsItemSet curStatsItemSet = brokerStats.get(brokerId);
         if (curStatsItemSet != null) {
+            if (dltTimeMs >= 0) {
+                curStatsItemSet.updSentDelayEwma(dltTimeMs);
+            }
             curStatsItemSet.incrementAndGetRecNum();
             if (isSuccess) {
                 curStatsItemSet.incrementAndGetRecSucNum();
@@ -421,6 +436,30 @@ public class DefaultBrokerRcvQltyStats implements BrokerRcvQltyStats {
         }
     }
 
+    /**
+     * Get the number of the requests sent to the broker and waiting for response.
+     *
+     * @param brokerId    the broker id
+     * @return the in-flight request number
+     */
+    @Override
+    public long getBrokerCurSentReqNum(int brokerId) {
+        AtomicLong curBrokerNum = brokerCurSentReqNum.get(brokerId);
+        return curBrokerNum == null ? 0 : Math.max(0, curBrokerNum.get());
+    }
+
+    /**
+     * Get the EWMA of the send latency of the broker.
+     *
+     * @param brokerId    the broker id
+     * @return the latency in milliseconds, 0 if no sample
+     */
+    @Override
+    public double getBrokerSentDelayEwma(int brokerId) {
+        BrokerStatsItemSet curStatsItemSet = brokerStats.get(brokerId);
+        return curStatsItemSet == null ? 0 : curStatsItemSet.getSentDelayEwma();
+    }
+
     @Override
     public void stopBrokerStatistic() {
         if (this.statusId.get() != 0) {
@@ -19,6 +19,7 @@ package org.apache.inlong.tubemq.client.consumer;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import org.apache.inlong.tubemq.client.common.TClientConstants;
 import org.apache.inlong.tubemq.client.config.ConsumerConfig;
 import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.factory.TubeBaseSessionFactory;
@@ -43,6 +44,8 @@ public class MessageFetchManagerTest {
         PowerMockito.when(AddressUtils.getLocalAddress()).thenReturn("127.0.0.1");
 
         when(clientConfig.getMasterInfo()).thenReturn(new MasterInfo("127.0.0.1:18080"));
+        when(clientConfig.getPushPrefetchTotalMaxBytes())
+                .thenReturn(TClientConstants.CFG_DEFAULT_PUSH_PREFETCH_TOTAL_MAX_BYTES);
         ConsumerConfig config = new ConsumerConfig("127.0.0.1:18080", "test");
         ClientFactory clientFactory = new NettyClientFactory();
         TubeBaseSessionFactory factory = new TubeBaseSessionFactory(clientFactory, clientConfig);
@@ -53,5 +56,16 @@ public class MessageFetchManagerTest {
         fetchManager.startFetchWorkers();
         fetchManager.stopFetchWorkers(true);
         Assert.assertTrue(fetchManager.isShutdown());
+
+        // the fetch manager with the prefetch enabled
+        config.setPushPrefetchMaxBytes(1024 * 1024);
+        config.setPushConsumeThreadCnt(2);
+        SimplePushMessageConsumer prefetchConsumer = new SimplePushMessageConsumer(factory, config);
+        Assert.assertTrue(prefetchConsumer.isPrefetchEnabled());
+        Assert.assertTrue(prefetchConsumer.allowPrefetchWait(0));
+        MessageFetchManager prefetchManager = new MessageFetchManager(config, prefetchConsumer);
+        prefetchManager.startFetchWorkers();
+        prefetchManager.stopFetchWorkers(true);
+        Assert.assertTrue(prefetchManager.isShutdown());
     }
 }
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Test;
+
+public class MessagePrefetchBufferTest {
+
+    @Test
+    public void testBoundedPrefetch() throws Exception {
+        MessagePrefetchBuffer buffer =
+                new MessagePrefetchBuffer(1000, new PrefetchMemoryLimiter(Long.MAX_VALUE));
+        assertTrue(buffer.awaitCapacity(0));
+        assertNull(buffer.poll(0));
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        FetchContext pack0 = buildPack(new Partition(brokerInfo, "test", 0), 600);
+        FetchContext pack1 = buildPack(new Partition(brokerInfo, "test", 1), 600);
+        buffer.offer(pack0);
+        assertTrue(buffer.awaitCapacity(0));
+        // the limit is exceeded by the last fetched pack
+        buffer.offer(pack1);
+        assertEquals(1200, buffer.getBufferedBytes());
+        assertFalse(buffer.awaitCapacity(10));
+        // the bytes are held until the taken pack is released
+        assertSame(pack0, buffer.poll(0));
+        assertFalse(buffer.awaitCapacity(0));
+        buffer.release(pack0);
+        assertEquals(600, buffer.getBufferedBytes());
+        assertTrue(buffer.awaitCapacity(0));
+        // the waiting fetch thread is woken up by the release
+        assertSame(pack1, buffer.poll(0));
+        buffer.offer(pack0);
+        Thread releaseThread = new Thread(() -> {
+            buffer.release(pack1);
+        });
+        releaseThread.start();
+        assertTrue(buffer.awaitCapacity(5000));
+        releaseThread.join();
+        // the packs not taken are drained
+        List<FetchContext> drained = buffer.drain();
+        assertEquals(1, drained.size());
+        assertSame(pack0, drained.get(0));
+        assertEquals(0, buffer.getBufferedPackCnt());
+        buffer.release(pack0);
+        assertEquals(0, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testSharedMemoryLimit() throws Exception {
+        // two consumers' buffers share a limit below the sum of their own limits
+        PrefetchMemoryLimiter memoryLimiter = new PrefetchMemoryLimiter(1000);
+        MessagePrefetchBuffer buffer0 = new MessagePrefetchBuffer(1000, memoryLimiter);
+        MessagePrefetchBuffer buffer1 = new MessagePrefetchBuffer(1000, memoryLimiter);
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        FetchContext pack0 = buildPack(new Partition(brokerInfo, "test", 0), 600);
+        FetchContext pack1 = buildPack(new Partition(brokerInfo, "test", 1), 600);
+        buffer0.offer(pack0);
+        assertTrue(buffer1.awaitCapacity(0));
+        buffer1.offer(pack1);
+        assertEquals(1200, memoryLimiter.getUsedBytes());
+        // each buffer is below its own limit, the shared limit is reached
+        assertFalse(buffer0.awaitCapacity(10));
+        assertFalse(buffer1.awaitCapacity(0));
+        // the release of one consumer wakes up the fetch threads of the other
+        assertSame(pack0, buffer0.poll(0));
+        Thread releaseThread = new Thread(() -> {
+            buffer0.release(pack0);
+        });
+        releaseThread.start();
+        assertTrue(buffer1.awaitCapacity(5000));
+        releaseThread.join();
+        assertEquals(600, memoryLimiter.getUsedBytes());
+        assertSame(pack1, buffer1.poll(0));
+        buffer1.release(pack1);
+        assertEquals(0, memoryLimiter.getUsedBytes());
+    }
+
+    private FetchContext buildPack(Partition partition, int packSize) {
+        FetchContext fetchContext = new FetchContext(
+                new PartitionSelectResult(partition, System.currentTimeMillis(), true));
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message(partition.getTopic(), new byte[packSize / 2]));
+        messages.add(new Message(partition.getTopic(), new byte[packSize - packSize / 2]));
+        fetchContext.setSuccessProcessResult(0, "", messages, 100);
+        return fetchContext;
+    }
+}
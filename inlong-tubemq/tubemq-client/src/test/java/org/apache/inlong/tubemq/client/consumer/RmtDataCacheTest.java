@@ -18,13 +18,17 @@
 package org.apache.inlong.tubemq.client.consumer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.inlong.tubemq.client.config.ConsumerConfig;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.Partition;
@@ -74,4 +78,47 @@ public class RmtDataCacheTest {
         cache.succRspRelease("1:test:2", "test", 1000, true, true, 1000, 2000);
         cache.close();
     }
+
+    @Test
+    public void testCooperativeRevoke() throws Exception {
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 18080);
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(new Partition(brokerInfo, "test", 1));
+        partitions.add(new Partition(brokerInfo, "test", 2));
+        ConsumerConfig consumerConfig = new ConsumerConfig("127.0.0.1:8069", "testGroup");
+        consumerConfig.setCooperativeRebalance(true);
+        final RmtDataCache cache = new RmtDataCache(consumerConfig, partitions);
+        // the revoked partition is in use
+        PartitionSelectResult revokedResult = cache.pullSelect();
+        assertTrue(revokedResult.isSuccess());
+        final Partition revokedPart = revokedResult.getPartition();
+        final AtomicReference<Map<BrokerInfo, List<PartitionSelectResult>>> revokeResult =
+                new AtomicReference<>();
+        Thread revokeThread = new Thread(() -> {
+            Map<BrokerInfo, List<Partition>> infoMap = new HashMap<>();
+            infoMap.put(brokerInfo, Collections.singletonList(revokedPart));
+            revokeResult.set(cache.removeAndGetPartition(infoMap,
+                    Collections.singletonList(revokedPart.getPartitionKey()), 10000, true));
+        });
+        revokeThread.start();
+        while (!cache.isRebProcessing()) {
+            Thread.sleep(10);
+        }
+        // the other partition keeps being selected during the revocation
+        PartitionSelectResult otherResult = cache.pullSelect();
+        assertTrue(otherResult.isSuccess());
+        assertFalse(revokedPart.getPartitionKey()
+                .equals(otherResult.getPartition().getPartitionKey()));
+        cache.errReqRelease(otherResult.getPartition().getPartitionKey(),
+                otherResult.getUsedToken(), true);
+        // the revocation finishes once the revoked partition is released
+        cache.errReqRelease(revokedPart.getPartitionKey(), revokedResult.getUsedToken(), true);
+        revokeThread.join(10000);
+        assertFalse(cache.isRebProcessing());
+        assertEquals(1, revokeResult.get().get(brokerInfo).size());
+        assertNull(cache.getPartitionByKey(revokedPart.getPartitionKey()));
+        assertEquals(otherResult.getPartition().getPartitionKey(),
+                cache.pullSelect().getPartition().getPartitionKey());
+        cache.close();
+    }
 }
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.exception.TubeClientException;
+import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.junit.Test;
+
+public class LatencyAwarePartitionRouterTest {
+
+    @Test(expected = TubeClientException.class)
+    public void testGetPartitionInvalidInput() throws TubeClientException {
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(newStats());
+        router.getPartition(new Message("test", new byte[]{1, 2, 3}), new ArrayList<>());
+    }
+
+    @Test
+    public void testAvoidSlowBroker() throws TubeClientException {
+        DefaultBrokerRcvQltyStats stats = newStats();
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(stats);
+        List<Partition> partitions = newPartitions(4, 4);
+        // broker 0 responds in 100ms with 10 requests in flight, the others in 2ms
+        for (int brokerId = 0; brokerId < 4; brokerId++) {
+            stats.addSendStatistic(brokerId);
+            stats.addReceiveStatistic(brokerId, true, brokerId == 0 ? 100 : 2);
+        }
+        for (int i = 0; i < 10; i++) {
+            stats.addSendStatistic(0);
+        }
+        assertTrue(router.getBrokerCost(0) > 10 * router.getBrokerCost(1));
+        Message message = new Message("test", new byte[]{1, 2, 3});
+        Map<Integer, Integer> brokerCounts = new HashMap<>();
+        for (int i = 0; i < 16000; i++) {
+            brokerCounts.merge(router.getPartition(message, partitions).getBrokerId(), 1, Integer::sum);
+        }
+        // only picked when both sampled partitions are on broker 0
+        assertTrue(brokerCounts.get(0) < 1600);
+        for (int brokerId = 1; brokerId < 4; brokerId++) {
+            assertTrue(brokerCounts.get(brokerId) > 4000);
+        }
+        // the delayed partitions are skipped
+        List<Partition> twoParts = newPartitions(2, 1);
+        twoParts.get(1).setDelayTimeStamp(System.currentTimeMillis() + 10000000);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, router.getPartition(message, twoParts).getBrokerId());
+        }
+    }
+
+    @Test
+    public void testKeySticky() throws TubeClientException {
+        DefaultBrokerRcvQltyStats stats = newStats();
+        LatencyAwarePartitionRouter router = new LatencyAwarePartitionRouter(stats);
+        List<Partition> partitions = newPartitions(4, 4);
+        Map<String, Partition> keyParts = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Message message = new Message("test", new byte[]{1, 2, 3});
+            message.setPartitionKey("key-" + i);
+            keyParts.put(message.getPartitionKey(), router.getPartition(message, partitions));
+        }
+        // the same key goes to the same partition regardless of the broker status
+        stats.addSendStatistic(keyParts.get("key-0").getBrokerId());
+        stats.addReceiveStatistic(keyParts.get("key-0").getBrokerId(), true, 1000);
+        List<Partition> reversedParts = new ArrayList<>(partitions);
+        Collections.reverse(reversedParts);
+        for (int i = 0; i < 100; i++) {
+            Message message = new Message("test", new byte[]{1, 2, 3});
+            message.setPartitionKey("key-" + i);
+            assertEquals(keyParts.get(message.getPartitionKey()),
+                    router.getPartition(message, reversedParts));
+        }
+        // only the keys of the delayed partition move
+        Partition delayedPart = keyParts.get("key-0");
+        delayedPart.setDelayTimeStamp(System.currentTimeMillis() + 10000000);
+        for (int i = 0; i < 100; i++) {
+            Message message = new Message("test", new byte[]{1, 2, 3});
+            message.setPartitionKey("key-" + i);
+            Partition partition = router.getPartition(message, partitions);
+            if (keyParts.get(message.getPartitionKey()) == delayedPart) {
+                assertTrue(partition != delayedPart);
+            } else {
+                assertEquals(keyParts.get(message.getPartitionKey()), partition);
+            }
+        }
+    }
+
+    private DefaultBrokerRcvQltyStats newStats() {
+        return new DefaultBrokerRcvQltyStats(
+                mock(RpcServiceFactory.class), mock(TubeClientConfig.class));
+    }
+
+    private List<Partition> newPartitions(int brokerCnt, int partCnt) {
+        List<Partition> partitions = new ArrayList<>();
+        for (int brokerId = 0; brokerId < brokerCnt; brokerId++) {
+            BrokerInfo brokerInfo = new BrokerInfo(brokerId + ":127.0.0.1:" + (18080 + brokerId));
+            for (int partId = 0; partId < partCnt; partId++) {
+                partitions.add(new Partition(brokerInfo, "test", partId));
+            }
+        }
+        return partitions;
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageProducerTest {
+
+    @Test
+    public void testDefaultSendMessages() throws Exception {
+        final Message message1 = new Message("test", "msg1".getBytes());
+        final Message message2 = new Message("test", "msg2".getBytes());
+        final Message message3 = new Message("test", "msg3".getBytes());
+        final Map<Message, MessageSentResult> cannedResults = new HashMap<>();
+        cannedResults.put(message1, new MessageSentResult(true, 0, "Ok!", message1, 1L, null));
+        cannedResults.put(message2, new MessageSentResult(false, 1, "Failed!", message2, -1L, null));
+        cannedResults.put(message3, new MessageSentResult(true, 0, "Ok!", message3, 3L, null));
+        final List<Message> sentMessages = new ArrayList<>();
+        MessageProducer producer = new MessageProducer() {
+            @Override
+            public void publish(String topic) {
+            }
+
+            @Override
+            public Set<String> publish(Set<String> topicSet) {
+                return topicSet;
+            }
+
+            @Override
+            public Set<String> getPublishedTopicSet() {
+                return null;
+            }
+
+            @Override
+            public boolean isTopicCurAcceptPublish(String topic) {
+                return true;
+            }
+
+            @Override
+            public MessageSentResult sendMessage(Message message) {
+                sentMessages.add(message);
+                return cannedResults.get(message);
+            }
+
+            @Override
+            public void sendMessage(Message message, MessageSentCallback cb) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+        List<Message> messages = Arrays.asList(message1, message2, message3);
+        List<MessageSentResult> results = producer.sendMessages(messages);
+        // the messages are sent one by one in order, the failed one does not stop the rest
+        Assert.assertEquals(messages, sentMessages);
+        Assert.assertEquals(messages.size(), results.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Assert.assertSame(cannedResults.get(messages.get(i)), results.get(i));
+        }
+        Assert.assertFalse(results.get(1).isSuccess());
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.client.producer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.client.common.ClientStatsInfo;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.factory.InnerSessionFactory;
+import org.apache.inlong.tubemq.client.producer.qltystats.DefaultBrokerRcvQltyStats;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MsgAckType;
+import org.apache.inlong.tubemq.corebase.utils.MsgCompressType;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(AddressUtils.class)
+public class SimpleMessageProducerTest {
+
+    private final List<ClientBroker.SendMessageBatchRequestP2B> batchRequests = new ArrayList<>();
+    private final List<Partition> partitions = new ArrayList<>();
+    private SimpleMessageProducer producer;
+
+    @Before
+    public void setUp() throws Throwable {
+        PowerMockito.mockStatic(AddressUtils.class);
+        PowerMockito.when(AddressUtils.getLocalAddress()).thenReturn("127.0.0.1");
+        BrokerWriteService writeService = mock(BrokerWriteService.class);
+        when(writeService.sendMessagesP2B(any(ClientBroker.SendMessageBatchRequestP2B.class),
+                anyString(), anyBoolean())).thenAnswer(invocation -> {
+                    ClientBroker.SendMessageBatchRequestP2B request = invocation.getArgument(0);
+                    batchRequests.add(request);
+                    ClientBroker.SendMessageBatchResponseB2P.Builder builder =
+                            ClientBroker.SendMessageBatchResponseB2P.newBuilder();
+                    builder.setSuccess(true);
+                    builder.setErrCode(200);
+                    builder.setErrMsg("Ok");
+                    builder.setAppendTime(System.currentTimeMillis());
+                    for (int i = 0; i < request.getMessagesCount(); i++) {
+                        builder.addMessageIds(batchRequests.size() * 1000L + i);
+                        builder.addAppendOffsets(i);
+                    }
+                    return builder.build();
+                });
+        RpcServiceFactory rpcServiceFactory = mock(RpcServiceFactory.class);
+        when(rpcServiceFactory.isServiceEmpty()).thenReturn(true);
+        when(rpcServiceFactory.getService(eq(BrokerWriteService.class),
+                any(BrokerInfo.class), any(RpcConfig.class))).thenReturn(writeService);
+        ProducerManager producerManager = mock(ProducerManager.class);
+        when(producerManager.getProducerId()).thenReturn("producer-test");
+        when(producerManager.getMaxMsgSize()).thenReturn(Integer.MAX_VALUE);
+        when(producerManager.getClientMetrics()).thenReturn(mock(ClientStatsInfo.class));
+        when(producerManager.setAuthorizedTokenInfo(any(ClientBroker.SendMessageBatchRequestP2B.Builder.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        final Map<Integer, List<Partition>> brokerPartList = new HashMap<>();
+        brokerPartList.put(1, partitions);
+        when(producerManager.getTopicPartition("test")).thenReturn(brokerPartList);
+        DefaultBrokerRcvQltyStats qltyStats = mock(DefaultBrokerRcvQltyStats.class);
+        when(qltyStats.getAllowedBrokerPartitions(brokerPartList)).thenReturn(partitions);
+        InnerSessionFactory sessionFactory = mock(InnerSessionFactory.class);
+        when(sessionFactory.getRpcServiceFactory()).thenReturn(rpcServiceFactory);
+        when(sessionFactory.getProducerManager()).thenReturn(producerManager);
+        when(sessionFactory.getBrokerRcvQltyStats()).thenReturn(qltyStats);
+        TubeClientConfig clientConfig = mock(TubeClientConfig.class);
+        when(clientConfig.getMsgCompressType()).thenReturn(MsgCompressType.NONE);
+        when(clientConfig.getMsgAckType()).thenReturn(MsgAckType.LEADER);
+        producer = new SimpleMessageProducer(sessionFactory, clientConfig);
+        producer.publish("test");
+    }
+
+    @Test
+    public void testSplitByPartition() throws Exception {
+        BrokerInfo brokerInfo = new BrokerInfo("1:127.0.0.1:8123");
+        partitions.add(new Partition(brokerInfo, "test", 0));
+        partitions.add(new Partition(brokerInfo, "test", 1));
+        List<Message> messages = newMessages(6, 8);
+        List<MessageSentResult> results = producer.sendMessages(messages);
+        // the round-robin router alternates the partitions, one request per partition
+        Assert.assertEquals(2, batchRequests.size());
+        for (ClientBroker.SendMessageBatchRequestP2B request : batchRequests) {
+            Assert.assertEquals(3, request.getMessagesCount());
+            for (int i = 0; i < request.getMessagesCount(); i++) {
+                int msgIndex = request.getMessages(i).getData().byteAt(0);
+                Assert.assertEquals(request.getPartitionId(),
+                        results.get(msgIndex).getPartition().getPartitionId());
+                if (i > 0) {
+                    // the messages keep their order inside a batch
+                    Assert.assertEquals(msgIndex - 2, request.getMessages(i - 1).getData().byteAt(0));
+                }
+            }
+        }
+        Assert.assertNotEquals(batchRequests.get(0).getPartitionId(),
+                batchRequests.get(1).getPartitionId());
+        assertAllSucceeded(messages, results);
+    }
+
+    @Test
+    public void testSplitByCount() throws Exception {
+        partitions.add(new Partition(new BrokerInfo("1:127.0.0.1:8123"), "test", 0));
+        final int msgCnt = TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT * 2 + 1;
+        List<Message> messages = newMessages(msgCnt, 8);
+        final List<MessageSentResult> results = producer.sendMessages(messages);
+        Assert.assertEquals(3, batchRequests.size());
+        Assert.assertEquals(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT,
+                batchRequests.get(0).getMessagesCount());
+        Assert.assertEquals(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT,
+                batchRequests.get(1).getMessagesCount());
+        Assert.assertEquals(1, batchRequests.get(2).getMessagesCount());
+        assertAllSucceeded(messages, results);
+    }
+
+    @Test
+    public void testSplitBySize() throws Exception {
+        partitions.add(new Partition(new BrokerInfo("1:127.0.0.1:8123"), "test", 0));
+        // two messages fit in one request, the third one overflows the size limit
+        final int msgSize = TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT / 3 + 1;
+        List<Message> messages = newMessages(4, msgSize);
+        List<MessageSentResult> results = producer.sendMessages(messages);
+        Assert.assertEquals(2, batchRequests.size());
+        for (ClientBroker.SendMessageBatchRequestP2B request : batchRequests) {
+            Assert.assertEquals(2, request.getMessagesCount());
+            Assert.assertTrue(request.getMessages(0).getData().size()
+                    + request.getMessages(1).getData().size()
+                    <= TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT);
+        }
+        assertAllSucceeded(messages, results);
+    }
+
+    private List<Message> newMessages(int msgCnt, int msgSize) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < msgCnt; i++) {
+            byte[] data = new byte[msgSize];
+            // the first byte carries the message index
+            data[0] = (byte) i;
+            messages.add(new Message("test", data));
+        }
+        return messages;
+    }
+
+    private void assertAllSucceeded(List<Message> messages, List<MessageSentResult> results) {
+        Assert.assertEquals(messages.size(), results.size());
+        for (int i = 0; i < messages.size(); i++) {
+            Assert.assertTrue(results.get(i).isSuccess());
+            Assert.assertSame(messages.get(i), results.get(i).getMessage());
+        }
+    }
+}
@@ -68,4 +68,27 @@ public class DefaultBrokerRcvQltyStatsTest {
         stats.stopBrokerStatistic();
         assertTrue(stats.isStopped());
     }
+
+    @Test
+    public void testBrokerSentDelay() {
+        DefaultBrokerRcvQltyStats stats = new DefaultBrokerRcvQltyStats(
+                mock(RpcServiceFactory.class), mock(TubeClientConfig.class));
+        assertEquals(0, stats.getBrokerCurSentReqNum(0));
+        assertEquals(0.0, stats.getBrokerSentDelayEwma(0), 0.001);
+        stats.addSendStatistic(0);
+        stats.addSendStatistic(0);
+        assertEquals(2, stats.getBrokerCurSentReqNum(0));
+        // the first sample initializes the EWMA
+        stats.addReceiveStatistic(0, true, 80);
+        assertEquals(1, stats.getBrokerCurSentReqNum(0));
+        assertEquals(80.0, stats.getBrokerSentDelayEwma(0), 0.001);
+        // then moves 1/8 toward each sample
+        stats.addReceiveStatistic(0, false, 0);
+        assertEquals(0, stats.getBrokerCurSentReqNum(0));
+        assertEquals(70.0, stats.getBrokerSentDelayEwma(0), 0.001);
+        // no latency sample
+        stats.addSendStatistic(0);
+        stats.addReceiveStatistic(0, false);
+        assertEquals(70.0, stats.getBrokerSentDelayEwma(0), 0.001);
+    }
 }
@@ -42,6 +42,19 @@ public class TubemqOptions {
             .withDescription("The maximum number of retries when an "
                     + "exception is caught.");
 
+    public static final ConfigOption<Boolean> SINK_ASYNC_ENABLE =
+        ConfigOptions.key("sink.async.enable")
+            .defaultValue(false)
+            .withDescription("True if the tubemq sink sends the messages "
+                    + "asynchronously, and waits for the in-flight messages "
+                    + "when checkpointing.");
+
+    public static final ConfigOption<Integer> SINK_MAX_IN_FLIGHT =
+        ConfigOptions.key("sink.max.in.flight")
+            .defaultValue(1000)
+            .withDescription("The maximum number of the in-flight messages "
+                    + "of an asynchronous tubemq sink.");
+
     public static final ConfigOption<Boolean> BOOTSTRAP_FROM_MAX =
         ConfigOptions.key("bootstrap.from.max")
             .defaultValue(false)
@@ -19,10 +19,14 @@
 package org.apache.flink.connectors.tubemq;
 
 import static org.apache.flink.connectors.tubemq.TubemqOptions.MAX_RETRIES;
+import static org.apache.flink.connectors.tubemq.TubemqOptions.SINK_ASYNC_ENABLE;
+import static org.apache.flink.connectors.tubemq.TubemqOptions.SINK_MAX_IN_FLIGHT;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.common.serialization.SerializationSchema;
 import org.apache.flink.configuration.Configuration;
@@ -36,6 +40,7 @@ import org.apache.inlong.tubemq.client.config.TubeClientConfig;
 import org.apache.inlong.tubemq.client.factory.MessageSessionFactory;
 import org.apache.inlong.tubemq.client.factory.TubeSingleSessionFactory;
 import org.apache.inlong.tubemq.client.producer.MessageProducer;
+import org.apache.inlong.tubemq.client.producer.MessageSentCallback;
 import org.apache.inlong.tubemq.client.producer.MessageSentResult;
 import org.apache.inlong.tubemq.corebase.Message;
 import org.slf4j.Logger;
@@ -81,6 +86,26 @@ public class TubemqSinkFunction<T> extends RichSinkFunction<T> implements Checkp
      */
     private final int maxRetries;
 
+    /**
+     * True if sending the messages asynchronously.
+     */
+    private final boolean asyncEnable;
+
+    /**
+     * The maximum number of the in-flight messages in async mode.
+     */
+    private final int maxInFlight;
+
+    /**
+     * The permits of the in-flight messages in async mode.
+     */
+    private transient Semaphore inFlightPermits;
+
+    /**
+     * The first failure of the asynchronous sends, thrown on the next invoke or checkpoint.
+     */
+    private transient AtomicReference<Throwable> asyncException;
+
     public TubemqSinkFunction(String topic,
                               String masterAddress,
                               SerializationSchema<T> serializationSchema,
@@ -99,11 +124,19 @@ public class TubemqSinkFunction<T> extends RichSinkFunction<T> implements Checkp
         this.serializationSchema = serializationSchema;
         this.tid = configuration.getString(TubemqOptions.TID);
         this.maxRetries = configuration.getInteger(MAX_RETRIES);
+        this.asyncEnable = configuration.getBoolean(SINK_ASYNC_ENABLE);
+        this.maxInFlight = configuration.getInteger(SINK_MAX_IN_FLIGHT);
+        Preconditions.checkArgument(maxInFlight > 0,
+            "The maximum number of the in-flight messages must be positive.");
     }
 
     @Override
-    public void snapshotState(FunctionSnapshotContext functionSnapshotContext) {
-        // Nothing to do.
+    public void snapshotState(FunctionSnapshotContext functionSnapshotContext) throws Exception {
+        // all the messages before the checkpoint must be sent for at-least-once
+        if (asyncEnable) {
+            flush();
+            checkAsyncException();
+        }
     }
 
     @Override
@@ -115,30 +148,30 @@ public class TubemqSinkFunction<T> extends RichSinkFunction<T> implements Checkp
     public void open(Configuration parameters) throws Exception {
         super.open(parameters);
 
-        TubeClientConfig tubeClientConfig = new TubeClientConfig(masterAddress);
-        this.sessionFactory = new TubeSingleSessionFactory(tubeClientConfig);
+        this.sessionFactory = createSessionFactory(new TubeClientConfig(masterAddress));
         this.producer = sessionFactory.createProducer();
         HashSet<String> hashSet = new HashSet<>();
         hashSet.add(topic);
         producer.publish(hashSet);
+        this.inFlightPermits = new Semaphore(maxInFlight);
+        this.asyncException = new AtomicReference<>();
     }
 
     @Override
     public void invoke(T in, Context context) throws Exception {
 
+        if (asyncEnable) {
+            invokeAsync(in);
+            return;
+        }
+
         int retries = 0;
         Exception exception = null;
 
         while (maxRetries <= 0 || retries < maxRetries) {
 
             try {
-                byte[] body = serializationSchema.serialize(in);
-                Message message = new Message(topic, body);
-                if (StringUtils.isNotBlank(tid)) {
-                    SimpleDateFormat sdf = new SimpleDateFormat(SYSTEM_HEADER_TIME_FORMAT);
-                    long currTimeMillis = System.currentTimeMillis();
-                    message.putSystemHeader(tid, sdf.format(new Date(currTimeMillis)));
-                }
+                Message message = buildMessage(in);
 
                 MessageSentResult sendResult = producer.sendMessage(message);
                 if (sendResult.isSuccess()) {
@@ -159,9 +192,118 @@ public class TubemqSinkFunction<T> extends RichSinkFunction<T> implements Checkp
         throw new IOException("Could not properly send the message to hippo.", exception);
     }
 
+    private void invokeAsync(T in) throws Exception {
+        checkAsyncException();
+        Message message = buildMessage(in);
+        // wait for a free slot if the in-flight window is full
+        inFlightPermits.acquire();
+
+        int retries = 0;
+        Exception exception = null;
+
+        while (maxRetries <= 0 || retries < maxRetries) {
+            try {
+                sendAsync(message, retries);
+                return;
+            } catch (Exception e) {
+                LOG.warn("Could not properly send the message to tubemq "
+                        + "(retries: {}).", retries, e);
+
+                retries++;
+                exception = ExceptionUtils.firstOrSuppressed(e, exception);
+            }
+        }
+
+        inFlightPermits.release();
+        throw new IOException("Could not properly send the message to tubemq.", exception);
+    }
+
+    private void sendAsync(final Message message, final int retries) throws Exception {
+        producer.sendMessage(message, new MessageSentCallback() {
+            @Override
+            public void onMessageSent(MessageSentResult result) {
+                if (result.isSuccess()) {
+                    inFlightPermits.release();
+                    return;
+                }
+                LOG.warn("Send msg fail, error code: {}, error message: {}",
+                    result.getErrCode(), result.getErrMsg());
+                retryAsync(message, retries, new IOException(result.getErrMsg()));
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                LOG.warn("Could not properly send the message to tubemq "
+                        + "(retries: {}).", retries, e);
+                retryAsync(message, retries, e);
+            }
+        });
+    }
+
+    /**
+     * Resend the failed message from the callback, or keep the failure
+     * to fail the next invoke or checkpoint if the retries are exhausted.
+     */
+    private void retryAsync(Message message, int retries, Throwable cause) {
+        Throwable failure = cause;
+        if (asyncException.get() == null
+                && (maxRetries <= 0 || retries + 1 < maxRetries)) {
+            try {
+                sendAsync(message, retries + 1);
+                return;
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+        asyncException.compareAndSet(null, failure);
+        inFlightPermits.release();
+    }
+
+    /**
+     * Wait until all the in-flight messages are acknowledged or failed.
+     */
+    private void flush() throws InterruptedException {
+        inFlightPermits.acquire(maxInFlight);
+        inFlightPermits.release(maxInFlight);
+    }
+
+    private void checkAsyncException() throws IOException {
+        Throwable cause = asyncException.get();
+        if (cause != null) {
+            throw new IOException("Could not properly send the message to tubemq.", cause);
+        }
+    }
+
+    /**
+     * Create the session factory of the producer, overridden in tests.
+     */
+    MessageSessionFactory createSessionFactory(TubeClientConfig tubeClientConfig) throws Exception {
+        return new TubeSingleSessionFactory(tubeClientConfig);
+    }
+
+    private Message buildMessage(T in) {
+        byte[] body = serializationSchema.serialize(in);
+        Message message = new Message(topic, body);
+        if (StringUtils.isNotBlank(tid)) {
+            SimpleDateFormat sdf = new SimpleDateFormat(SYSTEM_HEADER_TIME_FORMAT);
+            long currTimeMillis = System.currentTimeMillis();
+            message.putSystemHeader(tid, sdf.format(new Date(currTimeMillis)));
+        }
+        return message;
+    }
+
     @Override
     public void close() throws Exception {
 
+        if (asyncEnable && producer != null) {
+            try {
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted while waiting for the in-flight messages", e);
+            }
+        }
+
         try {
             if (producer != null) {
                 producer.shutdown();
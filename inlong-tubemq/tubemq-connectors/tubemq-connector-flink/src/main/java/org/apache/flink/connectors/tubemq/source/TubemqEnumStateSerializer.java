@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+
+/**
+ * The serializer of {@link TubemqEnumState}.
+ */
+public class TubemqEnumStateSerializer
+    implements SimpleVersionedSerializer<TubemqEnumState> {
+
+    private static final int CURRENT_VERSION = 0;
+
+    @Override
+    public int getVersion() {
+        return CURRENT_VERSION;
+    }
+
+    @Override
+    public byte[] serialize(TubemqEnumState state) throws IOException {
+        Set<String> assignedPartitions = state.getAssignedPartitions();
+        DataOutputSerializer out = new DataOutputSerializer(256);
+        out.writeInt(assignedPartitions.size());
+        for (String partitionKey : assignedPartitions) {
+            out.writeUTF(partitionKey);
+        }
+        return out.getCopyOfBuffer();
+    }
+
+    @Override
+    public TubemqEnumState deserialize(int version, byte[] serialized) throws IOException {
+        if (version != CURRENT_VERSION) {
+            throw new IOException("Unknown version of the tubemq enumerator state: " + version);
+        }
+        DataInputDeserializer in = new DataInputDeserializer(serialized);
+        int size = in.readInt();
+        Set<String> assignedPartitions = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            assignedPartitions.add(in.readUTF());
+        }
+        return new TubemqEnumState(assignedPartitions);
+    }
+}
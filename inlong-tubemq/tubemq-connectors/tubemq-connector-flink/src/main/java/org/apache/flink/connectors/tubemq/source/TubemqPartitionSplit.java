@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import org.apache.flink.api.connector.source.SourceSplit;
+
+/**
+ * A TubeMQ partition split, each split is a partition of the topic.
+ */
+public class TubemqPartitionSplit implements SourceSplit {
+
+    /**
+     * The offset value if consuming from the offset stored in the broker.
+     */
+    public static final long NO_OFFSET = -1L;
+
+    /**
+     * The partition key, format eg: brokerId:topic:partitionId.
+     */
+    private final String partitionKey;
+
+    /**
+     * The offset to start consuming from, {@link #NO_OFFSET} if not specified.
+     */
+    private final long startOffset;
+
+    public TubemqPartitionSplit(String partitionKey, long startOffset) {
+        this.partitionKey = partitionKey;
+        this.startOffset = startOffset;
+    }
+
+    public String getPartitionKey() {
+        return partitionKey;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    @Override
+    public String splitId() {
+        return partitionKey;
+    }
+
+    @Override
+    public String toString() {
+        return "TubemqPartitionSplit{partitionKey=" + partitionKey
+            + ", startOffset=" + startOffset + "}";
+    }
+}
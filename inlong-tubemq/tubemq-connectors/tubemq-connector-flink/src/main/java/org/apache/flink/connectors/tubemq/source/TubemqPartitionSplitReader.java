@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.flink.connector.base.source.reader.RecordsBySplits;
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitReader;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsAddition;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsChange;
+import org.apache.inlong.tubemq.client.common.ConfirmResult;
+import org.apache.inlong.tubemq.client.common.ConsumeResult;
+import org.apache.inlong.tubemq.client.common.QueryMetaResult;
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.client.consumer.ClientBalanceConsumer;
+import org.apache.inlong.tubemq.client.factory.TubeSingleSessionFactory;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The split reader which fetches the messages of the assigned partitions
+ * with a client-balance consumer, running in the fetcher thread of the reader.
+ *
+ * <p>A fetched message batch is confirmed to the broker only after its last message has been
+ * emitted, the {@link TubemqRecordEmitter} hands the confirm context of the batch back through
+ * the emitted queue, and the offset returned by the confirmation is passed to the split in the
+ * next fetch. The partition of a batch is not fetched again until the batch is confirmed.
+ */
+public class TubemqPartitionSplitReader implements SplitReader<TubemqRecord, TubemqPartitionSplit> {
+
+    private static final Logger LOG =
+        LoggerFactory.getLogger(TubemqPartitionSplitReader.class);
+
+    /**
+     * The max time of a fetch waiting for the ready partitions or the emitted batches.
+     */
+    private static final long FETCH_READY_WAIT_PERIOD_MS = 100L;
+
+    /**
+     * The TubeMQ session factory.
+     */
+    private final TubeSingleSessionFactory messageSessionFactory;
+
+    /**
+     * The TubeMQ client-balance consumer.
+     */
+    private final ClientBalanceConsumer consumer;
+
+    /**
+     * The assigned partitions not connected yet, and their start offsets.
+     */
+    private final Map<String, Long> pendingPartitions = new LinkedHashMap<>();
+
+    /**
+     * The confirm contexts of the batches whose last messages have been emitted.
+     */
+    private final BlockingQueue<String> emittedContexts;
+
+    /**
+     * The confirm contexts of the fetched batches not confirmed yet.
+     */
+    private final Set<String> inflightContexts = new HashSet<>();
+
+    private final QueryMetaResult queryResult = new QueryMetaResult();
+    private final ProcessResult procResult = new ProcessResult();
+    private final ConsumeResult consumeResult = new ConsumeResult();
+    private final ConfirmResult confirmResult = new ConfirmResult();
+
+    public TubemqPartitionSplitReader(
+        TubemqSource<?> source,
+        BlockingQueue<String> emittedContexts
+    ) {
+        this.emittedContexts = emittedContexts;
+        ConsumerConfig consumerConfig = source.createConsumerConfig();
+        consumerConfig.setPullConsumeReadyWaitPeriodMs(FETCH_READY_WAIT_PERIOD_MS);
+        try {
+            this.messageSessionFactory = new TubeSingleSessionFactory(consumerConfig);
+            this.consumer = messageSessionFactory.createBalanceConsumer(consumerConfig);
+            Map<String, TreeSet<String>> topicAndFilterCondMap = new HashMap<>();
+            topicAndFilterCondMap.put(source.getTopic(), source.getTidSet());
+            if (!consumer.start(topicAndFilterCondMap, -1, 0, procResult)) {
+                throw new IllegalStateException("Could not start the tubemq consumer (errcode: "
+                    + procResult.getErrCode() + ", errmsg: " + procResult.getErrMsg() + ").");
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the tubemq consumer.", e);
+        }
+    }
+
+    TubemqPartitionSplitReader(
+        TubeSingleSessionFactory messageSessionFactory,
+        ClientBalanceConsumer consumer,
+        BlockingQueue<String> emittedContexts
+    ) {
+        this.messageSessionFactory = messageSessionFactory;
+        this.consumer = consumer;
+        this.emittedContexts = emittedContexts;
+    }
+
+    @Override
+    public RecordsWithSplitIds<TubemqRecord> fetch() throws IOException {
+        RecordsBySplits.Builder<TubemqRecord> builder = new RecordsBySplits.Builder<>();
+        try {
+            connectPendingPartitions();
+            int registeredCnt = consumer.getCurRegisteredPartSet().size();
+            if (registeredCnt == 0) {
+                Thread.sleep(FETCH_READY_WAIT_PERIOD_MS);
+                return builder.build();
+            }
+            String confirmContext = null;
+            if (inflightContexts.size() >= registeredCnt) {
+                // all the partitions wait for their batches to be emitted
+                confirmContext = emittedContexts.poll(
+                    FETCH_READY_WAIT_PERIOD_MS, TimeUnit.MILLISECONDS);
+            }
+            if (confirmContext == null) {
+                confirmContext = emittedContexts.poll();
+            }
+            while (confirmContext != null) {
+                confirmEmitted(confirmContext, builder);
+                confirmContext = emittedContexts.poll();
+            }
+            if (inflightContexts.size() >= registeredCnt) {
+                return builder.build();
+            }
+            if (!consumer.getMessage(consumeResult)) {
+                if (consumeResult.getErrCode() == TErrCodeConstants.CLIENT_SHUTDOWN) {
+                    throw new IOException("The tubemq consumer has been shutdown.");
+                }
+                return builder.build();
+            }
+            String partitionKey = consumeResult.getPartitionKey();
+            List<Message> messageList = consumeResult.getMessageList();
+            confirmContext = consumeResult.getConfirmContext();
+            inflightContexts.add(confirmContext);
+            if (messageList == null || messageList.isEmpty()) {
+                // all the messages are filtered out, only confirm the batch
+                builder.add(partitionKey, new TubemqRecord(
+                    null, TubemqPartitionSplit.NO_OFFSET, confirmContext));
+            } else {
+                int lastIndex = messageList.size() - 1;
+                for (int i = 0; i < lastIndex; i++) {
+                    builder.add(partitionKey, new TubemqRecord(
+                        messageList.get(i), TubemqPartitionSplit.NO_OFFSET, null));
+                }
+                builder.add(partitionKey, new TubemqRecord(
+                    messageList.get(lastIndex), TubemqPartitionSplit.NO_OFFSET, confirmContext));
+            }
+            return builder.build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching messages from tubemq.", e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not fetch messages from tubemq.", e);
+        }
+    }
+
+    @Override
+    public void handleSplitsChanges(SplitsChange<TubemqPartitionSplit> splitsChange) {
+        if (!(splitsChange instanceof SplitsAddition)) {
+            throw new UnsupportedOperationException(String.format(
+                "The SplitChange type of %s is not supported.", splitsChange.getClass()));
+        }
+        for (TubemqPartitionSplit split : splitsChange.splits()) {
+            pendingPartitions.put(split.getPartitionKey(), split.getStartOffset());
+        }
+    }
+
+    @Override
+    public void wakeUp() {
+        // the fetch returns within the ready wait period
+    }
+
+    public void close() throws Exception {
+        try {
+            consumer.shutdown();
+            messageSessionFactory.shutdown();
+        } catch (Exception e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new Exception("Could not shutdown the tubemq consumer.", t);
+        }
+    }
+
+    /**
+     * Confirm the emitted batch to the broker, and update the offset of its split
+     * if the confirmation succeeds, otherwise the batch is replayed from the
+     * checkpointed offset after a failover.
+     */
+    private void confirmEmitted(
+        String confirmContext,
+        RecordsBySplits.Builder<TubemqRecord> builder
+    ) throws Exception {
+        if (!inflightContexts.remove(confirmContext)) {
+            return;
+        }
+        if (!consumer.confirmConsume(confirmContext, true, confirmResult)) {
+            LOG.warn("Could not confirm messages to tubemq (errcode: {}, errmsg: {}).",
+                confirmResult.getErrCode(), confirmResult.getErrMsg());
+            return;
+        }
+        if (confirmResult.getCurrOffset() >= 0) {
+            builder.add(confirmResult.getPartitionKey(),
+                new TubemqRecord(null, confirmResult.getCurrOffset(), null));
+        }
+    }
+
+    /**
+     * Connect the assigned partitions, the partitions not ready are retried in the next fetch.
+     */
+    private void connectPendingPartitions() throws Exception {
+        if (pendingPartitions.isEmpty()) {
+            return;
+        }
+        if (!consumer.getPartitionMetaInfo(queryResult)) {
+            LOG.warn("Could not query the partitions from tubemq (errcode: {}, errmsg: {}).",
+                queryResult.getErrCode(), queryResult.getErrMsg());
+            return;
+        }
+        Map<String, Boolean> partStatusMap = queryResult.getPartStatusMap();
+        Iterator<Map.Entry<String, Long>> iterator = pendingPartitions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (partStatusMap == null || partStatusMap.get(entry.getKey()) != Boolean.TRUE) {
+                continue;
+            }
+            if (consumer.connect2Partition(entry.getKey(), entry.getValue(), procResult)) {
+                LOG.info("Connected to the tubemq partition {} from offset {}.",
+                    entry.getKey(), entry.getValue());
+                iterator.remove();
+            } else {
+                LOG.warn("Could not connect to the tubemq partition {} (errcode: {}, errmsg: {}).",
+                    entry.getKey(), procResult.getErrCode(), procResult.getErrMsg());
+            }
+        }
+    }
+}
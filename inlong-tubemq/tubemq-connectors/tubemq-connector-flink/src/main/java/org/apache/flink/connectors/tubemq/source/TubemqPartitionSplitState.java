@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+/**
+ * The mutable state of a {@link TubemqPartitionSplit} in the source reader.
+ */
+public class TubemqPartitionSplitState extends TubemqPartitionSplit {
+
+    /**
+     * The offset after the last confirmed message batch of the partition.
+     */
+    private long currentOffset;
+
+    public TubemqPartitionSplitState(TubemqPartitionSplit split) {
+        super(split.getPartitionKey(), split.getStartOffset());
+        this.currentOffset = split.getStartOffset();
+    }
+
+    public long getCurrentOffset() {
+        return currentOffset;
+    }
+
+    public void setCurrentOffset(long currentOffset) {
+        this.currentOffset = currentOffset;
+    }
+
+    public TubemqPartitionSplit toTubemqPartitionSplit() {
+        return new TubemqPartitionSplit(getPartitionKey(), currentOffset);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import org.apache.inlong.tubemq.corebase.Message;
+
+/**
+ * A message fetched by the {@link TubemqPartitionSplitReader}, or the offset of a split
+ * after its message batch has been confirmed.
+ */
+public class TubemqRecord {
+
+    private final Message message;
+
+    /**
+     * The offset after the confirmed message batch if this only updates the offset,
+     * otherwise {@link TubemqPartitionSplit#NO_OFFSET}.
+     */
+    private final long nextOffset;
+
+    /**
+     * The confirm context of the message batch if this is the last message of the batch,
+     * otherwise null.
+     */
+    private final String confirmContext;
+
+    public TubemqRecord(Message message, long nextOffset, String confirmContext) {
+        this.message = message;
+        this.nextOffset = nextOffset;
+        this.confirmContext = confirmContext;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public String getConfirmContext() {
+        return confirmContext;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import java.util.concurrent.BlockingQueue;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.connector.source.SourceOutput;
+import org.apache.flink.connector.base.source.reader.RecordEmitter;
+import org.apache.inlong.tubemq.corebase.Message;
+
+/**
+ * The record emitter which deserializes the messages and updates the offsets of the splits,
+ * the message batches are handed back to the {@link TubemqPartitionSplitReader} to confirm
+ * after their last messages are emitted.
+ *
+ * @param <T> The type of records produced by the source
+ */
+public class TubemqRecordEmitter<T>
+    implements RecordEmitter<TubemqRecord, T, TubemqPartitionSplitState> {
+
+    private final DeserializationSchema<T> deserializationSchema;
+
+    /**
+     * The confirm contexts of the emitted batches, polled by the split reader.
+     */
+    private final BlockingQueue<String> emittedContexts;
+
+    public TubemqRecordEmitter(
+        DeserializationSchema<T> deserializationSchema,
+        BlockingQueue<String> emittedContexts
+    ) {
+        this.deserializationSchema = deserializationSchema;
+        this.emittedContexts = emittedContexts;
+    }
+
+    @Override
+    public void emitRecord(
+        TubemqRecord element,
+        SourceOutput<T> output,
+        TubemqPartitionSplitState splitState
+    ) throws Exception {
+        Message message = element.getMessage();
+        if (message != null) {
+            T record = deserializationSchema.deserialize(message.getData());
+            if (record != null) {
+                output.collect(record);
+            }
+        }
+        // the batch is confirmed after its last message is emitted
+        if (element.getConfirmContext() != null) {
+            emittedContexts.add(element.getConfirmContext());
+        }
+        if (element.getNextOffset() >= 0) {
+            splitState.setCurrentOffset(element.getNextOffset());
+        }
+    }
+}
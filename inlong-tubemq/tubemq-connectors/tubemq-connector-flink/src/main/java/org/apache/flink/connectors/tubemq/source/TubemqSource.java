@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.TimeUtils.parseDuration;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.flink.api.common.serialization.DeserializationSchema;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.connector.source.Boundedness;
+import org.apache.flink.api.connector.source.Source;
+import org.apache.flink.api.connector.source.SourceReader;
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connectors.tubemq.TubemqOptions;
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.client.consumer.ConsumePosition;
+
+/**
+ * The Flink TubeMQ Source, built on the new source interfaces (FLIP-27).
+ *
+ * <p>Each partition of the topic is a split. The {@link TubemqSplitEnumerator} discovers the
+ * partitions and assigns them to the readers, and each {@link TubemqSourceReader} consumes its
+ * partitions through a client-balance consumer in a dedicated fetcher thread. The consume
+ * offsets are checkpointed with the splits, so the partitions can be redistributed when the
+ * job is rescaled, and the watermarks are generated per split if a watermark strategy is set.
+ *
+ * @param <T> The type of records produced by this data source
+ */
+public class TubemqSource<T>
+    implements Source<T, TubemqPartitionSplit, TubemqEnumState>, ResultTypeQueryable<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The address of TubeMQ master, format eg: 127.0.0.1:8080,127.0.0.2:8081.
+     */
+    private final String masterAddress;
+
+    /**
+     * The topic name.
+     */
+    private final String topic;
+
+    /**
+     * The tubemq consumers use this tid set to filter records reading from server.
+     */
+    private final TreeSet<String> tidSet;
+
+    /**
+     * The consumer group name.
+     */
+    private final String consumerGroup;
+
+    /**
+     * The deserializer for records.
+     */
+    private final DeserializationSchema<T> deserializationSchema;
+
+    /**
+     * True if consuming message from max offset.
+     */
+    private final boolean consumeFromMax;
+
+    /**
+     * The time to wait if tubemq broker returns message not found, in milliseconds.
+     */
+    private final long messageNotFoundWaitPeriodMs;
+
+    /**
+     * Build a TubeMQ source
+     *
+     * @param masterAddress            the master address of TubeMQ
+     * @param topic                    the topic name
+     * @param tidSet                   the  topic's filter condition items
+     * @param consumerGroup            the consumer group name
+     * @param deserializationSchema    the deserialize schema
+     * @param configuration            the configure
+     */
+    public TubemqSource(
+        String masterAddress,
+        String topic,
+        TreeSet<String> tidSet,
+        String consumerGroup,
+        DeserializationSchema<T> deserializationSchema,
+        Configuration configuration
+    ) {
+        checkNotNull(masterAddress,
+            "The master address must not be null.");
+        checkNotNull(topic,
+            "The topic must not be null.");
+        checkNotNull(tidSet,
+            "The tid set must not be null.");
+        checkNotNull(consumerGroup,
+            "The consumer group must not be null.");
+        checkNotNull(deserializationSchema,
+            "The deserialization schema must not be null.");
+        checkNotNull(configuration,
+            "The configuration must not be null.");
+
+        this.masterAddress = masterAddress;
+        this.topic = topic;
+        this.tidSet = tidSet;
+        this.consumerGroup = consumerGroup;
+        this.deserializationSchema = deserializationSchema;
+
+        this.consumeFromMax =
+            configuration.getBoolean(TubemqOptions.BOOTSTRAP_FROM_MAX);
+        this.messageNotFoundWaitPeriodMs =
+            parseDuration(
+                configuration.getString(
+                    TubemqOptions.MESSAGE_NOT_FOUND_WAIT_PERIOD)).toMillis();
+    }
+
+    @Override
+    public Boundedness getBoundedness() {
+        return Boundedness.CONTINUOUS_UNBOUNDED;
+    }
+
+    @Override
+    public SourceReader<T, TubemqPartitionSplit> createReader(
+        SourceReaderContext readerContext
+    ) {
+        BlockingQueue<String> emittedContexts = new LinkedBlockingQueue<>();
+        return new TubemqSourceReader<>(
+            () -> new TubemqPartitionSplitReader(this, emittedContexts),
+            new TubemqRecordEmitter<>(deserializationSchema, emittedContexts),
+            new Configuration(),
+            readerContext);
+    }
+
+    @Override
+    public SplitEnumerator<TubemqPartitionSplit, TubemqEnumState> createEnumerator(
+        SplitEnumeratorContext<TubemqPartitionSplit> enumContext
+    ) {
+        return new TubemqSplitEnumerator(this, enumContext, new TreeSet<>());
+    }
+
+    @Override
+    public SplitEnumerator<TubemqPartitionSplit, TubemqEnumState> restoreEnumerator(
+        SplitEnumeratorContext<TubemqPartitionSplit> enumContext,
+        TubemqEnumState checkpoint
+    ) {
+        return new TubemqSplitEnumerator(this, enumContext,
+            new TreeSet<>(checkpoint.getAssignedPartitions()));
+    }
+
+    @Override
+    public SimpleVersionedSerializer<TubemqPartitionSplit> getSplitSerializer() {
+        return new TubemqPartitionSplitSerializer();
+    }
+
+    @Override
+    public SimpleVersionedSerializer<TubemqEnumState> getEnumeratorCheckpointSerializer() {
+        return new TubemqEnumStateSerializer();
+    }
+
+    @Override
+    public TypeInformation<T> getProducedType() {
+        return deserializationSchema.getProducedType();
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    TreeSet<String> getTidSet() {
+        return tidSet;
+    }
+
+    ConsumerConfig createConsumerConfig() {
+        ConsumerConfig consumerConfig =
+            new ConsumerConfig(masterAddress, consumerGroup);
+        consumerConfig.setConsumePosition(consumeFromMax
+                ? ConsumePosition.CONSUMER_FROM_MAX_OFFSET_ALWAYS
+                : ConsumePosition.CONSUMER_FROM_LATEST_OFFSET);
+        consumerConfig.setMsgNotFoundWaitPeriodMs(messageNotFoundWaitPeriodMs);
+        return consumerConfig;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.base.source.reader.RecordEmitter;
+import org.apache.flink.connector.base.source.reader.SingleThreadMultiplexSourceReaderBase;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitReader;
+import org.apache.flink.connector.base.source.reader.synchronization.FutureCompletingBlockingQueue;
+
+/**
+ * The source reader of the TubeMQ partitions, the messages are fetched by
+ * a {@link TubemqPartitionSplitReader} in a single fetcher thread.
+ *
+ * @param <T> The type of records produced by the source
+ */
+public class TubemqSourceReader<T>
+    extends SingleThreadMultiplexSourceReaderBase<
+        TubemqRecord, T, TubemqPartitionSplit, TubemqPartitionSplitState> {
+
+    public TubemqSourceReader(
+        Supplier<SplitReader<TubemqRecord, TubemqPartitionSplit>> splitReaderSupplier,
+        RecordEmitter<TubemqRecord, T, TubemqPartitionSplitState> recordEmitter,
+        Configuration config,
+        SourceReaderContext context
+    ) {
+        super(new FutureCompletingBlockingQueue<>(),
+            splitReaderSupplier, recordEmitter, config, context);
+    }
+
+    @Override
+    public void start() {
+        // the splits are assigned by the enumerator when the partitions are discovered
+    }
+
+    @Override
+    protected void onSplitFinished(Map<String, TubemqPartitionSplitState> finishedSplitIds) {
+        // the partitions of an unbounded source never finish
+    }
+
+    @Override
+    protected TubemqPartitionSplitState initializedState(TubemqPartitionSplit split) {
+        return new TubemqPartitionSplitState(split);
+    }
+
+    @Override
+    protected TubemqPartitionSplit toSplitType(
+        String splitId,
+        TubemqPartitionSplitState splitState
+    ) {
+        return splitState.toTubemqPartitionSplit();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.connector.source.SplitsAssignment;
+import org.apache.inlong.tubemq.client.common.QueryMetaResult;
+import org.apache.inlong.tubemq.client.config.ConsumerConfig;
+import org.apache.inlong.tubemq.client.consumer.ClientBalanceConsumer;
+import org.apache.inlong.tubemq.client.factory.TubeSingleSessionFactory;
+import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The split enumerator of the TubeMQ source, which discovers the partitions of the topic
+ * periodically and assigns the new partitions to the readers.
+ *
+ * <p>A partition is always assigned to the same reader by the hash of its partition key,
+ * so that the readers keep their partitions when the partitions are re-discovered.
+ */
+public class TubemqSplitEnumerator
+    implements SplitEnumerator<TubemqPartitionSplit, TubemqEnumState> {
+
+    private static final Logger LOG =
+        LoggerFactory.getLogger(TubemqSplitEnumerator.class);
+
+    private final TubemqSource<?> source;
+
+    private final SplitEnumeratorContext<TubemqPartitionSplit> context;
+
+    /**
+     * The partitions which have been assigned to the readers.
+     */
+    private final Set<String> assignedPartitions;
+
+    /**
+     * The new partitions to be assigned when their readers are registered.
+     */
+    private final Set<String> pendingPartitions = new HashSet<>();
+
+    /**
+     * The splits to be assigned when their readers are registered.
+     */
+    private final Map<Integer, List<TubemqPartitionSplit>> pendingSplits = new HashMap<>();
+
+    /**
+     * The TubeMQ session factory.
+     */
+    private TubeSingleSessionFactory messageSessionFactory;
+
+    /**
+     * The TubeMQ client-balance consumer, only used to query the partitions.
+     */
+    private ClientBalanceConsumer consumer;
+
+    public TubemqSplitEnumerator(
+        TubemqSource<?> source,
+        SplitEnumeratorContext<TubemqPartitionSplit> context,
+        Set<String> assignedPartitions
+    ) {
+        this.source = source;
+        this.context = context;
+        this.assignedPartitions = assignedPartitions;
+    }
+
+    @Override
+    public void start() {
+        ConsumerConfig consumerConfig = source.createConsumerConfig();
+        try {
+            messageSessionFactory = new TubeSingleSessionFactory(consumerConfig);
+            consumer = messageSessionFactory.createBalanceConsumer(consumerConfig);
+            Map<String, TreeSet<String>> topicAndFilterCondMap = new HashMap<>();
+            topicAndFilterCondMap.put(source.getTopic(), source.getTidSet());
+            ProcessResult procResult = new ProcessResult();
+            if (!consumer.start(topicAndFilterCondMap, -1, 0, procResult)) {
+                throw new IllegalStateException("Could not start the tubemq consumer (errcode: "
+                    + procResult.getErrCode() + ", errmsg: " + procResult.getErrMsg() + ").");
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not create the tubemq consumer.", e);
+        }
+        context.callAsync(
+            this::discoverPartitions,
+            this::handlePartitions,
+            0L,
+            consumerConfig.getPartMetaInfoCheckPeriodMs());
+    }
+
+    @Override
+    public void handleSplitRequest(int subtaskId, String requesterHostname) {
+        // the splits are pushed to the readers
+    }
+
+    @Override
+    public void addSplitsBack(List<TubemqPartitionSplit> splits, int subtaskId) {
+        // the splits are re-assigned to the reader when it is registered again,
+        // they are still in the assigned partitions as no checkpoint completes before
+        for (TubemqPartitionSplit split : splits) {
+            pendingSplits.computeIfAbsent(subtaskId, k -> new ArrayList<>()).add(split);
+        }
+    }
+
+    @Override
+    public void addReader(int subtaskId) {
+        assignPendingSplits();
+    }
+
+    @Override
+    public TubemqEnumState snapshotState(long checkpointId) {
+        return new TubemqEnumState(new HashSet<>(assignedPartitions));
+    }
+
+    @Override
+    public void close() {
+        if (consumer != null) {
+            try {
+                consumer.shutdown();
+            } catch (Throwable t) {
+                LOG.warn("Could not properly shutdown the tubemq consumer.", t);
+            }
+        }
+        if (messageSessionFactory != null) {
+            try {
+                messageSessionFactory.shutdown();
+            } catch (Throwable t) {
+                LOG.warn("Could not properly shutdown the tubemq session factory.", t);
+            }
+        }
+    }
+
+    private Set<String> discoverPartitions() throws Exception {
+        QueryMetaResult queryResult = new QueryMetaResult();
+        if (!consumer.getPartitionMetaInfo(queryResult)) {
+            throw new IllegalStateException("Could not query the partitions from tubemq (errcode: "
+                + queryResult.getErrCode() + ", errmsg: " + queryResult.getErrMsg() + ").");
+        }
+        Set<String> partitions = new TreeSet<>();
+        Map<String, Boolean> partStatusMap = queryResult.getPartStatusMap();
+        if (partStatusMap != null) {
+            for (Map.Entry<String, Boolean> entry : partStatusMap.entrySet()) {
+                if (entry.getValue() == Boolean.TRUE) {
+                    partitions.add(entry.getKey());
+                }
+            }
+        }
+        return partitions;
+    }
+
+    void handlePartitions(Set<String> partitions, Throwable t) {
+        if (t != null) {
+            LOG.warn("Could not discover the tubemq partitions.", t);
+            return;
+        }
+        int parallelism = context.currentParallelism();
+        for (String partitionKey : partitions) {
+            if (!assignedPartitions.contains(partitionKey)
+                    && pendingPartitions.add(partitionKey)) {
+                int ownerId = (partitionKey.hashCode() & Integer.MAX_VALUE) % parallelism;
+                pendingSplits.computeIfAbsent(ownerId, k -> new ArrayList<>())
+                    .add(new TubemqPartitionSplit(partitionKey, TubemqPartitionSplit.NO_OFFSET));
+            }
+        }
+        assignPendingSplits();
+    }
+
+    private void assignPendingSplits() {
+        Map<Integer, List<TubemqPartitionSplit>> assignment = new HashMap<>();
+        for (Integer readerId : context.registeredReaders().keySet()) {
+            List<TubemqPartitionSplit> splits = pendingSplits.remove(readerId);
+            if (splits != null && !splits.isEmpty()) {
+                assignment.put(readerId, splits);
+                for (TubemqPartitionSplit split : splits) {
+                    pendingPartitions.remove(split.getPartitionKey());
+                    assignedPartitions.add(split.getPartitionKey());
+                }
+            }
+        }
+        if (!assignment.isEmpty()) {
+            LOG.info("Assigning the tubemq partitions to the readers: {}.", assignment);
+            context.assignSplits(new SplitsAssignment<>(assignment));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.flink.api.common.serialization.SimpleStringSchema;
+import org.apache.flink.configuration.Configuration;
+import org.apache.inlong.tubemq.client.config.TubeClientConfig;
+import org.apache.inlong.tubemq.client.factory.MessageSessionFactory;
+import org.apache.inlong.tubemq.client.producer.MessageProducer;
+import org.apache.inlong.tubemq.client.producer.MessageSentCallback;
+import org.apache.inlong.tubemq.client.producer.MessageSentResult;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the asynchronous mode of the {@link TubemqSinkFunction}.
+ */
+public class TubemqSinkFunctionTest {
+
+    private static final int MAX_IN_FLIGHT = 2;
+
+    /**
+     * The callbacks of the sent messages, completed by the tests.
+     */
+    private final BlockingQueue<MessageSentCallback> callbacks = new LinkedBlockingQueue<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private MessageProducer producer;
+
+    @Before
+    public void setUp() throws Throwable {
+        producer = mock(MessageProducer.class);
+        doAnswer(invocation -> callbacks.add(invocation.getArgument(1)))
+            .when(producer).sendMessage(any(Message.class), any(MessageSentCallback.class));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInFlightWindow() throws Exception {
+        TubemqSinkFunction<String> sink = createSink(1);
+        sink.invoke("msg-0", null);
+        sink.invoke("msg-1", null);
+        assertEquals(MAX_IN_FLIGHT, callbacks.size());
+
+        // the invoke waits for a free slot if the in-flight window is full
+        Future<?> invokeFuture = executor.submit(() -> {
+            sink.invoke("msg-2", null);
+            return null;
+        });
+        assertBlocked(invokeFuture);
+        callbacks.poll().onMessageSent(createResult(true));
+        invokeFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(MAX_IN_FLIGHT, callbacks.size());
+    }
+
+    @Test
+    public void testFlushOnCheckpoint() throws Exception {
+        TubemqSinkFunction<String> sink = createSink(1);
+        sink.invoke("msg-0", null);
+        sink.invoke("msg-1", null);
+
+        // the checkpoint waits for all the in-flight messages
+        Future<?> snapshotFuture = executor.submit(() -> {
+            sink.snapshotState(null);
+            return null;
+        });
+        callbacks.poll().onMessageSent(createResult(true));
+        assertBlocked(snapshotFuture);
+        callbacks.poll().onMessageSent(createResult(true));
+        snapshotFuture.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRetryFailedMessage() throws Exception {
+        TubemqSinkFunction<String> sink = createSink(2);
+        sink.invoke("msg-0", null);
+        callbacks.poll().onException(new IOException("test"));
+        // the message is resent from the callback
+        MessageSentCallback callback = callbacks.poll();
+        assertNotNull(callback);
+        callback.onMessageSent(createResult(true));
+        sink.snapshotState(null);
+        sink.invoke("msg-1", null);
+    }
+
+    @Test
+    public void testFailureOnInvoke() throws Exception {
+        TubemqSinkFunction<String> sink = createSink(1);
+        sink.invoke("msg-0", null);
+        IOException cause = new IOException("test");
+        callbacks.poll().onException(cause);
+        try {
+            sink.invoke("msg-1", null);
+            fail("The failure of the asynchronous send is not thrown.");
+        } catch (IOException e) {
+            assertSame(cause, e.getCause());
+        }
+        assertTrue(callbacks.isEmpty());
+    }
+
+    @Test
+    public void testFailureOnCheckpoint() throws Exception {
+        TubemqSinkFunction<String> sink = createSink(1);
+        sink.invoke("msg-0", null);
+        sink.invoke("msg-1", null);
+        callbacks.poll().onMessageSent(createResult(false));
+        callbacks.poll().onMessageSent(createResult(true));
+        try {
+            sink.snapshotState(null);
+            fail("The failure of the asynchronous send is not thrown.");
+        } catch (IOException e) {
+            assertEquals("test", e.getCause().getMessage());
+        }
+    }
+
+    private TubemqSinkFunction<String> createSink(int maxRetries) throws Exception {
+        Configuration configuration = new Configuration();
+        configuration.setBoolean(TubemqOptions.SINK_ASYNC_ENABLE, true);
+        configuration.setInteger(TubemqOptions.SINK_MAX_IN_FLIGHT, MAX_IN_FLIGHT);
+        configuration.setInteger(TubemqOptions.MAX_RETRIES, maxRetries);
+        MessageSessionFactory sessionFactory = mock(MessageSessionFactory.class);
+        when(sessionFactory.createProducer()).thenReturn(producer);
+        TubemqSinkFunction<String> sink = new TubemqSinkFunction<String>("test-topic",
+            "127.0.0.1:8715", new SimpleStringSchema(), configuration) {
+            @Override
+            MessageSessionFactory createSessionFactory(TubeClientConfig tubeClientConfig) {
+                return sessionFactory;
+            }
+        };
+        sink.open(new Configuration());
+        return sink;
+    }
+
+    private MessageSentResult createResult(boolean success) {
+        return new MessageSentResult(success,
+            success ? TErrCodeConstants.SUCCESS : TErrCodeConstants.INTERNAL_SERVER_ERROR,
+            success ? "Ok!" : "test", null, 0L, null);
+    }
+
+    private void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("The call is not blocked.");
+        } catch (TimeoutException e) {
+            assertFalse(future.isDone());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.flink.api.common.serialization.SimpleStringSchema;
+import org.apache.flink.api.connector.source.SourceOutput;
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.inlong.tubemq.client.common.ConfirmResult;
+import org.apache.inlong.tubemq.client.common.ConsumeResult;
+import org.apache.inlong.tubemq.client.consumer.ClientBalanceConsumer;
+import org.apache.inlong.tubemq.client.consumer.FetchContext;
+import org.apache.inlong.tubemq.client.consumer.PartitionSelectResult;
+import org.apache.inlong.tubemq.client.factory.TubeSingleSessionFactory;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TubemqPartitionSplitReader} and the {@link TubemqRecordEmitter}.
+ */
+public class TubemqPartitionSplitReaderTest {
+
+    private static final String TOPIC = "test-topic";
+
+    private static final String CONFIRM_CONTEXT = "1:test-topic:0:1000";
+
+    private final Partition partition =
+        new Partition(new BrokerInfo(1, "127.0.0.1", 8123), TOPIC, 0);
+
+    private final BlockingQueue<String> emittedContexts = new LinkedBlockingQueue<>();
+
+    private ClientBalanceConsumer consumer;
+
+    private TubemqPartitionSplitReader splitReader;
+
+    @Before
+    public void setUp() throws Throwable {
+        consumer = mock(ClientBalanceConsumer.class);
+        when(consumer.getCurRegisteredPartSet())
+            .thenReturn(Collections.singleton(partition.getPartitionKey()));
+        doAnswer(invocation -> {
+            ConsumeResult result = invocation.getArgument(0);
+            FetchContext taskContext =
+                new FetchContext(new PartitionSelectResult(partition, 0L, true));
+            List<Message> messageList = Arrays.asList(
+                new Message(TOPIC, "msg-0".getBytes(StandardCharsets.UTF_8)),
+                new Message(TOPIC, "msg-1".getBytes(StandardCharsets.UTF_8)));
+            taskContext.setSuccessProcessResult(100L, CONFIRM_CONTEXT, messageList, 300L);
+            result.setProcessResult(taskContext);
+            return true;
+        }).when(consumer).getMessage(any(ConsumeResult.class));
+        doAnswer(invocation -> {
+            ConfirmResult result = invocation.getArgument(2);
+            result.setSuccResult(TOPIC, partition, 200L, 300L);
+            return true;
+        }).when(consumer).confirmConsume(anyString(), anyBoolean(), any(ConfirmResult.class));
+        splitReader = new TubemqPartitionSplitReader(
+            mock(TubeSingleSessionFactory.class), consumer, emittedContexts);
+    }
+
+    @Test
+    public void testConfirmAfterEmitted() throws Throwable {
+        List<TubemqRecord> records = fetchRecords();
+        assertEquals(2, records.size());
+        assertNull(records.get(0).getConfirmContext());
+        assertEquals(CONFIRM_CONTEXT, records.get(1).getConfirmContext());
+        assertEquals(TubemqPartitionSplit.NO_OFFSET, records.get(1).getNextOffset());
+        verify(consumer, never()).confirmConsume(anyString(), anyBoolean(), any());
+
+        // the partition is not fetched again before the batch is emitted
+        assertTrue(fetchRecords().isEmpty());
+        verify(consumer, times(1)).getMessage(any());
+        verify(consumer, never()).confirmConsume(anyString(), anyBoolean(), any());
+
+        // the batch is confirmed after emitted, and the offset is passed to the split
+        emittedContexts.add(CONFIRM_CONTEXT);
+        records = fetchRecords();
+        verify(consumer, times(1)).confirmConsume(anyString(), anyBoolean(), any());
+        verify(consumer, times(2)).getMessage(any());
+        assertEquals(3, records.size());
+        assertNull(records.get(0).getMessage());
+        assertEquals(200L, records.get(0).getNextOffset());
+    }
+
+    @Test
+    public void testRecordEmitter() throws Exception {
+        TubemqRecordEmitter<String> emitter =
+            new TubemqRecordEmitter<>(new SimpleStringSchema(), emittedContexts);
+        TubemqPartitionSplitState splitState = new TubemqPartitionSplitState(
+            new TubemqPartitionSplit(partition.getPartitionKey(), 100L));
+        List<String> collected = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        SourceOutput<String> output = mock(SourceOutput.class);
+        doAnswer(invocation -> collected.add(invocation.getArgument(0)))
+            .when(output).collect(anyString());
+
+        emitter.emitRecord(new TubemqRecord(new Message(TOPIC,
+            "msg-0".getBytes(StandardCharsets.UTF_8)), TubemqPartitionSplit.NO_OFFSET, null),
+            output, splitState);
+        assertTrue(emittedContexts.isEmpty());
+        emitter.emitRecord(new TubemqRecord(new Message(TOPIC,
+            "msg-1".getBytes(StandardCharsets.UTF_8)), TubemqPartitionSplit.NO_OFFSET,
+            CONFIRM_CONTEXT), output, splitState);
+        assertEquals(Arrays.asList("msg-0", "msg-1"), collected);
+        assertEquals(CONFIRM_CONTEXT, emittedContexts.poll());
+        // the offset is not updated until the batch is confirmed
+        assertEquals(100L, splitState.getCurrentOffset());
+
+        emitter.emitRecord(new TubemqRecord(null, 200L, null), output, splitState);
+        assertEquals(200L, splitState.getCurrentOffset());
+        assertEquals(2, collected.size());
+    }
+
+    private List<TubemqRecord> fetchRecords() throws Exception {
+        RecordsWithSplitIds<TubemqRecord> records = splitReader.fetch();
+        List<TubemqRecord> recordList = new ArrayList<>();
+        String splitId = records.nextSplit();
+        while (splitId != null) {
+            assertEquals(partition.getPartitionKey(), splitId);
+            TubemqRecord record = records.nextRecordFromSplit();
+            while (record != null) {
+                recordList.add(record);
+                record = records.nextRecordFromSplit();
+            }
+            splitId = records.nextSplit();
+        }
+        return recordList;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import static org.junit.Assert.assertEquals;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+/**
+ * Unit tests for the serializers of the {@link TubemqSource}.
+ */
+public class TubemqSourceSerializerTest {
+
+    @Test
+    public void testPartitionSplitSerializer() throws Exception {
+        TubemqPartitionSplitSerializer serializer = new TubemqPartitionSplitSerializer();
+        TubemqPartitionSplit split = new TubemqPartitionSplit("1:test-topic:2", 1024L);
+        TubemqPartitionSplit restored =
+            serializer.deserialize(serializer.getVersion(), serializer.serialize(split));
+        assertEquals(split.getPartitionKey(), restored.getPartitionKey());
+        assertEquals(split.getStartOffset(), restored.getStartOffset());
+        assertEquals(split.splitId(), restored.splitId());
+    }
+
+    @Test
+    public void testEnumStateSerializer() throws Exception {
+        TubemqEnumStateSerializer serializer = new TubemqEnumStateSerializer();
+        TubemqEnumState state = new TubemqEnumState(
+            new HashSet<>(Arrays.asList("1:test-topic:0", "2:test-topic:1")));
+        TubemqEnumState restored =
+            serializer.deserialize(serializer.getVersion(), serializer.serialize(state));
+        assertEquals(state.getAssignedPartitions(), restored.getAssignedPartitions());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.connectors.tubemq.source;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.flink.api.common.serialization.SimpleStringSchema;
+import org.apache.flink.api.connector.source.ReaderInfo;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.connector.source.SplitsAssignment;
+import org.apache.flink.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link TubemqSplitEnumerator}.
+ */
+public class TubemqSplitEnumeratorTest {
+
+    private static final int PARALLELISM = 2;
+
+    private final Map<Integer, ReaderInfo> registeredReaders = new HashMap<>();
+
+    private final List<SplitsAssignment<TubemqPartitionSplit>> assignments = new ArrayList<>();
+
+    private final Set<String> partitions = new TreeSet<>(Arrays.asList(
+        "1:test-topic:0", "1:test-topic:1", "2:test-topic:0", "2:test-topic:1"));
+
+    private TubemqSplitEnumerator enumerator;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        SplitEnumeratorContext<TubemqPartitionSplit> context =
+            mock(SplitEnumeratorContext.class);
+        when(context.currentParallelism()).thenReturn(PARALLELISM);
+        when(context.registeredReaders()).thenReturn(registeredReaders);
+        doAnswer(invocation -> assignments.add(invocation.getArgument(0)))
+            .when(context).assignSplits(any());
+        TubemqSource<String> source = new TubemqSource<>("127.0.0.1:8715", "test-topic",
+            new TreeSet<>(), "test-group", new SimpleStringSchema(), new Configuration());
+        enumerator = new TubemqSplitEnumerator(source, context, new HashSet<>());
+    }
+
+    @Test
+    public void testAssignDiscoveredPartitions() {
+        registeredReaders.put(0, new ReaderInfo(0, "localhost"));
+        registeredReaders.put(1, new ReaderInfo(1, "localhost"));
+        enumerator.handlePartitions(partitions, null);
+        assertEquals(1, assignments.size());
+        Map<Integer, List<TubemqPartitionSplit>> assignment = assignments.get(0).assignment();
+        Set<String> assigned = new HashSet<>();
+        for (Map.Entry<Integer, List<TubemqPartitionSplit>> entry : assignment.entrySet()) {
+            for (TubemqPartitionSplit split : entry.getValue()) {
+                // each partition is always assigned to the same reader
+                assertEquals((split.getPartitionKey().hashCode() & Integer.MAX_VALUE) % PARALLELISM,
+                    entry.getKey().intValue());
+                assertEquals(TubemqPartitionSplit.NO_OFFSET, split.getStartOffset());
+                assigned.add(split.getPartitionKey());
+            }
+        }
+        assertEquals(partitions, assigned);
+        assertEquals(partitions, enumerator.snapshotState(1L).getAssignedPartitions());
+
+        // the re-discovered partitions are not assigned again
+        enumerator.handlePartitions(partitions, null);
+        assertEquals(1, assignments.size());
+    }
+
+    @Test
+    public void testAssignOnReaderRegistered() {
+        enumerator.handlePartitions(partitions, null);
+        assertTrue(assignments.isEmpty());
+        assertTrue(enumerator.snapshotState(1L).getAssignedPartitions().isEmpty());
+
+        for (int readerId = 0; readerId < PARALLELISM; readerId++) {
+            registeredReaders.put(readerId, new ReaderInfo(readerId, "localhost"));
+            enumerator.addReader(readerId);
+        }
+        Set<String> assigned = new HashSet<>();
+        for (SplitsAssignment<TubemqPartitionSplit> assignment : assignments) {
+            for (List<TubemqPartitionSplit> splits : assignment.assignment().values()) {
+                for (TubemqPartitionSplit split : splits) {
+                    assigned.add(split.getPartitionKey());
+                }
+            }
+        }
+        assertEquals(partitions, assigned);
+    }
+
+    @Test
+    public void testAddSplitsBack() {
+        registeredReaders.put(0, new ReaderInfo(0, "localhost"));
+        TubemqPartitionSplit split = new TubemqPartitionSplit("1:test-topic:0", 1024L);
+        enumerator.addSplitsBack(Arrays.asList(split), 0);
+        enumerator.addReader(0);
+        assertEquals(1, assignments.size());
+        List<TubemqPartitionSplit> splits = assignments.get(0).assignment().get(0);
+        assertEquals(1, splits.size());
+        assertEquals(split.getPartitionKey(), splits.get(0).getPartitionKey());
+        assertEquals(1024L, splits.get(0).getStartOffset());
+    }
+
+    @Test
+    public void testDiscoveryFailure() {
+        registeredReaders.put(0, new ReaderInfo(0, "localhost"));
+        enumerator.handlePartitions(null, new IllegalStateException("test"));
+        assertTrue(assignments.isEmpty());
+    }
+}
@@ -49,6 +49,8 @@ public class Message implements Serializable {
     // message time
     private transient String msgTime;
     private transient String sysAttributes;
+    // partition key, only used by the producer to route the message
+    private transient String partitionKey;
 
     /**
      * init with topic and data body
@@ -197,6 +199,21 @@ public class Message implements Serializable {
         this.data = data;
     }
 
+    public String getPartitionKey() {
+        return this.partitionKey;
+    }
+
+    /**
+     * Set the partition key of the message, the messages with the same key
+     * are sent to the same partition as long as the partition is available.
+     * The key is not stored with the message.
+     *
+     * @param partitionKey   the partition key, null if not required
+     */
+    public void setPartitionKey(final String partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
     public void clearAttribute() {
         this.attribute = "";
     }
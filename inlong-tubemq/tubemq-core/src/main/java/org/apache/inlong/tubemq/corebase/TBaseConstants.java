@@ -77,6 +77,7 @@ public class TBaseConstants {
             META_MAX_MESSAGE_DATA_SIZE + META_MESSAGE_SIZE_ADJUST;
     public static final int META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT =
             META_MAX_ALLOWED_MESSAGE_SIZE_MB * META_MB_UNIT_SIZE;
+    public static final int META_MAX_BATCH_MESSAGE_COUNT = 500;
 
     public static final long INDEX_MSG_UNIT_SIZE = 28;
 
@@ -57,6 +57,7 @@ public class TErrCodeConstants {
 
     public static final int INTERNAL_SERVER_ERROR = 500;
     public static final int SERVICE_UNAVAILABLE = 503;
+    public static final int REPLICA_ACK_TIMEOUT = 504;
     public static final int INTERNAL_SERVER_ERROR_MSGSET_NULL = 510;
     public static final int UNSPECIFIED_ABNORMAL = 599;
 
@@ -22,7 +22,6 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -30,8 +29,7 @@ import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
@@ -42,6 +40,10 @@ import org.slf4j.LoggerFactory;
  * Flow control rule processing logic, including parsing the flow control json string,
  * obtaining the largest and smallest flow control values of each type to improve
  * the processing speed
+ *
+ * The decoded rules are kept in an immutable {@link FlowCtrlRuleSnapshot}, which is
+ * replaced as a whole on update, so the rule evaluation takes no lock and always sees
+ * a consistent rule set.
  */
 public class FlowCtrlRuleHandler {
     private final boolean isDefaultHandler;
@@ -49,32 +51,15 @@ public class FlowCtrlRuleHandler {
     private static final Logger logger =
             LoggerFactory.getLogger(FlowCtrlRuleHandler.class);
     private final JsonParser jsonParser = new JsonParser();
-    private final TimeZone timeZone = TimeZone.getTimeZone("GMT+8:00");
-    private final ReentrantLock writeLock = new ReentrantLock();
-    // Flow control ID and string information obtained from the server
-    private AtomicLong flowCtrlId =
-            new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
+    // the rule time zone is GMT+8 without daylight saving time
+    private final long timeZoneOffsetMs =
+            TimeZone.getTimeZone("GMT+8:00").getRawOffset();
     private AtomicInteger qryPriorityId =
             new AtomicInteger(TBaseConstants.META_VALUE_UNDEFINED);
-    private String strFlowCtrlInfo;
-    // The maximum interval of the flow control extracts the set of values,
-    //improving the efficiency of the search return in the range
-    private AtomicInteger minZeroCnt =
-            new AtomicInteger(Integer.MAX_VALUE);
-    private AtomicLong minDataLimitDlt =
-            new AtomicLong(Long.MAX_VALUE);
-    private AtomicInteger dataLimitStartTime =
-            new AtomicInteger(2500);
-    private AtomicInteger dataLimitEndTime =
-            new AtomicInteger(TBaseConstants.META_VALUE_UNDEFINED);
-    private FlowCtrlItem filterCtrlItem =
-            new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
-                    TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
-    private long lastUpdateTime =
-            System.currentTimeMillis();
-    // Decoded flow control rules
-    private Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet =
-            new ConcurrentHashMap<>();
+    // Flow control ID, string information obtained from the server, and decoded rules
+    private final AtomicReference<FlowCtrlRuleSnapshot> ruleSnapshot =
+            new AtomicReference<>(new FlowCtrlRuleSnapshot(
+                    TBaseConstants.META_VALUE_UNDEFINED, null, null));
 
     public FlowCtrlRuleHandler(boolean isDefault) {
         this.isDefaultHandler = isDefault;
@@ -97,166 +82,46 @@ public class FlowCtrlRuleHandler {
     public void updateFlowCtrlInfo(final int qyrPriorityId,
                                    final long flowCtrlId,
                                    final String flowCtrlInfo) throws Exception {
-        if (flowCtrlId == this.flowCtrlId.get()) {
+        if (flowCtrlId == this.ruleSnapshot.get().getFlowCtrlId()) {
             return;
         }
         Map<Integer, List<FlowCtrlItem>> flowCtrlItemsMap = null;
         if (TStringUtils.isNotBlank(flowCtrlInfo)) {
             flowCtrlItemsMap = parseFlowCtrlInfo(flowCtrlInfo);
         }
-        writeLock.lock();
-        try {
-            this.flowCtrlId.set(flowCtrlId);
-            this.strFlowCtrlInfo = flowCtrlInfo;
-            logger.info(new StringBuilder(512)
+        this.ruleSnapshot.set(
+                new FlowCtrlRuleSnapshot(flowCtrlId, flowCtrlInfo, flowCtrlItemsMap));
+        this.qryPriorityId.set(qyrPriorityId);
+        logger.info(new StringBuilder(512)
                 .append("[Flow Ctrl] Updated ").append(flowCtrlName)
                 .append(" to flowId=").append(flowCtrlId)
                 .append(",qyrPriorityId=").append(qyrPriorityId).toString());
-            this.qryPriorityId.set(qyrPriorityId);
-            clearStatisData();
-            if (flowCtrlItemsMap == null
-                    || flowCtrlItemsMap.isEmpty()) {
-                this.flowCtrlRuleSet.clear();
-            } else {
-                flowCtrlRuleSet = flowCtrlItemsMap;
-                initialStatisData();
-            }
-            this.lastUpdateTime = System.currentTimeMillis();
-        } finally {
-            writeLock.unlock();
-        }
     }
 
     /**
      * Get current data lag limit strategy
      *
      * @param lastDataDlt      current consumption lag of data
-     * @return FlowCtrlResult  current flow control policy
+     * @return FlowCtrlResult  current flow control policy, shared and must not be modified
      */
     public FlowCtrlResult getCurDataLimit(long lastDataDlt) {
-        Calendar rightNow = Calendar.getInstance(timeZone);
-        int hour = rightNow.get(Calendar.HOUR_OF_DAY);
-        int minu = rightNow.get(Calendar.MINUTE);
-        int curTime = hour * 100 + minu;
-        if (lastDataDlt < this.minDataLimitDlt.get()
-                || curTime < this.dataLimitStartTime.get()
-                || curTime > this.dataLimitEndTime.get()) {
-            return null;
-        }
-        List<FlowCtrlItem> flowCtrlItemList =
-                flowCtrlRuleSet.get(0);
-        if (flowCtrlItemList == null
-                || flowCtrlItemList.isEmpty()) {
-            return null;
-        }
-        for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-            if (flowCtrlItem == null) {
-                continue;
-            }
-            FlowCtrlResult flowCtrlResult =
-                    flowCtrlItem.getDataLimit(lastDataDlt, hour, minu);
-            if (flowCtrlResult != null) {
-                return flowCtrlResult;
-            }
-        }
-        return null;
+        return this.ruleSnapshot.get().getDataLimit(lastDataDlt, getCurMinuteOfDay());
     }
 
     public int getNormFreqInMs() {
-        return this.filterCtrlItem.getFreqLtInMs();
+        return this.ruleSnapshot.get().getFilterCtrlItem().getFreqLtInMs();
     }
 
     public int getMinDataFreqInMs() {
-        return this.filterCtrlItem.getZeroCnt();
+        return this.ruleSnapshot.get().getFilterCtrlItem().getZeroCnt();
     }
 
     public FlowCtrlItem getFilterCtrlItem() {
-        return this.filterCtrlItem;
-    }
-
-    /**
-     * Initial data limit statistics
-     */
-    private void initialStatisData() {
-        initialDataLimitStatisInfo();
-        initialFreqLimitStatisInfo();
-        initialLowFetchLimitStatisInfo();
-    }
-
-    /**
-     * Initial data limit statistics
-     */
-    private void initialDataLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = this.flowCtrlRuleSet.get(0);
-        if (flowCtrlItemList != null
-                && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 0) {
-                    continue;
-                }
-                if (flowCtrlItem.getDltInM() < this.minDataLimitDlt.get()) {
-                    this.minDataLimitDlt.set(flowCtrlItem.getDltInM());
-                }
-
-                if (flowCtrlItem.getStartTime() < this.dataLimitStartTime.get()) {
-                    this.dataLimitStartTime.set(flowCtrlItem.getStartTime());
-                }
-                if (flowCtrlItem.getEndTime() > this.dataLimitEndTime.get()) {
-                    this.dataLimitEndTime.set(flowCtrlItem.getEndTime());
-                }
-            }
-        }
-    }
-
-    private void initialFreqLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = flowCtrlRuleSet.get(1);
-        if (flowCtrlItemList != null && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 1) {
-                    continue;
-                }
-                if (flowCtrlItem.getZeroCnt() < this.minZeroCnt.get()) {
-                    this.minZeroCnt.set(flowCtrlItem.getZeroCnt());
-                }
-            }
-        }
-    }
-
-    private void initialLowFetchLimitStatisInfo() {
-        List<FlowCtrlItem> flowCtrlItemList = flowCtrlRuleSet.get(3);
-        if (flowCtrlItemList != null && !flowCtrlItemList.isEmpty()) {
-            for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-                if (flowCtrlItem == null) {
-                    continue;
-                }
-                if (flowCtrlItem.getType() != 3) {
-                    continue;
-                }
-                this.filterCtrlItem = new FlowCtrlItem(3,
-                        (int) flowCtrlItem.getDataLtInSZ(),
-                        flowCtrlItem.getFreqLtInMs(),
-                        flowCtrlItem.getZeroCnt());
-            }
-        }
-    }
-
-    private void clearStatisData() {
-        this.minZeroCnt.set(Integer.MAX_VALUE);
-        this.minDataLimitDlt.set(Long.MAX_VALUE);
-        this.dataLimitStartTime.set(2500);
-        this.dataLimitEndTime.set(TBaseConstants.META_VALUE_UNDEFINED);
-        this.filterCtrlItem = new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
-                TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
+        return this.ruleSnapshot.get().getFilterCtrlItem();
     }
 
     public int getMinZeroCnt() {
-        return minZeroCnt.get();
+        return this.ruleSnapshot.get().getMinZeroCnt();
     }
 
     /**
@@ -267,25 +132,7 @@ public class FlowCtrlRuleHandler {
      * @return             the required frequency limit value
      */
     public int getCurFreqLimitTime(int msgZeroCnt, int rcmVal) {
-        if (msgZeroCnt < this.minZeroCnt.get()) {
-            return rcmVal;
-        }
-        List<FlowCtrlItem> flowCtrlItemList =
-                flowCtrlRuleSet.get(1);
-        if (flowCtrlItemList == null
-                || flowCtrlItemList.isEmpty()) {
-            return rcmVal;
-        }
-        for (FlowCtrlItem flowCtrlItem : flowCtrlItemList) {
-            if (flowCtrlItem == null) {
-                continue;
-            }
-            int ruleVal = flowCtrlItem.getFreLimit(msgZeroCnt);
-            if (ruleVal >= 0) {
-                return ruleVal;
-            }
-        }
-        return rcmVal;
+        return this.ruleSnapshot.get().getFreqLimitTime(msgZeroCnt, rcmVal);
     }
 
     public int getQryPriorityId() {
@@ -301,19 +148,24 @@ public class FlowCtrlRuleHandler {
     }
 
     public long getFlowCtrlId() {
-        return flowCtrlId.get();
+        return this.ruleSnapshot.get().getFlowCtrlId();
     }
 
     public void clear() {
-        writeLock.lock();
-        try {
-            this.strFlowCtrlInfo = "";
-            this.flowCtrlRuleSet.clear();
-            this.flowCtrlId.set(TBaseConstants.META_VALUE_UNDEFINED);
-            this.qryPriorityId.set(TBaseConstants.META_VALUE_UNDEFINED);
-        } finally {
-            writeLock.unlock();
-        }
+        this.ruleSnapshot.set(new FlowCtrlRuleSnapshot(
+                TBaseConstants.META_VALUE_UNDEFINED, "", null));
+        this.qryPriorityId.set(TBaseConstants.META_VALUE_UNDEFINED);
+    }
+
+    /**
+     * Get the current minute of the day in the rule time zone, without
+     * allocating a Calendar on each evaluation
+     *
+     * @return the minute of the day, in [0, 1440)
+     */
+    private int getCurMinuteOfDay() {
+        return (int) (((System.currentTimeMillis() + timeZoneOffsetMs) / 60000L)
+                % FlowCtrlRuleSnapshot.MINUTES_OF_DAY);
     }
 
     /**
@@ -704,7 +556,7 @@ public class FlowCtrlRuleHandler {
 
     @Override
     public String toString() {
-        return this.strFlowCtrlInfo;
+        return this.ruleSnapshot.get().getStrFlowCtrlInfo();
     }
 
     /**
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.policies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+
+/**
+ * The immutable snapshot of the decoded flow control rules, the rules are
+ * precompiled so that the evaluation on each fetch needs no lock and no allocation.
+ *
+ * The data limit rules are indexed by the minute of the day, so the rules active
+ * in the current minute are found directly, and their results are built once here;
+ * the returned results are shared and must not be modified by the callers.
+ */
+public class FlowCtrlRuleSnapshot {
+    public static final int MINUTES_OF_DAY = 24 * 60;
+    private static final FlowCtrlItem[] EMPTY_ITEMS = new FlowCtrlItem[0];
+    private static final FlowCtrlResult[] EMPTY_RESULTS = new FlowCtrlResult[0];
+
+    private final long flowCtrlId;
+    private final String strFlowCtrlInfo;
+    private final Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet;
+    // the extracted extreme values, to return quickly when no rule applies
+    private final long minDataLimitDlt;
+    private final int minZeroCnt;
+    private final FlowCtrlItem filterCtrlItem;
+    // the data limit rules and their results active in each minute of the day
+    private final FlowCtrlItem[][] minuteDataItems = new FlowCtrlItem[MINUTES_OF_DAY][];
+    private final FlowCtrlResult[][] minuteDataResults = new FlowCtrlResult[MINUTES_OF_DAY][];
+    // the frequency limit rules, in descending order of zeroCnt
+    private final int[] freqZeroCnts;
+    private final int[] freqLimitInMs;
+
+    public FlowCtrlRuleSnapshot(long flowCtrlId, String strFlowCtrlInfo,
+                                Map<Integer, List<FlowCtrlItem>> flowCtrlRuleSet) {
+        this.flowCtrlId = flowCtrlId;
+        this.strFlowCtrlInfo = strFlowCtrlInfo;
+        this.flowCtrlRuleSet = (flowCtrlRuleSet == null)
+                ? Collections.<Integer, List<FlowCtrlItem>>emptyMap()
+                : Collections.unmodifiableMap(flowCtrlRuleSet);
+        // data limit rules
+        long tmpMinDataLimitDlt = Long.MAX_VALUE;
+        List<FlowCtrlItem> dataItems = getRuleItems(0);
+        for (FlowCtrlItem flowCtrlItem : dataItems) {
+            if (flowCtrlItem.getDltInM() < tmpMinDataLimitDlt) {
+                tmpMinDataLimitDlt = flowCtrlItem.getDltInM();
+            }
+        }
+        this.minDataLimitDlt = tmpMinDataLimitDlt;
+        compileMinuteIndex(dataItems);
+        // frequency limit rules
+        int tmpMinZeroCnt = Integer.MAX_VALUE;
+        List<FlowCtrlItem> freqItems = getRuleItems(1);
+        this.freqZeroCnts = new int[freqItems.size()];
+        this.freqLimitInMs = new int[freqItems.size()];
+        for (int i = 0; i < freqItems.size(); i++) {
+            this.freqZeroCnts[i] = freqItems.get(i).getZeroCnt();
+            this.freqLimitInMs[i] = freqItems.get(i).getFreqLtInMs();
+            if (this.freqZeroCnts[i] < tmpMinZeroCnt) {
+                tmpMinZeroCnt = this.freqZeroCnts[i];
+            }
+        }
+        this.minZeroCnt = tmpMinZeroCnt;
+        // low fetch limit rules, the last one takes effect
+        FlowCtrlItem tmpFilterCtrlItem =
+                new FlowCtrlItem(3, TBaseConstants.META_VALUE_UNDEFINED,
+                        TBaseConstants.META_VALUE_UNDEFINED, TBaseConstants.META_VALUE_UNDEFINED);
+        for (FlowCtrlItem flowCtrlItem : getRuleItems(3)) {
+            tmpFilterCtrlItem = new FlowCtrlItem(3,
+                    (int) flowCtrlItem.getDataLtInSZ(),
+                    flowCtrlItem.getFreqLtInMs(),
+                    flowCtrlItem.getZeroCnt());
+        }
+        this.filterCtrlItem = tmpFilterCtrlItem;
+    }
+
+    /**
+     * Get the data limit of the lag at the given minute of the day
+     *
+     * @param lastDataDlt   current consumption lag of data
+     * @param minuteOfDay   the minute of the day, in [0, 1440)
+     * @return the data limit, null if no rule applies
+     */
+    public FlowCtrlResult getDataLimit(long lastDataDlt, int minuteOfDay) {
+        if (lastDataDlt < this.minDataLimitDlt) {
+            return null;
+        }
+        FlowCtrlItem[] dataItems = this.minuteDataItems[minuteOfDay];
+        for (int i = 0; i < dataItems.length; i++) {
+            if (lastDataDlt > dataItems[i].getDltInM()) {
+                return this.minuteDataResults[minuteOfDay][i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the fetch frequency limit of the continuous empty fetches
+     *
+     * @param msgZeroCnt   the continuous consumption count without messages
+     * @param rcmVal       the default frequency limit value
+     * @return the required frequency limit value
+     */
+    public int getFreqLimitTime(int msgZeroCnt, int rcmVal) {
+        if (msgZeroCnt < this.minZeroCnt) {
+            return rcmVal;
+        }
+        for (int i = 0; i < this.freqZeroCnts.length; i++) {
+            if (msgZeroCnt >= this.freqZeroCnts[i]) {
+                return this.freqLimitInMs[i];
+            }
+        }
+        return rcmVal;
+    }
+
+    public long getFlowCtrlId() {
+        return flowCtrlId;
+    }
+
+    public String getStrFlowCtrlInfo() {
+        return strFlowCtrlInfo;
+    }
+
+    public Map<Integer, List<FlowCtrlItem>> getFlowCtrlRuleSet() {
+        return flowCtrlRuleSet;
+    }
+
+    public int getMinZeroCnt() {
+        return minZeroCnt;
+    }
+
+    public FlowCtrlItem getFilterCtrlItem() {
+        return filterCtrlItem;
+    }
+
+    private List<FlowCtrlItem> getRuleItems(int type) {
+        List<FlowCtrlItem> result = new ArrayList<>();
+        List<FlowCtrlItem> flowCtrlItems = this.flowCtrlRuleSet.get(type);
+        if (flowCtrlItems != null) {
+            for (FlowCtrlItem flowCtrlItem : flowCtrlItems) {
+                if (flowCtrlItem != null && flowCtrlItem.getType() == type) {
+                    result.add(flowCtrlItem);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Index the data limit rules by the minute of the day, the rules keep their
+     * order in each minute, and the rule time range "HHmm" is inclusive.
+     *
+     * @param dataItems   the data limit rules
+     */
+    private void compileMinuteIndex(List<FlowCtrlItem> dataItems) {
+        // one result for each rule, shared by all its minutes
+        Map<FlowCtrlItem, FlowCtrlResult> itemResults = new IdentityHashMap<>();
+        for (FlowCtrlItem flowCtrlItem : dataItems) {
+            itemResults.put(flowCtrlItem, new FlowCtrlResult(
+                    flowCtrlItem.getDataLtInSZ(), flowCtrlItem.getFreqLtInMs()));
+        }
+        List<FlowCtrlItem> activeItems = new ArrayList<>();
+        for (int minute = 0; minute < MINUTES_OF_DAY; minute++) {
+            int curTime = (minute / 60) * 100 + minute % 60;
+            activeItems.clear();
+            for (FlowCtrlItem flowCtrlItem : dataItems) {
+                if (curTime >= flowCtrlItem.getStartTime()
+                        && curTime <= flowCtrlItem.getEndTime()) {
+                    activeItems.add(flowCtrlItem);
+                }
+            }
+            if (activeItems.isEmpty()) {
+                this.minuteDataItems[minute] = EMPTY_ITEMS;
+                this.minuteDataResults[minute] = EMPTY_RESULTS;
+                continue;
+            }
+            // share the arrays between the minutes of the same rules
+            if (minute > 0 && isSameItems(this.minuteDataItems[minute - 1], activeItems)) {
+                this.minuteDataItems[minute] = this.minuteDataItems[minute - 1];
+                this.minuteDataResults[minute] = this.minuteDataResults[minute - 1];
+                continue;
+            }
+            FlowCtrlItem[] items = activeItems.toArray(new FlowCtrlItem[0]);
+            FlowCtrlResult[] results = new FlowCtrlResult[items.length];
+            for (int i = 0; i < items.length; i++) {
+                results[i] = itemResults.get(items[i]);
+            }
+            this.minuteDataItems[minute] = items;
+            this.minuteDataResults[minute] = results;
+        }
+    }
+
+    private boolean isSameItems(FlowCtrlItem[] items, List<FlowCtrlItem> itemList) {
+        if (items.length != itemList.size()) {
+            return false;
+        }
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != itemList.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
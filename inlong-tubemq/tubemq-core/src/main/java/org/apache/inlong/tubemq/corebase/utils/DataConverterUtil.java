@@ -17,6 +17,7 @@
 
 package org.apache.inlong.tubemq.corebase.utils;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.inlong.tubemq.corebase.Message;
 import org.apache.inlong.tubemq.corebase.MessageExt;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
@@ -34,11 +36,19 @@ import org.apache.inlong.tubemq.corebase.cluster.Partition;
 import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Tube meta info converter tools
  */
 public class DataConverterUtil {
+    private static final Logger logger =
+            LoggerFactory.getLogger(DataConverterUtil.class);
+    private static final long UNDECODABLE_LOG_INTERVAL_MS = 30000L;
+    // the count of the messages dropped since their data cannot be decompressed
+    private static final AtomicLong undecodableMsgCnt = new AtomicLong(0);
+    private static final AtomicLong lastUndecodableLogTime = new AtomicLong(0);
 
     /**
      * convert string info to @link SubscribeInfo
@@ -228,11 +238,46 @@ public class DataConverterUtil {
                     payloadDataLen -= attrLen;
                 }
             }
-            final byte[] payload = new byte[payloadDataLen];
-            System.arraycopy(payloadData.array(), readPos, payload, 0, payloadDataLen);
+            final MsgCompressType compressType = MessageFlagUtils.getCompressType(flag);
+            if (compressType == null) {
+                dropUndecodableMessage(topicName, trsMessage.getMessageId(),
+                        "unknown compress type of flag " + flag, null);
+                continue;
+            }
+            final byte[] payload;
+            try {
+                payload = MsgCompressUtils.decompress(compressType,
+                        payloadData.array(), readPos, payloadDataLen);
+            } catch (final IOException e) {
+                dropUndecodableMessage(topicName, trsMessage.getMessageId(),
+                        "decompress " + compressType + " data failure", e);
+                continue;
+            }
             messageList.add(new MessageExt(trsMessage.getMessageId(), topicName, payload, attribute, flag));
         }
         return messageList;
     }
 
+    /**
+     * Get the count of the messages dropped since their data cannot be decompressed
+     *
+     * @return the dropped message count
+     */
+    public static long getUndecodableMsgCnt() {
+        return undecodableMsgCnt.get();
+    }
+
+    private static void dropUndecodableMessage(String topicName, long messageId,
+                                               String reason, Throwable e) {
+        long totalCnt = undecodableMsgCnt.incrementAndGet();
+        long curTime = System.currentTimeMillis();
+        long lastLogTime = lastUndecodableLogTime.get();
+        if (curTime - lastLogTime >= UNDECODABLE_LOG_INTERVAL_MS
+                && lastUndecodableLogTime.compareAndSet(lastLogTime, curTime)) {
+            logger.warn(new StringBuilder(512)
+                    .append("[Message Convert] dropped message ").append(messageId)
+                    .append(" of topic ").append(topicName).append(", ").append(reason)
+                    .append(", total dropped count is ").append(totalCnt).toString(), e);
+        }
+    }
 }
@@ -20,6 +20,9 @@ package org.apache.inlong.tubemq.corebase.utils;
 import org.apache.inlong.tubemq.corebase.Message;
 
 public class MessageFlagUtils {
+    // the bits 1~3 of message flag record the compression type of message data
+    private static final int COMPRESS_TYPE_SHIFT = 1;
+    private static final int COMPRESS_TYPE_MASK = 0x7;
 
     public static int getFlag(final Message message) {
         int flag = 0;
@@ -29,8 +32,27 @@ public class MessageFlagUtils {
         return flag;
     }
 
+    public static int getFlag(final Message message, final MsgCompressType compressType) {
+        int flag = getFlag(message);
+        if (compressType != null) {
+            flag = flag & ~(COMPRESS_TYPE_MASK << COMPRESS_TYPE_SHIFT)
+                    | (compressType.getId() & COMPRESS_TYPE_MASK) << COMPRESS_TYPE_SHIFT;
+        }
+        return flag;
+    }
+
     public static boolean hasAttribute(final int flag) {
         return (flag & 0x1) == 1;
     }
 
+    /**
+     * Get the compression type of message data from the message flag.
+     *
+     * @param flag   the message flag
+     * @return       the compression type, or null if the type is unknown
+     */
+    public static MsgCompressType getCompressType(final int flag) {
+        return MsgCompressType.valueOf((flag >> COMPRESS_TYPE_SHIFT) & COMPRESS_TYPE_MASK);
+    }
+
 }
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+/**
+ * The acknowledge type of the produced message, acked after
+ * the leader stored it, or after all the in-sync replicas stored it.
+ */
+public enum MsgAckType {
+    LEADER(0, "leader", "Acked after the leader stored the message"),
+    ALL(1, "all", "Acked after all the in-sync replicas stored the message");
+
+    MsgAckType(int id, String name, String desc) {
+        this.id = id;
+        this.name = name;
+        this.desc = desc;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+
+    public static MsgAckType valueOf(int value) {
+        for (MsgAckType ackType : MsgAckType.values()) {
+            if (ackType.getId() == value) {
+                return ackType;
+            }
+        }
+        return null;
+    }
+
+    private final int id;
+    private final String name;
+    private final String desc;
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Message data compression utils.
+ */
+public class MsgCompressUtils {
+
+    private static final int GZIP_BUFFER_SIZE = 4096;
+
+    /**
+     * Compress the message data.
+     *
+     * @param compressType   the compression type
+     * @param data           the data to compress
+     * @return               the compressed data
+     * @throws IOException   the exception while compressing
+     */
+    public static byte[] compress(MsgCompressType compressType,
+                                  byte[] data) throws IOException {
+        switch (compressType) {
+            case GZIP: {
+                ByteArrayOutputStream outStream =
+                        new ByteArrayOutputStream(Math.max(32, data.length / 2));
+                try (GZIPOutputStream gzipStream =
+                             new GZIPOutputStream(outStream, GZIP_BUFFER_SIZE)) {
+                    gzipStream.write(data);
+                }
+                return outStream.toByteArray();
+            }
+
+            case SNAPPY: {
+                return Snappy.compress(data);
+            }
+
+            case NONE:
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * Decompress the message data.
+     *
+     * @param compressType   the compression type
+     * @param data           the buffer contains the compressed data
+     * @param offset         the start position of the compressed data
+     * @param length         the length of the compressed data
+     * @return               the decompressed data
+     * @throws IOException   the exception while decompressing
+     */
+    public static byte[] decompress(MsgCompressType compressType,
+                                    byte[] data, int offset, int length) throws IOException {
+        switch (compressType) {
+            case GZIP: {
+                ByteArrayOutputStream outStream = new ByteArrayOutputStream(length * 4);
+                try (GZIPInputStream gzipStream = new GZIPInputStream(
+                        new ByteArrayInputStream(data, offset, length), GZIP_BUFFER_SIZE)) {
+                    byte[] readBuff = new byte[GZIP_BUFFER_SIZE];
+                    int readLen;
+                    while ((readLen = gzipStream.read(readBuff)) > 0) {
+                        outStream.write(readBuff, 0, readLen);
+                    }
+                }
+                return outStream.toByteArray();
+            }
+
+            case SNAPPY: {
+                byte[] result = new byte[Snappy.uncompressedLength(data, offset, length)];
+                Snappy.uncompress(data, offset, length, result, 0);
+                return result;
+            }
+
+            case NONE:
+            default: {
+                byte[] result = new byte[length];
+                System.arraycopy(data, offset, result, 0, length);
+                return result;
+            }
+        }
+    }
+}
@@ -44,6 +44,7 @@ public final class RpcConstants {
     public static final String NETTY_WRITE_LOW_MARK = "rpc.netty.write.lowmark";
     public static final String NETTY_TCP_SENDBUF = "rpc.netty.send.buffer";
     public static final String NETTY_TCP_RECEIVEBUF = "rpc.netty.receive.buffer";
+    public static final String NETTY_EPOLL_ENABLE = "rpc.netty.epoll.enable";
 
     public static final String TCP_NODELAY = "rpc.tcp.nodelay";
     public static final String TCP_REUSEADDRESS = "rpc.tcp.reuseaddress";
@@ -106,6 +107,8 @@ public final class RpcConstants {
     public static final int RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2 = 21;
     public static final int RPC_MSG_MASTER_CONSUMER_GET_PART_META = 22;
 
+    public static final int RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH = 23;
+
     public static final int MSG_OPTYPE_REGISTER = 31;
     public static final int MSG_OPTYPE_UNREGISTER = 32;
 
@@ -123,6 +126,10 @@ public final class RpcConstants {
             Runtime.getRuntime().availableProcessors() * 2;
     public static final String CFG_DEFAULT_WORKER_THREAD_NAME =
             "tube_rpc_netty_worker-";
+    public static final String CFG_DEFAULT_BOSS_THREAD_NAME =
+            "tube_rpc_netty_boss-";
+    public static final String CFG_DEFAULT_CALLBACK_THREAD_NAME =
+            "tube_rpc_netty_callback-";
 
     public static final long CFG_LQ_STATS_DURATION_MS = 60000;
     public static final long CFG_LQ_FORBIDDEN_DURATION_MS = 1800000;
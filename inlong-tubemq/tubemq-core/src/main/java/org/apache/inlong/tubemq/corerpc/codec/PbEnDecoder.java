@@ -57,6 +57,8 @@ public class PbEnDecoder {
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_HEARTBEAT_V2);
         rpcMethodMap.put("consumerGetPartMetaInfoC2M",
                 RpcConstants.RPC_MSG_MASTER_CONSUMER_GET_PART_META);
+        rpcMethodMap.put("sendMessagesP2B",
+                RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH);
 
         rpcServiceMap.put("org.apache.inlong.tubemq.corerpc.service.MasterService",
                 RpcConstants.RPC_SERVICE_TYPE_MASTER_SERVICE);
@@ -127,6 +129,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageRequestP2B.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchRequestP2B.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterRequestC2B.parseFrom(bytes);
                 }
@@ -190,6 +195,9 @@ public class PbEnDecoder {
                 case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE: {
                     return ClientBroker.SendMessageResponseB2P.parseFrom(bytes);
                 }
+                case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH: {
+                    return ClientBroker.SendMessageBatchResponseB2P.parseFrom(bytes);
+                }
                 case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER: {
                     return ClientBroker.RegisterResponseB2C.parseFrom(bytes);
                 }
@@ -281,6 +289,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_CONSUMER_GETMESSAGE:
@@ -303,6 +312,7 @@ public class PbEnDecoder {
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_REGISTER:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_HEARTBEAT:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE:
+                    case RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH:
                     case RpcConstants.RPC_MSG_BROKER_PRODUCER_CLOSE: {
                         return true;
                     }
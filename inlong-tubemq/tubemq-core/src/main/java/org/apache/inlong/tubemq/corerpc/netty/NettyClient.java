@@ -18,10 +18,22 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import com.google.protobuf.ByteString;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.channels.UnresolvedAddressException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,18 +52,6 @@ import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ClientClosedException;
 import org.apache.inlong.tubemq.corerpc.exception.NetworkException;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelStateEvent;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.handler.timeout.ReadTimeoutException;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timeout;
-import org.jboss.netty.util.Timer;
-import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -148,7 +148,7 @@ public class NettyClient implements Client {
         requests.put(request.getSerialNo(), future);
         if (callback == null) {
             try {
-                getChannel().write(pack);
+                getChannel().writeAndFlush(pack);
                 return future.get(timeout, timeUnit);
             } catch (Throwable e) {
                 Callback<ResponseWrapper> callback1 =
@@ -170,7 +170,7 @@ public class NettyClient implements Client {
                         timer.newTimeout(new TimeoutTask(request.getSerialNo()), timeout, timeUnit));
                 inserted = true;
                 //write data after build Timeout to avoid one request processed twice
-                getChannel().write(pack);
+                getChannel().writeAndFlush(pack);
             } catch (Throwable e) {
                 Callback<ResponseWrapper> callback1 =
                     requests.remove(request.getSerialNo());
@@ -209,8 +209,7 @@ public class NettyClient implements Client {
         return (!this.closed.get()
                 && channel != null
                 && channel.isOpen()
-                && channel.isBound()
-                && channel.isConnected());
+                && channel.isActive());
     }
 
     @Override
@@ -279,120 +278,81 @@ public class NettyClient implements Client {
     /**
      * tube NettyClientHandler
      */
-    public class NettyClientHandler extends SimpleChannelUpstreamHandler {
+    public class NettyClientHandler extends ChannelInboundHandlerAdapter {
+
+        private final ExecutorService callbackExecutor;
+        private final long maxPendingBytes;
+        private final AtomicLong pendingBytes = new AtomicLong(0);
+
+        /**
+         * Initial a client handler
+         *
+         * @param callbackExecutor   the executor to handle the responses
+         * @param maxPendingBytes    the max size of the responses waiting for handling,
+         *                           the reading is suspended while it is exceeded
+         */
+        public NettyClientHandler(ExecutorService callbackExecutor, long maxPendingBytes) {
+            this.callbackExecutor = callbackExecutor;
+            this.maxPendingBytes = maxPendingBytes;
+        }
 
         /**
          * Invoked when a message object was received from a remote peer.
          *
          * @param ctx     the channel handler context
-         * @param e       the message event
+         * @param msg     the message object
          */
         @Override
-        public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-            if (e.getMessage() instanceof RpcDataPack) {
-                RpcDataPack dataPack = (RpcDataPack) e.getMessage();
-                Callback callback = requests.remove(dataPack.getSerialNo());
-                if (callback != null) {
-                    Timeout timeout = timeouts.remove(dataPack.getSerialNo());
-                    if (timeout != null) {
-                        timeout.cancel();
-                    }
-                    ResponseWrapper responseWrapper;
-                    try {
-                        ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
-                        RPCProtos.RpcConnHeader connHeader =
-                                RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
-                        if (connHeader == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
-                        }
-                        RPCProtos.ResponseHeader rpcResponse =
-                                RPCProtos.ResponseHeader.parseDelimitedFrom(in);
-                        if (rpcResponse == null) {
-                            // When the stream is closed, protobuf doesn't raise an EOFException,
-                            // instead, it returns a null message object.
-                            throw new EOFException();
-                        }
-                        RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
-                        if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
-                            RPCProtos.RspResponseBody pbRpcResponse =
-                                    RPCProtos.RspResponseBody.parseDelimitedFrom(in);
-                            if (pbRpcResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found PBRpcResponse data!");
-                            }
-                            Object responseResult =
-                                    PbEnDecoder.pbDecode(false, pbRpcResponse.getMethod(),
-                                            pbRpcResponse.getData().toByteArray());
-
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            pbRpcResponse.getMethod(), responseResult);
-                        } else {
-                            RPCProtos.RspExceptionBody exceptionResponse =
-                                    RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
-                            if (exceptionResponse == null) {
-                                // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
-                                // instead, it returns a null response object.
-                                throw new NetworkException("Not found RpcException data!");
-                            }
-                            String exceptionName = exceptionResponse.getExceptionName();
-                            exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
-                                    false, rpcResponse.getProtocolVer());
-                            responseWrapper =
-                                    new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
-                                            rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
-                                            exceptionName, exceptionResponse.getStackTrace());
-                        }
-                        if (!responseWrapper.isSuccess()) {
-                            Throwable remote =
-                                    MixUtils.unwrapException(new StringBuilder(512)
-                                            .append(responseWrapper.getErrMsg()).append("#")
-                                            .append(responseWrapper.getStackTrace()).toString());
-                            if (IOException.class.isAssignableFrom(remote.getClass())) {
-                                NettyClient.this.close();
-                            }
-                        }
-                        callback.handleResult(responseWrapper);
-                    } catch (Throwable ee) {
-                        responseWrapper =
-                                new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
-                        if (ee instanceof EOFException) {
-                            NettyClient.this.close();
+        public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (!(msg instanceof NettyRpcDataPack)) {
+                return;
+            }
+            final NettyRpcDataPack dataPack = (NettyRpcDataPack) msg;
+            final long dataSize = dataPack.getDataSize();
+            if (pendingBytes.addAndGet(dataSize) > maxPendingBytes) {
+                ctx.channel().config().setAutoRead(false);
+            }
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            handleResponse(dataPack);
+                        } finally {
+                            dataPack.release();
+                            releasePendingBytes(ctx, dataSize);
                         }
-                        callback.handleResult(responseWrapper);
                     }
-                } else {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Missing previous call info, maybe it has been timeout.");
-                    }
-                }
+                });
+            } catch (RejectedExecutionException e) {
+                dataPack.release();
+                releasePendingBytes(ctx, dataSize);
             }
         }
 
         /**
          * Invoked when an exception was raised by an I/O thread or a {@link ChannelHandler}.
          *
-         * @param ctx   the channel handler context
-         * @param e     the exception object
+         * @param ctx     the channel handler context
+         * @param cause   the exception object
          */
         @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
-            Throwable t = e.getCause();
-            if ((t instanceof IOException || t instanceof ReadTimeoutException
-                || t instanceof UnresolvedAddressException)) {
-                if (t instanceof ReadTimeoutException) {
-                    logger.info("Close client {} due to idle.", e.getChannel());
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            if ((cause instanceof IOException || cause instanceof ReadTimeoutException
+                || cause instanceof UnresolvedAddressException || cause instanceof DecoderException)) {
+                if (cause instanceof ReadTimeoutException) {
+                    logger.info("Close client {} due to idle.", ctx.channel());
                 }
-                if (t instanceof UnresolvedAddressException) {
+                if (cause instanceof UnresolvedAddressException) {
                     logger.info("UnresolvedAddressException for connect {} closed.", addressInfo.getHostPortStr());
                 }
+                if (cause instanceof DecoderException) {
+                    logger.warn("Close client {} for decode failure: {}",
+                            ctx.channel(), cause.getMessage());
+                }
                 NettyClient.this.close();
             } else {
-                logger.error("catch some exception not IOException", e.getCause());
+                logger.error("catch some exception not IOException", cause);
             }
         }
 
@@ -400,12 +360,109 @@ public class NettyClient implements Client {
          * Invoked when a {@link Channel} was closed and all its related resources were released.
          *
          * @param ctx   the channel handler context
-         * @param e     the channel state event
          */
         @Override
-        public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             NettyClient.this.close();
         }
+
+        private void releasePendingBytes(final ChannelHandlerContext ctx, long dataSize) {
+            long remaining = pendingBytes.addAndGet(-dataSize);
+            if (remaining <= maxPendingBytes / 2
+                    && remaining + dataSize > maxPendingBytes / 2) {
+                // resume the reading in the I/O thread, after the suspending
+                ctx.channel().eventLoop().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pendingBytes.get() <= maxPendingBytes / 2) {
+                            ctx.channel().config().setAutoRead(true);
+                        }
+                    }
+                });
+            }
+        }
+
+        private void handleResponse(NettyRpcDataPack dataPack) {
+            Callback callback = requests.remove(dataPack.getSerialNo());
+            if (callback != null) {
+                Timeout timeout = timeouts.remove(dataPack.getSerialNo());
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                ResponseWrapper responseWrapper;
+                try {
+                    ByteBufferInputStream in = new ByteBufferInputStream(dataPack.getDataLst());
+                    RPCProtos.RpcConnHeader connHeader =
+                            RPCProtos.RpcConnHeader.parseDelimitedFrom(in);
+                    if (connHeader == null) {
+                        // When the stream is closed, protobuf doesn't raise an EOFException,
+                        // instead, it returns a null message object.
+                        throw new EOFException();
+                    }
+                    RPCProtos.ResponseHeader rpcResponse =
+                            RPCProtos.ResponseHeader.parseDelimitedFrom(in);
+                    if (rpcResponse == null) {
+                        // When the stream is closed, protobuf doesn't raise an EOFException,
+                        // instead, it returns a null message object.
+                        throw new EOFException();
+                    }
+                    RPCProtos.ResponseHeader.Status status = rpcResponse.getStatus();
+                    if (status == RPCProtos.ResponseHeader.Status.SUCCESS) {
+                        RPCProtos.RspResponseBody pbRpcResponse =
+                                RPCProtos.RspResponseBody.parseDelimitedFrom(in);
+                        if (pbRpcResponse == null) {
+                            // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                            // instead, it returns a null response object.
+                            throw new NetworkException("Not found PBRpcResponse data!");
+                        }
+                        Object responseResult =
+                                PbEnDecoder.pbDecode(false, pbRpcResponse.getMethod(),
+                                        pbRpcResponse.getData().toByteArray());
+
+                        responseWrapper =
+                                new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                        rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                        pbRpcResponse.getMethod(), responseResult);
+                    } else {
+                        RPCProtos.RspExceptionBody exceptionResponse =
+                                RPCProtos.RspExceptionBody.parseDelimitedFrom(in);
+                        if (exceptionResponse == null) {
+                            // When the RPCProtos parse failed , protobuf doesn't raise an Exception,
+                            // instead, it returns a null response object.
+                            throw new NetworkException("Not found RpcException data!");
+                        }
+                        String exceptionName = exceptionResponse.getExceptionName();
+                        exceptionName = MixUtils.replaceClassNamePrefix(exceptionName,
+                                false, rpcResponse.getProtocolVer());
+                        responseWrapper =
+                                new ResponseWrapper(connHeader.getFlag(), dataPack.getSerialNo(),
+                                        rpcResponse.getServiceType(), rpcResponse.getProtocolVer(),
+                                        exceptionName, exceptionResponse.getStackTrace());
+                    }
+                    if (!responseWrapper.isSuccess()) {
+                        Throwable remote =
+                                MixUtils.unwrapException(new StringBuilder(512)
+                                        .append(responseWrapper.getErrMsg()).append("#")
+                                        .append(responseWrapper.getStackTrace()).toString());
+                        if (IOException.class.isAssignableFrom(remote.getClass())) {
+                            NettyClient.this.close();
+                        }
+                    }
+                    callback.handleResult(responseWrapper);
+                } catch (Throwable ee) {
+                    responseWrapper =
+                            new ResponseWrapper(-2, dataPack.getSerialNo(), -2, -2, -2, ee);
+                    if (ee instanceof EOFException) {
+                        NettyClient.this.close();
+                    }
+                    callback.handleResult(responseWrapper);
+                }
+            } else {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Missing previous call info, maybe it has been timeout.");
+                }
+            }
+        }
     }
 
     /**
@@ -427,12 +484,18 @@ public class NettyClient implements Client {
             }
             final Callback callback = requests.remove(serialNo);
             if (callback != null) {
-                channel.getPipeline().execute(new Runnable() {
+                Runnable timeoutNotifier = new Runnable() {
                     @Override
                     public void run() {
                         callback.handleError(new TimeoutException("Request is timeout!"));
                     }
-                });
+                };
+                Channel curChannel = channel;
+                if (curChannel == null) {
+                    timeoutNotifier.run();
+                } else {
+                    curChannel.eventLoop().execute(timeoutNotifier);
+                }
             }
         }
     }
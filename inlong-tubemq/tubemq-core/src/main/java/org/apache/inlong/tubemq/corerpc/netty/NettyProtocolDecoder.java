@@ -18,21 +18,25 @@
 package org.apache.inlong.tubemq.corerpc.netty;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
-import org.apache.inlong.tubemq.corerpc.RpcDataPack;
 import org.apache.inlong.tubemq.corerpc.exception.UnknownProtocolException;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class NettyProtocolDecoder extends FrameDecoder {
+/**
+ * Decode the bytes into a Rpc Data Pack
+ *
+ * The data of the pack are the retained slices of the received buffers without copying,
+ * the pack is released by the handler after its content is parsed.
+ */
+public class NettyProtocolDecoder extends ByteToMessageDecoder {
     private static final Logger logger =
             LoggerFactory.getLogger(NettyProtocolDecoder.class);
     private static final ConcurrentHashMap<String, AtomicLong> errProtolAddrMap =
@@ -43,14 +47,29 @@ public class NettyProtocolDecoder extends FrameDecoder {
     private static AtomicLong lastSizeTime = new AtomicLong(0);
     private boolean packHeaderRead = false;
     private int listSize;
-    private RpcDataPack dataPack;
+    private NettyRpcDataPack dataPack;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx,
+                          ByteBuf buffer, List<Object> out) throws Exception {
+        try {
+            decodePack(ctx.channel(), buffer, out);
+        } catch (Exception e) {
+            releasePack();
+            throw e;
+        }
+    }
 
     @Override
-    protected Object decode(ChannelHandlerContext ctx, Channel channel,
-                            ChannelBuffer buffer) throws Exception {
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        releasePack();
+    }
+
+    private void decodePack(Channel channel, ByteBuf buffer,
+                            List<Object> out) throws Exception {
         if (!packHeaderRead) {
             if (buffer.readableBytes() < 12) {
-                return null;
+                return;
             }
             int frameToken = buffer.readInt();
             filterIllegalPkgToken(frameToken,
@@ -60,30 +79,33 @@ public class NettyProtocolDecoder extends FrameDecoder {
             filterIllegalPackageSize(true, tmpListSize,
                     RpcConstants.MAX_FRAME_MAX_LIST_SIZE, channel);
             this.listSize = tmpListSize;
-            this.dataPack = new RpcDataPack(serialNo, new ArrayList<ByteBuffer>(this.listSize));
+            this.dataPack = new NettyRpcDataPack(serialNo, this.listSize);
             this.packHeaderRead = true;
         }
         // get PackBody
-        if (buffer.readableBytes() < 4) {
-            return null;
-        }
-        buffer.markReaderIndex();
-        int length = buffer.readInt();
-        filterIllegalPackageSize(false, length,
-                RpcConstants.RPC_MAX_BUFFER_SIZE, channel);
-        if (buffer.readableBytes() < length) {
-            buffer.resetReaderIndex();
-            return null;
+        while (dataPack.getDataLst().size() < listSize) {
+            if (buffer.readableBytes() < 4) {
+                return;
+            }
+            int length = buffer.getInt(buffer.readerIndex());
+            filterIllegalPackageSize(false, length,
+                    RpcConstants.RPC_MAX_BUFFER_SIZE, channel);
+            if (buffer.readableBytes() < 4 + length) {
+                return;
+            }
+            buffer.skipBytes(4);
+            dataPack.addFrameBuf(buffer.readRetainedSlice(length));
         }
-        ByteBuffer bb = ByteBuffer.allocate(length);
-        buffer.readBytes(bb);
-        bb.flip();
-        dataPack.getDataLst().add(bb);
-        if (dataPack.getDataLst().size() == listSize) {
-            packHeaderRead = false;
-            return dataPack;
-        } else {
-            return null;
+        packHeaderRead = false;
+        out.add(dataPack);
+        dataPack = null;
+    }
+
+    private void releasePack() {
+        packHeaderRead = false;
+        if (dataPack != null) {
+            dataPack.release();
+            dataPack = null;
         }
     }
 
@@ -112,7 +134,7 @@ public class NettyProtocolDecoder extends FrameDecoder {
             }
             throw new UnknownProtocolException(new StringBuilder(256)
                     .append("Unknown protocol exception for message frame, channel.address = ")
-                    .append(channel.getRemoteAddress().toString()).toString());
+                    .append(channel.remoteAddress()).toString());
         }
     }
 
@@ -141,7 +163,7 @@ public class NettyProtocolDecoder extends FrameDecoder {
             }
             StringBuilder sBuilder = new StringBuilder(256)
                     .append("Unknown protocol exception for message listSize! channel.address = ")
-                    .append(channel.getRemoteAddress().toString());
+                    .append(channel.remoteAddress());
             if (isFrameSize) {
                 sBuilder.append(", Max list size=").append(allowSize)
                         .append(", request's list size=").append(inParamValue);
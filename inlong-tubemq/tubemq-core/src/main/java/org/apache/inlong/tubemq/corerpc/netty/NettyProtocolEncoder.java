@@ -17,45 +17,42 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.List;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 
-public class NettyProtocolEncoder extends OneToOneEncoder {
+/**
+ * Encode the Rpc Data Pack into bytes
+ *
+ * The pack is written into one buffer allocated by the channel's allocator, which is
+ * a pooled direct buffer by default, sized exactly to the encoded pack.
+ */
+public class NettyProtocolEncoder extends MessageToByteEncoder<RpcDataPack> {
 
     @Override
-    protected Object encode(ChannelHandlerContext ctx,
-                            Channel channel, Object msg) throws Exception {
-        RpcDataPack dataPack = (RpcDataPack) msg;
-        List<ByteBuffer> origs = dataPack.getDataLst();
-        List<ByteBuffer> bbs = new ArrayList<>(origs.size() * 2 + 1);
-        bbs.add(getPackHeader(dataPack));
-        for (ByteBuffer b : origs) {
-            bbs.add(getLengthHeader(b));
-            bbs.add(b);
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx,
+                                     RpcDataPack dataPack, boolean preferDirect) {
+        int packSize = 12;
+        for (ByteBuffer b : dataPack.getDataLst()) {
+            packSize += 4 + b.remaining();
         }
-        return ChannelBuffers.wrappedBuffer(bbs.toArray(new ByteBuffer[bbs.size()]));
+        return ctx.alloc().ioBuffer(packSize);
     }
 
-    private ByteBuffer getPackHeader(RpcDataPack dataPack) {
-        ByteBuffer header = ByteBuffer.allocate(12);
-        header.putInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
-        header.putInt(dataPack.getSerialNo());
-        header.putInt(dataPack.getDataLst().size());
-        header.flip();
-        return header;
-    }
-
-    private ByteBuffer getLengthHeader(ByteBuffer buf) {
-        ByteBuffer header = ByteBuffer.allocate(4);
-        header.putInt(buf.limit());
-        header.flip();
-        return header;
+    @Override
+    protected void encode(ChannelHandlerContext ctx,
+                          RpcDataPack dataPack, ByteBuf out) throws Exception {
+        List<ByteBuffer> dataLst = dataPack.getDataLst();
+        out.writeInt(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN);
+        out.writeInt(dataPack.getSerialNo());
+        out.writeInt(dataLst.size());
+        for (ByteBuffer b : dataLst) {
+            out.writeInt(b.remaining());
+            out.writeBytes(b.duplicate());
+        }
     }
 }
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+
+/**
+ * The Rpc Data Pack decoded from the network
+ *
+ * The data list refers to the received network buffers directly instead of copies,
+ * so the pack must be released once its content has been parsed, and the data list
+ * must not be accessed after that.
+ */
+public class NettyRpcDataPack extends RpcDataPack {
+
+    private final List<ByteBuf> frameBufs;
+    private long dataSize = 0;
+
+    public NettyRpcDataPack(int serialNo, int listSize) {
+        super(serialNo, new ArrayList<ByteBuffer>(listSize));
+        this.frameBufs = new ArrayList<>(listSize);
+    }
+
+    /**
+     * Add a received buffer, the pack takes over its reference
+     *
+     * @param frameBuf    the received buffer
+     */
+    public void addFrameBuf(ByteBuf frameBuf) {
+        frameBufs.add(frameBuf);
+        getDataLst().add(frameBuf.nioBuffer());
+        dataSize += frameBuf.readableBytes();
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * Release the received buffers
+     */
+    public void release() {
+        for (ByteBuf frameBuf : frameBufs) {
+            frameBuf.release();
+        }
+        frameBufs.clear();
+        getDataLst().clear();
+    }
+}
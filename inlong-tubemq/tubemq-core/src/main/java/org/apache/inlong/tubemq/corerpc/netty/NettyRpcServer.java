@@ -19,6 +19,19 @@ package org.apache.inlong.tubemq.corerpc.netty;
 
 import static org.apache.inlong.tubemq.corebase.utils.AddressUtils.getRemoteAddressIP;
 import com.google.protobuf.Message;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.ssl.SslHandler;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -26,7 +39,6 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.SSLEngine;
@@ -44,19 +56,6 @@ import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 import org.apache.inlong.tubemq.corerpc.server.ServiceRpcServer;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 import org.apache.inlong.tubemq.corerpc.utils.TSSLEngineUtil;
-import org.jboss.netty.bootstrap.ServerBootstrap;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.DefaultChannelPipeline;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
-import org.jboss.netty.handler.ssl.SslHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,8 +71,10 @@ public class NettyRpcServer implements ServiceRpcServer {
     private static AtomicLong lastParseTime = new AtomicLong(0);
     private final ConcurrentHashMap<Integer, Protocol> protocols =
             new ConcurrentHashMap<>();
-    private ServerBootstrap bootstrap;
-    private NioServerSocketChannelFactory channelFactory = null;
+    private final ServerBootstrap bootstrap;
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private Channel serverChannel;
     private AtomicBoolean started = new AtomicBoolean(false);
     private int protocolType = RpcProtocol.RPC_PROTOCOL_TCP;
     private boolean isOverTLS;
@@ -119,30 +120,32 @@ public class NettyRpcServer implements ServiceRpcServer {
         int workerCount =
                 conf.getInt(RpcConstants.WORKER_COUNT,
                         RpcConstants.CFG_DEFAULT_SERVER_WORKER_COUNT);
-        this.bootstrap =
-                new ServerBootstrap(new NioServerSocketChannelFactory(Executors.newCachedThreadPool(),
-                        bossCount, Executors.newCachedThreadPool(), workerCount));
-        bootstrap.setOption("tcpNoDelay",
-                conf.getBoolean(RpcConstants.TCP_NODELAY, true));
-        bootstrap.setOption("reuseAddress",
+        boolean useEpoll = NettyTransportUtils.isEpollEnabled(conf);
+        this.bossGroup = NettyTransportUtils.newEventLoopGroup(useEpoll,
+                bossCount, RpcConstants.CFG_DEFAULT_BOSS_THREAD_NAME);
+        this.workerGroup = NettyTransportUtils.newEventLoopGroup(useEpoll, workerCount,
+                conf.getString(RpcConstants.WORKER_THREAD_NAME,
+                        RpcConstants.CFG_DEFAULT_WORKER_THREAD_NAME));
+        this.bootstrap = new ServerBootstrap();
+        bootstrap.group(bossGroup, workerGroup)
+                .channel(NettyTransportUtils.getServerChannelClass(useEpoll));
+        bootstrap.option(ChannelOption.SO_REUSEADDR,
                 conf.getBoolean(RpcConstants.TCP_REUSEADDRESS, true));
-        long nettyWriteHighMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_HIGH_MARK, -1);
-        if (nettyWriteHighMark > 0) {
-            bootstrap.setOption("writeBufferHighWaterMark", nettyWriteHighMark);
-        }
-        long nettyWriteLowMark =
-                conf.getLong(RpcConstants.NETTY_WRITE_LOW_MARK, -1);
-        if (nettyWriteLowMark > 0) {
-            bootstrap.setOption("writeBufferLowWaterMark", nettyWriteLowMark);
+        bootstrap.childOption(ChannelOption.TCP_NODELAY,
+                conf.getBoolean(RpcConstants.TCP_NODELAY, true));
+        bootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+        WriteBufferWaterMark waterMark =
+                NettyTransportUtils.getWriteBufferWaterMark(conf);
+        if (waterMark != null) {
+            bootstrap.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
         }
         long nettySendBuf = conf.getLong(RpcConstants.NETTY_TCP_SENDBUF, -1);
         if (nettySendBuf > 0) {
-            bootstrap.setOption("sendBufferSize", nettySendBuf);
+            bootstrap.childOption(ChannelOption.SO_SNDBUF, (int) nettySendBuf);
         }
         long nettyRecvBuf = conf.getLong(RpcConstants.NETTY_TCP_RECEIVEBUF, -1);
         if (nettyRecvBuf > 0) {
-            bootstrap.setOption("receiveBufferSize", nettyRecvBuf);
+            bootstrap.childOption(ChannelOption.SO_RCVBUF, (int) nettyRecvBuf);
         }
     }
 
@@ -151,10 +154,10 @@ public class NettyRpcServer implements ServiceRpcServer {
         if (this.started.get()) {
             return;
         }
-        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+        bootstrap.childHandler(new ChannelInitializer<Channel>() {
             @Override
-            public ChannelPipeline getPipeline() throws Exception {
-                ChannelPipeline pipeline = new DefaultChannelPipeline();
+            protected void initChannel(Channel channel) throws Exception {
+                ChannelPipeline pipeline = channel.pipeline();
                 if (isOverTLS) {
                     try {
                         SSLEngine sslEngine =
@@ -167,16 +170,16 @@ public class NettyRpcServer implements ServiceRpcServer {
                         System.exit(1);
                     }
                 }
-                // Encode the data handler
-                pipeline.addLast("protocolEncoder", new NettyProtocolDecoder());
                 // Decode the bytes into a Rpc Data Pack
-                pipeline.addLast("protocolDecoder", new NettyProtocolEncoder());
+                pipeline.addLast("protocolDecoder", new NettyProtocolDecoder());
+                // Encode the data handler
+                pipeline.addLast("protocolEncoder", new NettyProtocolEncoder());
                 // tube netty Server handler
                 pipeline.addLast("serverHandler", new NettyServerHandler(protocolType));
-                return pipeline;
             }
         });
-        bootstrap.bind(new InetSocketAddress(listenPort));
+        this.serverChannel =
+                bootstrap.bind(new InetSocketAddress(listenPort)).sync().channel();
         this.started.set(true);
         if (isOverTLS) {
             logger.info(new StringBuilder(256)
@@ -233,7 +236,14 @@ public class NettyRpcServer implements ServiceRpcServer {
         }
         if (this.started.compareAndSet(true, false)) {
             logger.info("Stopping RpcServer...");
-            bootstrap.releaseExternalResources();
+            try {
+                if (serverChannel != null) {
+                    serverChannel.close().awaitUninterruptibly();
+                }
+            } finally {
+                bossGroup.shutdownGracefully();
+                workerGroup.shutdownGracefully();
+            }
             logger.info("RpcServer stop successfully.");
         }
     }
@@ -241,7 +251,7 @@ public class NettyRpcServer implements ServiceRpcServer {
     /**
      * Netty Server Handler
      */
-    private class NettyServerHandler extends SimpleChannelUpstreamHandler {
+    private class NettyServerHandler extends ChannelInboundHandlerAdapter {
 
         private int protocolType = RpcProtocol.RPC_PROTOCOL_TCP;
 
@@ -254,31 +264,32 @@ public class NettyRpcServer implements ServiceRpcServer {
          * {@link ChannelHandler}.
          */
         @Override
-        public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
-            if (!(e.getCause() instanceof IOException)) {
-                logger.error("catch some exception not IOException", e.getCause());
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+            if (cause instanceof DecoderException) {
+                // the stream can not be decoded any more, close the connection
+                logger.warn("Close the connection {} for decode failure: {}",
+                        ctx.channel().remoteAddress(), cause.getMessage());
+                ctx.close();
+            } else if (!(cause instanceof IOException)) {
+                logger.error("catch some exception not IOException", cause);
             }
         }
 
         /**
-         * Invoked when a message object (e.g: {@link ChannelBuffer}) was received
+         * Invoked when a message object (e.g: {@link RpcDataPack}) was received
          * from a remote peer.
          */
         @Override
-        public void messageReceived(final ChannelHandlerContext ctx,
-                                    MessageEvent e) throws Exception {
-            if (!(e.getMessage() instanceof RpcDataPack)) {
+        public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (!(msg instanceof NettyRpcDataPack)) {
                 return;
             }
-            RpcDataPack dataPack = (RpcDataPack) e.getMessage();
+            NettyRpcDataPack dataPack = (NettyRpcDataPack) msg;
             RPCProtos.RpcConnHeader connHeader;
             RPCProtos.RequestHeader requestHeader;
             RPCProtos.RequestBody rpcRequestBody;
             int rmtVersion = RpcProtocol.RPC_PROTOCOL_VERSION;
-            Channel channel = ctx.getChannel();
-            if (channel == null) {
-                return;
-            }
+            Channel channel = ctx.channel();
             String rmtaddrIp = getRemoteAddressIP(channel);
             try {
                 if (!isServiceStarted()) {
@@ -291,6 +302,7 @@ public class NettyRpcServer implements ServiceRpcServer {
                 rmtVersion = requestHeader.getProtocolVer();
                 rpcRequestBody = RPCProtos.RequestBody.parseDelimitedFrom(dis);
             } catch (Throwable e1) {
+                dataPack.release();
                 if (!(e1 instanceof ServerNotReadyException)) {
                     if (rmtaddrIp != null) {
                         AtomicLong count = errParseAddrMap.get(rmtaddrIp);
@@ -320,11 +332,12 @@ public class NettyRpcServer implements ServiceRpcServer {
                                         .append("IPC server unable to read call parameters:")
                                         .append(e1.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
-                    channel.write(dataPack);
+                    channel.writeAndFlush(new RpcDataPack(dataPack.getSerialNo(), res));
                 }
                 return;
             }
+            // the request has been parsed, release the received buffers
+            dataPack.release();
             try {
                 RequestWrapper requestWrapper =
                         new RequestWrapper(requestHeader.getServiceType(),
@@ -344,8 +357,7 @@ public class NettyRpcServer implements ServiceRpcServer {
                                         .append("IPC server handle request error :")
                                         .append(ee.getMessage()).toString());
                 if (res != null) {
-                    dataPack.setDataLst(res);
-                    ctx.getChannel().write(dataPack);
+                    channel.writeAndFlush(new RpcDataPack(dataPack.getSerialNo(), res));
                 }
                 return;
             }
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.FastThreadLocalThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+
+/**
+ * The transport selection of netty client and server
+ *
+ * The native epoll transport is used if it is available on the running platform and
+ * not disabled by the configure, otherwise the NIO transport is used.
+ */
+public final class NettyTransportUtils {
+
+    private NettyTransportUtils() {
+
+    }
+
+    /**
+     * Whether to use the native epoll transport
+     *
+     * @param conf    the configure information
+     * @return        true if the epoll transport is enabled and available
+     */
+    public static boolean isEpollEnabled(RpcConfig conf) {
+        return conf.getBoolean(RpcConstants.NETTY_EPOLL_ENABLE, true)
+                && Epoll.isAvailable();
+    }
+
+    /**
+     * Create an event loop group
+     *
+     * @param useEpoll     whether to use the epoll transport
+     * @param threadCnt    the thread count
+     * @param threadName   the thread name prefix
+     * @return             the event loop group
+     */
+    public static EventLoopGroup newEventLoopGroup(boolean useEpoll,
+                                                   int threadCnt, String threadName) {
+        ThreadFactory threadFactory = newThreadFactory(threadName);
+        if (useEpoll) {
+            return new EpollEventLoopGroup(threadCnt, threadFactory);
+        }
+        return new NioEventLoopGroup(threadCnt, threadFactory);
+    }
+
+    public static Class<? extends ServerChannel> getServerChannelClass(boolean useEpoll) {
+        return useEpoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static Class<? extends Channel> getClientChannelClass(boolean useEpoll) {
+        return useEpoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * Get the write buffer water mark from the configure
+     *
+     * @param conf    the configure information
+     * @return        the water mark, or null if both marks are not set
+     */
+    public static WriteBufferWaterMark getWriteBufferWaterMark(RpcConfig conf) {
+        long highMark = conf.getLong(RpcConstants.NETTY_WRITE_HIGH_MARK, -1);
+        long lowMark = conf.getLong(RpcConstants.NETTY_WRITE_LOW_MARK, -1);
+        if (highMark <= 0 && lowMark <= 0) {
+            return null;
+        }
+        if (highMark <= 0) {
+            highMark = Math.max(lowMark, WriteBufferWaterMark.DEFAULT.high());
+        }
+        if (lowMark <= 0) {
+            lowMark = Math.min(highMark, WriteBufferWaterMark.DEFAULT.low());
+        }
+        highMark = Math.min(highMark, Integer.MAX_VALUE);
+        lowMark = Math.min(lowMark, highMark);
+        return new WriteBufferWaterMark((int) lowMark, (int) highMark);
+    }
+
+    /**
+     * Create a thread factory, the threads are named with the prefix and a sequence
+     *
+     * @param threadName   the thread name prefix
+     * @return             the thread factory
+     */
+    public static ThreadFactory newThreadFactory(final String threadName) {
+        final AtomicInteger threadIdCounter = new AtomicInteger(0);
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new FastThreadLocalThread(r, new StringBuilder(256)
+                        .append(threadName).append(threadIdCounter.incrementAndGet()).toString());
+            }
+        };
+    }
+}
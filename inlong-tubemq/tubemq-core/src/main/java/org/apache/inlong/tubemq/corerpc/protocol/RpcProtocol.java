@@ -29,6 +29,7 @@ import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.codec.PbEnDecoder;
 import org.apache.inlong.tubemq.corerpc.exception.ServiceStoppingException;
 import org.apache.inlong.tubemq.corerpc.exception.StandbyException;
+import org.apache.inlong.tubemq.corerpc.server.AsyncResponder;
 import org.apache.inlong.tubemq.corerpc.server.RequestContext;
 import org.apache.inlong.tubemq.corerpc.utils.MixUtils;
 import org.slf4j.Logger;
@@ -126,6 +127,7 @@ public class RpcProtocol implements Protocol {
         }
         Method method = null;
         StringBuilder sBuilder = new StringBuilder(512);
+        AsyncResponder responder = AsyncResponder.bind(context);
         try {
             if (!PbEnDecoder.isValidServiceTypeAndMethod(requestWrapper.getServiceType(),
                     requestWrapper.getMethodId(), sBuilder)) {
@@ -147,11 +149,16 @@ public class RpcProtocol implements Protocol {
             }
             Object result =
                     method.invoke(processor, requestWrapper.getRequestData(), rmtAddress, isOverTLS);
+            if (responder.isDeferred()) {
+                // the response will be written by the responder
+                return;
+            }
             responseWrapper =
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, requestWrapper.getMethodId(), result);
         } catch (Throwable e2) {
+            responder.abandon();
             String errorClass = null;
             String errorInfo = null;
             if (e2.getCause() != null && e2.getCause() instanceof StandbyException) {
@@ -167,6 +174,8 @@ public class RpcProtocol implements Protocol {
                     new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
                             requestWrapper.getSerialNo(), requestWrapper.getServiceType(),
                             RPC_PROTOCOL_VERSION, errorClass, errorInfo);
+        } finally {
+            AsyncResponder.unbind();
         }
         try {
             context.write(responseWrapper);
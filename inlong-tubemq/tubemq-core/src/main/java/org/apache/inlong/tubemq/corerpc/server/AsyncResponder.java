@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.server;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.corerpc.RequestWrapper;
+import org.apache.inlong.tubemq.corerpc.ResponseWrapper;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.protocol.RpcProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responder of the request being processed by the current thread.
+ *
+ * A service method may call {@link #defer()} to take over the response of the
+ * request: the method then returns without a result, the protocol skips writing
+ * the response, and the response is written by {@link #respond(Object)} later
+ * from any thread.
+ */
+public class AsyncResponder {
+    private static final Logger logger =
+            LoggerFactory.getLogger(AsyncResponder.class);
+    private static final ThreadLocal<AsyncResponder> CURRENT = new ThreadLocal<>();
+
+    private final RequestContext context;
+    private volatile boolean deferred = false;
+    private final AtomicBoolean responded = new AtomicBoolean(false);
+
+    private AsyncResponder(RequestContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Bind the request to the current thread, called by the protocol
+     * before invoking the service method.
+     *
+     * @param context   the request context
+     * @return          the responder of the request
+     */
+    public static AsyncResponder bind(RequestContext context) {
+        AsyncResponder responder = new AsyncResponder(context);
+        CURRENT.set(responder);
+        return responder;
+    }
+
+    /**
+     * Unbind the request from the current thread.
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Defer the response of the request being processed by the current thread.
+     *
+     * @return   the responder, null if the current thread is not processing a request
+     */
+    public static AsyncResponder defer() {
+        AsyncResponder responder = CURRENT.get();
+        if (responder != null) {
+            responder.deferred = true;
+        }
+        return responder;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Give up the deferred response, the response is written by the protocol instead.
+     */
+    public void abandon() {
+        responded.set(true);
+    }
+
+    /**
+     * Get the remaining time before the request times out on the client side.
+     *
+     * @return   the remaining time in milliseconds
+     */
+    public long getRemainingTimeMs() {
+        return context.getRequest().getTimeout()
+                - (System.currentTimeMillis() - context.getReceiveTime());
+    }
+
+    /**
+     * Write the response of the deferred request.
+     *
+     * @param result   the result of the service method
+     * @return         whether the response is written, false if it has been responded
+     */
+    public boolean respond(Object result) {
+        if (!responded.compareAndSet(false, true)) {
+            return false;
+        }
+        RequestWrapper request = context.getRequest();
+        try {
+            context.write(new ResponseWrapper(RpcConstants.RPC_FLAG_MSG_TYPE_RESPONSE,
+                    request.getSerialNo(), request.getServiceType(),
+                    RpcProtocol.RPC_PROTOCOL_VERSION, request.getMethodId(), result));
+        } catch (Exception e) {
+            logger.error("Write deferred response error!", e);
+        }
+        return true;
+    }
+}
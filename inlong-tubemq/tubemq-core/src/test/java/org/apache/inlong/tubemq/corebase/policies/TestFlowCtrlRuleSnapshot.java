@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.policies;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.junit.Test;
+
+public class TestFlowCtrlRuleSnapshot {
+
+    private static final String FLOW_CTRL_INFO =
+            "[{\"type\":0,\"rule\":[{\"start\":\"08:00\",\"end\":\"17:59\",\"dltInM\":1024,"
+            + "\"limitInM\":20,\"freqInMs\":1000},{\"start\":\"12:00\",\"end\":\"13:00\","
+            + "\"dltInM\":100,\"limitInM\":10,\"freqInMs\":3000},{\"start\":\"18:00\","
+            + "\"end\":\"24:00\",\"dltInM\":1024,\"limitInM\":20,\"freqInMs\":5000}]},"
+            + "{\"type\":1,\"rule\":[{\"zeroCnt\":3,\"freqInMs\":300},{\"zeroCnt\":8,"
+            + "\"freqInMs\":1000}]},{\"type\":3,\"rule\":[{\"normFreqInMs\":0,"
+            + "\"filterFreqInMs\":100,\"minDataFilterFreqInMs\":400}]}]";
+
+    @Test
+    public void testRuleSnapshot() throws Exception {
+        FlowCtrlRuleHandler handler = new FlowCtrlRuleHandler(true);
+        FlowCtrlRuleSnapshot snapshot = new FlowCtrlRuleSnapshot(10,
+                FLOW_CTRL_INFO, handler.parseFlowCtrlInfo(FLOW_CTRL_INFO));
+        // data limit, the time range is inclusive
+        assertNull(snapshot.getDataLimit(2000, 7 * 60 + 59));
+        FlowCtrlResult result = snapshot.getDataLimit(2000, 8 * 60);
+        assertEquals(20 * 1024 * 1024L, result.dataLtInSize);
+        assertEquals(1000, result.freqLtInMs);
+        assertSame(result, snapshot.getDataLimit(2000, 17 * 60 + 59));
+        assertEquals(5000, snapshot.getDataLimit(2000, 23 * 60 + 59).freqLtInMs);
+        // the rules keep their start time order in the overlapped minutes
+        assertEquals(1000, snapshot.getDataLimit(2000, 12 * 60 + 30).freqLtInMs);
+        assertEquals(3000, snapshot.getDataLimit(500, 12 * 60 + 30).freqLtInMs);
+        assertNull(snapshot.getDataLimit(500, 13 * 60 + 1));
+        assertNull(snapshot.getDataLimit(50, 12 * 60 + 30));
+        // frequency limit
+        assertEquals(3, snapshot.getMinZeroCnt());
+        assertEquals(-1, snapshot.getFreqLimitTime(2, -1));
+        assertEquals(300, snapshot.getFreqLimitTime(3, -1));
+        assertEquals(1000, snapshot.getFreqLimitTime(10, -1));
+        // low fetch limit
+        assertEquals(100, snapshot.getFilterCtrlItem().getFreqLtInMs());
+        assertEquals(400, snapshot.getFilterCtrlItem().getZeroCnt());
+        // empty rules
+        FlowCtrlRuleSnapshot emptySnapshot = new FlowCtrlRuleSnapshot(
+                TBaseConstants.META_VALUE_UNDEFINED, null, null);
+        assertNull(emptySnapshot.getDataLimit(Long.MAX_VALUE, 0));
+        assertEquals(Integer.MAX_VALUE, emptySnapshot.getMinZeroCnt());
+        assertEquals(7, emptySnapshot.getFreqLimitTime(100, 7));
+        assertEquals(TBaseConstants.META_VALUE_UNDEFINED,
+                emptySnapshot.getFilterCtrlItem().getFreqLtInMs());
+    }
+
+    @Test
+    public void testHandlerUpdateAndClear() throws Exception {
+        FlowCtrlRuleHandler handler = new FlowCtrlRuleHandler(false);
+        handler.updateFlowCtrlInfo(3, 20, FLOW_CTRL_INFO);
+        assertEquals(20, handler.getFlowCtrlId());
+        assertEquals(3, handler.getQryPriorityId());
+        assertEquals(FLOW_CTRL_INFO, handler.toString());
+        assertEquals(3, handler.getMinZeroCnt());
+        assertEquals(300, handler.getCurFreqLimitTime(5, 0));
+        handler.clear();
+        assertEquals(TBaseConstants.META_VALUE_UNDEFINED, handler.getFlowCtrlId());
+        assertEquals(Integer.MAX_VALUE, handler.getMinZeroCnt());
+        assertNull(handler.getCurDataLimit(Long.MAX_VALUE));
+        assertEquals(0, handler.getCurFreqLimitTime(5, 0));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corebase.utils;
+
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.inlong.tubemq.corebase.Message;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MsgCompressUtilsTest {
+
+    @Test
+    public void testCompressAndDecompress() throws Exception {
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 16);
+        }
+        for (MsgCompressType compressType : MsgCompressType.values()) {
+            byte[] compressed = MsgCompressUtils.compress(compressType, data);
+            if (compressType != MsgCompressType.NONE) {
+                Assert.assertTrue(compressed.length < data.length);
+            }
+            // decompress from the middle of a buffer
+            byte[] buffer = new byte[compressed.length + 8];
+            System.arraycopy(compressed, 0, buffer, 4, compressed.length);
+            Assert.assertArrayEquals(data, MsgCompressUtils.decompress(
+                    compressType, buffer, 4, compressed.length));
+        }
+    }
+
+    @Test
+    public void testCompressFlag() {
+        Message message = new Message("test", new byte[16]);
+        int flag = MessageFlagUtils.getFlag(message, MsgCompressType.SNAPPY);
+        Assert.assertFalse(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertEquals(MsgCompressType.SNAPPY, MessageFlagUtils.getCompressType(flag));
+        message.putSystemHeader("type", "202201011200");
+        flag = MessageFlagUtils.getFlag(message, MsgCompressType.GZIP);
+        Assert.assertTrue(MessageFlagUtils.hasAttribute(flag));
+        Assert.assertEquals(MsgCompressType.GZIP, MessageFlagUtils.getCompressType(flag));
+        flag = MessageFlagUtils.getFlag(message);
+        Assert.assertEquals(MsgCompressType.NONE, MessageFlagUtils.getCompressType(flag));
+    }
+
+    @Test
+    public void testConvertCompressedMessage() throws Exception {
+        byte[] data = new byte[1024];
+        Arrays.fill(data, (byte) 'a');
+        String attribute = "k1=v1";
+        byte[] compressed = MsgCompressUtils.compress(MsgCompressType.SNAPPY, data);
+        ByteBuffer payload = ByteBuffer.allocate(4 + attribute.length() + compressed.length);
+        payload.putInt(attribute.length());
+        payload.put(attribute.getBytes());
+        payload.put(compressed);
+        ClientBroker.TransferedMessage transferedMessage =
+                ClientBroker.TransferedMessage.newBuilder()
+                        .setMessageId(1L)
+                        .setCheckSum(CheckSum.crc32(payload.array()))
+                        .setFlag(1 | MsgCompressType.SNAPPY.getId() << 1)
+                        .setPayLoadData(ByteString.copyFrom(payload.array()))
+                        .build();
+        List<Message> messages = DataConverterUtil.convertMessage("test",
+                Collections.singletonList(transferedMessage));
+        Assert.assertEquals(1, messages.size());
+        Assert.assertEquals(attribute, messages.get(0).getAttribute());
+        Assert.assertArrayEquals(data, messages.get(0).getData());
+    }
+
+    @Test
+    public void testDropUndecodableMessage() throws Exception {
+        byte[] corrupted = new byte[64];
+        Arrays.fill(corrupted, (byte) 'a');
+        ClientBroker.TransferedMessage unknownCodecMsg =
+                ClientBroker.TransferedMessage.newBuilder()
+                        .setMessageId(1L)
+                        .setCheckSum(CheckSum.crc32(corrupted))
+                        .setFlag(7 << 1)
+                        .setPayLoadData(ByteString.copyFrom(corrupted))
+                        .build();
+        ClientBroker.TransferedMessage corruptedMsg =
+                ClientBroker.TransferedMessage.newBuilder()
+                        .setMessageId(2L)
+                        .setCheckSum(CheckSum.crc32(corrupted))
+                        .setFlag(MsgCompressType.GZIP.getId() << 1)
+                        .setPayLoadData(ByteString.copyFrom(corrupted))
+                        .build();
+        long befDroppedCnt = DataConverterUtil.getUndecodableMsgCnt();
+        List<Message> messages = DataConverterUtil.convertMessage("test",
+                Arrays.asList(unknownCodecMsg, corruptedMsg));
+        Assert.assertTrue(messages.isEmpty());
+        Assert.assertEquals(befDroppedCnt + 2, DataConverterUtil.getUndecodableMsgCnt());
+    }
+}
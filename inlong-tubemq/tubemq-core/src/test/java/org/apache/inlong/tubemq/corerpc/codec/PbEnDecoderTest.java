@@ -18,6 +18,9 @@
 package org.apache.inlong.tubemq.corerpc.codec;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.google.protobuf.ByteString;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientMaster;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.junit.Test;
@@ -44,4 +47,40 @@ public class PbEnDecoderTest {
         assertEquals(decodeObject.getHostName(), object.getHostName());
     }
 
+    @Test
+    public void testBatchSendMessageEncodeAndDecoder() throws Exception {
+        int methodId = PbEnDecoder.getMethIdByName("sendMessagesP2B");
+        assertEquals(RpcConstants.RPC_MSG_BROKER_PRODUCER_SENDMESSAGE_BATCH, methodId);
+        assertTrue(PbEnDecoder.isValidServiceTypeAndMethod(
+                RpcConstants.RPC_SERVICE_TYPE_BROKER_WRITE_SERVICE, methodId, null));
+        // mock a batch request
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder =
+                ClientBroker.SendMessageBatchRequestP2B.newBuilder();
+        builder.setClientId("10001");
+        builder.setTopicName("test");
+        builder.setPartitionId(1);
+        builder.setSentAddr(0);
+        for (int i = 0; i < 3; i++) {
+            builder.addMessages(ClientBroker.BatchMessageItem.newBuilder()
+                    .setData(ByteString.copyFromUtf8("message-" + i))
+                    .setFlag(0).setCheckSum(-1).build());
+        }
+        byte[] data = PbEnDecoder.pbEncode(builder.build());
+        ClientBroker.SendMessageBatchRequestP2B request =
+                (ClientBroker.SendMessageBatchRequestP2B) PbEnDecoder.pbDecode(true, methodId, data);
+        assertEquals(3, request.getMessagesCount());
+        assertEquals("message-2", request.getMessages(2).getData().toStringUtf8());
+        // mock a batch response
+        ClientBroker.SendMessageBatchResponseB2P response =
+                ClientBroker.SendMessageBatchResponseB2P.newBuilder()
+                        .setSuccess(true).setErrCode(200).setErrMsg("Ok")
+                        .addMessageIds(10L).addMessageIds(11L)
+                        .addAppendOffsets(0L).addAppendOffsets(28L).build();
+        ClientBroker.SendMessageBatchResponseB2P decodeResponse =
+                (ClientBroker.SendMessageBatchResponseB2P) PbEnDecoder.pbDecode(false,
+                        methodId, PbEnDecoder.pbEncode(response));
+        assertEquals(2, decodeResponse.getMessageIdsCount());
+        assertEquals(28L, decodeResponse.getAppendOffsets(1));
+    }
+
 }
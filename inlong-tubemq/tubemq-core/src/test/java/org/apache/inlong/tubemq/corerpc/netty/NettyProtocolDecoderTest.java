@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.corerpc.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcDataPack;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * NettyProtocolDecoder test.
+ */
+public class NettyProtocolDecoderTest {
+
+    @Test
+    public void decodeSplitFrames() {
+        EmbeddedChannel encChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)));
+        dataList.add(ByteBuffer.wrap("defgh".getBytes(StandardCharsets.UTF_8)));
+        encChannel.writeOutbound(new RpcDataPack(5, dataList));
+        encChannel.writeOutbound(new RpcDataPack(6, new ArrayList<ByteBuffer>()));
+        ByteBuf packs = Unpooled.buffer();
+        ByteBuf encoded;
+        while ((encoded = encChannel.readOutbound()) != null) {
+            packs.writeBytes(encoded);
+            encoded.release();
+        }
+        // feed the decoder one byte at a time
+        EmbeddedChannel decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        while (packs.isReadable()) {
+            decChannel.writeInbound(packs.readRetainedSlice(1));
+        }
+        packs.release();
+        NettyRpcDataPack dataPack = decChannel.readInbound();
+        Assert.assertEquals(5, dataPack.getSerialNo());
+        Assert.assertEquals(2, dataPack.getDataLst().size());
+        Assert.assertEquals(8, dataPack.getDataSize());
+        Assert.assertEquals("defgh",
+                StandardCharsets.UTF_8.decode(dataPack.getDataLst().get(1)).toString());
+        dataPack.release();
+        Assert.assertTrue(dataPack.getDataLst().isEmpty());
+        dataPack = decChannel.readInbound();
+        Assert.assertEquals(6, dataPack.getSerialNo());
+        Assert.assertTrue(dataPack.getDataLst().isEmpty());
+        Assert.assertNull(decChannel.readInbound());
+        Assert.assertFalse(decChannel.finish());
+    }
+
+    @Test
+    public void releaseOnIllegalFrame() {
+        EmbeddedChannel decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        ByteBuf input = Unpooled.buffer();
+        input.writeInt(0x12345678);
+        input.writeInt(1);
+        input.writeInt(1);
+        try {
+            decChannel.writeInbound(input);
+            Assert.fail();
+        } catch (DecoderException e) {
+            // expected, unknown protocol token
+        }
+        decChannel.finishAndReleaseAll();
+        Assert.assertEquals(0, input.refCnt());
+        // a data pack partially received is released when the channel is closed
+        decChannel = new EmbeddedChannel(new NettyProtocolDecoder());
+        EmbeddedChannel encChannel = new EmbeddedChannel(new NettyProtocolEncoder());
+        List<ByteBuffer> dataList = new ArrayList<>();
+        dataList.add(ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)));
+        dataList.add(ByteBuffer.wrap("def".getBytes(StandardCharsets.UTF_8)));
+        encChannel.writeOutbound(new RpcDataPack(7, dataList));
+        ByteBuf encoded = encChannel.readOutbound();
+        // keep the last frame out
+        ByteBuf partial = encoded.retainedSlice(0, encoded.readableBytes() - 2);
+        encoded.release();
+        decChannel.writeInbound(partial);
+        Assert.assertNull(decChannel.readInbound());
+        // held by the decoder and the first frame
+        Assert.assertEquals(2, partial.refCnt());
+        decChannel.finishAndReleaseAll();
+        Assert.assertEquals(0, partial.refCnt());
+    }
+}
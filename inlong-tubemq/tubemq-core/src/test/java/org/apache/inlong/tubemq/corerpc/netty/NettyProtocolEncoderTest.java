@@ -17,11 +17,13 @@
 
 package org.apache.inlong.tubemq.corerpc.netty;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
 import org.apache.inlong.tubemq.corerpc.RpcDataPack;
-import org.jboss.netty.buffer.ChannelBuffer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -32,7 +34,7 @@ public class NettyProtocolEncoderTest {
 
     @Test
     public void encode() {
-        NettyProtocolEncoder nettyProtocolEncoder = new NettyProtocolEncoder();
+        final EmbeddedChannel channel = new EmbeddedChannel(new NettyProtocolEncoder());
         // build RpcDataPack
         RpcDataPack obj = new RpcDataPack();
         // set serial number
@@ -42,16 +44,23 @@ public class NettyProtocolEncoderTest {
         dataList.add(ByteBuffer.wrap("def".getBytes()));
         // append data list.
         obj.setDataLst(dataList);
+        // encode data
+        Assert.assertTrue(channel.writeOutbound(obj));
+        ByteBuf buf = channel.readOutbound();
         try {
-            // encode data
-            Object result = nettyProtocolEncoder.encode(null, null, obj);
-            ChannelBuffer buf = (ChannelBuffer) result;
             // read data.
-            int i = buf.readInt();
-            i = buf.readInt();
-            Assert.assertEquals(123, i);
-        } catch (Exception e) {
-            e.printStackTrace();
+            Assert.assertEquals(12 + 2 * (4 + 3), buf.readableBytes());
+            Assert.assertEquals(RpcConstants.RPC_PROTOCOL_BEGIN_TOKEN, buf.readInt());
+            Assert.assertEquals(123, buf.readInt());
+            Assert.assertEquals(2, buf.readInt());
+            Assert.assertEquals(3, buf.readInt());
+            buf.skipBytes(3);
+            Assert.assertEquals(3, buf.readInt());
+            // the source buffers are not consumed
+            Assert.assertEquals(3, dataList.get(0).remaining());
+        } finally {
+            buf.release();
+            channel.finishAndReleaseAll();
         }
     }
 }
@@ -18,9 +18,11 @@
 package org.apache.inlong.tubemq.server.broker;
 
 import static java.lang.Math.abs;
+import java.io.File;
 import org.apache.commons.lang.builder.ToStringBuilder;
 import org.apache.commons.lang.builder.ToStringStyle;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.config.TLSConfig;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
@@ -92,6 +94,10 @@ public class BrokerConfig extends AbstractFileConfig {
     private long logFlushDiskDurMs = 20 * 1000;
     // memory flush to disk interval in milliseconds
     private long logFlushMemDurMs = 10 * 1000;
+    // the count of flush threads, the message stores are sharded across them
+    private int logFlushThreadCnt = 1;
+    // the count of threads to load the message stores on startup
+    private int storeLoadThreadCnt = Runtime.getRuntime().availableProcessors() + 1;
     // socket send buffer
     private long socketSendBuffer = -1;
     // socket receive buffer
@@ -120,6 +126,64 @@ public class BrokerConfig extends AbstractFileConfig {
             TServerConstants.CFG_DEFAULT_GROUP_OFFSET_SCAN_DUR;
     // whether to enable the memory cache storage, the default is true, open the memory cache
     private boolean enableMemStore = true;
+    // whether to append messages to the memory cache storage without lock, the default is false
+    private boolean enableLockFreeMemAppend = false;
+    // whether to read immutable file segments through memory mapping, the default is false
+    private boolean enableMmapFileRead = false;
+    // whether to maintain per-partition index for index segments, the default is false
+    private boolean enablePartitionIndex = false;
+    // whether to maintain sparse time index for index segments, the default is false
+    private boolean enableTimeIndex = false;
+    // whether to merge the flushes triggered by appending into group commits, the default is false
+    private boolean enableGroupCommitFlush = false;
+    // whether to archive the expired segments to the segment archive store, the default is false
+    private boolean enableSegmentArchive = false;
+    // the implementation class of the segment archive store
+    private String segmentArchiveStoreClass =
+            "org.apache.inlong.tubemq.server.broker.msgstore.archive.LocalDirSegmentArchiveStore";
+    // the root path of the segment archive store, used by the local directory store
+    private String segmentArchivePath = "";
+    // the max count of the archived segments cached locally of each segment list
+    private int segmentArchiveCacheCnt = 4;
+    // whether to allocate the memory cache buffers from the broker-wide pool, the default is false
+    private boolean enableMemCachePool = false;
+    // the max total size of the pooled memory cache buffers, in MB
+    private int memCachePoolMaxSizeMB = 2048;
+    // the allocation unit of the pooled memory cache buffers, in KB
+    private int memCachePoolBlockSizeKB = 64;
+    // whether to commit the offsets to the local offset log instead of ZooKeeper, the default is false
+    private boolean enableLocalOffsetStorage = false;
+    // the directory of the local offset log, default under the primary path
+    private String localOffsetStoragePath = "";
+    // the commit period of the local offset log, in milliseconds
+    private long localOffsetCommitPeriodMs = 1000L;
+    // the appended record count that triggers the local offset log compaction
+    private int localOffsetCompactRecordCnt = 100000;
+    // whether to mirror the locally committed offsets to ZooKeeper asynchronously
+    private boolean enableOffsetZkMirror = true;
+    // whether to park the fetch requests of the caught up partitions, the default is false
+    private boolean enableLongPollFetch = false;
+    // the max time to park a fetch request, in milliseconds
+    private long longPollMaxWaitMs = 5000L;
+    // the max count of the parked fetch requests of the broker
+    private int longPollMaxParkedCnt = 10000;
+    // the count of the threads to process the woken and expired fetch requests
+    private int longPollThreadCnt = 4;
+    // whether to report the partition traffic and consumer lag to master for load balancing
+    private boolean enableLoadReport = false;
+    // the period of the load report, in milliseconds
+    private long loadReportPeriodMs = 60000L;
+    // the leader broker to replicate the partitions from, in brokerId:host:port format,
+    // the broker is a follower if set
+    private BrokerInfo replicaLeaderBroker = null;
+    // the topics to replicate, separated by commas, all the topics of the broker if blank
+    private String replicaTopics = "";
+    // the count of the threads fetching the messages from the leader broker
+    private int replicaFetchThreadCnt = 2;
+    // the max time a follower may fall behind the leader and still be in-sync, in milliseconds
+    private long replicaMaxLagMs = 10000L;
+    // the max time waiting for the in-sync followers of the acks=all messages, in milliseconds
+    private long replicaAckTimeoutMs = 5000L;
 
     public BrokerConfig() {
         super();
@@ -129,6 +193,125 @@ public class BrokerConfig extends AbstractFileConfig {
         return enableMemStore;
     }
 
+    public boolean isEnableLockFreeMemAppend() {
+        return enableLockFreeMemAppend;
+    }
+
+    public boolean isEnableMmapFileRead() {
+        return enableMmapFileRead;
+    }
+
+    public boolean isEnablePartitionIndex() {
+        return enablePartitionIndex;
+    }
+
+    public boolean isEnableTimeIndex() {
+        return enableTimeIndex;
+    }
+
+    public boolean isEnableGroupCommitFlush() {
+        return enableGroupCommitFlush;
+    }
+
+    public boolean isEnableSegmentArchive() {
+        return enableSegmentArchive;
+    }
+
+    public String getSegmentArchiveStoreClass() {
+        return segmentArchiveStoreClass;
+    }
+
+    public String getSegmentArchivePath() {
+        return segmentArchivePath;
+    }
+
+    public int getSegmentArchiveCacheCnt() {
+        return segmentArchiveCacheCnt;
+    }
+
+    public boolean isEnableMemCachePool() {
+        return enableMemCachePool;
+    }
+
+    public int getMemCachePoolMaxSizeMB() {
+        return memCachePoolMaxSizeMB;
+    }
+
+    public int getMemCachePoolBlockSizeKB() {
+        return memCachePoolBlockSizeKB;
+    }
+
+    public boolean isEnableLocalOffsetStorage() {
+        return enableLocalOffsetStorage;
+    }
+
+    public String getLocalOffsetStoragePath() {
+        if (TStringUtils.isBlank(localOffsetStoragePath)) {
+            return this.primaryPath + File.separator + ".offsets";
+        }
+        return localOffsetStoragePath;
+    }
+
+    public long getLocalOffsetCommitPeriodMs() {
+        return localOffsetCommitPeriodMs;
+    }
+
+    public int getLocalOffsetCompactRecordCnt() {
+        return localOffsetCompactRecordCnt;
+    }
+
+    public boolean isEnableOffsetZkMirror() {
+        return enableOffsetZkMirror;
+    }
+
+    public boolean isEnableLongPollFetch() {
+        return enableLongPollFetch;
+    }
+
+    public long getLongPollMaxWaitMs() {
+        return longPollMaxWaitMs;
+    }
+
+    public int getLongPollMaxParkedCnt() {
+        return longPollMaxParkedCnt;
+    }
+
+    public int getLongPollThreadCnt() {
+        return longPollThreadCnt;
+    }
+
+    public boolean isEnableLoadReport() {
+        return enableLoadReport;
+    }
+
+    public long getLoadReportPeriodMs() {
+        return loadReportPeriodMs;
+    }
+
+    public boolean isReplicaFollower() {
+        return replicaLeaderBroker != null;
+    }
+
+    public BrokerInfo getReplicaLeaderBroker() {
+        return replicaLeaderBroker;
+    }
+
+    public String getReplicaTopics() {
+        return replicaTopics;
+    }
+
+    public int getReplicaFetchThreadCnt() {
+        return replicaFetchThreadCnt;
+    }
+
+    public long getReplicaMaxLagMs() {
+        return replicaMaxLagMs;
+    }
+
+    public long getReplicaAckTimeoutMs() {
+        return replicaAckTimeoutMs;
+    }
+
     public boolean isUpdateConsumerOffsets() {
         return this.updateConsumerOffsets;
     }
@@ -270,6 +453,14 @@ public class BrokerConfig extends AbstractFileConfig {
                 this.logFlushMemDurMs = 10000;
             }
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("logFlushThreadCnt"))) {
+            this.logFlushThreadCnt = MixedUtils.mid(
+                    getInt(brokerSect, "logFlushThreadCnt"), 1, 64);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("storeLoadThreadCnt"))) {
+            this.storeLoadThreadCnt = MixedUtils.mid(
+                    getInt(brokerSect, "storeLoadThreadCnt"), 1, 256);
+        }
         if (TStringUtils.isNotBlank(brokerSect.get("authValidTimeStampPeriodMs"))) {
             long tmpPeriodMs = this.getLong(brokerSect, "authValidTimeStampPeriodMs");
             this.authValidTimeStampPeriodMs =
@@ -365,6 +556,109 @@ public class BrokerConfig extends AbstractFileConfig {
         if (TStringUtils.isNotBlank(brokerSect.get("enableMemStore"))) {
             this.enableMemStore = this.getBoolean(brokerSect, "enableMemStore");
         }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableLockFreeMemAppend"))) {
+            this.enableLockFreeMemAppend = this.getBoolean(brokerSect, "enableLockFreeMemAppend");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableMmapFileRead"))) {
+            this.enableMmapFileRead = this.getBoolean(brokerSect, "enableMmapFileRead");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enablePartitionIndex"))) {
+            this.enablePartitionIndex = this.getBoolean(brokerSect, "enablePartitionIndex");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableTimeIndex"))) {
+            this.enableTimeIndex = this.getBoolean(brokerSect, "enableTimeIndex");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableGroupCommitFlush"))) {
+            this.enableGroupCommitFlush = this.getBoolean(brokerSect, "enableGroupCommitFlush");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableSegmentArchive"))) {
+            this.enableSegmentArchive = this.getBoolean(brokerSect, "enableSegmentArchive");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("segmentArchiveStoreClass"))) {
+            this.segmentArchiveStoreClass = brokerSect.get("segmentArchiveStoreClass").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("segmentArchivePath"))) {
+            this.segmentArchivePath = brokerSect.get("segmentArchivePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("segmentArchiveCacheCnt"))) {
+            this.segmentArchiveCacheCnt = MixedUtils.mid(
+                    getInt(brokerSect, "segmentArchiveCacheCnt"), 1, 1024);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableMemCachePool"))) {
+            this.enableMemCachePool = this.getBoolean(brokerSect, "enableMemCachePool");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("memCachePoolMaxSizeMB"))) {
+            this.memCachePoolMaxSizeMB = MixedUtils.mid(
+                    getInt(brokerSect, "memCachePoolMaxSizeMB"), 16, 1024 * 1024);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("memCachePoolBlockSizeKB"))) {
+            this.memCachePoolBlockSizeKB = MixedUtils.mid(
+                    getInt(brokerSect, "memCachePoolBlockSizeKB"), 4, 64 * 1024);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableLocalOffsetStorage"))) {
+            this.enableLocalOffsetStorage = this.getBoolean(brokerSect, "enableLocalOffsetStorage");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("localOffsetStoragePath"))) {
+            this.localOffsetStoragePath = brokerSect.get("localOffsetStoragePath").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("localOffsetCommitPeriodMs"))) {
+            this.localOffsetCommitPeriodMs = MixedUtils.mid(
+                    getLong(brokerSect, "localOffsetCommitPeriodMs"), 100L, 3600000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("localOffsetCompactRecordCnt"))) {
+            this.localOffsetCompactRecordCnt = MixedUtils.mid(
+                    getInt(brokerSect, "localOffsetCompactRecordCnt"), 1000, 100000000);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableOffsetZkMirror"))) {
+            this.enableOffsetZkMirror = this.getBoolean(brokerSect, "enableOffsetZkMirror");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableLongPollFetch"))) {
+            this.enableLongPollFetch = this.getBoolean(brokerSect, "enableLongPollFetch");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollMaxWaitMs"))) {
+            this.longPollMaxWaitMs = MixedUtils.mid(
+                    getLong(brokerSect, "longPollMaxWaitMs"), 10L, 60000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollMaxParkedCnt"))) {
+            this.longPollMaxParkedCnt = MixedUtils.mid(
+                    getInt(brokerSect, "longPollMaxParkedCnt"), 1, 1000000);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("longPollThreadCnt"))) {
+            this.longPollThreadCnt = MixedUtils.mid(
+                    getInt(brokerSect, "longPollThreadCnt"), 1, 64);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("enableLoadReport"))) {
+            this.enableLoadReport = this.getBoolean(brokerSect, "enableLoadReport");
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("loadReportPeriodMs"))) {
+            this.loadReportPeriodMs = MixedUtils.mid(
+                    getLong(brokerSect, "loadReportPeriodMs"), 10000L, 600000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("replicaLeaderBroker"))) {
+            try {
+                this.replicaLeaderBroker =
+                        new BrokerInfo(brokerSect.get("replicaLeaderBroker").trim());
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("replicaLeaderBroker must be in brokerId:host:port format in ")
+                        .append(SECT_TOKEN_BROKER).append(" section!").toString());
+            }
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("replicaTopics"))) {
+            this.replicaTopics = brokerSect.get("replicaTopics").trim();
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("replicaFetchThreadCnt"))) {
+            this.replicaFetchThreadCnt = MixedUtils.mid(
+                    getInt(brokerSect, "replicaFetchThreadCnt"), 1, 64);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("replicaMaxLagMs"))) {
+            this.replicaMaxLagMs = MixedUtils.mid(
+                    getLong(brokerSect, "replicaMaxLagMs"), 1000L, 600000L);
+        }
+        if (TStringUtils.isNotBlank(brokerSect.get("replicaAckTimeoutMs"))) {
+            this.replicaAckTimeoutMs = MixedUtils.mid(
+                    getLong(brokerSect, "replicaAckTimeoutMs"), 100L, 60000L);
+        }
     }
 
     public long getLogClearupDurationMs() {
@@ -379,6 +673,14 @@ public class BrokerConfig extends AbstractFileConfig {
         return logFlushMemDurMs;
     }
 
+    public int getLogFlushThreadCnt() {
+        return logFlushThreadCnt;
+    }
+
+    public int getStoreLoadThreadCnt() {
+        return storeLoadThreadCnt;
+    }
+
     public boolean isTlsEnable() {
         return this.tlsConfig.isTlsEnable();
     }
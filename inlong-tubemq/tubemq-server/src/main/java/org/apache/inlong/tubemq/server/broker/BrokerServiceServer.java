@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.corebase.Message;
@@ -43,31 +44,42 @@ import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBe
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.HeartBeatResponseB2C;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchRequestP2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageBatchResponseB2P;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageRequestP2B;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.SendMessageResponseB2P;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.BatchMessageItem;
 import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
 import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
 import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.DataConverterUtil;
 import org.apache.inlong.tubemq.corebase.utils.DateTimeConvertUtils;
+import org.apache.inlong.tubemq.corebase.utils.MsgAckType;
 import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corerpc.RpcConfig;
 import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.server.AsyncResponder;
 import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
 import org.apache.inlong.tubemq.corerpc.service.BrokerWriteService;
 import org.apache.inlong.tubemq.server.Server;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.LongPollManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
+import org.apache.inlong.tubemq.server.broker.replica.ReplicaFetcher;
+import org.apache.inlong.tubemq.server.broker.replica.ReplicaManager;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.stats.ConsumerLagStats;
+import org.apache.inlong.tubemq.server.broker.stats.PartitionLoadStats;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficStatsService;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
 import org.apache.inlong.tubemq.server.common.aaaserver.CertificateBrokerHandler;
@@ -109,6 +121,11 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     private final TrafficStatsService putCounterGroup;
     // statistics of consume.
     private final TrafficStatsService getCounterGroup;
+    // statistics of partition load.
+    private final PartitionLoadStats partLoadStats = new PartitionLoadStats();
+    private final ConsumerLagStats consumerLagStats = new ConsumerLagStats();
+    // the followers replicating the partitions of the broker.
+    private final ReplicaManager replicaManager;
     // certificate handler.
     private final CertificateBrokerHandler serverAuthHandler;
     // consumer timeout listener.
@@ -134,6 +151,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 new RowLock("Broker-RowLock", this.tubeConfig.getRowLockWaitDurMs());
         heartbeatManager.regConsumerCheckBusiness(
                 this.tubeConfig.getConsumerRegTimeoutMs(), consumerListener);
+        this.replicaManager = new ReplicaManager(tubeConfig.getReplicaMaxLagMs());
     }
 
     /**
@@ -220,6 +238,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             return;
         }
         heartbeatManager.stop();
+        replicaManager.close();
         putCounterGroup.close(-1);
         getCounterGroup.close(-1);
         logger.info("BrokerService server stopped");
@@ -234,6 +253,18 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         return consumerRegisterMap;
     }
 
+    public PartitionLoadStats getPartLoadStats() {
+        return partLoadStats;
+    }
+
+    public ConsumerLagStats getConsumerLagStats() {
+        return consumerLagStats;
+    }
+
+    public ReplicaManager getReplicaManager() {
+        return replicaManager;
+    }
+
     /**
      * Get consumer's info by store key.
      *
@@ -274,6 +305,23 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     public GetMessageResponseB2C getMessagesC2B(GetMessageRequestC2B request,
                                                 final String rmtAddress,
                                                 boolean overtls) throws Throwable {
+        return processGetMessages(request, rmtAddress, overtls, true);
+    }
+
+    /**
+     * Process consumer's getMessageRequest.
+     *
+     * @param request         the get message request
+     * @param rmtAddress      the remote node address
+     * @param overtls         whether over TLS
+     * @param allowLongPoll   whether the request may be parked if the partition is caught up
+     * @return                the response message, null if the request is parked
+     * @throws Throwable      the exception during processing
+     */
+    private GetMessageResponseB2C processGetMessages(final GetMessageRequestC2B request,
+                                                     final String rmtAddress,
+                                                     final boolean overtls,
+                                                     boolean allowLongPoll) throws Throwable {
         final GetMessageResponseB2C.Builder builder =
                 GetMessageResponseB2C.newBuilder();
         builder.setSuccess(false);
@@ -370,15 +418,21 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         try {
             dataStore = this.storeManager.getOrCreateMessageStore(topicName, partitionId);
             isGetStore = true;
+            final long befIndexMaxOffset = dataStore.getIndexMaxOffset();
+            final long befPartMaxOffset = dataStore.getPartAppendedIndexMaxOffset(partitionId);
             GetMessageResult msgResult =
                     getMessages(dataStore, consumerNodeInfo, groupName, topicName, partitionId,
                             request.getLastPackConsumed(), request.getManualCommitOffset(),
                             clientId, this.tubeConfig.getHostName(), rmtAddrInfo, isEscFlowCtrl, strBuffer);
+            replicaManager.onFollowerFetch(groupName, topicName, partitionId,
+                    msgResult.reqOffset, dataStore.getIndexMaxOffset());
             if (msgResult.isSuccess) {
                 consumerNodeInfo.setLastProcInfo(System.currentTimeMillis(),
                         msgResult.lastRdDataOffset,
                         msgResult.totalMsgSize);
                 getCounterGroup.add(msgResult.tmpCounters);
+                partLoadStats.addOutTraffic(groupName, topicName, partitionId,
+                        msgResult.transferedMessageList.size(), msgResult.totalMsgSize);
                 builder.setEscFlowCtrl(false);
                 builder.setRequireSlow(msgResult.isSlowFreq);
                 builder.setSuccess(true);
@@ -393,7 +447,16 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 builder.setErrCode(msgResult.getRetCode());
                 builder.setErrMsg(msgResult.getErrInfo());
                 builder.setMinLimitTime((int) msgResult.waitTime);
-                return builder.build();
+                GetMessageResponseB2C response = builder.build();
+                if (allowLongPoll
+                        && msgResult.getRetCode() == TErrCodeConstants.NOT_FOUND
+                        && msgResult.reqOffset + Math.max(msgResult.lastReadOffset, 0)
+                        >= befIndexMaxOffset
+                        && parkGetMessages(request, rmtAddress, overtls,
+                        dataStore, befPartMaxOffset, response)) {
+                    return null;
+                }
+                return response;
             }
         } catch (Throwable ee) {
             strBuffer.delete(0, strBuffer.length());
@@ -415,6 +478,68 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Park the get message request of the caught up partition until
+     * new messages arrive or the wait time is reached.
+     *
+     * @param request             the get message request
+     * @param rmtAddress          the remote node address
+     * @param overtls             whether over TLS
+     * @param dataStore           the message store of the partition
+     * @param befPartMaxOffset    the appended index offset of the partition before the fetch
+     * @param notFoundRsp         the response to return if the wait time is reached
+     * @return                    whether the response is deferred, the response is written
+     *                            by the long-poll threads or directly if the parking is rejected
+     */
+    private boolean parkGetMessages(final GetMessageRequestC2B request,
+                                    final String rmtAddress, final boolean overtls,
+                                    final MessageStore dataStore, final long befPartMaxOffset,
+                                    final GetMessageResponseB2C notFoundRsp) {
+        LongPollManager longPollManager = this.storeManager.getLongPollManager();
+        if (longPollManager == null
+                || !request.hasMaxWaitMs()
+                || request.getMaxWaitMs() <= 0) {
+            return false;
+        }
+        final AsyncResponder responder = AsyncResponder.defer();
+        if (responder == null) {
+            return false;
+        }
+        long waitTimeMs = Math.min(Math.min(request.getMaxWaitMs(),
+                tubeConfig.getLongPollMaxWaitMs()),
+                responder.getRemainingTimeMs() - TServerConstants.CFG_LONG_POLL_RSP_RESERVE_MS);
+        if (waitTimeMs <= 0
+                || !longPollManager.park(request.getTopicName(), request.getPartitionId(),
+                waitTimeMs, new BooleanSupplier() {
+                    @Override
+                    public boolean getAsBoolean() {
+                        // only the messages of the requested partition wake it up
+                        return dataStore.getPartAppendedIndexMaxOffset(
+                                request.getPartitionId()) > befPartMaxOffset;
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        GetMessageResponseB2C response = notFoundRsp;
+                        try {
+                            response = processGetMessages(request, rmtAddress, overtls, false);
+                        } catch (Throwable t) {
+                            logger.warn("[Long Poll] Process woken get message request failure", t);
+                        }
+                        responder.respond(response);
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        responder.respond(notFoundRsp);
+                    }
+                })) {
+            // the response has been deferred, write it directly
+            responder.respond(notFoundRsp);
+        }
+        return true;
+    }
+
     /**
      * Query offset, then read data.
      *
@@ -580,6 +705,9 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
     /**
      * Handle producer's sendMessage request.
      *
+     * With the acks=all request, the response is deferred until
+     * the in-sync followers of the partition stored the message.
+     *
      * @param request       the request
      * @param rmtAddress    the remote ip
      * @param overtls       whether transfer over TLS
@@ -625,6 +753,13 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
         final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
         final String topicName = topicMetadata.getTopic();
+        if (isReplicaTopic(topicName)) {
+            builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+            builder.setErrMsg(strBuffer.append("Topic ").append(topicName)
+                    .append(" is replicated from the leader broker, publish to the leader!")
+                    .toString());
+            return builder.build();
+        }
         String msgType = null;
         int msgTypeCode = -1;
         if (TStringUtils.isNotBlank(request.getMsgType())) {
@@ -674,6 +809,7 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                         .append("#").append(request.getPartitionId())
                         .append("#").append(request.getMsgTime()).toString();
                 putCounterGroup.add(baseKey, 1L, dataLength);
+                partLoadStats.addInTraffic(topicName, partitionId, 1L, dataLength);
                 builder.setSuccess(true);
                 builder.setRequireAuth(certResult.reAuth);
                 builder.setErrCode(TErrCodeConstants.SUCCESS);
@@ -683,7 +819,18 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                 builder.setMessageId(appendResult.getMsgId());
                 builder.setAppendTime(appendResult.getAppendTime());
                 builder.setAppendOffset(appendResult.getAppendIndexOffset());
-                return builder.build();
+                SendMessageResponseB2P response = builder.build();
+                if (request.hasAckType()
+                        && request.getAckType() == MsgAckType.ALL.getId()
+                        && deferReplicaAck(topicName, partitionId,
+                        appendResult.getAppendIndexOffset() + DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                        response, builder.setSuccess(false)
+                                .setErrCode(TErrCodeConstants.REPLICA_ACK_TIMEOUT)
+                                .setErrMsg(buildReplicaAckTimeoutInfo(topicName, partitionId))
+                                .build())) {
+                    return null;
+                }
+                return response;
             } else {
                 builder.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
                 builder.setErrMsg(strBuffer.append("Put message failed from ")
@@ -703,6 +850,247 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         }
     }
 
+    /**
+     * Handle producer's batched sendMessage request.
+     *
+     * The messages of the batch belong to the same partition, they are checked first
+     * and then appended to the store together; if the store overflows in the middle,
+     * the head part of the batch that has been stored is acknowledged in the response.
+     *
+     * @param request       the request
+     * @param rmtAddress    the remote ip
+     * @param overtls       whether transfer over TLS
+     * @return              the response
+     * @throws Throwable    the exception during processing
+     */
+    @Override
+    public SendMessageBatchResponseB2P sendMessagesP2B(SendMessageBatchRequestP2B request,
+                                                       final String rmtAddress,
+                                                       boolean overtls) throws Throwable {
+        ProcessResult result = new ProcessResult();
+        final StringBuilder strBuffer = new StringBuilder(512);
+        SendMessageBatchResponseB2P.Builder builder = SendMessageBatchResponseB2P.newBuilder();
+        builder.setSuccess(false);
+        if (!this.started.get()
+                || ServiceStatusHolder.isWriteServiceStop()) {
+            builder.setErrCode(TErrCodeConstants.SERVICE_UNAVAILABLE);
+            builder.setErrMsg("Write StoreService temporary unavailable!");
+            return builder.build();
+        }
+        CertifiedResult certResult =
+                serverAuthHandler.identityValidUserInfo(request.getAuthInfo(), true);
+        if (!certResult.result) {
+            builder.setErrCode(certResult.errCode);
+            builder.setErrMsg(certResult.errInfo);
+            return builder.build();
+        }
+        // get and check clientId field
+        if (!PBParameterUtils.getStringParameter(WebFieldDef.CLIENTID,
+                request.getClientId(), strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        // get and check topicName and partitionId field
+        final int partitionId = request.getPartitionId();
+        if (!PBParameterUtils.getTopicNamePartIdInfo(true, request.getTopicName(),
+                partitionId, this.metadataManager, strBuffer, result)) {
+            builder.setErrCode(result.getErrCode());
+            builder.setErrMsg(result.getErrMsg());
+            return builder.build();
+        }
+        final TopicMetadata topicMetadata = (TopicMetadata) result.getRetData();
+        final String topicName = topicMetadata.getTopic();
+        if (isReplicaTopic(topicName)) {
+            builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+            builder.setErrMsg(strBuffer.append("Topic ").append(topicName)
+                    .append(" is replicated from the leader broker, publish to the leader!")
+                    .toString());
+            return builder.build();
+        }
+        final int msgCnt = request.getMessagesCount();
+        if (msgCnt <= 0 || msgCnt > TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT) {
+            builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+            builder.setErrMsg(strBuffer.append("message count must in [1, ")
+                    .append(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT)
+                    .append("], message count is ").append(msgCnt).toString());
+            return builder.build();
+        }
+        long totalDataLength = 0;
+        final byte[][] dataArr = new byte[msgCnt][];
+        final int[] checkSums = new int[msgCnt];
+        final int[] msgTypeCodes = new int[msgCnt];
+        final int[] msgFlags = new int[msgCnt];
+        final Set<String> msgTypes = new HashSet<>();
+        for (int i = 0; i < msgCnt; i++) {
+            BatchMessageItem item = request.getMessages(i);
+            msgTypeCodes[i] = -1;
+            if (TStringUtils.isNotBlank(item.getMsgType())) {
+                String msgType = item.getMsgType().trim();
+                msgTypeCodes[i] = msgType.hashCode();
+                msgTypes.add(msgType);
+            }
+            dataArr[i] = item.getData().toByteArray();
+            if (dataArr[i].length <= 0) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length is zero, message index is ")
+                        .append(i).toString());
+                return builder.build();
+            }
+            if (dataArr[i].length > topicMetadata.getMaxMsgSize()) {
+                builder.setErrCode(TErrCodeConstants.BAD_REQUEST);
+                builder.setErrMsg(strBuffer.append("data length over max length, allowed max length is ")
+                        .append(topicMetadata.getMaxMsgSize())
+                        .append(", data length is ").append(dataArr[i].length)
+                        .append(", message index is ").append(i).toString());
+                return builder.build();
+            }
+            checkSums[i] = CheckSum.crc32(dataArr[i]);
+            if (item.getCheckSum() != -1 && checkSums[i] != item.getCheckSum()) {
+                builder.setErrCode(TErrCodeConstants.FORBIDDEN);
+                builder.setErrMsg(strBuffer.append("Checksum msg data failure: ")
+                        .append(item.getCheckSum()).append(" of ").append(topicName)
+                        .append(" not equal to the data's checksum of ")
+                        .append(checkSums[i]).append(", message index is ")
+                        .append(i).toString());
+                return builder.build();
+            }
+            msgFlags[i] = item.getFlag();
+            totalDataLength += dataArr[i].length;
+        }
+        if (msgTypes.isEmpty()) {
+            msgTypes.add(null);
+        }
+        for (String msgType : msgTypes) {
+            CertifiedResult authorizeResult =
+                    serverAuthHandler.validProduceAuthorizeInfo(
+                            certResult.userName, topicName, msgType, rmtAddress);
+            if (!authorizeResult.result) {
+                builder.setErrCode(authorizeResult.errCode);
+                builder.setErrMsg(authorizeResult.errInfo);
+                return builder.build();
+            }
+        }
+        try {
+            final MessageStore store =
+                    this.storeManager.getOrCreateMessageStore(topicName, partitionId);
+            final AppendResult[] appendResults = new AppendResult[msgCnt];
+            for (int i = 0; i < msgCnt; i++) {
+                appendResults[i] = new AppendResult();
+            }
+            int appendedCnt = store.appendMsgBatch(appendResults, dataArr,
+                    checkSums, msgTypeCodes, msgFlags, partitionId, request.getSentAddr());
+            long appendedDataLength = totalDataLength;
+            for (int i = 0; i < appendedCnt; i++) {
+                builder.addMessageIds(appendResults[i].getMsgId());
+                builder.addAppendOffsets(appendResults[i].getAppendIndexOffset());
+            }
+            if (appendedCnt < msgCnt) {
+                appendedDataLength = 0;
+                for (int i = 0; i < appendedCnt; i++) {
+                    appendedDataLength += dataArr[i].length;
+                }
+            }
+            if (appendedCnt > 0) {
+                String baseKey = strBuffer.append(topicName)
+                        .append("#").append(AddressUtils.intToIp(request.getSentAddr()))
+                        .append("#").append(tubeConfig.getHostName())
+                        .append("#").append(request.getPartitionId())
+                        .append("#").append(request.getMessages(0).getMsgTime()).toString();
+                strBuffer.delete(0, strBuffer.length());
+                putCounterGroup.add(baseKey, (long) appendedCnt, appendedDataLength);
+                partLoadStats.addInTraffic(topicName, partitionId, appendedCnt, appendedDataLength);
+                builder.setAppendTime(appendResults[0].getAppendTime());
+            }
+            builder.setRequireAuth(certResult.reAuth);
+            if (appendedCnt == msgCnt) {
+                builder.setSuccess(true);
+                builder.setErrCode(TErrCodeConstants.SUCCESS);
+                builder.setErrMsg("Ok");
+                SendMessageBatchResponseB2P response = builder.build();
+                if (request.hasAckType()
+                        && request.getAckType() == MsgAckType.ALL.getId()
+                        && deferReplicaAck(topicName, partitionId,
+                        appendResults[msgCnt - 1].getAppendIndexOffset()
+                                + DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                        response, builder.setSuccess(false)
+                                .setErrCode(TErrCodeConstants.REPLICA_ACK_TIMEOUT)
+                                .setErrMsg(buildReplicaAckTimeoutInfo(topicName, partitionId))
+                                .build())) {
+                    return null;
+                }
+                return response;
+            } else {
+                builder.setErrCode(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW);
+                builder.setErrMsg(strBuffer.append("Put message failed from ")
+                        .append(tubeConfig.getHostName())
+                        .append(", server receive message overflow, stored ")
+                        .append(appendedCnt).append(" of ").append(msgCnt)
+                        .append(" messages!").toString());
+            }
+            return builder.build();
+        } catch (final Throwable ex) {
+            logger.error("Put batch messages failed ", ex);
+            strBuffer.delete(0, strBuffer.length());
+            builder.setSuccess(false);
+            builder.clearMessageIds();
+            builder.clearAppendOffsets();
+            builder.setErrCode(TErrCodeConstants.INTERNAL_SERVER_ERROR);
+            builder.setErrMsg(strBuffer.append("Put message failed from ")
+                    .append(tubeConfig.getHostName()).append(" ")
+                    .append((ex.getMessage() != null ? ex.getMessage() : " ")).toString());
+            return builder.build();
+        }
+    }
+
+    /**
+     * Defer the response of the acks=all send request until the in-sync followers
+     * of the partition stored the messages, or the ack timeout is reached.
+     *
+     * @param topicName        the topic name
+     * @param partitionId      the partition id
+     * @param indexEndOffset   the end index offset of the appended messages
+     * @param ackRsp           the response if the in-sync followers stored the messages
+     * @param timeoutRsp       the response if the ack timeout is reached
+     * @return                 whether the response is deferred
+     */
+    private boolean deferReplicaAck(final String topicName, final int partitionId,
+                                    final long indexEndOffset, final Object ackRsp,
+                                    final Object timeoutRsp) {
+        final AsyncResponder responder = AsyncResponder.defer();
+        if (responder == null) {
+            return false;
+        }
+        long waitTimeMs = Math.min(tubeConfig.getReplicaAckTimeoutMs(),
+                responder.getRemainingTimeMs() - TServerConstants.CFG_LONG_POLL_RSP_RESERVE_MS);
+        if (waitTimeMs <= 0
+                || !replicaManager.waitReplicated(topicName, partitionId,
+                indexEndOffset, waitTimeMs, new Runnable() {
+                    @Override
+                    public void run() {
+                        responder.respond(ackRsp);
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        BrokerSrvStatsHolder.incReplicaAckTimeoutCnt();
+                        responder.respond(timeoutRsp);
+                    }
+                })) {
+            // the response has been deferred, write it directly
+            responder.respond(ackRsp);
+        }
+        return true;
+    }
+
+    private String buildReplicaAckTimeoutInfo(String topicName, int partitionId) {
+        return new StringBuilder(256).append("Put message stored by ")
+                .append(tubeConfig.getHostName()).append(", but timed out waiting for ")
+                .append(replicaManager.getInSyncFollowers(topicName, partitionId))
+                .append(" in-sync followers of ").append(topicName)
+                .append(TokenConstants.ATTR_SEP).append(partitionId).toString();
+    }
+
     /**
      * append group current offset to storage
      *
@@ -957,6 +1345,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
             OffsetStorageInfo offsetInfo =
                     offsetManager.loadOffset(dataStore, groupName, topicName,
                             request.getPartitionId(), request.getReadStatus(), reqOffset, strBuffer);
+            consumerLagStats.addConsumer(groupName, topicName,
+                    request.getPartitionId(), dataStore, offsetInfo);
             logger.info(strBuffer.append("[Consumer Register]").append(clientId)
                     .append(TokenConstants.SEGMENT_SEP).append(partStr)
                     .append(TokenConstants.SEGMENT_SEP).append(offsetInfo)
@@ -1043,6 +1433,8 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                     .append(groupName).append(" topic:").append(topicName).append(" partition:")
                     .append(request.getPartitionId()).append(" updatedOffset:").append(updatedOffset).toString());
             strBuffer.delete(0, strBuffer.length());
+            consumerLagStats.rmvConsumer(groupName, topicName, request.getPartitionId());
+            replicaManager.rmvFollower(groupName, topicName, request.getPartitionId());
             if (consumerRegisterMap.remove(partStr) != null) {
                 BrokerSrvStatsHolder.decConsumerOnlineCnt(false);
             }
@@ -1290,6 +1682,17 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
         return builder.build();
     }
 
+    /**
+     * Whether the topic is replicated from the leader broker, which rejects publishing.
+     *
+     * @param topicName   the topic name
+     * @return            whether the topic is replicated
+     */
+    private boolean isReplicaTopic(String topicName) {
+        ReplicaFetcher replicaFetcher = tubeBroker.getReplicaFetcher();
+        return replicaFetcher != null && replicaFetcher.isReplicaTopic(topicName);
+    }
+
     private String getPartStr(String group, String topic, int partitionId) {
         return new StringBuilder(512).append(group).append(TokenConstants.ATTR_SEP)
                 .append(topic).append(TokenConstants.ATTR_SEP).append(partitionId).toString();
@@ -1339,6 +1742,10 @@ public class BrokerServiceServer implements BrokerReadService, BrokerWriteServic
                         long updatedOffset =
                                 offsetManager.commitOffset(groupTopicPart[0],
                                         groupTopicPart[1], Integer.parseInt(groupTopicPart[2]), false);
+                        consumerLagStats.rmvConsumer(groupTopicPart[0],
+                                groupTopicPart[1], Integer.parseInt(groupTopicPart[2]));
+                        replicaManager.rmvFollower(groupTopicPart[0],
+                                groupTopicPart[1], Integer.parseInt(groupTopicPart[2]));
                         logger.info(strBuffer.append("[Consumer-Partition Timeout]")
                                 .append(nodeId).append(",updatedOffset=")
                                 .append(updatedOffset).toString());
@@ -18,13 +18,16 @@
 package org.apache.inlong.tubemq.server.broker;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.aaaclient.ClientAuthenticateHandler;
 import org.apache.inlong.tubemq.corebase.aaaclient.SimpleClientAuthenticateHandler;
@@ -51,8 +54,10 @@ import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.DefaultOffsetManager;
+import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordService;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
+import org.apache.inlong.tubemq.server.broker.replica.ReplicaFetcher;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerJMXHolder;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.BrokerSamplePrint;
@@ -86,6 +91,8 @@ public class TubeBroker implements Stoppable {
     // offset record service
     private final OffsetRecordService offsetRecordService;
     private final BrokerServiceServer brokerServiceServer;
+    // the fetcher of the replicated partitions, null if not a follower
+    private final ReplicaFetcher replicaFetcher;
     private final BrokerSamplePrint samplePrintCtrl =
             new BrokerSamplePrint(logger);
     private final ScheduledExecutorService scheduledExecutorService;
@@ -97,6 +104,8 @@ public class TubeBroker implements Stoppable {
             new SimpleClientAuthenticateHandler();
     private MasterService masterService;
     private boolean requireReportConf = false;
+    // the last time the load information reported to master
+    private long lastLoadReportTime = System.currentTimeMillis();
     private boolean isOnline = false;
     private final AtomicBoolean shutdown = new AtomicBoolean(true);
     private final AtomicBoolean isKeepAlive = new AtomicBoolean(false);
@@ -133,6 +142,9 @@ public class TubeBroker implements Stoppable {
         // broker service.
         this.brokerServiceServer =
                 new BrokerServiceServer(this, tubeConfig);
+        BrokerJMXHolder.setConsumerLagStats(brokerServiceServer.getConsumerLagStats());
+        this.replicaFetcher = tubeConfig.isReplicaFollower()
+                ? new ReplicaFetcher(this, tubeConfig) : null;
         // web server.
         this.webServer = new WebServer(tubeConfig.getHostName(), tubeConfig.getWebPort(), this);
         this.webServer.start();
@@ -198,6 +210,10 @@ public class TubeBroker implements Stoppable {
         return brokerServiceServer;
     }
 
+    public ReplicaFetcher getReplicaFetcher() {
+        return replicaFetcher;
+    }
+
     /**
      * Start broker service.
      *
@@ -253,6 +269,9 @@ public class TubeBroker implements Stoppable {
             TimeUnit.MILLISECONDS);
         this.storeManager.start();
         this.brokerServiceServer.start();
+        if (this.replicaFetcher != null) {
+            this.replicaFetcher.start();
+        }
         isOnline = true;
         logger.info(new StringBuilder(512)
                 .append("Start tube server successfully, broker version=")
@@ -283,6 +302,10 @@ public class TubeBroker implements Stoppable {
             logger.warn("CloseBroker throw exception : ", e);
         }
         ThreadUtils.sleep(2000);
+        if (this.replicaFetcher != null) {
+            this.replicaFetcher.close();
+            logger.info("Tube replica fetcher stopped.....");
+        }
         logger.info("Tube Client StoreService stopping.....");
         TubeBroker.this.brokerServiceServer.stop();
         logger.info("Tube Client StoreService stopped.....");
@@ -371,15 +394,30 @@ public class TubeBroker implements Stoppable {
                     .append(",hasFlowCtrl=").append(response.hasFlowCheckId())
                     .append(",curFlowCtrlId=").append(flowCheckId)
                     .append(",curQryPriorityId=").append(qryPriorityId)
+                    .append(",confSyncVersion=").append(response.getConfSyncVersion())
+                    .append(",takeDeltaConf=").append(response.getTakeDeltaConf())
                     .append(",brokerDefaultConfInfo=")
                     .append(response.getBrokerDefaultConfInfo())
                     .append(",brokerTopicSetConfList=")
-                    .append(response.getBrokerTopicSetConfInfoList().toString()).toString());
+                    .append(response.getBrokerTopicSetConfInfoList().toString())
+                    .append(",deltaRmvTopics=")
+                    .append(response.getDeltaRmvTopicsList().toString()).toString());
             sBuilder.delete(0, sBuilder.length());
-            metadataManager
-                    .updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
-                            response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
-                            response.getBrokerTopicSetConfInfoList(), false, sBuilder);
+            if (response.getTakeDeltaConf()) {
+                // the failed delta resets the configure version, then takes a full sync
+                metadataManager.updateBrokerTopicConfigDelta(response.getCurBrokerConfId(),
+                        response.getConfCheckSumId(), response.getConfSyncVersion(),
+                        response.getBrokerDefaultConfInfo(),
+                        response.getBrokerTopicSetConfInfoList(),
+                        response.getDeltaRmvTopicsList(), sBuilder);
+            } else {
+                metadataManager
+                        .updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
+                                response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
+                                response.getBrokerTopicSetConfInfoList(), false, sBuilder);
+                metadataManager.setBrokerConfSyncVersion(response.hasConfSyncVersion()
+                        ? response.getConfSyncVersion() : TBaseConstants.META_VALUE_UNDEFINED);
+            }
         }
         // update auth info
         if (response.hasBrokerAuthorizedInfo()) {
@@ -499,6 +537,8 @@ public class TubeBroker implements Stoppable {
         metadataManager.updateBrokerTopicConfigMap(response.getCurBrokerConfId(),
                 response.getConfCheckSumId(), response.getBrokerDefaultConfInfo(),
                 response.getBrokerTopicSetConfInfoList(), true, sBuilder);
+        metadataManager.setBrokerConfSyncVersion(response.hasConfSyncVersion()
+                ? response.getConfSyncVersion() : TBaseConstants.META_VALUE_UNDEFINED);
     }
 
     // build cluster configure info
@@ -570,6 +610,7 @@ public class TubeBroker implements Stoppable {
         builder.setWriteStatusRpt(ServiceStatusHolder.getWriteServiceReportStatus());
         builder.setCurBrokerConfId(metadataManager.getBrokerMetadataConfId());
         builder.setConfCheckSumId(metadataManager.getBrokerConfCheckSumId());
+        builder.setConfSyncVersion(metadataManager.getBrokerConfSyncVersion());
         FlowCtrlRuleHandler flowCtrlRuleHandler =
                 metadataManager.getFlowCtrlRuleHandler();
         builder.setFlowCheckId(flowCtrlRuleHandler.getFlowCtrlId());
@@ -586,6 +627,12 @@ public class TubeBroker implements Stoppable {
             builder.setAuthInfo(authInfoBuilder.build());
         }
         builder.setClsConfig(buildClusterConfig());
+        builder.addAllReplicaInfo(brokerServiceServer.getReplicaManager().buildReplicaInfo());
+        if (tubeConfig.isEnableLoadReport()
+                && System.currentTimeMillis() - lastLoadReportTime >= tubeConfig.getLoadReportPeriodMs()) {
+            lastLoadReportTime = System.currentTimeMillis();
+            buildLoadReportInfo(builder);
+        }
         if (metadataManager.isBrokerMetadataChanged() || requireReportConf) {
             builder.setTakeConfInfo(true);
             builder.setBrokerDefaultConfInfo(metadataManager.getBrokerDefMetaConfInfo());
@@ -609,6 +656,26 @@ public class TubeBroker implements Stoppable {
         return builder.build();
     }
 
+    /**
+     * Fill the partition traffic and the consumer lags of the period into the heartbeat request.
+     *
+     * @param builder   the heartbeat request builder
+     */
+    private void buildLoadReportInfo(HeartRequestB2M.Builder builder) {
+        Map<String, OffsetRecordInfo> groupOffsetMap =
+                offsetManager.getOnlineGroupOffsetInfo();
+        if (groupOffsetMap != null && !groupOffsetMap.isEmpty()) {
+            storeManager.getTopicPublishInfos(groupOffsetMap);
+        }
+        List<String> partLoadInfos = new ArrayList<>();
+        List<String> groupLoadInfos = new ArrayList<>();
+        long statsDltMs = brokerServiceServer.getPartLoadStats()
+                .buildLoadInfo(groupOffsetMap, partLoadInfos, groupLoadInfos);
+        builder.addAllPartLoadInfo(partLoadInfos);
+        builder.addAllGroupLoadInfo(groupLoadInfos);
+        builder.setLoadStatsDltMs(statsDltMs);
+    }
+
     /**
      * Build close request to master.
      *
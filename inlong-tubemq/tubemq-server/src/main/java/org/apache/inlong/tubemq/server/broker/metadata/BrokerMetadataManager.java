@@ -21,13 +21,18 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.policies.FlowCtrlRuleHandler;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.TStatusConstants;
+import org.apache.inlong.tubemq.server.common.utils.BrokerConfSyncUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +71,8 @@ public class BrokerMetadataManager implements MetadataManager {
     private final Map<String/* topic */, TopicMetadata> removedTopicConfigMap =
             new ConcurrentHashMap<>();
     private long lastRptBrokerMetaConfId = 0;
+    // the version of the configure synchronized from Master, for the incremental sync
+    private long brokerConfSyncVersion = TBaseConstants.META_VALUE_UNDEFINED;
 
     public BrokerMetadataManager() {
 
@@ -204,6 +211,16 @@ public class BrokerMetadataManager implements MetadataManager {
         this.lastRptBrokerMetaConfId = lastRptBrokerMetaConfId;
     }
 
+    @Override
+    public long getBrokerConfSyncVersion() {
+        return brokerConfSyncVersion;
+    }
+
+    @Override
+    public void setBrokerConfSyncVersion(long confSyncVersion) {
+        this.brokerConfSyncVersion = confSyncVersion;
+    }
+
     /**
      * Update broker's metadata in memory, then fire these metadata take effect.
      * These params are got from Master Service.
@@ -276,6 +293,99 @@ public class BrokerMetadataManager implements MetadataManager {
         this.propertyChangeSupport.firePropertyChange("unflushInterval", null, null);
     }
 
+    /**
+     * Apply the topic configures changed since the synchronized version to the metadata.
+     * These params are got from Master Service, the applied configure is verified by the
+     * checksum, if failed, the version is reset and the broker takes a full sync next time.
+     *
+     * @param newBrokerMetaConfId       the new broker meta configure id
+     * @param newConfCheckSumId         the new configure checksum id
+     * @param newConfSyncVersion        the new configure version
+     * @param newBrokerDefMetaConfInfo  the broker default meta configures
+     * @param updTopicMetaConfInfoLst   the changed topic meta configure list
+     * @param rmvTopics                 the removed topics
+     * @param sb                        string buffer
+     * @return                          whether the changes applied
+     */
+    @Override
+    public boolean updateBrokerTopicConfigDelta(long newBrokerMetaConfId,
+                                                int newConfCheckSumId,
+                                                long newConfSyncVersion,
+                                                String newBrokerDefMetaConfInfo,
+                                                List<String> updTopicMetaConfInfoLst,
+                                                List<String> rmvTopics,
+                                                final StringBuilder sb) {
+        if (!this.brokerDefMetaConfInfo.equals(newBrokerDefMetaConfInfo)) {
+            this.brokerConfSyncVersion = TBaseConstants.META_VALUE_UNDEFINED;
+            logger.warn("[Metadata Manage] broker default configure changed, require full sync");
+            return false;
+        }
+        // merge the changes into the current topic configures
+        Map<String, String> topicConfInfoMap = new HashMap<>();
+        for (String strTopicConfInfo : this.topicMetaConfInfoLst) {
+            if (TStringUtils.isNotBlank(strTopicConfInfo)) {
+                topicConfInfoMap.put(
+                        BrokerConfSyncUtils.getTopicName(strTopicConfInfo), strTopicConfInfo);
+            }
+        }
+        for (String topic : rmvTopics) {
+            topicConfInfoMap.remove(topic);
+        }
+        Set<String> updTopics = new HashSet<>();
+        for (String strTopicConfInfo : updTopicMetaConfInfoLst) {
+            if (TStringUtils.isNotBlank(strTopicConfInfo)) {
+                String topic = BrokerConfSyncUtils.getTopicName(strTopicConfInfo);
+                topicConfInfoMap.put(topic, strTopicConfInfo);
+                updTopics.add(topic);
+            }
+        }
+        if (BrokerConfSyncUtils.calcConfCheckSum(newBrokerDefMetaConfInfo,
+                topicConfInfoMap.values()) != newConfCheckSumId) {
+            this.brokerConfSyncVersion = TBaseConstants.META_VALUE_UNDEFINED;
+            logger.warn(sb
+                    .append("[Metadata Manage] checksum of the merged topic configure mismatch")
+                    .append(", require full sync! received newBrokerMetaConfId is ")
+                    .append(newBrokerMetaConfId).append(", confSyncVersion is ")
+                    .append(newConfSyncVersion).toString());
+            sb.delete(0, sb.length());
+            return false;
+        }
+        // only parse the changed topics, reuse the others
+        List<String> newTopics = new ArrayList<>();
+        Map<String/* topic */, Integer> tmpInvalidTopicMap =
+                new ConcurrentHashMap<>();
+        ConcurrentHashMap<String/* topic */, TopicMetadata> newTopicConfigMap =
+                new ConcurrentHashMap<>();
+        for (Map.Entry<String, String> entry : topicConfInfoMap.entrySet()) {
+            TopicMetadata topicMetadata = this.topicConfigMap.get(entry.getKey());
+            if (topicMetadata == null || updTopics.contains(entry.getKey())) {
+                topicMetadata = new TopicMetadata(brokerDefMetadata, entry.getValue());
+            }
+            if (!topicMetadata.isValidTopic()) {
+                tmpInvalidTopicMap.put(topicMetadata.getTopic(),
+                        topicMetadata.getStatusId());
+            }
+            newTopics.add(topicMetadata.getTopic());
+            newTopicConfigMap.put(topicMetadata.getTopic(), topicMetadata);
+        }
+        addSysHisOffsetTopic(brokerDefMetadata, newTopics, newTopicConfigMap);
+        this.brokerMetadataConfId = newBrokerMetaConfId;
+        this.brokerConfCheckSumId = newConfCheckSumId;
+        this.brokerConfSyncVersion = newConfSyncVersion;
+        this.topicMetaConfInfoLst = new ArrayList<>(topicConfInfoMap.values());
+        this.closedTopicMap = tmpInvalidTopicMap;
+        Collections.sort(newTopics);
+        if (!newTopicConfigMap.equals(this.topicConfigMap)) {
+            Map<String, TopicMetadata> oldTopicConfigMap = this.topicConfigMap;
+            this.topics = newTopics;
+            this.topicConfigMap = newTopicConfigMap;
+            this.propertyChangeSupport
+                    .firePropertyChange("topicConfigMap", oldTopicConfigMap, newTopicConfigMap);
+        }
+        this.propertyChangeSupport.firePropertyChange("unflushInterval", null, null);
+        return true;
+    }
+
     /**
      * Update will be deleted topics info. These params are got from Master Service.
      *
@@ -35,6 +35,14 @@ public interface MetadataManager {
                                     boolean isForce,
                                     StringBuilder sb);
 
+    boolean updateBrokerTopicConfigDelta(long newBrokerMetaConfId,
+                                         int newConfCheckSumId,
+                                         long newConfSyncVersion,
+                                         String newBrokerDefMetaConfInfo,
+                                         List<String> updTopicMetaConfInfoLst,
+                                         List<String> rmvTopics,
+                                         StringBuilder sb);
+
     boolean updateBrokerRemoveTopicMap(boolean isTakeRemoveTopics,
                                        List<String> rmvTopicMetaConfInfoLst,
                                        StringBuilder sb);
@@ -76,6 +84,10 @@ public interface MetadataManager {
 
     void setLastRptBrokerMetaConfId(long rptBrokerMetaConfId);
 
+    long getBrokerConfSyncVersion();
+
+    void setBrokerConfSyncVersion(long confSyncVersion);
+
     String getDefDeletePolicy();
 
     String getTopicDeletePolicy(String topic);
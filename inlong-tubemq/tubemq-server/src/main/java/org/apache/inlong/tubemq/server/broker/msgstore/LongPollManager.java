@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manager of the parked fetch requests of the long-poll consumers.
+ *
+ * A fetch request of a caught up partition is parked instead of answered with no message,
+ * and woken up when new messages are appended to the partition, or expired when the wait
+ * time is reached. The wake-up and expiration tasks run in the long-poll threads, so the
+ * appending threads only pay for a lookup of the parked requests of the partition.
+ */
+public class LongPollManager {
+    private static final Logger logger =
+            LoggerFactory.getLogger(LongPollManager.class);
+    private final int maxParkedCnt;
+    private final AtomicInteger parkedCnt = new AtomicInteger(0);
+    // topic-partitionId to the parked requests of the partition, a queue is added and
+    // removed only inside the map's compute methods, so that no request is parked in
+    // a queue already removed from the map
+    private final ConcurrentHashMap<String, Queue<ParkedFetch>> parkedFetches =
+            new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public LongPollManager(int maxParkedCnt, int threadCnt) {
+        this.maxParkedCnt = maxParkedCnt;
+        this.executor = new ScheduledThreadPoolExecutor(threadCnt, new ThreadFactory() {
+            private final AtomicInteger threadIndex = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "Broker Long Poll Thread-" + threadIndex.getAndIncrement());
+            }
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Park a fetch request until new messages arrive or the wait time is reached.
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @param waitTimeMs    the max wait time
+     * @param arrivedChk    checks whether messages arrived after the fetch,
+     *                      to wake up the request missed the arrival notification
+     * @param wakeTask      the task to run when new messages arrive
+     * @param expireTask    the task to run when the wait time is reached
+     * @return              whether the request is parked, false if too many parked requests
+     */
+    public boolean park(String topic, int partitionId, long waitTimeMs,
+                        BooleanSupplier arrivedChk, Runnable wakeTask, Runnable expireTask) {
+        if (stopped.get()) {
+            return false;
+        }
+        if (parkedCnt.incrementAndGet() > maxParkedCnt) {
+            parkedCnt.decrementAndGet();
+            BrokerSrvStatsHolder.incLongPollRejectedCnt();
+            return false;
+        }
+        final ParkedFetch parkedFetch =
+                new ParkedFetch(buildPartKey(topic, partitionId), wakeTask, expireTask);
+        BrokerSrvStatsHolder.incLongPollParkedCnt();
+        parkedFetches.compute(parkedFetch.partKey, (key, fetchQueue) -> {
+            if (fetchQueue == null) {
+                fetchQueue = new ConcurrentLinkedQueue<>();
+            }
+            fetchQueue.offer(parkedFetch);
+            return fetchQueue;
+        });
+        try {
+            parkedFetch.expireFuture = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    expire(parkedFetch);
+                }
+            }, waitTimeMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            expire(parkedFetch);
+            return true;
+        }
+        if (arrivedChk.getAsBoolean()) {
+            wakeUp(parkedFetch);
+        }
+        return true;
+    }
+
+    /**
+     * Wake up the parked requests of the partition, called after messages appended.
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     */
+    public void notifyMsgArrival(String topic, int partitionId) {
+        if (parkedCnt.get() == 0) {
+            return;
+        }
+        // take the whole queue, the requests parked later go to a new queue
+        Queue<ParkedFetch> fetchQueue = parkedFetches.remove(buildPartKey(topic, partitionId));
+        if (fetchQueue == null) {
+            return;
+        }
+        ParkedFetch parkedFetch;
+        while ((parkedFetch = fetchQueue.poll()) != null) {
+            wakeUp(parkedFetch);
+        }
+    }
+
+    /**
+     * Expire all parked requests and stop the long-poll threads.
+     */
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (String partKey : parkedFetches.keySet()) {
+            Queue<ParkedFetch> fetchQueue = parkedFetches.remove(partKey);
+            if (fetchQueue == null) {
+                continue;
+            }
+            ParkedFetch parkedFetch;
+            while ((parkedFetch = fetchQueue.poll()) != null) {
+                expire(parkedFetch);
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getParkedCnt() {
+        return parkedCnt.get();
+    }
+
+    public int getMaxParkedCnt() {
+        return maxParkedCnt;
+    }
+
+    public int getParkedPartCnt() {
+        return parkedFetches.size();
+    }
+
+    private void wakeUp(ParkedFetch parkedFetch) {
+        if (!parkedFetch.finish()) {
+            return;
+        }
+        BrokerSrvStatsHolder.incLongPollWokenCnt();
+        if (parkedFetch.expireFuture != null) {
+            parkedFetch.expireFuture.cancel(false);
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runTask(parkedFetch.wakeTask);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runTask(parkedFetch.expireTask);
+        }
+    }
+
+    private void expire(ParkedFetch parkedFetch) {
+        if (!parkedFetch.finish()) {
+            return;
+        }
+        BrokerSrvStatsHolder.incLongPollExpiredCnt();
+        runTask(parkedFetch.expireTask);
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.error("[Long Poll] Process parked fetch request failure", t);
+        }
+    }
+
+    private String buildPartKey(String topic, int partitionId) {
+        return topic + TokenConstants.HYPHEN + partitionId;
+    }
+
+    private class ParkedFetch {
+        private final String partKey;
+        private final Runnable wakeTask;
+        private final Runnable expireTask;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> expireFuture;
+
+        ParkedFetch(String partKey, Runnable wakeTask, Runnable expireTask) {
+            this.partKey = partKey;
+            this.wakeTask = wakeTask;
+            this.expireTask = expireTask;
+        }
+
+        /**
+         * Finish the parking, only the first caller of the wake-up and expiration succeeds.
+         *
+         * @return whether finished by this call
+         */
+        boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            // remove from the queue still in the map, and the queue if drained
+            parkedFetches.computeIfPresent(partKey, (key, fetchQueue) -> {
+                fetchQueue.remove(this);
+                return fetchQueue.isEmpty() ? null : fetchQueue;
+            });
+            parkedCnt.decrementAndGet();
+            return true;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,9 +41,12 @@ import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.SegmentArchiveStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.MsgFileStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.disk.PartitionIndex;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.Segment;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.DirectBufferPool;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.GetCacheMsgResult;
 import org.apache.inlong.tubemq.server.broker.msgstore.mem.MsgMemStore;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
@@ -105,6 +109,15 @@ public class MessageStore implements Closeable {
             = new AtomicInteger(this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
     private MsgMemStore msgMemStore;
     private MsgMemStore msgMemStoreBeingFlush;
+    // the end offsets and the time of the appended messages, maintained on append
+    // so that the consumer lags can be calculated without taking the cache lock
+    private final AtomicLong appendedIndexMaxOffset = new AtomicLong(0);
+    private final AtomicLong appendedDataMaxOffset = new AtomicLong(0);
+    private final AtomicLong lastAppendTime = new AtomicLong(0);
+    // partitionId to the index end offset of the partition's last appended message,
+    // checked by the parked fetches of the partition
+    private final ConcurrentHashMap<Integer, AtomicLong> partAppendedIndexMaxOffsets =
+            new ConcurrentHashMap<>();
 
     /**
      * MessageStore, initial message store block
@@ -163,12 +176,21 @@ public class MessageStore implements Closeable {
         fileLowReqMaxFilterIndexReadSize.set(
                 this.fileLowReqMaxFilterIndexReadCnt.get() * DataStoreUtils.STORE_INDEX_HEAD_LEN);
         this.msgFileStore = new MsgFileStore(this, this.tubeConfig, this.primStorePath, offsetIfCreate);
+        this.appendedIndexMaxOffset.set(this.msgFileStore.getIndexMaxOffset());
+        this.appendedDataMaxOffset.set(this.msgFileStore.getDataMaxOffset());
+        this.lastAppendTime.set(this.msgFileStore.getIndexMaxAppendTime());
         if (this.tubeConfig.isEnableMemStore()) {
+            final long memInitStart = System.currentTimeMillis();
             this.msgMemStore = new MsgMemStore(this.writeCacheMaxSize, this.writeCacheMaxCnt,
-                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset());
+                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset(),
+                    this.tubeConfig.isEnableLockFreeMemAppend(), getMemCachePool());
             this.msgMemStoreBeingFlush = new MsgMemStore(this.writeCacheMaxSize, this.writeCacheMaxCnt,
-                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset());
+                    this.msgFileStore.getDataMaxOffset(), this.msgFileStore.getIndexMaxOffset(),
+                    this.tubeConfig.isEnableLockFreeMemAppend(), getMemCachePool());
+            // nothing to flush yet, the pooled buffers are acquired when swapped in
+            this.msgMemStoreBeingFlush.releaseBuffers();
             this.lastMemFlushTime.set(System.currentTimeMillis());
+            addLoadPhaseTime(StoreLoadReport.Phase.MEM_INIT, memInitStart);
         }
     }
 
@@ -270,8 +292,12 @@ public class MessageStore implements Closeable {
                 }
             }
         }
-        // before read from file, adjust request's offset.
-        long reqNewOffset = Math.max(requestOffset, this.msgFileStore.getIndexMinOffset());
+        // before read from file, adjust request's offset,
+        // keep it if the index before the local index segments has been archived.
+        long reqNewOffset = requestOffset;
+        if (!this.msgFileStore.isArchivedIndexOffset(requestOffset)) {
+            reqNewOffset = Math.max(requestOffset, this.msgFileStore.getIndexMinOffset());
+        }
         if (reqSwitch <= 1 && reqNewOffset >= getFileIndexMaxOffset()) {
             return new GetMessageResult(false, TErrCodeConstants.NOT_FOUND,
                     reqNewOffset, 0, "current offset is exceed max file offset");
@@ -290,9 +316,21 @@ public class MessageStore implements Closeable {
                         reqNewOffset, 0, "current offset is exceed max offset!");
             }
         }
-        indexRecordView.read(indexBuffer, reqNewOffset);
+        final long indexSegStart = indexRecordView.getStart();
+        PartitionIndex.LookupResult partLookup = null;
+        try {
+            if (this.tubeConfig.isEnablePartitionIndex()) {
+                // only read the index entries of the requested partition
+                partLookup = readPartIndexEntries(indexRecordView,
+                        partitionId, reqNewOffset, indexBuffer);
+            }
+            if (partLookup == null) {
+                indexRecordView.read(indexBuffer, reqNewOffset);
+            }
+        } finally {
+            indexRecordView.relViewRef();
+        }
         indexBuffer.flip();
-        indexRecordView.relViewRef();
         if ((msgFileStore.getDataHighMaxOffset() - consumerNodeInfo.getLastDataRdOffset()
             >= this.tubeConfig.getDoubleDefaultDeduceReadSize())
             && msgSizeLimit > this.maxAllowRdSize) {
@@ -304,6 +342,10 @@ public class MessageStore implements Closeable {
                 indexBuffer, consumerNodeInfo.isFilterConsume(),
                 consumerNodeInfo.getFilterCondCodeSet(),
                 statsKeyBase, msgSizeLimit, reqRcvTime);
+        if (partLookup != null) {
+            retResult.setLastReadOffset(getPartIndexReadOffset(partLookup,
+                    indexSegStart, reqNewOffset, retResult.getLastReadOffset()));
+        }
         if (reqSwitch <= 1) {
             retResult.setMaxOffset(getFileIndexMaxOffset());
         } else {
@@ -403,30 +445,11 @@ public class MessageStore implements Closeable {
                     .append(this.storeKey).toString());
         }
         long messageId = this.idWorker.nextId();
-        // build data buffer
         int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + dataLength;
-        final ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + dataLength);
-        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
-        dataBuffer.putInt(dataCheckSum);
-        dataBuffer.putInt(partitionId);
-        dataBuffer.putLong(-1L);
-        dataBuffer.putLong(receivedTime);
-        dataBuffer.putInt(sentAddr);
-        dataBuffer.putInt(msgTypeCode);
-        dataBuffer.putLong(messageId);
-        dataBuffer.putInt(msgFlag);
-        dataBuffer.put(data);
-        dataBuffer.flip();
-        // build index buffer
+        final ByteBuffer dataBuffer = buildDataBuffer(messageId, dataCheckSum, data,
+                msgTypeCode, msgFlag, partitionId, sentAddr, receivedTime);
         final ByteBuffer indexBuffer =
-                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
-        indexBuffer.putInt(partitionId);
-        indexBuffer.putLong(-1L);
-        indexBuffer.putInt(msgBufLen);
-        indexBuffer.putInt(msgTypeCode);
-        indexBuffer.putLong(receivedTime);
-        indexBuffer.flip();
+                buildIndexBuffer(partitionId, msgBufLen, msgTypeCode, receivedTime);
         appendResult.putReceivedInfo(messageId, receivedTime);
         if (this.tubeConfig.isEnableMemStore()) {
             do {
@@ -435,6 +458,8 @@ public class MessageStore implements Closeable {
                     if (this.msgMemStore.appendMsg(msgStoreStatsHolder,
                             partitionId, msgTypeCode, receivedTime, indexBuffer,
                             msgBufLen, dataBuffer, appendResult)) {
+                        updAppendedPosition(partitionId, appendResult, msgBufLen);
+                        notifyMsgArrival(partitionId);
                         return true;
                     }
                 } finally {
@@ -442,6 +467,8 @@ public class MessageStore implements Closeable {
                 }
                 if (triggerFlushAndAddMsg(true, false, partitionId, msgTypeCode,
                         receivedTime, indexBuffer, msgBufLen, dataBuffer, appendResult)) {
+                    updAppendedPosition(partitionId, appendResult, msgBufLen);
+                    notifyMsgArrival(partitionId);
                     return true;
                 }
                 ThreadUtils.sleep(waitRetryMs);
@@ -456,10 +483,106 @@ public class MessageStore implements Closeable {
                             DataStoreUtils.STORE_INDEX_HEAD_LEN, indexBuffer,
                             msgBufLen, dataBuffer,receivedTime, receivedTime);
             appendResult.putAppendResult(appendRet.getF1(), appendRet.getF2());
+            updAppendedPosition(partitionId, appendResult, msgBufLen);
+            notifyMsgArrival(partitionId);
             return true;
         }
     }
 
+    /**
+     * Append a batch of messages of the same partition to store.
+     *
+     * All messages share one received time, and are appended to the memory cache
+     * under a single acquisition of the write cache lock, the lock is only released
+     * when the cache is full and a flush has to be triggered.
+     *
+     * @param appendResults   the append results, one for each message
+     * @param dataArr         the message data
+     * @param checkSums       the check sum of each message data
+     * @param msgTypeCodes    the filter item hash code of each message
+     * @param msgFlags        the flag of each message
+     * @param partitionId     the partitionId for append messages
+     * @param sentAddr        the address to send the messages to
+     *
+     * @return                the count of appended messages, the messages are
+     *                        appended in order, so the appended ones are the head part
+     * @throws IOException    the exception during processing
+     */
+    public int appendMsgBatch(AppendResult[] appendResults, byte[][] dataArr,
+                              int[] checkSums, int[] msgTypeCodes, int[] msgFlags,
+                              int partitionId, int sentAddr) throws IOException {
+        if (this.closed.get()) {
+            throw new IllegalStateException(new StringBuilder(512)
+                    .append("[Data Store] Closed MessageStore for storeKey ")
+                    .append(this.storeKey).toString());
+        }
+        final int msgCnt = dataArr.length;
+        final long receivedTime = System.currentTimeMillis();
+        final int[] msgBufLens = new int[msgCnt];
+        final ByteBuffer[] dataBuffers = new ByteBuffer[msgCnt];
+        final ByteBuffer[] indexBuffers = new ByteBuffer[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            long messageId = this.idWorker.nextId();
+            msgBufLens[i] = DataStoreUtils.STORE_DATA_HEADER_LEN + dataArr[i].length;
+            dataBuffers[i] = buildDataBuffer(messageId, checkSums[i], dataArr[i],
+                    msgTypeCodes[i], msgFlags[i], partitionId, sentAddr, receivedTime);
+            indexBuffers[i] = buildIndexBuffer(partitionId,
+                    msgBufLens[i], msgTypeCodes[i], receivedTime);
+            appendResults[i].putReceivedInfo(messageId, receivedTime);
+        }
+        int appendedCnt = 0;
+        if (this.tubeConfig.isEnableMemStore()) {
+            int count = 3;
+            while (appendedCnt < msgCnt) {
+                this.writeCacheMutex.readLock().lock();
+                try {
+                    while (appendedCnt < msgCnt
+                            && this.msgMemStore.appendMsg(msgStoreStatsHolder,
+                            partitionId, msgTypeCodes[appendedCnt], receivedTime,
+                            indexBuffers[appendedCnt], msgBufLens[appendedCnt],
+                            dataBuffers[appendedCnt], appendResults[appendedCnt])) {
+                        appendedCnt++;
+                    }
+                } finally {
+                    this.writeCacheMutex.readLock().unlock();
+                }
+                if (appendedCnt >= msgCnt) {
+                    break;
+                }
+                if (triggerFlushAndAddMsg(true, false, partitionId,
+                        msgTypeCodes[appendedCnt], receivedTime, indexBuffers[appendedCnt],
+                        msgBufLens[appendedCnt], dataBuffers[appendedCnt],
+                        appendResults[appendedCnt])) {
+                    appendedCnt++;
+                    continue;
+                }
+                if (count-- < 0) {
+                    msgStoreStatsHolder.addMsgWriteCacheFail();
+                    break;
+                }
+                ThreadUtils.sleep(1);
+            }
+        } else {
+            StringBuilder strBuffer =
+                    new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
+            for (; appendedCnt < msgCnt; appendedCnt++) {
+                Tuple3<Boolean, Long, Long> appendRet =
+                        this.msgFileStore.appendMsg(strBuffer, 1,
+                                DataStoreUtils.STORE_INDEX_HEAD_LEN, indexBuffers[appendedCnt],
+                                msgBufLens[appendedCnt], dataBuffers[appendedCnt],
+                                receivedTime, receivedTime);
+                appendResults[appendedCnt].putAppendResult(appendRet.getF1(), appendRet.getF2());
+            }
+        }
+        if (appendedCnt > 0) {
+            // the messages are appended in order, the last one holds the end offsets
+            int lastIndex = appendedCnt - 1;
+            updAppendedPosition(partitionId, appendResults[lastIndex], msgBufLens[lastIndex]);
+            notifyMsgArrival(partitionId);
+        }
+        return appendedCnt;
+    }
+
     public void getMsgStoreStatsInfo(boolean needRefresh, StringBuilder strBuff) {
         msgStoreStatsHolder.getMsgStoreStatsInfo(needRefresh, strBuff);
     }
@@ -523,15 +646,108 @@ public class MessageStore implements Closeable {
     /**
      * Flush file store to disk.
      *
+     * @param byRequest    whether flush is requested by appending, if false, flush only
+     *                     when the unflushed data exceeds the topic's durability budget
+     * @return             whether the data has been flushed
      * @throws IOException the exception during processing
      */
-    public void flushFile() throws IOException {
+    public boolean flushFile(boolean byRequest) throws IOException {
         if (this.closed.get()) {
             throw new IllegalStateException(new StringBuilder(512)
                     .append("[Data Store] Closed MessageStore for storeKey ")
                     .append(this.storeKey).toString());
         }
-        msgFileStore.flushDiskFile();
+        return msgFileStore.flushDiskFile(byRequest);
+    }
+
+    /**
+     * Get the archive store of the expired segments.
+     *
+     * @return the archive store, null if segment archive is disabled
+     */
+    public SegmentArchiveStore getSegmentArchiveStore() {
+        if (this.msgStoreMgr == null) {
+            return null;
+        }
+        return this.msgStoreMgr.getSegmentArchiveStore();
+    }
+
+    /**
+     * Get the broker-wide pool of the memory cache buffers.
+     *
+     * @return the buffer pool, null if the memory cache buffers are not pooled
+     */
+    public DirectBufferPool getMemCachePool() {
+        if (this.msgStoreMgr == null) {
+            return null;
+        }
+        return this.msgStoreMgr.getMemCachePool();
+    }
+
+    /**
+     * Record the time spent in a phase of loading the store on startup.
+     *
+     * @param phase       the load phase
+     * @param startTime   the start time of the phase
+     */
+    public void addLoadPhaseTime(StoreLoadReport.Phase phase, long startTime) {
+        if (this.msgStoreMgr == null) {
+            return;
+        }
+        StoreLoadReport loadReport = this.msgStoreMgr.getStoreLoadReport();
+        if (loadReport != null) {
+            loadReport.addPhaseTime(phase, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Advance the end offsets of the appended messages.
+     *
+     * @param partitionId    the partition id of the message
+     * @param appendResult   the append result of the message
+     * @param msgBufLen      the stored length of the message
+     */
+    private void updAppendedPosition(int partitionId,
+                                     AppendResult appendResult, int msgBufLen) {
+        final long indexEndOffset =
+                appendResult.getAppendIndexOffset() + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        this.appendedIndexMaxOffset.accumulateAndGet(indexEndOffset, Math::max);
+        AtomicLong partIndexMaxOffset = partAppendedIndexMaxOffsets.get(partitionId);
+        if (partIndexMaxOffset == null) {
+            AtomicLong tmpOffset = new AtomicLong(-1L);
+            partIndexMaxOffset = partAppendedIndexMaxOffsets.putIfAbsent(partitionId, tmpOffset);
+            if (partIndexMaxOffset == null) {
+                partIndexMaxOffset = tmpOffset;
+            }
+        }
+        partIndexMaxOffset.accumulateAndGet(indexEndOffset, Math::max);
+        this.appendedDataMaxOffset.accumulateAndGet(
+                appendResult.getAppendDataOffset() + msgBufLen, Math::max);
+        this.lastAppendTime.accumulateAndGet(appendResult.getAppendTime(), Math::max);
+    }
+
+    /**
+     * Wake up the parked fetch requests of the partition after messages appended.
+     *
+     * @param partitionId   the partition id
+     */
+    private void notifyMsgArrival(int partitionId) {
+        if (this.msgStoreMgr == null) {
+            return;
+        }
+        LongPollManager longPollManager = this.msgStoreMgr.getLongPollManager();
+        if (longPollManager != null) {
+            longPollManager.notifyMsgArrival(getTopic(), partitionId);
+        }
+    }
+
+    /**
+     * Request a group commit flush of the file store.
+     */
+    public void requestFlush() {
+        if (this.msgStoreMgr != null) {
+            this.msgStoreMgr.requestFlush(this);
+        }
     }
 
     /**
@@ -638,6 +854,69 @@ public class MessageStore implements Closeable {
         return this.msgFileStore.getIndexMinOffset();
     }
 
+    /**
+     * Get the index end offset of the appended messages without locking,
+     * it may be slightly behind {@link #getIndexMaxOffset()} during appending.
+     *
+     * @return  the index end offset of the appended messages
+     */
+    public long getAppendedIndexMaxOffset() {
+        return this.appendedIndexMaxOffset.get();
+    }
+
+    /**
+     * Get the data end offset of the appended messages without locking.
+     *
+     * @return  the data end offset of the appended messages
+     */
+    public long getAppendedDataMaxOffset() {
+        return this.appendedDataMaxOffset.get();
+    }
+
+    /**
+     * Get the index end offset of the last message appended to the partition since
+     * the store is loaded, without locking.
+     *
+     * @param partitionId   the partition id
+     * @return              the index end offset, -1 if no message appended to the partition
+     */
+    public long getPartAppendedIndexMaxOffset(int partitionId) {
+        AtomicLong partIndexMaxOffset = partAppendedIndexMaxOffsets.get(partitionId);
+        return partIndexMaxOffset == null ? -1L : partIndexMaxOffset.get();
+    }
+
+    public long getLastAppendTime() {
+        return this.lastAppendTime.get();
+    }
+
+    /**
+     * Read the index entry at the given offset, from the memory cache first
+     * and then from the local index segments.
+     *
+     * @param indexOffset   the index offset of the entry
+     * @param entryBuffer   the buffer to read the entry into, at least one entry size
+     * @return              whether the entry has been read
+     */
+    public boolean readIndexEntry(long indexOffset, ByteBuffer entryBuffer) {
+        if (this.closed.get()) {
+            return false;
+        }
+        if (tubeConfig.isEnableMemStore()
+                && indexOffset >= this.msgFileStore.getIndexMaxOffset()) {
+            this.writeCacheMutex.readLock().lock();
+            try {
+                if (this.msgMemStoreBeingFlush.readIndexEntry(indexOffset, entryBuffer)
+                        || this.msgMemStore.readIndexEntry(indexOffset, entryBuffer)) {
+                    return true;
+                }
+            } finally {
+                this.writeCacheMutex.readLock().unlock();
+            }
+        }
+        // the cache may have been flushed in the meantime
+        return this.msgFileStore.readIndexEntry(indexOffset, entryBuffer);
+    }
+
     public long getDataMinOffset() {
         return this.msgFileStore.getDataMinOffset();
     }
@@ -715,6 +994,108 @@ public class MessageStore implements Closeable {
         return totalSize;
     }
 
+    /**
+     * Read the index entries of the partition into the index buffer through
+     * the partition index of the index segment, the entries of the other
+     * partitions are skipped without being read.
+     *
+     * @param indexSeg       the index segment to read
+     * @param partitionId    the partition id to read
+     * @param reqOffset      the request offset
+     * @param indexBuffer    the buffer to store the matched index entries
+     * @return               the lookup result, or null if the partition index is not available
+     * @throws IOException   the exception while reading the index segment
+     */
+    private PartitionIndex.LookupResult readPartIndexEntries(Segment indexSeg, int partitionId,
+                                                             long reqOffset,
+                                                             ByteBuffer indexBuffer) throws IOException {
+        final long segStart = indexSeg.getStart();
+        if ((reqOffset - segStart) % DataStoreUtils.STORE_INDEX_HEAD_LEN != 0) {
+            return null;
+        }
+        PartitionIndex partIndex = indexSeg.getPartitionIndex();
+        if (partIndex == null) {
+            return null;
+        }
+        final int fromOrdinal =
+                (int) ((reqOffset - segStart) / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        final int toOrdinal =
+                (int) ((indexSeg.getLast() - segStart) / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        PartitionIndex.LookupResult lookup = partIndex.lookup(partitionId, fromOrdinal,
+                toOrdinal, indexBuffer.capacity() / DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        ByteBuffer readUnit = null;
+        int curPos = 0;
+        while (curPos < lookup.count) {
+            // coalesce the nearby entries into one read
+            final int firstOrdinal = lookup.ordinals[curPos];
+            int lastPos = curPos;
+            while (lastPos + 1 < lookup.count
+                    && (lookup.ordinals[lastPos + 1] - firstOrdinal + 1)
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN <= indexBuffer.capacity()) {
+                lastPos++;
+            }
+            final int runLength = (lookup.ordinals[lastPos] - firstOrdinal + 1)
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            final long runOffset = segStart
+                    + (long) firstOrdinal * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            ByteBuffer runBuffer = null;
+            if (this.tubeConfig.isEnableMmapFileRead() && !indexSeg.isMutable()) {
+                runBuffer = indexSeg.mappedRead(runOffset, runLength);
+            }
+            if (runBuffer == null) {
+                if (readUnit == null) {
+                    readUnit = ByteBuffer.allocate(indexBuffer.capacity());
+                }
+                readUnit.clear();
+                readUnit.limit(runLength);
+                indexSeg.read(readUnit, runOffset);
+                readUnit.flip();
+                runBuffer = readUnit;
+            }
+            ByteBuffer entryView = runBuffer.duplicate();
+            for (; curPos <= lastPos; curPos++) {
+                int entryPos = (lookup.ordinals[curPos] - firstOrdinal)
+                        * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                if (entryPos + DataStoreUtils.STORE_INDEX_HEAD_LEN > runBuffer.limit()) {
+                    // the entry is not completely readable, stop before it
+                    lookup = new PartitionIndex.LookupResult(lookup.ordinals,
+                            curPos, lookup.ordinals[curPos]);
+                    break;
+                }
+                entryView.limit(entryPos + DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                entryView.position(entryPos);
+                indexBuffer.put(entryView);
+            }
+        }
+        msgStoreStatsHolder.addFilePartIndexStats(lookup.count,
+                lookup.checkedCount - fromOrdinal - lookup.count);
+        return lookup;
+    }
+
+    /**
+     * Convert the read offset within the partition's index entries
+     * to the read offset within the index segment.
+     *
+     * @param lookup         the partition index lookup result
+     * @param segStart       the start offset of the index segment
+     * @param reqOffset      the request offset
+     * @param readOffset     the read offset within the partition's index entries
+     * @return               the read offset within the index segment
+     */
+    private int getPartIndexReadOffset(PartitionIndex.LookupResult lookup,
+                                       long segStart, long reqOffset, int readOffset) {
+        int readCount = readOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        if (readCount >= lookup.count) {
+            return (int) (segStart + (long) lookup.checkedCount
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN - reqOffset);
+        }
+        if (readCount <= 0) {
+            return 0;
+        }
+        return (int) (segStart + (long) (lookup.ordinals[readCount - 1] + 1)
+                * DataStoreUtils.STORE_INDEX_HEAD_LEN - reqOffset);
+    }
+
     private long parseDeletePolicy(String delPolicy) {
         String[] tmpStrs = delPolicy.split(",");
         if (tmpStrs.length != 2) {
@@ -749,6 +1130,39 @@ public class MessageStore implements Closeable {
         return memCacheSize;
     }
 
+    private ByteBuffer buildDataBuffer(long messageId, int dataCheckSum, byte[] data,
+                                       int msgTypeCode, int msgFlag, int partitionId,
+                                       int sentAddr, long receivedTime) {
+        final ByteBuffer dataBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_DATA_HEADER_LEN + data.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + data.length);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.putInt(dataCheckSum);
+        dataBuffer.putInt(partitionId);
+        dataBuffer.putLong(-1L);
+        dataBuffer.putLong(receivedTime);
+        dataBuffer.putInt(sentAddr);
+        dataBuffer.putInt(msgTypeCode);
+        dataBuffer.putLong(messageId);
+        dataBuffer.putInt(msgFlag);
+        dataBuffer.put(data);
+        dataBuffer.flip();
+        return dataBuffer;
+    }
+
+    private ByteBuffer buildIndexBuffer(int partitionId, int msgBufLen,
+                                        int msgTypeCode, long receivedTime) {
+        final ByteBuffer indexBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(partitionId);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(msgBufLen);
+        indexBuffer.putInt(msgTypeCode);
+        indexBuffer.putLong(receivedTime);
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
     /**
      * Append message and trigger flush operation.
      *
@@ -866,10 +1280,13 @@ public class MessageStore implements Closeable {
                     && tmpStore.getMaxDataCacheSize() == writeCacheMaxSize) {
                 msgMemStore = tmpStore;
                 msgMemStore.resetMemStoreStatus(lastDataPos, lastIndexPos);
+                // if the pool is exhausted, the appends are rejected until the next swap
+                msgMemStore.acquireBuffers();
             } else {
                 isRealloc = true;
-                msgMemStore = new MsgMemStore(writeCacheMaxSize,
-                        writeCacheMaxCnt, lastDataPos, lastIndexPos);
+                msgMemStore = new MsgMemStore(writeCacheMaxSize, writeCacheMaxCnt,
+                        lastDataPos, lastIndexPos, tubeConfig.isEnableLockFreeMemAppend(),
+                        getMemCachePool());
             }
             hasFlushBeenTriggered.set(false);
             flushWriteCacheCondition.signalAll();
@@ -887,5 +1304,14 @@ public class MessageStore implements Closeable {
             }
         }
         msgMemStoreBeingFlush.batchFlush(msgFileStore, strBuffer);
+        if (getMemCachePool() != null) {
+            // the flushed messages are read from file now, recycle the buffers
+            writeCacheMutex.writeLock().lock();
+            try {
+                msgMemStoreBeingFlush.releaseBuffers();
+            } finally {
+                writeCacheMutex.writeLock().unlock();
+            }
+        }
     }
 }
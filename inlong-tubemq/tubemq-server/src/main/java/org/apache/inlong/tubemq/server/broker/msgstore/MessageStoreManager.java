@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -49,7 +50,9 @@ import org.apache.inlong.tubemq.server.broker.TubeBroker;
 import org.apache.inlong.tubemq.server.broker.exception.StartupException;
 import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
 import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.SegmentArchiveStore;
 import org.apache.inlong.tubemq.server.broker.msgstore.disk.GetMessageResult;
+import org.apache.inlong.tubemq.server.broker.msgstore.mem.DirectBufferPool;
 import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordInfo;
 import org.apache.inlong.tubemq.server.broker.offset.RecordItem;
@@ -76,10 +79,16 @@ public class MessageStoreManager implements StoreService {
     private final AtomicBoolean stopped = new AtomicBoolean(false);
     // data expire operation scheduler.
     private final ScheduledExecutorService logClearScheduler;
-    // flush operation scheduler.
-    private final ScheduledExecutorService unFlushDiskScheduler;
-    // message on memory sink to disk operation scheduler.
-    private final ScheduledExecutorService unFlushMemScheduler;
+    // file flush and memory cache flush operation scheduler.
+    private final StoreFlushScheduler flushScheduler;
+    // archive store of the expired segments, null if segment archive is disabled
+    private final SegmentArchiveStore segmentArchiveStore;
+    // pool of the memory cache buffers, null if the buffers are not pooled
+    private final DirectBufferPool memCachePool;
+    // the parked fetch requests of the long-poll consumers, null if not enabled
+    private final LongPollManager longPollManager;
+    // timing report of loading the stores, only available during startup
+    private volatile StoreLoadReport storeLoadReport;
     // max transfer size.
     private final int maxMsgTransferSize;
     // the status that is deleting topic.
@@ -119,21 +128,21 @@ public class MessageStoreManager implements StoreService {
                         return new Thread(r, "Broker Log Clear Thread");
                     }
                 });
-        this.unFlushDiskScheduler =
-                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-                    @Override
-                    public Thread newThread(Runnable r) {
-                        return new Thread(r, "Broker Log Disk Flush Thread");
-                    }
-                });
-        this.unFlushMemScheduler =
-                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
-                    @Override
-                    public Thread newThread(Runnable r) {
-                        return new Thread(r, "Broker Log Mem Flush Thread");
-                    }
-                });
-
+        this.flushScheduler = new StoreFlushScheduler(tubeConfig, this.dataStores);
+        this.segmentArchiveStore = createSegmentArchiveStore(tubeConfig);
+        if (tubeConfig.isEnableMemStore() && tubeConfig.isEnableMemCachePool()) {
+            this.memCachePool = new DirectBufferPool(
+                    tubeConfig.getMemCachePoolMaxSizeMB() * 1024L * 1024L,
+                    tubeConfig.getMemCachePoolBlockSizeKB() * 1024);
+        } else {
+            this.memCachePool = null;
+        }
+        if (tubeConfig.isEnableLongPollFetch()) {
+            this.longPollManager = new LongPollManager(
+                    tubeConfig.getLongPollMaxParkedCnt(), tubeConfig.getLongPollThreadCnt());
+        } else {
+            this.longPollManager = null;
+        }
     }
 
     @Override
@@ -151,15 +160,7 @@ public class MessageStoreManager implements StoreService {
                 tubeConfig.getLogClearupDurationMs(),
                 TimeUnit.MILLISECONDS);
 
-        this.unFlushDiskScheduler.scheduleWithFixedDelay(new DiskUnFlushRunner(),
-                tubeConfig.getLogFlushDiskDurMs(),
-                tubeConfig.getLogFlushDiskDurMs(),
-                TimeUnit.MILLISECONDS);
-
-        this.unFlushMemScheduler.scheduleWithFixedDelay(new MemUnFlushRunner(),
-                tubeConfig.getLogFlushMemDurMs(),
-                tubeConfig.getLogFlushMemDurMs(),
-                TimeUnit.MILLISECONDS);
+        this.flushScheduler.start();
 
     }
 
@@ -171,8 +172,10 @@ public class MessageStoreManager implements StoreService {
         if (this.stopped.compareAndSet(false, true)) {
             logger.info("[Store Manager] begin close store manager......");
             this.logClearScheduler.shutdownNow();
-            this.unFlushDiskScheduler.shutdownNow();
-            this.unFlushMemScheduler.shutdownNow();
+            if (this.longPollManager != null) {
+                this.longPollManager.close();
+            }
+            this.flushScheduler.close();
             for (Map.Entry<String, ConcurrentHashMap<Integer, MessageStore>> entry :
                     this.dataStores.entrySet()) {
                 if (entry.getValue() != null) {
@@ -191,6 +194,12 @@ public class MessageStoreManager implements StoreService {
                 }
             }
             this.dataStores.clear();
+            if (this.segmentArchiveStore != null) {
+                this.segmentArchiveStore.close();
+            }
+            if (this.memCachePool != null) {
+                this.memCachePool.close();
+            }
             logger.info("[Store Manager] Store Manager stopped!");
         }
     }
@@ -390,6 +399,31 @@ public class MessageStoreManager implements StoreService {
         return maxMsgTransferSize;
     }
 
+    /**
+     * Request a group commit flush of the store's file data.
+     *
+     * @param msgStore   the store to flush
+     */
+    public void requestFlush(MessageStore msgStore) {
+        this.flushScheduler.requestFlush(msgStore);
+    }
+
+    public SegmentArchiveStore getSegmentArchiveStore() {
+        return this.segmentArchiveStore;
+    }
+
+    public DirectBufferPool getMemCachePool() {
+        return this.memCachePool;
+    }
+
+    public StoreLoadReport getStoreLoadReport() {
+        return this.storeLoadReport;
+    }
+
+    public LongPollManager getLongPollManager() {
+        return this.longPollManager;
+    }
+
     public Map<String, ConcurrentHashMap<Integer, MessageStore>> getMessageStores() {
         return Collections.unmodifiableMap(this.dataStores);
     }
@@ -525,7 +559,8 @@ public class MessageStoreManager implements StoreService {
     }
 
     /**
-     * Load stores sequential.
+     * Load stores in parallel, the stores of different log directories are interleaved,
+     * so that all directories are recovered concurrently.
      *
      * @param tubeConfig             the broker's configure
      * @throws IOException           the exception during processing
@@ -540,7 +575,9 @@ public class MessageStoreManager implements StoreService {
         final long start = System.currentTimeMillis();
         final AtomicInteger errCnt = new AtomicInteger(0);
         final AtomicInteger finishCnt = new AtomicInteger(0);
-        List<Callable<MessageStore>> tasks = new ArrayList<>();
+        final StoreLoadReport loadReport = new StoreLoadReport();
+        this.storeLoadReport = loadReport;
+        List<List<Callable<MessageStore>>> dirTasks = new ArrayList<>();
         for (final File dir : this.getLogDirSet(tubeConfig)) {
             if (dir == null) {
                 continue;
@@ -549,6 +586,8 @@ public class MessageStoreManager implements StoreService {
             if (ls == null) {
                 continue;
             }
+            List<Callable<MessageStore>> tasks = new ArrayList<>();
+            dirTasks.add(tasks);
             for (final File subDir : ls) {
                 if (subDir == null) {
                     continue;
@@ -579,6 +618,8 @@ public class MessageStoreManager implements StoreService {
                     @Override
                     public MessageStore call() throws Exception {
                         MessageStore msgStore = null;
+                        boolean isSuccess = false;
+                        long startTime = System.currentTimeMillis();
                         try {
                             msgStore = new MessageStore(messageStoreManager,
                                     topicMetadata, storeId, tubeConfig, maxMsgTransferSize);
@@ -604,6 +645,7 @@ public class MessageStoreManager implements StoreService {
                                     logger.info("[Store Manager] Close duplicated messageStore failure", e2);
                                 }
                             }
+                            isSuccess = true;
                         } catch (Throwable e2) {
                             errCnt.incrementAndGet();
                             logger.error(new StringBuilder(512).append("[Store Manager] Loaded ")
@@ -611,14 +653,33 @@ public class MessageStoreManager implements StoreService {
                                     .append("message store failure:").toString(), e2);
                         } finally {
                             finishCnt.incrementAndGet();
+                            loadReport.addStoreTime(name,
+                                    System.currentTimeMillis() - startTime, isSuccess);
                         }
                         return null;
                     }
                 });
             }
         }
-        this.loadStoresInParallel(tasks);
+        // interleave the tasks of the log directories
+        List<Callable<MessageStore>> tasks = new ArrayList<>();
+        for (int i = 0; !dirTasks.isEmpty(); i++) {
+            Iterator<List<Callable<MessageStore>>> iterator = dirTasks.iterator();
+            while (iterator.hasNext()) {
+                List<Callable<MessageStore>> curTasks = iterator.next();
+                if (i < curTasks.size()) {
+                    tasks.add(curTasks.get(i));
+                } else {
+                    iterator.remove();
+                }
+            }
+        }
+        loadReport.markScanFinished();
+        this.loadStoresInParallel(tasks, tubeConfig.getStoreLoadThreadCnt());
         tasks.clear();
+        this.storeLoadReport = null;
+        logger.info(loadReport.buildReport(sBuilder, tubeConfig.getStoreLoadThreadCnt()).toString());
+        sBuilder.delete(0, sBuilder.length());
         if (errCnt.get() > 0) {
             throw new RuntimeException(
                     "[Store Manager] failure to load message stores, please check load logger and fix first!");
@@ -631,11 +692,21 @@ public class MessageStoreManager implements StoreService {
      * Load stores in parallel.
      *
      * @param tasks                    the load tasks
+     * @param threadCnt                the count of load threads
      * @throws InterruptedException    the exception during processing
      */
-    private void loadStoresInParallel(List<Callable<MessageStore>> tasks) throws InterruptedException {
-        ExecutorService executor =
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() + 1);
+    private void loadStoresInParallel(List<Callable<MessageStore>> tasks,
+                                      int threadCnt) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCnt,
+                new ThreadFactory() {
+                    private final AtomicInteger threadIndex = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r,
+                                "Broker Store Load Thread-" + threadIndex.getAndIncrement());
+                    }
+                });
         CompletionService<MessageStore> completionService =
                 new ExecutorCompletionService<>(executor);
         for (Callable<MessageStore> task : tasks) {
@@ -706,6 +777,28 @@ public class MessageStoreManager implements StoreService {
         }
     }
 
+    private SegmentArchiveStore createSegmentArchiveStore(
+            final BrokerConfig tubeConfig) throws IOException {
+        if (!tubeConfig.isEnableSegmentArchive()) {
+            return null;
+        }
+        SegmentArchiveStore archiveStore;
+        try {
+            archiveStore = (SegmentArchiveStore) Class.forName(
+                    tubeConfig.getSegmentArchiveStoreClass()).newInstance();
+        } catch (Throwable e) {
+            throw new IOException(new StringBuilder(512)
+                    .append("Create segment archive store ")
+                    .append(tubeConfig.getSegmentArchiveStoreClass())
+                    .append(" failure").toString(), e);
+        }
+        archiveStore.open(tubeConfig);
+        logger.info(new StringBuilder(512)
+                .append("[Store Manager] Segment archive enabled, archive store is ")
+                .append(tubeConfig.getSegmentArchiveStoreClass()).toString());
+        return archiveStore;
+    }
+
     private class LogClearRunner implements Runnable {
 
         public LogClearRunner() {
@@ -780,64 +873,4 @@ public class MessageStoreManager implements StoreService {
         }
     }
 
-    private class DiskUnFlushRunner implements Runnable {
-
-        public DiskUnFlushRunner() {
-            //
-        }
-
-        @Override
-        public void run() {
-            StringBuilder sBuilder = new StringBuilder(256);
-            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
-                if (storeMap == null || storeMap.isEmpty()) {
-                    continue;
-                }
-                for (MessageStore msgStore : storeMap.values()) {
-                    if (msgStore == null) {
-                        continue;
-                    }
-                    try {
-                        msgStore.flushFile();
-                    } catch (final Throwable e) {
-                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
-                                .append(msgStore.getStoreKey())
-                                .append("'s file-store failed : ").toString(), e);
-                        sBuilder.delete(0, sBuilder.length());
-                    }
-                }
-            }
-        }
-    }
-
-    private class MemUnFlushRunner implements Runnable {
-
-        public MemUnFlushRunner() {
-            //
-        }
-
-        @Override
-        public void run() {
-            StringBuilder sBuilder = new StringBuilder(256);
-            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
-                if (storeMap == null || storeMap.isEmpty()) {
-                    continue;
-                }
-                for (MessageStore msgStore : storeMap.values()) {
-                    if (msgStore == null) {
-                        continue;
-                    }
-                    try {
-                        msgStore.flushMemCacheData();
-                    } catch (final Throwable e) {
-                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
-                                .append(msgStore.getStoreKey())
-                                .append("'s mem-store failed : ").toString(), e);
-                        sBuilder.delete(0, sBuilder.length());
-                    }
-                }
-            }
-        }
-    }
-
 }
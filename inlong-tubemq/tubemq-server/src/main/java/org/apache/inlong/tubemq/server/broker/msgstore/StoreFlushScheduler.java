@@ -0,0 +1,250 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flush scheduler of the message stores.
+ *
+ * The stores are sharded by the hash of their store directory across a pool of flush
+ * threads, so that a huge store only delays the flushes of the stores in the same shard.
+ * The sharding is not aware of the disks: all the stores are under the broker's
+ * primaryPath, so the stores on a slow disk are spread over the shards and still delay
+ * the other stores of their shards. Each store is always flushed by the same shard
+ * thread. Besides the periodic flush
+ * bounded by the topic's unflushInterval and unflushDataHold, the appending threads can
+ * request a flush, the requests arrived before the shard thread runs are coalesced into
+ * one flush of each store, namely a group commit.
+ */
+public class StoreFlushScheduler {
+    private static final Logger logger =
+            LoggerFactory.getLogger(StoreFlushScheduler.class);
+    private final BrokerConfig tubeConfig;
+    // the message stores to flush, topic to storeId to store
+    private final Map<String, ConcurrentHashMap<Integer, MessageStore>> dataStores;
+    private final int shardCnt;
+    // file store flush threads, one for each shard
+    private final ScheduledExecutorService[] diskFlushExecutors;
+    // memory cache flush threads, one for each shard
+    private final ScheduledExecutorService[] memFlushExecutors;
+    // the stores requested flush and not flushed yet of each shard
+    private final List<Set<MessageStore>> pendingStores = new ArrayList<>();
+    // whether a group commit has been scheduled of each shard
+    private final AtomicBoolean[] groupFlushScheduled;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public StoreFlushScheduler(final BrokerConfig tubeConfig,
+                               final Map<String, ConcurrentHashMap<Integer, MessageStore>> dataStores) {
+        this.tubeConfig = tubeConfig;
+        this.dataStores = dataStores;
+        this.shardCnt = tubeConfig.getLogFlushThreadCnt();
+        this.diskFlushExecutors = new ScheduledExecutorService[this.shardCnt];
+        this.memFlushExecutors = new ScheduledExecutorService[this.shardCnt];
+        this.groupFlushScheduled = new AtomicBoolean[this.shardCnt];
+        for (int i = 0; i < this.shardCnt; i++) {
+            this.diskFlushExecutors[i] =
+                    Executors.newSingleThreadScheduledExecutor(
+                            new NamedThreadFactory("Broker Log Disk Flush Thread-" + i));
+            this.memFlushExecutors[i] =
+                    Executors.newSingleThreadScheduledExecutor(
+                            new NamedThreadFactory("Broker Log Mem Flush Thread-" + i));
+            this.pendingStores.add(ConcurrentHashMap.<MessageStore>newKeySet());
+            this.groupFlushScheduled[i] = new AtomicBoolean(false);
+        }
+    }
+
+    public void start() {
+        for (int i = 0; i < this.shardCnt; i++) {
+            this.diskFlushExecutors[i].scheduleWithFixedDelay(new DiskFlushRunner(i),
+                    tubeConfig.getLogFlushDiskDurMs(),
+                    tubeConfig.getLogFlushDiskDurMs(),
+                    TimeUnit.MILLISECONDS);
+            this.memFlushExecutors[i].scheduleWithFixedDelay(new MemFlushRunner(i),
+                    tubeConfig.getLogFlushMemDurMs(),
+                    tubeConfig.getLogFlushMemDurMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void close() {
+        if (this.stopped.compareAndSet(false, true)) {
+            for (int i = 0; i < this.shardCnt; i++) {
+                this.diskFlushExecutors[i].shutdownNow();
+                this.memFlushExecutors[i].shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Request a flush of the store's file data, the requests of a store
+     * before the flush runs are merged into one flush.
+     *
+     * @param msgStore   the store to flush
+     */
+    public void requestFlush(MessageStore msgStore) {
+        if (this.stopped.get()) {
+            return;
+        }
+        final int shardIndex = getShardIndex(msgStore);
+        this.pendingStores.get(shardIndex).add(msgStore);
+        if (this.groupFlushScheduled[shardIndex].compareAndSet(false, true)) {
+            try {
+                this.diskFlushExecutors[shardIndex].execute(new GroupFlushRunner(shardIndex));
+            } catch (Throwable e) {
+                this.groupFlushScheduled[shardIndex].set(false);
+            }
+        }
+    }
+
+    /**
+     * Get the shard of the store, decided by the hash of the store's directory.
+     *
+     * @param msgStore   the message store
+     * @return           the shard index
+     */
+    public int getShardIndex(MessageStore msgStore) {
+        String storeDir = msgStore.getPrimStorePath()
+                + File.separator + msgStore.getStoreKey();
+        return Math.abs(storeDir.hashCode() % this.shardCnt);
+    }
+
+    public int getShardCnt() {
+        return shardCnt;
+    }
+
+    private void flushFileStore(MessageStore msgStore,
+                                boolean byRequest, StringBuilder sBuilder) {
+        try {
+            long startTime = System.currentTimeMillis();
+            if (msgStore.flushFile(byRequest)) {
+                BrokerSrvStatsHolder.updDiskFlushDlt(System.currentTimeMillis() - startTime);
+            }
+        } catch (final Throwable e) {
+            logger.error(sBuilder.append("[Store Manager] Try to flush ")
+                    .append(msgStore.getStoreKey())
+                    .append("'s file-store failed : ").toString(), e);
+            sBuilder.delete(0, sBuilder.length());
+        }
+    }
+
+    private class GroupFlushRunner implements Runnable {
+        private final int shardIndex;
+
+        public GroupFlushRunner(int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
+
+        @Override
+        public void run() {
+            // reset the flag first, so that the requests arrived during
+            // the flush will schedule the next group commit
+            groupFlushScheduled[shardIndex].set(false);
+            StringBuilder sBuilder = new StringBuilder(256);
+            Iterator<MessageStore> iterator = pendingStores.get(shardIndex).iterator();
+            while (iterator.hasNext()) {
+                MessageStore msgStore = iterator.next();
+                iterator.remove();
+                flushFileStore(msgStore, true, sBuilder);
+            }
+        }
+    }
+
+    private class DiskFlushRunner implements Runnable {
+        private final int shardIndex;
+
+        public DiskFlushRunner(int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
+
+        @Override
+        public void run() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
+                if (storeMap == null || storeMap.isEmpty()) {
+                    continue;
+                }
+                for (MessageStore msgStore : storeMap.values()) {
+                    if (msgStore == null || getShardIndex(msgStore) != shardIndex) {
+                        continue;
+                    }
+                    flushFileStore(msgStore, false, sBuilder);
+                }
+            }
+        }
+    }
+
+    private class MemFlushRunner implements Runnable {
+        private final int shardIndex;
+
+        public MemFlushRunner(int shardIndex) {
+            this.shardIndex = shardIndex;
+        }
+
+        @Override
+        public void run() {
+            StringBuilder sBuilder = new StringBuilder(256);
+            for (Map<Integer, MessageStore> storeMap : dataStores.values()) {
+                if (storeMap == null || storeMap.isEmpty()) {
+                    continue;
+                }
+                for (MessageStore msgStore : storeMap.values()) {
+                    if (msgStore == null || getShardIndex(msgStore) != shardIndex) {
+                        continue;
+                    }
+                    try {
+                        msgStore.flushMemCacheData();
+                    } catch (final Throwable e) {
+                        logger.error(sBuilder.append("[Store Manager] Try to flush ")
+                                .append(msgStore.getStoreKey())
+                                .append("'s mem-store failed : ").toString(), e);
+                        sBuilder.delete(0, sBuilder.length());
+                    }
+                }
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String threadName;
+
+        public NamedThreadFactory(String threadName) {
+            this.threadName = threadName;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, threadName);
+        }
+    }
+}
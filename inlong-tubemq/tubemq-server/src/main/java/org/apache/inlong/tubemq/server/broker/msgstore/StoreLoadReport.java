@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timing report of loading the message stores on broker startup.
+ *
+ * The stores are loaded in parallel, so the time of each phase is accumulated
+ * over all stores, together with the max time a single store spent in the phase.
+ */
+public class StoreLoadReport {
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicLong scanFinishTime = new AtomicLong(0);
+    private final AtomicInteger storeCnt = new AtomicInteger(0);
+    private final AtomicInteger failedCnt = new AtomicInteger(0);
+    private final LongAdder[] phaseTotalMs = new LongAdder[Phase.values().length];
+    private final AtomicLong[] phaseMaxMs = new AtomicLong[Phase.values().length];
+    // the store spent the longest time to load
+    private String slowestStore = "";
+    private long slowestStoreMs = 0;
+
+    public StoreLoadReport() {
+        for (int i = 0; i < Phase.values().length; i++) {
+            phaseTotalMs[i] = new LongAdder();
+            phaseMaxMs[i] = new AtomicLong(0);
+        }
+    }
+
+    /**
+     * Mark the end of scanning the store directories.
+     */
+    public void markScanFinished() {
+        scanFinishTime.set(System.currentTimeMillis());
+    }
+
+    public void addPhaseTime(Phase phase, long dltMs) {
+        phaseTotalMs[phase.ordinal()].add(dltMs);
+        AtomicLong maxMs = phaseMaxMs[phase.ordinal()];
+        long curMax = maxMs.get();
+        while (dltMs > curMax && !maxMs.compareAndSet(curMax, dltMs)) {
+            curMax = maxMs.get();
+        }
+    }
+
+    public synchronized void addStoreTime(String storeKey, long dltMs, boolean success) {
+        storeCnt.incrementAndGet();
+        if (!success) {
+            failedCnt.incrementAndGet();
+        }
+        if (dltMs > slowestStoreMs) {
+            slowestStoreMs = dltMs;
+            slowestStore = storeKey;
+        }
+    }
+
+    public long getPhaseTotalMs(Phase phase) {
+        return phaseTotalMs[phase.ordinal()].sum();
+    }
+
+    public long getPhaseMaxMs(Phase phase) {
+        return phaseMaxMs[phase.ordinal()].get();
+    }
+
+    public int getStoreCnt() {
+        return storeCnt.get();
+    }
+
+    public int getFailedCnt() {
+        return failedCnt.get();
+    }
+
+    /**
+     * Build the report content.
+     *
+     * @param sBuilder    the string buffer
+     * @param threadCnt   the count of the load threads
+     * @return            the string buffer with the report appended
+     */
+    public synchronized StringBuilder buildReport(StringBuilder sBuilder, int threadCnt) {
+        long curTime = System.currentTimeMillis();
+        long scanEndTime = scanFinishTime.get() == 0 ? curTime : scanFinishTime.get();
+        sBuilder.append("[Store Manager] Store load report: stores=").append(storeCnt.get())
+                .append(", failed=").append(failedCnt.get())
+                .append(", threads=").append(threadCnt)
+                .append(", scan=").append(scanEndTime - startTime).append("ms")
+                .append(", load=").append(curTime - scanEndTime).append("ms");
+        for (Phase phase : Phase.values()) {
+            sBuilder.append(", ").append(phase.getName()).append("(total/max)=")
+                    .append(getPhaseTotalMs(phase)).append("/")
+                    .append(getPhaseMaxMs(phase)).append("ms");
+        }
+        return sBuilder.append(", slowest=").append(slowestStore)
+                .append("(").append(slowestStoreMs).append("ms)");
+    }
+
+    public enum Phase {
+        // open the data segments and recover the tail data segment
+        DATA_LOAD("data_load"),
+        // open the index segments, recover the tail and its side indexes
+        INDEX_LOAD("index_load"),
+        // list the archived segments
+        ARCHIVE_LOAD("archive_load"),
+        // allocate the memory caches
+        MEM_INIT("mem_init");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
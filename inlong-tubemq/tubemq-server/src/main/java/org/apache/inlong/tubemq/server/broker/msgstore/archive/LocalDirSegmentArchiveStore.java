@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+
+/**
+ * Segment archive store kept in a local directory, such as a mounted network
+ * file system. The object key is mapped to the relative path under the root directory.
+ */
+public class LocalDirSegmentArchiveStore implements SegmentArchiveStore {
+    private File rootDir;
+
+    public LocalDirSegmentArchiveStore() {
+
+    }
+
+    public LocalDirSegmentArchiveStore(File rootDir) {
+        this.rootDir = rootDir;
+        FileUtil.checkDir(this.rootDir);
+    }
+
+    @Override
+    public void open(BrokerConfig tubeConfig) throws IOException {
+        String archivePath = tubeConfig.getSegmentArchivePath();
+        if (TStringUtils.isBlank(archivePath)) {
+            throw new IOException("Require segmentArchivePath not Blank!");
+        }
+        this.rootDir = new File(archivePath);
+        FileUtil.checkDir(this.rootDir);
+    }
+
+    @Override
+    public void upload(String key, File file) throws IOException {
+        File objFile = getObjectFile(key);
+        FileUtil.checkDir(objFile.getParentFile());
+        // copy to a temporary file first, so that a partial object is never visible
+        File tmpFile = new File(objFile.getAbsolutePath() + ".tmp");
+        Files.copy(file.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpFile.toPath(), objFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean download(String key, File targetFile) throws IOException {
+        File objFile = getObjectFile(key);
+        if (!objFile.isFile()) {
+            return false;
+        }
+        File tmpFile = new File(targetFile.getAbsolutePath() + ".tmp");
+        Files.copy(objFile.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmpFile.toPath(), targetFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    @Override
+    public Map<String, Long> list(String keyPrefix) throws IOException {
+        Map<String, Long> result = new HashMap<>();
+        File[] files = getObjectFile(keyPrefix).listFiles();
+        if (files == null) {
+            return result;
+        }
+        for (File file : files) {
+            if (file.isFile() && !file.getName().endsWith(".tmp")) {
+                result.put(keyPrefix + "/" + file.getName(), file.length());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(getObjectFile(key).toPath());
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    private File getObjectFile(String key) throws IOException {
+        if (this.rootDir == null) {
+            throw new IOException("Segment archive store is not opened!");
+        }
+        return new File(this.rootDir, key.replace('/', File.separatorChar));
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+
+/**
+ * Archive store of the expired segment files, such as an object store.
+ *
+ * The segment files are stored as objects keyed by "storeKey/segType/fileName",
+ * the implementation is created by reflection from the broker configure,
+ * so it must have a public no-argument constructor.
+ */
+public interface SegmentArchiveStore {
+
+    /**
+     * Initial the archive store.
+     *
+     * @param tubeConfig     the broker configure
+     * @throws IOException   the exception during initializing
+     */
+    void open(BrokerConfig tubeConfig) throws IOException;
+
+    /**
+     * Upload the segment file, replace the object if it already exists.
+     *
+     * @param key            the object key
+     * @param file           the segment file
+     * @throws IOException   the exception during uploading
+     */
+    void upload(String key, File file) throws IOException;
+
+    /**
+     * Download the object to the target file.
+     *
+     * @param key            the object key
+     * @param targetFile     the file to store the object content
+     * @return               whether the object exists
+     * @throws IOException   the exception during downloading
+     */
+    boolean download(String key, File targetFile) throws IOException;
+
+    /**
+     * List the objects under the key prefix.
+     *
+     * @param keyPrefix      the key prefix, such as "storeKey/segType"
+     * @return               the object keys and their sizes
+     * @throws IOException   the exception during listing
+     */
+    Map<String, Long> list(String keyPrefix) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    void close();
+}
@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.SegmentArchiveStore;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The segments of a segment list that have been archived to the segment archive store.
+ *
+ * Only the start offset and size of each archived segment are kept in memory, the segment
+ * content is downloaded into the local cache directory on read, and the least recently
+ * read cached segments are released when the cached count exceeds the max cache count.
+ */
+public class ArchivedSegmentList {
+    private static final Logger logger =
+            LoggerFactory.getLogger(ArchivedSegmentList.class);
+    private final SegmentArchiveStore archiveStore;
+    private final SegmentType segType;
+    // the object key prefix of the archived segments, storeKey/segType
+    private final String keyPrefix;
+    private final String fileSuffix;
+    // the local directory to cache the downloaded segments
+    private final File cacheDir;
+    private final int maxCacheCnt;
+    // the archived segments ordered by start offset
+    private final AtomicReference<ArchivedEntry[]> entries =
+            new AtomicReference<>(new ArchivedEntry[0]);
+    // the downloaded segments in access order, start offset to segment
+    private final LinkedHashMap<Long, Segment> cachedSegs =
+            new LinkedHashMap<>(16, 0.75f, true);
+    // the segments being downloaded, start offset to the download result,
+    // guarded by cachedSegs
+    private final Map<Long, CompletableFuture<Boolean>> downloadingSegs =
+            new HashMap<>();
+    // the sequence of downloads, keeps the cache file of a re-downloaded segment
+    // apart from the evicted one still being read
+    private final AtomicLong downloadSeq = new AtomicLong(0);
+
+    public ArchivedSegmentList(SegmentArchiveStore archiveStore, SegmentType segType,
+                               String keyPrefix, File cacheDir,
+                               int maxCacheCnt) throws IOException {
+        this.archiveStore = archiveStore;
+        this.segType = segType;
+        this.keyPrefix = keyPrefix;
+        this.fileSuffix = (segType == SegmentType.DATA)
+                ? DataStoreUtils.DATA_FILE_SUFFIX : DataStoreUtils.INDEX_FILE_SUFFIX;
+        this.cacheDir = cacheDir;
+        this.maxCacheCnt = maxCacheCnt;
+        // the cached segments left by the last run are stale
+        FileUtil.checkDir(this.cacheDir);
+        FileUtil.fullyDeleteContents(this.cacheDir);
+    }
+
+    /**
+     * Load the archived segments from the archive store.
+     *
+     * @param localMinOffset   the min offset of the local segments, only the archived
+     *                         segments before it are loaded
+     * @throws IOException     the exception during listing
+     */
+    public void load(long localMinOffset) throws IOException {
+        List<ArchivedEntry> accum = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : archiveStore.list(keyPrefix).entrySet()) {
+            String fileName = entry.getKey().substring(entry.getKey().lastIndexOf('/') + 1);
+            if (!fileName.endsWith(fileSuffix)) {
+                continue;
+            }
+            long start;
+            try {
+                start = Long.parseLong(
+                        fileName.substring(0, fileName.length() - fileSuffix.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (start < localMinOffset && entry.getValue() > 0) {
+                accum.add(new ArchivedEntry(start, entry.getValue(), entry.getKey()));
+            }
+        }
+        ArchivedEntry[] loaded = accum.toArray(new ArchivedEntry[0]);
+        Arrays.sort(loaded);
+        entries.set(loaded);
+    }
+
+    /**
+     * Upload the segment to the archive store.
+     *
+     * @param segment          the segment to archive
+     * @throws IOException     the exception during uploading
+     */
+    public void archive(Segment segment) throws IOException {
+        String key = keyPrefix + "/" + segment.getFile().getName();
+        archiveStore.upload(key, segment.getFile());
+        ArchivedEntry newEntry =
+                new ArchivedEntry(segment.getStart(), segment.getCachedSize(), key);
+        while (true) {
+            final ArchivedEntry[] curr = entries.get();
+            final ArchivedEntry[] update = Arrays.copyOf(curr, curr.length + 1);
+            update[curr.length] = newEntry;
+            Arrays.sort(update);
+            if (entries.compareAndSet(curr, update)) {
+                return;
+            }
+        }
+    }
+
+    public boolean isArchived(long start) {
+        for (ArchivedEntry entry : entries.get()) {
+            if (entry.start == start) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(long offset) {
+        return findEntry(offset) != null;
+    }
+
+    public boolean isEmpty() {
+        return entries.get().length == 0;
+    }
+
+    /**
+     * Return the min offset of the archived segments.
+     *
+     * @return   the min offset, -1 if no segment is archived
+     */
+    public long getMinOffset() {
+        final ArchivedEntry[] curr = entries.get();
+        return curr.length == 0 ? -1L : curr[0].start;
+    }
+
+    /**
+     * Return the archived segment by the given offset, download it if not cached.
+     * The returned segment's view is referenced and must be released by relViewRef() after use.
+     * The download runs outside the cache lock, the concurrent readers of the same segment
+     * wait for the one download in flight, and the readers of the cached segments are not
+     * blocked by it.
+     *
+     * @param offset         the position to search
+     * @return               the segment included the position, null if not archived
+     * @throws IOException   the exception during downloading
+     */
+    public Segment getRecordSeg(long offset) throws IOException {
+        ArchivedEntry entry = findEntry(offset);
+        if (entry == null) {
+            return null;
+        }
+        while (true) {
+            CompletableFuture<Boolean> download;
+            boolean isDownloader = false;
+            synchronized (cachedSegs) {
+                Segment segment = cachedSegs.get(entry.start);
+                if (segment != null) {
+                    segment.addViewRef();
+                    return segment;
+                }
+                download = downloadingSegs.get(entry.start);
+                if (download == null) {
+                    download = new CompletableFuture<>();
+                    downloadingSegs.put(entry.start, download);
+                    isDownloader = true;
+                }
+            }
+            if (isDownloader) {
+                return downloadSegment(entry, download);
+            }
+            if (!waitDownload(download)) {
+                return null;
+            }
+            // the downloaded segment is cached now, unless evicted at once
+        }
+    }
+
+    private Segment downloadSegment(ArchivedEntry entry,
+                                    CompletableFuture<Boolean> download) throws IOException {
+        Segment segment = null;
+        try {
+            File cacheFile = new File(cacheDir,
+                    DataStoreUtils.nameFromOffset(entry.start, fileSuffix)
+                            + "." + downloadSeq.incrementAndGet());
+            if (archiveStore.download(entry.key, cacheFile)) {
+                segment = new FileSegment(entry.start, cacheFile, false, segType);
+            } else {
+                // the object has been removed by the archive store's retention
+                logger.warn(new StringBuilder(512)
+                        .append("[File Store] Archived segment ").append(entry.key)
+                        .append(" not found, remove it from archived list").toString());
+                remove(entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (cachedSegs) {
+                downloadingSegs.remove(entry.start);
+            }
+            download.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (cachedSegs) {
+            downloadingSegs.remove(entry.start);
+            if (segment != null) {
+                segment.addViewRef();
+                cachedSegs.put(entry.start, segment);
+                evictCachedSegments();
+            }
+        }
+        download.complete(segment != null);
+        return segment;
+    }
+
+    private boolean waitDownload(CompletableFuture<Boolean> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting the segment download");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    public void close() {
+        synchronized (cachedSegs) {
+            for (Segment segment : cachedSegs.values()) {
+                segment.deleteFile();
+            }
+            cachedSegs.clear();
+        }
+    }
+
+    private void evictCachedSegments() {
+        Iterator<Segment> iterator = cachedSegs.values().iterator();
+        while (cachedSegs.size() > maxCacheCnt && iterator.hasNext()) {
+            Segment segment = iterator.next();
+            iterator.remove();
+            // deleted after the readers release the segment
+            segment.deleteFile();
+        }
+    }
+
+    private void remove(ArchivedEntry entry) {
+        while (true) {
+            final ArchivedEntry[] curr = entries.get();
+            final List<ArchivedEntry> update = new ArrayList<>(Arrays.asList(curr));
+            if (!update.remove(entry)) {
+                return;
+            }
+            if (entries.compareAndSet(curr, update.toArray(new ArchivedEntry[0]))) {
+                return;
+            }
+        }
+    }
+
+    private ArchivedEntry findEntry(long offset) {
+        final ArchivedEntry[] curr = entries.get();
+        int low = 0;
+        int high = curr.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (offset < curr[mid].start) {
+                high = mid - 1;
+            } else if (offset >= curr[mid].start + curr[mid].size) {
+                low = mid + 1;
+            } else {
+                return curr[mid];
+            }
+        }
+        return null;
+    }
+
+    private static class ArchivedEntry implements Comparable<ArchivedEntry> {
+        private final long start;
+        private final long size;
+        private final String key;
+
+        ArchivedEntry(long start, long size, String key) {
+            this.start = start;
+            this.size = size;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(ArchivedEntry other) {
+            return Long.compare(this.start, other.start);
+        }
+    }
+}
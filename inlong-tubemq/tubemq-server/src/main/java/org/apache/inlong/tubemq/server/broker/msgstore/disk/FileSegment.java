@@ -20,9 +20,12 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.utils.CheckSum;
@@ -31,6 +34,7 @@ import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import sun.nio.ch.DirectBuffer;
 
 /**
  * Segment file. Topic contains multi FileSegments. Each FileSegment contains data file and index file.
@@ -50,6 +54,23 @@ public class FileSegment implements Segment {
     private long expiredTime = 0;
     private final AtomicBoolean expired = new AtomicBoolean(false);
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    // the count of views referenced by readers
+    private final AtomicInteger viewRefCnt = new AtomicInteger(0);
+    // whether the file deletion is waiting for the views to be released
+    private final AtomicBoolean delPending = new AtomicBoolean(false);
+    private final AtomicBoolean deleted = new AtomicBoolean(false);
+    // the read-only mapped region of immutable segment, created on first mapped read
+    private volatile MappedByteBuffer mappedBuffer = null;
+    // whether to maintain the per-partition index of the index segment
+    private final boolean enablePartIndex;
+    // the partition index of mutable segment, updated on every append
+    private volatile PartitionIndex partIndex = null;
+    // the partition index of immutable segment, loaded on demand
+    private volatile SoftReference<PartitionIndex> partIndexRef = null;
+    // whether to maintain the sparse time index of the index segment
+    private final boolean enableTimeIndex;
+    // the sparse time index, kept in memory since it is small
+    private volatile TimeIndex timeIndex = null;
     // the first record append time
     private final AtomicLong leftAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
@@ -68,13 +89,33 @@ public class FileSegment implements Segment {
 
     public FileSegment(long start, File file,
                        SegmentType type, long checkOffset) throws IOException {
-        this(start, file, true, type, checkOffset);
+        this(start, file, true, type, checkOffset, false, false);
     }
 
     private FileSegment(long start, File file, boolean mutable,
                         SegmentType type, long checkOffset) throws IOException {
+        this(start, file, mutable, type, checkOffset, false, false);
+    }
+
+    /**
+     * Create FileSegment
+     *
+     * @param start             the start offset of segment
+     * @param file              the segment file
+     * @param mutable           whether the segment is writable
+     * @param type              the segment type
+     * @param checkOffset       the offset to check the content, Long.MAX_VALUE if check all
+     * @param enablePartIndex   whether to maintain the per-partition index, only for INDEX segment
+     * @param enableTimeIndex   whether to maintain the sparse time index, only for INDEX segment
+     * @throws IOException      the exception while recovering the segment
+     */
+    public FileSegment(long start, File file, boolean mutable, SegmentType type,
+                       long checkOffset, boolean enablePartIndex,
+                       boolean enableTimeIndex) throws IOException {
         super();
         this.segmentType = type;
+        this.enablePartIndex = enablePartIndex && (type == SegmentType.INDEX);
+        this.enableTimeIndex = enableTimeIndex && (type == SegmentType.INDEX);
         this.start = start;
         this.file = file;
         this.mutable = mutable;
@@ -141,12 +182,23 @@ public class FileSegment implements Segment {
                 this.rightAppendTime.set(getRecordTime(this.start
                         + this.cachedSize.get() - DataStoreUtils.STORE_INDEX_HEAD_LEN));
             }
+            if (this.enablePartIndex && this.mutable) {
+                this.partIndex = PartitionIndex.buildFrom(this.channel, this.cachedSize.get());
+            }
+            if (this.enableTimeIndex && this.mutable) {
+                this.timeIndex = TimeIndex.buildFrom(this.channel,
+                        this.cachedSize.get(), DataStoreUtils.TIME_INDEX_SAMPLE_INTERVAL);
+            }
         }
     }
 
     @Override
     public void close() {
         if (this.closed.compareAndSet(false, true)) {
+            // the mapped region is released by the last reader if still referenced
+            if (this.viewRefCnt.get() <= 0) {
+                releaseMappedBuffer();
+            }
             try {
                 if (this.channel.isOpen()) {
                     if (this.mutable) {
@@ -167,35 +219,17 @@ public class FileSegment implements Segment {
         }
     }
 
+    /**
+     * Delete the segment file.
+     * If readers still reference the segment's view, the deletion is
+     * deferred until the last reference is released.
+     */
     @Override
     public void deleteFile() {
         this.closed.set(true);
-        try {
-            if (this.channel.isOpen()) {
-                if (this.mutable) {
-                    flush(true);
-                }
-                this.channel.close();
-            }
-            this.randFile.close();
-        } catch (Throwable e1) {
-            if (e1 instanceof IOException) {
-                ServiceStatusHolder.addReadIOErrCnt();
-                BrokerSrvStatsHolder.incDiskIOExcCnt();
-            }
-            logger.error("[File Store] failure to close channel ", e1);
-        }
-        try {
-            logger.info(new StringBuilder(512)
-                    .append("[File Store] delete file ")
-                    .append(file.getAbsoluteFile()).toString());
-            this.file.delete();
-        } catch (Throwable ee) {
-            if (ee instanceof IOException) {
-                ServiceStatusHolder.addReadIOErrCnt();
-                BrokerSrvStatsHolder.incDiskIOExcCnt();
-            }
-            logger.error("[File Store] failure to delete file ", ee);
+        this.delPending.set(true);
+        if (this.viewRefCnt.get() <= 0) {
+            deleteSegFile();
         }
     }
 
@@ -223,10 +257,19 @@ public class FileSegment implements Segment {
             throw new UnsupportedOperationException("[File Store] Segment is closed!");
         }
         final long offset = this.cachedSize.get();
+        final int bufStartPos = buf.position();
         int sizeInBytes = 0;
         while (buf.hasRemaining()) {
             sizeInBytes += this.channel.write(buf);
         }
+        PartitionIndex curPartIndex = this.partIndex;
+        if (curPartIndex != null) {
+            curPartIndex.addRecords(buf, bufStartPos, sizeInBytes);
+        }
+        TimeIndex curTimeIndex = this.timeIndex;
+        if (curTimeIndex != null) {
+            curTimeIndex.addRecords(buf, bufStartPos, sizeInBytes);
+        }
         this.cachedSize.addAndGet(sizeInBytes);
         if (segmentType == SegmentType.INDEX) {
             this.rightAppendTime.set(rightTime);
@@ -276,13 +319,24 @@ public class FileSegment implements Segment {
                 && offset <= this.start + this.getCachedSize() - 1);
     }
 
+    @Override
+    public void addViewRef() {
+        this.viewRefCnt.incrementAndGet();
+    }
+
     /**
      * Release reference to this FileSegment.
      * File's channel will be closed when the reference decreased to 0.
      */
     @Override
     public void relViewRef() {
-
+        if (this.viewRefCnt.decrementAndGet() <= 0) {
+            if (this.delPending.get()) {
+                deleteSegFile();
+            } else if (this.closed.get()) {
+                releaseMappedBuffer();
+            }
+        }
     }
 
     @Override
@@ -312,12 +366,103 @@ public class FileSegment implements Segment {
 
     /**
      * Set FileSegment to readonly.
+     * The partition and time indexes of the segment are persisted when it becomes immutable.
      *
      * @param mutable mutable or immutable
      */
     @Override
     public void setMutable(boolean mutable) {
         this.mutable = mutable;
+        PartitionIndex curPartIndex = this.partIndex;
+        if (!mutable && curPartIndex != null) {
+            writeSideIndex(curPartIndex,
+                    getSideIndexFile(DataStoreUtils.PART_INDEX_FILE_SUFFIX));
+            this.partIndexRef = new SoftReference<>(curPartIndex);
+            this.partIndex = null;
+        }
+        TimeIndex curTimeIndex = this.timeIndex;
+        if (!mutable && curTimeIndex != null) {
+            writeSideIndex(curTimeIndex,
+                    getSideIndexFile(DataStoreUtils.TIME_INDEX_FILE_SUFFIX));
+        }
+    }
+
+    /**
+     * Get the per-partition index of the index segment.
+     * The partition index of immutable segment is loaded from its persisted file,
+     * or rebuilt by scanning the segment if the file is missing or invalid.
+     *
+     * @return               the partition index, or null if not enabled
+     * @throws IOException   the exception while building the partition index
+     */
+    @Override
+    public PartitionIndex getPartitionIndex() throws IOException {
+        if (!this.enablePartIndex || this.closed.get()) {
+            return null;
+        }
+        PartitionIndex curPartIndex = this.partIndex;
+        if (curPartIndex != null) {
+            return curPartIndex;
+        }
+        SoftReference<PartitionIndex> curRef = this.partIndexRef;
+        if (curRef != null && (curPartIndex = curRef.get()) != null) {
+            return curPartIndex;
+        }
+        if (this.mutable) {
+            return null;
+        }
+        synchronized (this) {
+            curRef = this.partIndexRef;
+            if (curRef != null && (curPartIndex = curRef.get()) != null) {
+                return curPartIndex;
+            }
+            long indexSize = this.cachedSize.get();
+            File partIndexFile = getSideIndexFile(DataStoreUtils.PART_INDEX_FILE_SUFFIX);
+            curPartIndex = PartitionIndex.readFrom(partIndexFile,
+                    (int) (indexSize / DataStoreUtils.STORE_INDEX_HEAD_LEN));
+            if (curPartIndex == null) {
+                curPartIndex = PartitionIndex.buildFrom(this.channel, indexSize);
+                writeSideIndex(curPartIndex, partIndexFile);
+            }
+            this.partIndexRef = new SoftReference<>(curPartIndex);
+            return curPartIndex;
+        }
+    }
+
+    /**
+     * Get the sparse time index of the index segment.
+     * The time index of immutable segment is loaded from its persisted file,
+     * or rebuilt by scanning the segment if the file is missing or invalid.
+     *
+     * @return               the time index, or null if not enabled
+     * @throws IOException   the exception while building the time index
+     */
+    @Override
+    public TimeIndex getTimeIndex() throws IOException {
+        if (!this.enableTimeIndex || this.closed.get()) {
+            return null;
+        }
+        TimeIndex curTimeIndex = this.timeIndex;
+        if (curTimeIndex != null || this.mutable) {
+            return curTimeIndex;
+        }
+        synchronized (this) {
+            if (this.timeIndex != null) {
+                return this.timeIndex;
+            }
+            long indexSize = this.cachedSize.get();
+            File timeIndexFile = getSideIndexFile(DataStoreUtils.TIME_INDEX_FILE_SUFFIX);
+            curTimeIndex = TimeIndex.readFrom(timeIndexFile,
+                    DataStoreUtils.TIME_INDEX_SAMPLE_INTERVAL,
+                    (int) (indexSize / DataStoreUtils.STORE_INDEX_HEAD_LEN));
+            if (curTimeIndex == null) {
+                curTimeIndex = TimeIndex.buildFrom(this.channel,
+                        indexSize, DataStoreUtils.TIME_INDEX_SAMPLE_INTERVAL);
+                writeSideIndex(curTimeIndex, timeIndexFile);
+            }
+            this.timeIndex = curTimeIndex;
+            return curTimeIndex;
+        }
     }
 
     @Override
@@ -390,6 +535,46 @@ public class FileSegment implements Segment {
         }
     }
 
+    /**
+     * Get a read-only view of the mapped region, only immutable segments
+     * can be mapped since their content and size will not change any more.
+     *
+     * @param absOffset   absolute read position
+     * @param size        the region size
+     * @return            the mapped region, or null if the segment cannot be mapped
+     */
+    @Override
+    public ByteBuffer mappedRead(long absOffset, int size) throws IOException {
+        if (this.mutable || this.closed.get()) {
+            return null;
+        }
+        MappedByteBuffer curMapped = this.mappedBuffer;
+        if (curMapped == null) {
+            synchronized (this) {
+                if (this.closed.get()) {
+                    return null;
+                }
+                curMapped = this.mappedBuffer;
+                if (curMapped == null) {
+                    long fileSize = this.channel.size();
+                    if (fileSize > Integer.MAX_VALUE) {
+                        return null;
+                    }
+                    curMapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+                    this.mappedBuffer = curMapped;
+                }
+            }
+        }
+        long relPos = absOffset - this.start;
+        if (relPos < 0 || relPos + size > curMapped.capacity()) {
+            return null;
+        }
+        ByteBuffer readView = curMapped.duplicate();
+        readView.position((int) relPos);
+        readView.limit((int) relPos + size);
+        return readView.slice();
+    }
+
     /**
      * read index record's append time.
      * @param reqOffset request offset.
@@ -437,6 +622,77 @@ public class FileSegment implements Segment {
         return 0;
     }
 
+    private void writeSideIndex(SegmentSideIndex sideIndex, File sideIndexFile) {
+        try {
+            sideIndex.writeTo(sideIndexFile);
+        } catch (Throwable e) {
+            logger.warn(new StringBuilder(512)
+                    .append("[File Store] Write side index ")
+                    .append(sideIndexFile.getAbsolutePath())
+                    .append(" failure, will rebuild it when reading").toString(), e);
+        }
+    }
+
+    private synchronized void releaseMappedBuffer() {
+        MappedByteBuffer curMapped = this.mappedBuffer;
+        this.mappedBuffer = null;
+        if (curMapped != null) {
+            ((DirectBuffer) curMapped).cleaner().clean();
+        }
+    }
+
+    private void deleteSegFile() {
+        if (!this.deleted.compareAndSet(false, true)) {
+            return;
+        }
+        // no reader references the segment now, unmap the region
+        // instead of waiting for the buffer to be collected
+        releaseMappedBuffer();
+        try {
+            if (this.channel.isOpen()) {
+                if (this.mutable) {
+                    flush(true);
+                }
+                this.channel.close();
+            }
+            this.randFile.close();
+        } catch (Throwable e1) {
+            if (e1 instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            logger.error("[File Store] failure to close channel ", e1);
+        }
+        try {
+            logger.info(new StringBuilder(512)
+                    .append("[File Store] delete file ")
+                    .append(file.getAbsoluteFile()).toString());
+            this.file.delete();
+            if (this.enablePartIndex) {
+                getSideIndexFile(DataStoreUtils.PART_INDEX_FILE_SUFFIX).delete();
+            }
+            if (this.enableTimeIndex) {
+                getSideIndexFile(DataStoreUtils.TIME_INDEX_FILE_SUFFIX).delete();
+            }
+        } catch (Throwable ee) {
+            if (ee instanceof IOException) {
+                ServiceStatusHolder.addReadIOErrCnt();
+                BrokerSrvStatsHolder.incDiskIOExcCnt();
+            }
+            logger.error("[File Store] failure to delete file ", ee);
+        }
+    }
+
+    private File getSideIndexFile(String fileSuffix) {
+        String fileName = this.file.getName();
+        if (fileName.endsWith(DataStoreUtils.INDEX_FILE_SUFFIX)) {
+            fileName = fileName.substring(0,
+                    fileName.length() - DataStoreUtils.INDEX_FILE_SUFFIX.length());
+        }
+        return new File(this.file.getParentFile(),
+                fileName + fileSuffix);
+    }
+
     private RecoverResult recoverData(long checkOffset) throws IOException {
         if (!this.mutable) {
             throw new UnsupportedOperationException(
@@ -57,7 +57,8 @@ public class FileSegmentList implements SegmentList {
     }
 
     /**
-     * Return segment by the given offset.
+     * Return segment by the given offset, the returned segment's view is referenced
+     * and must be released by relViewRef() after use.
      *
      * @param offset     the position to search
      * @return           the segment included the position
@@ -66,9 +67,10 @@ public class FileSegmentList implements SegmentList {
     @Override
     public Segment getRecordSeg(final long offset) throws IOException {
         Segment tmpSeg = this.findSegment(offset);
-        if (tmpSeg != null && tmpSeg.isExpired()) {
+        if (tmpSeg == null || tmpSeg.isExpired()) {
             return null;
         }
+        tmpSeg.addViewRef();
         return tmpSeg;
     }
 
@@ -36,6 +36,8 @@ import org.apache.inlong.tubemq.corebase.utils.ServiceStatusHolder;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.StoreLoadReport;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.SegmentArchiveStore;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.stats.TrafficInfo;
@@ -81,6 +83,10 @@ public class MsgFileStore implements Closeable {
     private SegmentList dataSegments;
     // index file segment list
     private SegmentList indexSegments;
+    // archived data segments, null if segment archive is disabled
+    private final ArchivedSegmentList archivedDataSegments;
+    // archived index segments, null if segment archive is disabled
+    private final ArchivedSegmentList archivedIndexSegments;
     // close status
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -110,8 +116,29 @@ public class MsgFileStore implements Closeable {
         sBuilder.delete(0, sBuilder.length());
         FileUtil.checkDir(this.dataDir);
         FileUtil.checkDir(this.indexDir);
+        long phaseStart = System.currentTimeMillis();
         loadSegments(SegmentType.DATA, offsetIfCreate, sBuilder);
+        messageStore.addLoadPhaseTime(StoreLoadReport.Phase.DATA_LOAD, phaseStart);
+        phaseStart = System.currentTimeMillis();
         loadSegments(SegmentType.INDEX, offsetIfCreate, sBuilder);
+        messageStore.addLoadPhaseTime(StoreLoadReport.Phase.INDEX_LOAD, phaseStart);
+        phaseStart = System.currentTimeMillis();
+        final SegmentArchiveStore archiveStore = messageStore.getSegmentArchiveStore();
+        if (archiveStore == null) {
+            this.archivedDataSegments = null;
+            this.archivedIndexSegments = null;
+        } else {
+            File archiveCacheDir = new File(this.dataDir, "archive");
+            this.archivedDataSegments = new ArchivedSegmentList(archiveStore,
+                    SegmentType.DATA, this.storeKey + "/data",
+                    new File(archiveCacheDir, "data"), tubeConfig.getSegmentArchiveCacheCnt());
+            this.archivedDataSegments.load(getDataMinOffset());
+            this.archivedIndexSegments = new ArchivedSegmentList(archiveStore,
+                    SegmentType.INDEX, this.storeKey + "/index",
+                    new File(archiveCacheDir, "index"), tubeConfig.getSegmentArchiveCacheCnt());
+            this.archivedIndexSegments.load(getIndexMinOffset());
+            messageStore.addLoadPhaseTime(StoreLoadReport.Phase.ARCHIVE_LOAD, phaseStart);
+        }
         this.lastFlushTime.set(System.currentTimeMillis());
     }
 
@@ -145,6 +172,7 @@ public class MsgFileStore implements Closeable {
         boolean isMsgDataFlushed = false;
         boolean isMsgTimeFlushed = false;
         boolean isForceMetadata = false;
+        boolean isGroupFlushRequired = false;
         // flushed message message count and data size info
         long flushedMsgCnt = 0;
         long flushedDataSize = 0;
@@ -193,7 +221,9 @@ public class MsgFileStore implements Closeable {
                         DataStoreUtils.nameFromOffset(newIndexOffset, DataStoreUtils.INDEX_FILE_SUFFIX));
                 newIndexFilePath = newIndexFile.getAbsolutePath();
                 this.indexSegments.append(new FileSegment(newIndexOffset,
-                    newIndexFile, SegmentType.INDEX));
+                    newIndexFile, true, SegmentType.INDEX, Long.MAX_VALUE,
+                    this.tubeConfig.isEnablePartitionIndex(),
+                    this.tubeConfig.isEnableTimeIndex()));
             }
             // check whether need to flush to disk.
             currTime = System.currentTimeMillis();
@@ -204,19 +234,27 @@ public class MsgFileStore implements Closeable {
                 || (isMsgTimeFlushed =
                     (currTime - this.lastFlushTime.get() >= messageStore.getUnflushInterval()))
                 || isMsgDataFlushed || isDataSegFlushed || isIndexSegFlushed) {
-                isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
-                    || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
-                if (!isDataSegFlushed) {
-                    curDataSeg.flush(isForceMetadata);
-                }
-                if (!isIndexSegFlushed) {
-                    curIndexSeg.flush(isForceMetadata);
-                }
-                flushedMsgCnt = this.curUnflushed.getAndSet(0);
-                flushedDataSize = this.curUnflushSize.getAndSet(0);
-                this.lastFlushTime.set(System.currentTimeMillis());
-                if (isForceMetadata) {
-                    this.lastMetaFlushTime.set(this.lastFlushTime.get());
+                if (this.tubeConfig.isEnableGroupCommitFlush()
+                        && !isDataSegFlushed && !isIndexSegFlushed) {
+                    // leave the flush to the flush scheduler, so that the flush
+                    // requests of the concurrent appends are merged into one
+                    isGroupFlushRequired = true;
+                    isMsgCntFlushed = isMsgTimeFlushed = isMsgDataFlushed = false;
+                } else {
+                    isForceMetadata = (isDataSegFlushed || isIndexSegFlushed
+                        || (currTime - this.lastMetaFlushTime.get() > MAX_META_REFRESH_DUR));
+                    if (!isDataSegFlushed) {
+                        curDataSeg.flush(isForceMetadata);
+                    }
+                    if (!isIndexSegFlushed) {
+                        curIndexSeg.flush(isForceMetadata);
+                    }
+                    flushedMsgCnt = this.curUnflushed.getAndSet(0);
+                    flushedDataSize = this.curUnflushSize.getAndSet(0);
+                    this.lastFlushTime.set(System.currentTimeMillis());
+                    if (isForceMetadata) {
+                        this.lastMetaFlushTime.set(this.lastFlushTime.get());
+                    }
                 }
             }
             // print abnormal information
@@ -243,6 +281,9 @@ public class MsgFileStore implements Closeable {
             samplePrintCtrl.printExceptionCaught(e);
         } finally {
             this.writeLock.unlock();
+            if (isGroupFlushRequired) {
+                messageStore.requestFlush();
+            }
             // add statistics.
             msgStoreStatsHolder.addFileFlushStatsInfo(msgCnt, indexSize, dataSize,
                     flushedMsgCnt, flushedDataSize, isDataSegFlushed, isIndexSegFlushed,
@@ -302,14 +343,17 @@ public class MsgFileStore implements Closeable {
         long lastRdDataOffset = 0L;
         final StringBuilder sBuilder = new StringBuilder(512);
         final long curDataMaxOffset = getDataMaxOffset();
-        final long curDataMinOffset = getDataMinOffset();
+        final long localDataMinOffset = getDataMinOffset();
+        final long curDataMinOffset = getReadableDataMinOffset();
         HashMap<String, TrafficInfo> countMap = new HashMap<>();
+        ByteBuffer msgBuffer;
         ByteBuffer dataBuffer =
                 ByteBuffer.allocate(TServerConstants.CFG_STORE_DEFAULT_MSG_READ_UNIT);
         List<ClientBroker.TransferedMessage> transferedMessageList =
                 new ArrayList<>();
         // read data file by index.
-        for (curIndexOffset = 0; curIndexOffset < indexBuffer.remaining();
+        final int indexDataLength = indexBuffer.remaining();
+        for (curIndexOffset = 0; curIndexOffset < indexDataLength;
              curIndexOffset += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
             curIndexPartitionId = indexBuffer.getInt();
             curIndexDataOffset = indexBuffer.getLong();
@@ -340,6 +384,7 @@ public class MsgFileStore implements Closeable {
                 continue;
             }
             if (reqRcvTime != 0 && recvTimeInMillsec < reqRcvTime) {
+                readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
                 continue;
             }
             try {
@@ -351,7 +396,13 @@ public class MsgFileStore implements Closeable {
                         recordSeg.relViewRef();
                         recordSeg = null;
                     }
-                    recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                    if (archivedDataSegments != null
+                            && curIndexDataOffset < localDataMinOffset) {
+                        // the data has been archived, read it back from the archive store
+                        recordSeg = archivedDataSegments.getRecordSeg(curIndexDataOffset);
+                    } else {
+                        recordSeg = dataSegments.getRecordSeg(curIndexDataOffset);
+                    }
                     if (recordSeg == null) {
                         continue;
                     }
@@ -359,18 +410,27 @@ public class MsgFileStore implements Closeable {
                         throw new Exception("Read Service has closed!");
                     }
                 }
-                if (dataBuffer.capacity() < curIndexDataSize) {
-                    dataBuffer = ByteBuffer.allocate(curIndexDataSize);
+                msgBuffer = null;
+                if (this.tubeConfig.isEnableMmapFileRead()
+                        && !recordSeg.isMutable()) {
+                    // reference the mapped region directly instead of copying
+                    msgBuffer = recordSeg.mappedRead(curIndexDataOffset, curIndexDataSize);
                 }
-                dataBuffer.clear();
-                dataBuffer.limit(curIndexDataSize);
-                recordSeg.read(dataBuffer, curIndexDataOffset);
-                dataBuffer.flip();
-                dataRealLimit = dataBuffer.limit();
-                if (dataRealLimit < curIndexDataSize) {
-                    lastRdDataOffset = curIndexDataOffset;
-                    readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
-                    continue;
+                if (msgBuffer == null) {
+                    if (dataBuffer.capacity() < curIndexDataSize) {
+                        dataBuffer = ByteBuffer.allocate(curIndexDataSize);
+                    }
+                    dataBuffer.clear();
+                    dataBuffer.limit(curIndexDataSize);
+                    recordSeg.read(dataBuffer, curIndexDataOffset);
+                    dataBuffer.flip();
+                    dataRealLimit = dataBuffer.limit();
+                    if (dataRealLimit < curIndexDataSize) {
+                        lastRdDataOffset = curIndexDataOffset;
+                        readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                        continue;
+                    }
+                    msgBuffer = dataBuffer;
                 }
             } catch (Throwable e2) {
                 if (e2 instanceof IOException) {
@@ -391,7 +451,7 @@ public class MsgFileStore implements Closeable {
             readedOffset = curIndexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN;
             lastRdDataOffset = maxDataLimitOffset;
             ClientBroker.TransferedMessage transferedMessage =
-                    DataStoreUtils.getTransferMsg(dataBuffer,
+                    DataStoreUtils.getTransferMsg(msgBuffer,
                             curIndexDataSize, countMap, statsKeyBase, sBuilder);
             if (transferedMessage == null) {
                 continue;
@@ -443,6 +503,11 @@ public class MsgFileStore implements Closeable {
         if (endPos <= 0) {
             return recordSeg.getStart();
         }
+        long foundOffset = getStartOffsetByTimeIndex(recordSeg,
+                timestamp, endPos, curDataMinOffset);
+        if (foundOffset >= 0) {
+            return foundOffset;
+        }
         long foundTime = getTimeStamp(recordSeg,
                 0, curDataMinOffset, readBuffer);
         if (timestamp < foundTime) {
@@ -488,6 +553,12 @@ public class MsgFileStore implements Closeable {
             try {
                 this.indexSegments.close();
                 this.dataSegments.close();
+                if (this.archivedIndexSegments != null) {
+                    this.archivedIndexSegments.close();
+                }
+                if (this.archivedDataSegments != null) {
+                    this.archivedDataSegments.close();
+                }
             } finally {
                 this.writeLock.unlock();
             }
@@ -510,32 +581,80 @@ public class MsgFileStore implements Closeable {
         if (onlyCheck) {
             return (hasExpiredDataSegs || hasExpiredIndexSegs);
         }
-        if (hasExpiredDataSegs) {
+        // keep the expired segments until they have been archived
+        if (hasExpiredDataSegs
+                && archiveExpiredSegments(dataSegments, archivedDataSegments, sBuilder)) {
             dataSegments.delExpiredSegments(sBuilder);
         }
-        if (hasExpiredIndexSegs) {
+        if (hasExpiredIndexSegs
+                && archiveExpiredSegments(indexSegments, archivedIndexSegments, sBuilder)) {
             indexSegments.delExpiredSegments(sBuilder);
         }
         return (hasExpiredDataSegs || hasExpiredIndexSegs);
     }
 
     /**
-     * Flush data to disk at interval.
+     * Archive the expired segments not archived yet.
      *
-     * @throws IOException the exception during processing
+     * @param segments       the segment list
+     * @param archivedSegs   the archived segment list, null if segment archive is disabled
+     * @param sBuilder       string buffer
+     * @return               whether all expired segments have been archived
      */
-    public void flushDiskFile() throws IOException {
+    private boolean archiveExpiredSegments(SegmentList segments,
+                                           ArchivedSegmentList archivedSegs,
+                                           StringBuilder sBuilder) {
+        if (archivedSegs == null) {
+            return true;
+        }
+        for (Segment segment : segments.getView()) {
+            if (segment == null) {
+                continue;
+            }
+            if (!segment.isExpired()) {
+                break;
+            }
+            if (segment.isMutable()
+                    || archivedSegs.isArchived(segment.getStart())) {
+                continue;
+            }
+            try {
+                archivedSegs.archive(segment);
+            } catch (Throwable e) {
+                if (e instanceof IOException) {
+                    BrokerSrvStatsHolder.incDiskIOExcCnt();
+                }
+                logger.error(sBuilder.append("[File Store] Archive segment ")
+                        .append(segment.getFile().getAbsolutePath())
+                        .append(" failure, retry on next clear-up").toString(), e);
+                sBuilder.delete(0, sBuilder.length());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flush data to disk.
+     *
+     * @param byRequest      whether flush is requested by appending, if false, flush only
+     *                       when the unflushed data exceeds the topic's unflushInterval
+     *                       or unflushDataHold
+     * @return               whether the data has been flushed
+     * @throws IOException   the exception during processing
+     */
+    public boolean flushDiskFile(boolean byRequest) throws IOException {
         long checkTimestamp = System.currentTimeMillis();
-        if ((curUnflushed.get() > 0)
-                && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+        boolean isFlushed = false;
+        if ((curUnflushed.get() > 0) && (byRequest || isFlushRequired(checkTimestamp))) {
             long flushedMsgCnt = 0L;
             long flushedDataSize = 0L;
             boolean forceMetadata = false;
             this.writeLock.lock();
             try {
                 checkTimestamp = System.currentTimeMillis();
-                if ((curUnflushed.get() >= 0)
-                        && (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())) {
+                if ((curUnflushed.get() > 0)
+                        && (byRequest || isFlushRequired(checkTimestamp))) {
                     forceMetadata =
                             (checkTimestamp - lastMetaFlushTime.get()) > MAX_META_REFRESH_DUR;
                     dataSegments.flushLast(forceMetadata);
@@ -546,6 +665,7 @@ public class MsgFileStore implements Closeable {
                     flushedMsgCnt = curUnflushed.getAndSet(0);
                     flushedDataSize = curUnflushSize.getAndSet(0);
                     lastFlushTime.set(checkTimestamp);
+                    isFlushed = true;
                 }
             } finally {
                 this.writeLock.unlock();
@@ -554,6 +674,13 @@ public class MsgFileStore implements Closeable {
             }
         }
         msgStoreStatsHolder.chkStatsExpired(checkTimestamp);
+        return isFlushed;
+    }
+
+    private boolean isFlushRequired(long checkTimestamp) {
+        return (checkTimestamp - lastFlushTime.get() >= messageStore.getUnflushInterval())
+                || ((messageStore.getUnflushDataHold() > 0)
+                && (curUnflushSize.get() >= messageStore.getUnflushDataHold()));
     }
 
     public long getDataSizeInBytes() {
@@ -592,15 +719,76 @@ public class MsgFileStore implements Closeable {
         return this.indexSegments.getMinOffset();
     }
 
+    /**
+     * Whether the index offset is before the local index segments and has been archived.
+     *
+     * @param offset   the index offset
+     * @return         whether the offset can be read from the archived index segments
+     */
+    public boolean isArchivedIndexOffset(final long offset) {
+        return this.archivedIndexSegments != null
+                && offset < getIndexMinOffset()
+                && this.archivedIndexSegments.contains(offset);
+    }
+
     public Segment indexSlice(final long offset, final int maxSize) throws IOException {
+        if (this.archivedIndexSegments != null && offset < getIndexMinOffset()) {
+            return archivedIndexSegments.getRecordSeg(offset);
+        }
         return indexSegments.getRecordSeg(offset);
     }
 
+    /**
+     * Read the index entry at the given offset from the local index segments,
+     * the archived index segments are not read to avoid downloading them.
+     *
+     * @param indexOffset   the index offset of the entry
+     * @param entryBuffer   the buffer to read the entry into
+     * @return              whether the entry has been read
+     */
+    public boolean readIndexEntry(long indexOffset, ByteBuffer entryBuffer) {
+        if (this.closed.get()
+                || indexOffset < getIndexMinOffset()
+                || indexOffset + DataStoreUtils.STORE_INDEX_HEAD_LEN > getIndexMaxOffset()) {
+            return false;
+        }
+        Segment recordSeg = null;
+        try {
+            recordSeg = indexSegments.getRecordSeg(indexOffset);
+            if (recordSeg == null) {
+                return false;
+            }
+            entryBuffer.clear();
+            recordSeg.read(entryBuffer, indexOffset);
+            entryBuffer.flip();
+            return entryBuffer.remaining() >= DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        } catch (Throwable ex) {
+            samplePrintCtrl.printExceptionCaught(ex);
+            return false;
+        } finally {
+            if (recordSeg != null) {
+                recordSeg.relViewRef();
+            }
+        }
+    }
+
+    private long getReadableDataMinOffset() {
+        long minOffset = getDataMinOffset();
+        if (this.archivedDataSegments != null && !this.archivedDataSegments.isEmpty()) {
+            minOffset = Math.min(minOffset, this.archivedDataSegments.getMinOffset());
+        }
+        return minOffset;
+    }
+
     private void loadSegments(SegmentType segType, long offsetIfCreate,
                               StringBuilder sBuilder) throws IOException {
         String segTypeStr = "Data";
         File   segListDir = this.dataDir;
         String fileSuffix = DataStoreUtils.DATA_FILE_SUFFIX;
+        final boolean enablePartIndex = (segType == SegmentType.INDEX)
+                && this.tubeConfig.isEnablePartitionIndex();
+        final boolean enableTimeIndex = (segType == SegmentType.INDEX)
+                && this.tubeConfig.isEnableTimeIndex();
         if (segType == SegmentType.INDEX) {
             segTypeStr = "Index";
             segListDir = this.indexDir;
@@ -626,7 +814,8 @@ public class MsgFileStore implements Closeable {
                     final String filename = file.getName();
                     final long start =
                             Long.parseLong(filename.substring(0, filename.length() - fileSuffix.length()));
-                    accum.add(new FileSegment(start, file, false, segType));
+                    accum.add(new FileSegment(start, file,
+                            false, segType, Long.MAX_VALUE, enablePartIndex, enableTimeIndex));
                 }
             }
         }
@@ -637,7 +826,8 @@ public class MsgFileStore implements Closeable {
             logger.info(sBuilder.append("[File Store] Created ").append(segTypeStr)
                     .append(" segment ").append(newFile.getAbsolutePath()).toString());
             sBuilder.delete(0, sBuilder.length());
-            accum.add(new FileSegment(offsetIfCreate, newFile, segType));
+            accum.add(new FileSegment(offsetIfCreate, newFile,
+                    true, segType, Long.MAX_VALUE, enablePartIndex, enableTimeIndex));
         } else {
             // The list of segments is required to be arranged continuously from low to high
             accum.sort(new Comparator<Segment>() {
@@ -659,7 +849,8 @@ public class MsgFileStore implements Closeable {
                 logger.info(sBuilder.append("[File Store] Created time roll").append(segTypeStr)
                         .append(" segment ").append(newFile.getAbsolutePath()).toString());
                 sBuilder.delete(0, sBuilder.length());
-                accum.add(new FileSegment(newOffset, newFile, segType));
+                accum.add(new FileSegment(newOffset, newFile,
+                        true, segType, Long.MAX_VALUE, enablePartIndex, enableTimeIndex));
             } else {
                 last = accum.remove(accum.size() - 1);
                 last.close();
@@ -669,7 +860,8 @@ public class MsgFileStore implements Closeable {
                         .append(last.getFile().getAbsolutePath()).toString());
                 sBuilder.delete(0, sBuilder.length());
                 final FileSegment mutable =
-                        new FileSegment(last.getStart(), last.getFile(), segType, Long.MAX_VALUE);
+                        new FileSegment(last.getStart(), last.getFile(),
+                                true, segType, Long.MAX_VALUE, enablePartIndex, enableTimeIndex);
                 accum.add(mutable);
             }
         }
@@ -701,28 +893,85 @@ public class MsgFileStore implements Closeable {
 
     private long getTimeStamp(Segment recordSeg, long relReadPos,
                               long curDataMinOffset, ByteBuffer readBuffer) {
-        int curIndexPartitionId = 0;
-        long curIndexDataOffset = 0L;
-        int curIndexDataSize = 0;
-        int curIndexKeyCode = 0;
-        long recvTimeInMillsec = 0L;
         try {
             readBuffer.clear();
             recordSeg.relRead(readBuffer, relReadPos);
             readBuffer.flip();
-            curIndexPartitionId = readBuffer.getInt();
-            curIndexDataOffset = readBuffer.getLong();
-            curIndexDataSize = readBuffer.getInt();
-            curIndexKeyCode = readBuffer.getInt();
-            recvTimeInMillsec = readBuffer.getLong();
-            // skip when mismatch condition
-            if (curIndexDataOffset < 0
-                    || curIndexDataSize <= 0
-                    || curIndexDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
-                    || curIndexDataOffset < curDataMinOffset) {
+            return getTimeStamp(readBuffer, 0, curDataMinOffset);
+        } catch (Throwable ex) {
+            samplePrintCtrl.printExceptionCaught(ex);
+            return -1;
+        }
+    }
+
+    private long getTimeStamp(ByteBuffer entryBuffer, int entryPos, long curDataMinOffset) {
+        long curIndexDataOffset =
+                entryBuffer.getLong(entryPos + DataStoreUtils.INDEX_POS_DATAOFFSET);
+        int curIndexDataSize =
+                entryBuffer.getInt(entryPos + DataStoreUtils.INDEX_POS_MSG_SIZE);
+        // skip when mismatch condition
+        if (curIndexDataOffset < 0
+                || curIndexDataSize <= 0
+                || curIndexDataSize > DataStoreUtils.STORE_MAX_MESSAGE_STORE_LEN
+                || curIndexDataOffset < curDataMinOffset) {
+            return -1;
+        }
+        return entryBuffer.getLong(entryPos + DataStoreUtils.INDEX_POS_TIME_RECV);
+    }
+
+    /**
+     * Get the offset by timestamp through the time index of the segment, only
+     * the entries between two time samples are read in one read operation.
+     *
+     * @param recordSeg          the index segment
+     * @param timestamp          the specified timestamp
+     * @param endPos             the last entry position of the segment
+     * @param curDataMinOffset   the min offset of data store
+     * @return                   the found offset, or -1 if the time index is not available
+     */
+    private long getStartOffsetByTimeIndex(Segment recordSeg, long timestamp,
+                                           long endPos, long curDataMinOffset) {
+        try {
+            TimeIndex timeIndex = recordSeg.getTimeIndex();
+            if (timeIndex == null) {
                 return -1;
             }
-            return recvTimeInMillsec;
+            long blockStart = timeIndex.lookup(timestamp);
+            if (blockStart < 0) {
+                return recordSeg.getStart();
+            }
+            if (blockStart >= endPos) {
+                return recordSeg.getStart() + endPos * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            }
+            long blockEnd = Math.min(endPos, blockStart + timeIndex.getSampleInterval());
+            ByteBuffer blockBuffer = ByteBuffer.allocate(
+                    (int) (blockEnd - blockStart + 1) * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            recordSeg.relRead(blockBuffer, blockStart * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            blockBuffer.flip();
+            int startPos = 0;
+            int endBlockPos = blockBuffer.limit() / DataStoreUtils.STORE_INDEX_HEAD_LEN - 1;
+            int midPos = 0;
+            int firstLowPos = 0;
+            int firstEqualPos = -1;
+            long foundTime;
+            // Dichotomy finds the first offset position less than the specified time
+            while (startPos <= endBlockPos) {
+                midPos = endBlockPos + startPos >>> 1;
+                foundTime = getTimeStamp(blockBuffer,
+                        midPos * DataStoreUtils.STORE_INDEX_HEAD_LEN, curDataMinOffset);
+                if (foundTime < timestamp) {
+                    firstLowPos = midPos;
+                    startPos = midPos + 1;
+                } else {
+                    endBlockPos = midPos - 1;
+                    if (foundTime == timestamp) {
+                        firstEqualPos = midPos;
+                    }
+                }
+            }
+            return recordSeg.getStart() + (blockStart
+                    + (firstEqualPos != -1 ? firstEqualPos : firstLowPos))
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN;
         } catch (Throwable ex) {
             samplePrintCtrl.printExceptionCaught(ex);
             return -1;
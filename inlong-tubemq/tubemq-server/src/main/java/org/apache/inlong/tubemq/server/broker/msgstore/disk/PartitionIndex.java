@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * Per-partition secondary index of an index segment.
+ *
+ * It records the ordinal of each index entry grouped by partition id, so that a partition
+ * read can jump straight to the entries of its partition instead of scanning and discarding
+ * the entries of the other partitions. The index is kept in memory while the segment is
+ * mutable, and persisted in a file next to the index segment file once the segment becomes
+ * immutable.
+ *
+ * Persisted body: partitionCount(4), then for each partition:
+ * partitionId(4) + ordinalCount(4) + ordinals(4 * ordinalCount).
+ */
+public class PartitionIndex extends SegmentSideIndex {
+    private static final int PART_INDEX_MAGIC = 0x50494458;
+    private static final int PART_INDEX_INIT_SIZE = 64;
+    // partitionId to the ordered entry ordinals of this partition
+    private final Map<Integer, OrdinalList> partOrdinals = new HashMap<>();
+
+    public PartitionIndex() {
+        super(PART_INDEX_MAGIC);
+    }
+
+    /**
+     * Add the next index entry.
+     *
+     * @param partitionId   the partition id of the entry
+     */
+    public synchronized void addEntry(int partitionId) {
+        OrdinalList ordinals = partOrdinals.get(partitionId);
+        if (ordinals == null) {
+            ordinals = new OrdinalList(PART_INDEX_INIT_SIZE);
+            partOrdinals.put(partitionId, ordinals);
+        }
+        ordinals.add(entryCount++);
+    }
+
+    /**
+     * Look up the entries of the partition within the given ordinal range.
+     *
+     * @param partitionId   the partition id to look up
+     * @param fromOrdinal   the first entry ordinal to consider
+     * @param toOrdinal     the entry ordinal to stop before
+     * @param maxCount      the max count of ordinals to return
+     * @return              the lookup result
+     */
+    public synchronized LookupResult lookup(int partitionId, int fromOrdinal,
+                                            int toOrdinal, int maxCount) {
+        int endOrdinal = Math.min(toOrdinal, entryCount);
+        OrdinalList ordinals = partOrdinals.get(partitionId);
+        if (ordinals == null || fromOrdinal >= endOrdinal) {
+            return new LookupResult(new int[0], 0, Math.max(fromOrdinal, endOrdinal));
+        }
+        int startPos = ordinals.lowerBound(fromOrdinal);
+        int count = Math.min(maxCount, ordinals.lowerBound(endOrdinal) - startPos);
+        if (count <= 0) {
+            return new LookupResult(new int[0], 0, endOrdinal);
+        }
+        int[] result = Arrays.copyOfRange(ordinals.values, startPos, startPos + count);
+        // if all ordinals in range are returned, the rest of range has been checked
+        int checkedCount = (startPos + count == ordinals.lowerBound(endOrdinal))
+                ? endOrdinal : result[count - 1] + 1;
+        return new LookupResult(result, count, checkedCount);
+    }
+
+    @Override
+    protected void addRecord(ByteBuffer buf, int entryPos) {
+        addEntry(buf.getInt(entryPos + DataStoreUtils.INDEX_POS_PARTITIONID));
+    }
+
+    @Override
+    protected void writeBody(DataOutputStream out) throws IOException {
+        out.writeInt(partOrdinals.size());
+        for (Map.Entry<Integer, OrdinalList> entry : partOrdinals.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().size);
+            for (int i = 0; i < entry.getValue().size; i++) {
+                out.writeInt(entry.getValue().values[i]);
+            }
+        }
+    }
+
+    @Override
+    protected boolean readBody(DataInputStream in) throws IOException {
+        int partCount = in.readInt();
+        for (int i = 0; i < partCount; i++) {
+            int partitionId = in.readInt();
+            int ordinalCnt = in.readInt();
+            OrdinalList ordinals = new OrdinalList(Math.max(1, ordinalCnt));
+            for (int j = 0; j < ordinalCnt; j++) {
+                ordinals.add(in.readInt());
+            }
+            partOrdinals.put(partitionId, ordinals);
+        }
+        return true;
+    }
+
+    /**
+     * Load the partition index from file.
+     *
+     * @param file            the file to read
+     * @param expEntryCount   the expected entry count
+     * @return                the loaded partition index, or null if the file is missing or invalid
+     */
+    public static PartitionIndex readFrom(File file, int expEntryCount) {
+        return loadFrom(file, new PartitionIndex(), expEntryCount);
+    }
+
+    /**
+     * Build the partition index by scanning the index segment content.
+     *
+     * @param channel         the index segment file channel
+     * @param size            the valid index content size
+     * @return                the built partition index
+     * @throws IOException    the exception during reading
+     */
+    public static PartitionIndex buildFrom(FileChannel channel, long size) throws IOException {
+        return scanFrom(channel, size, new PartitionIndex());
+    }
+
+    /**
+     * The result of looking up a partition's entries.
+     */
+    public static class LookupResult {
+        // the matched entry ordinals
+        public final int[] ordinals;
+        // the count of matched entry ordinals
+        public final int count;
+        // the entries below this ordinal have been checked
+        public final int checkedCount;
+
+        public LookupResult(int[] ordinals, int count, int checkedCount) {
+            this.ordinals = ordinals;
+            this.count = count;
+            this.checkedCount = checkedCount;
+        }
+    }
+
+    private static class OrdinalList {
+        private int[] values;
+        private int size = 0;
+
+        OrdinalList(int initSize) {
+            this.values = new int[initSize];
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            values[size++] = value;
+        }
+
+        int lowerBound(int value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
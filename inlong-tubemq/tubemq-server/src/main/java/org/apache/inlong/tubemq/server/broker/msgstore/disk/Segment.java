@@ -70,6 +70,12 @@ public interface Segment {
 
     void setMutable(boolean mutable);
 
+    /**
+     * Add a reference to this segment's view, the reference must be
+     * released by {@link #relViewRef()} after reading.
+     */
+    void addViewRef();
+
     void relViewRef();
 
     /**
@@ -88,6 +94,29 @@ public interface Segment {
      */
     void relRead(ByteBuffer bf, long relOffset) throws IOException;
 
+    /**
+     * Get a read-only view of the memory mapped region from absolute position.
+     *
+     * @param absOffset   absolute read position
+     * @param size        the region size
+     * @return            the mapped region, or null if the segment cannot be mapped
+     */
+    ByteBuffer mappedRead(long absOffset, int size) throws IOException;
+
+    /**
+     * Get the per-partition index of the index segment.
+     *
+     * @return            the partition index, or null if not available
+     */
+    PartitionIndex getPartitionIndex() throws IOException;
+
+    /**
+     * Get the sparse time index of the index segment.
+     *
+     * @return            the time index, or null if not available
+     */
+    TimeIndex getTimeIndex() throws IOException;
+
     long getLeftAppendTime();
 
     long getRightAppendTime();
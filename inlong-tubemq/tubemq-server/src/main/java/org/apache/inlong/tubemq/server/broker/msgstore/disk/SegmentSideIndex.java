@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * Side index of an index segment, built from the fixed-length index records.
+ *
+ * It holds the common logic of the side indexes: appending the index records,
+ * rebuilding by scanning the index segment, and persisting in a file next to
+ * the index segment file. The sub-classes only define what is taken from each
+ * index record and how it is laid out in the persisted file.
+ *
+ * Persisted format: magic(4) + entryCount(4), then the body of the sub-class.
+ */
+public abstract class SegmentSideIndex {
+    private static final int SIDE_INDEX_BUILD_UNIT = 2048 * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+    private final int magic;
+    // the count of the indexed entries
+    protected int entryCount = 0;
+
+    protected SegmentSideIndex(int magic) {
+        this.magic = magic;
+    }
+
+    /**
+     * Add the index record at the position of the buffer as the next entry.
+     *
+     * @param buf        the buffer holding the index records
+     * @param entryPos   the start position of the index record
+     */
+    protected abstract void addRecord(ByteBuffer buf, int entryPos);
+
+    /**
+     * Write the content after the common header.
+     *
+     * @param out            the output stream
+     * @throws IOException   the exception during writing
+     */
+    protected abstract void writeBody(DataOutputStream out) throws IOException;
+
+    /**
+     * Read the content after the common header.
+     *
+     * @param in             the input stream
+     * @return               whether the content is valid
+     * @throws IOException   the exception during reading
+     */
+    protected abstract boolean readBody(DataInputStream in) throws IOException;
+
+    /**
+     * Add the complete index records in the buffer region.
+     *
+     * @param buf        the buffer holding the index records
+     * @param startPos   the start position of the region
+     * @param size       the size of the region
+     */
+    public synchronized void addRecords(ByteBuffer buf, int startPos, int size) {
+        for (int pos = startPos;
+             pos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= startPos + size;
+             pos += DataStoreUtils.STORE_INDEX_HEAD_LEN) {
+            addRecord(buf, pos);
+        }
+    }
+
+    public synchronized int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Persist the side index to file.
+     *
+     * @param file           the file to write
+     * @throws IOException   the exception during writing
+     */
+    public synchronized void writeTo(File file) throws IOException {
+        File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(magic);
+            out.writeInt(entryCount);
+            writeBody(out);
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Rename side index file failure: " + file);
+        }
+    }
+
+    /**
+     * Load the side index from file into the empty index.
+     *
+     * @param file            the file to read
+     * @param sideIndex       the empty side index to load into
+     * @param expEntryCount   the expected entry count
+     * @return                the loaded side index, or null if the file is missing or invalid
+     */
+    protected static <T extends SegmentSideIndex> T loadFrom(File file, T sideIndex,
+                                                             int expEntryCount) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            SegmentSideIndex baseIndex = sideIndex;
+            if (in.readInt() != baseIndex.magic) {
+                return null;
+            }
+            baseIndex.entryCount = in.readInt();
+            if (baseIndex.entryCount != expEntryCount
+                    || !baseIndex.readBody(in)) {
+                return null;
+            }
+            return sideIndex;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Build the side index by scanning the index segment content.
+     *
+     * @param channel        the index segment file channel
+     * @param size           the valid index content size
+     * @param sideIndex      the empty side index to build
+     * @return               the built side index
+     * @throws IOException   the exception during reading
+     */
+    protected static <T extends SegmentSideIndex> T scanFrom(FileChannel channel,
+                                                             long size,
+                                                             T sideIndex) throws IOException {
+        ByteBuffer readUnit = ByteBuffer.allocate(SIDE_INDEX_BUILD_UNIT);
+        long readPos = 0;
+        while (readPos + DataStoreUtils.STORE_INDEX_HEAD_LEN <= size) {
+            readUnit.clear();
+            readUnit.limit((int) Math.min(readUnit.capacity(), size - readPos));
+            while (readUnit.hasRemaining()) {
+                if (channel.read(readUnit, readPos + readUnit.position()) < 0) {
+                    break;
+                }
+            }
+            readUnit.flip();
+            int entryCnt = readUnit.limit() / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            if (entryCnt == 0) {
+                break;
+            }
+            sideIndex.addRecords(readUnit, 0, entryCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+            readPos += (long) entryCnt * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        }
+        return sideIndex;
+    }
+}
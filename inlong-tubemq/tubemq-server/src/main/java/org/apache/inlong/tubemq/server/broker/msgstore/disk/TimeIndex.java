@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * Sparse time index of an index segment.
+ *
+ * It samples the receive time of one index entry every sampleInterval entries, so that
+ * locating an offset by timestamp only needs to read the entries between two samples
+ * instead of reading the segment entry by entry. The index is kept in memory, and
+ * persisted in a file next to the index segment file once the segment becomes immutable.
+ *
+ * Persisted body: sampleInterval(4) + sampleCount(4), then the sampled times(8 * sampleCount).
+ */
+public class TimeIndex extends SegmentSideIndex {
+    private static final int TIME_INDEX_MAGIC = 0x54494458;
+    // the entry count between two samples
+    private final int sampleInterval;
+    // the receive time of the entry at ordinal (i * sampleInterval)
+    private long[] sampleTimes = new long[16];
+    private int sampleCount = 0;
+
+    public TimeIndex(int sampleInterval) {
+        super(TIME_INDEX_MAGIC);
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Add the next index entry.
+     *
+     * @param timeRecv   the receive time of the entry
+     */
+    public synchronized void addEntry(long timeRecv) {
+        if (entryCount % sampleInterval == 0) {
+            if (sampleCount == sampleTimes.length) {
+                sampleTimes = Arrays.copyOf(sampleTimes, sampleCount * 2);
+            }
+            sampleTimes[sampleCount++] = timeRecv;
+        }
+        entryCount++;
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Get the first entry ordinal of the sample block that the timestamp falls in,
+     * the block is the last one whose sampled time is less than the timestamp.
+     *
+     * @param timestamp   the timestamp to look up
+     * @return            the first ordinal of the block, -1 if the timestamp is not
+     *                    greater than the time of the first entry
+     */
+    public synchronized int lookup(long timestamp) {
+        int low = 0;
+        int high = sampleCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sampleTimes[mid] < timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? -1 : found * sampleInterval;
+    }
+
+    @Override
+    protected void addRecord(ByteBuffer buf, int entryPos) {
+        addEntry(buf.getLong(entryPos + DataStoreUtils.INDEX_POS_TIME_RECV));
+    }
+
+    @Override
+    protected void writeBody(DataOutputStream out) throws IOException {
+        out.writeInt(sampleInterval);
+        out.writeInt(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            out.writeLong(sampleTimes[i]);
+        }
+    }
+
+    @Override
+    protected boolean readBody(DataInputStream in) throws IOException {
+        if (in.readInt() != sampleInterval) {
+            return false;
+        }
+        sampleCount = in.readInt();
+        sampleTimes = new long[Math.max(16, sampleCount)];
+        for (int i = 0; i < sampleCount; i++) {
+            sampleTimes[i] = in.readLong();
+        }
+        return true;
+    }
+
+    /**
+     * Load the time index from file.
+     *
+     * @param file             the file to read
+     * @param sampleInterval   the expected sample interval
+     * @param expEntryCount    the expected entry count
+     * @return                 the loaded time index, or null if the file is missing or invalid
+     */
+    public static TimeIndex readFrom(File file, int sampleInterval, int expEntryCount) {
+        return loadFrom(file, new TimeIndex(sampleInterval), expEntryCount);
+    }
+
+    /**
+     * Build the time index by scanning the index segment content.
+     *
+     * @param channel          the index segment file channel
+     * @param size             the valid index content size
+     * @param sampleInterval   the sample interval
+     * @return                 the built time index
+     * @throws IOException     the exception during reading
+     */
+    public static TimeIndex buildFrom(FileChannel channel,
+                                      long size, int sampleInterval) throws IOException {
+        return scanFrom(channel, size, new TimeIndex(sampleInterval));
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * Broker-wide pool of the direct buffers used by the memory caches.
+ *
+ * The buffers are allocated in whole blocks and recycled by their block count, so the
+ * buffers released by a memory cache are reused by the next cache of the same size
+ * instead of being freed and allocated again. The total size of the allocated buffers
+ * is limited by the max pool size: the idle buffers of other sizes are freed to make
+ * room, and the acquisition fails if there is still no room, in which case the memory
+ * cache rejects the appends until the buffers are released by the other caches.
+ */
+public class DirectBufferPool {
+    // the allocation unit size
+    private final int blockSize;
+    private final long maxPoolSize;
+    // block count to the idle buffers of this size
+    private final Map<Integer, Queue<ByteBuffer>> idleBuffers = new ConcurrentHashMap<>();
+    // the total size of the allocated buffers, include the idle ones
+    private final AtomicLong allocatedSize = new AtomicLong(0);
+    // the total size of the buffers in use
+    private final AtomicLong usedSize = new AtomicLong(0);
+    // the count of the failed acquisitions
+    private final AtomicLong exhaustedCnt = new AtomicLong(0);
+    private final Object allocLock = new Object();
+
+    public DirectBufferPool(long maxPoolSize, int blockSize) {
+        this.maxPoolSize = maxPoolSize;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Acquire a buffer from the pool.
+     *
+     * @param size   the required size
+     * @return       the cleared buffer whose capacity is not less than the size,
+     *               null if the pool has been exhausted
+     */
+    public ByteBuffer acquire(int size) {
+        final int blockCnt = getBlockCnt(size);
+        final long capacity = (long) blockCnt * blockSize;
+        ByteBuffer buffer = pollIdleBuffer(blockCnt);
+        if (buffer == null) {
+            synchronized (allocLock) {
+                if (allocatedSize.get() + capacity > maxPoolSize) {
+                    freeIdleBuffers(allocatedSize.get() + capacity - maxPoolSize);
+                }
+                if (allocatedSize.get() + capacity > maxPoolSize) {
+                    exhaustedCnt.incrementAndGet();
+                    BrokerSrvStatsHolder.incMemPoolExhaustCnt();
+                    return null;
+                }
+                buffer = ByteBuffer.allocateDirect((int) capacity);
+                allocatedSize.addAndGet(capacity);
+                BrokerSrvStatsHolder.addMemPoolAllocSize(capacity);
+            }
+        }
+        usedSize.addAndGet(capacity);
+        BrokerSrvStatsHolder.addMemPoolUsedSize(capacity);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Release the buffer to the pool, the buffer must not be accessed after released.
+     *
+     * @param buffer   the buffer acquired from this pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        buffer.clear();
+        usedSize.addAndGet(-buffer.capacity());
+        BrokerSrvStatsHolder.addMemPoolUsedSize(-buffer.capacity());
+        Queue<ByteBuffer> queue = idleBuffers.get(buffer.capacity() / blockSize);
+        if (queue == null) {
+            Queue<ByteBuffer> newQueue = new ConcurrentLinkedQueue<>();
+            queue = idleBuffers.putIfAbsent(buffer.capacity() / blockSize, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        queue.offer(buffer);
+    }
+
+    /**
+     * Free all idle buffers.
+     */
+    public void close() {
+        synchronized (allocLock) {
+            freeIdleBuffers(Long.MAX_VALUE);
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public long getAllocatedSize() {
+        return allocatedSize.get();
+    }
+
+    public long getUsedSize() {
+        return usedSize.get();
+    }
+
+    public long getExhaustedCnt() {
+        return exhaustedCnt.get();
+    }
+
+    private int getBlockCnt(int size) {
+        return (int) ((Math.max(size, 1) + (long) blockSize - 1) / blockSize);
+    }
+
+    private ByteBuffer pollIdleBuffer(int blockCnt) {
+        Queue<ByteBuffer> queue = idleBuffers.get(blockCnt);
+        if (queue == null) {
+            return null;
+        }
+        return queue.poll();
+    }
+
+    /**
+     * Free the idle buffers until the freed size reaches the required size,
+     * must be called under the allocation lock.
+     *
+     * @param requiredSize   the size to free
+     */
+    private void freeIdleBuffers(long requiredSize) {
+        long freedSize = 0;
+        for (Queue<ByteBuffer> queue : idleBuffers.values()) {
+            ByteBuffer buffer;
+            while (freedSize < requiredSize && (buffer = queue.poll()) != null) {
+                freedSize += buffer.capacity();
+                allocatedSize.addAndGet(-buffer.capacity());
+                BrokerSrvStatsHolder.addMemPoolAllocSize(-buffer.capacity());
+                ((DirectBuffer) buffer).cleaner().clean();
+            }
+            if (freedSize >= requiredSize) {
+                return;
+            }
+        }
+    }
+}
@@ -25,7 +25,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
@@ -42,6 +44,15 @@ import sun.nio.ch.DirectBuffer;
 
 /**
  * Message's memory storage. It use direct memory store messages that received but not have been flushed to disk.
+ *
+ * Two append modes are supported: the default mode serializes writers and readers with a lock;
+ * the lock-free mode lets each writer claim its data and index position through one CAS on a
+ * packed reservation state, copy its entry outside any lock, and then publish the entry in
+ * index order, so readers only ever see fully copied messages and never block writers.
+ *
+ * The cache buffers are either allocated by the store itself, or acquired from the broker-wide
+ * buffer pool. A pooled store can release its buffers once the cached messages have been flushed,
+ * and rejects the appends until the buffers are acquired again.
  */
 public class MsgMemStore implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(MsgMemStore.class);
@@ -50,19 +61,29 @@ public class MsgMemStore implements Closeable {
     private final AtomicInteger cacheIndexOffset = new AtomicInteger(0);
     private final AtomicInteger curMessageCount = new AtomicInteger(0);
     private final ReentrantLock writeLock = new ReentrantLock();
+    // whether append messages in lock-free mode
+    private final boolean lockFreeAppend;
+    // lock-free mode: reserved (message count << 32 | data offset) claimed by writers
+    private final AtomicLong reservedState = new AtomicLong(0);
+    // lock-free mode: published (message count << 32 | data offset) visible to readers
+    private final AtomicLong publishedState = new AtomicLong(0);
+    // lock-free mode: the data end offset of each copied slot, 0 means not copied yet
+    private final AtomicIntegerArray slotDataEnds;
     // partitionId to index position, accelerate query
-    private final Map<Integer, Integer> queuesMap =
-            new HashMap<>(20);
+    private final Map<Integer, Integer> queuesMap;
     // key to index position, used for filter consume
-    private final Map<Integer, Integer> keysMap =
-            new HashMap<>(100);
+    private final Map<Integer, Integer> keysMap;
     // where messages in memory will sink to disk
     private final int maxDataCacheSize;
     private long writeDataStartPos = -1;
-    private final ByteBuffer cacheDataSegment;
     private final int maxIndexCacheSize;
     private long writeIndexStartPos = -1;
-    private final ByteBuffer cachedIndexSegment;
+    // the pool of the cache buffers, null if the buffers are allocated by the store itself
+    private final DirectBufferPool bufferPool;
+    // the cache buffers, null if released to the pool, only changed while
+    // the owner blocks both the appends and the reads of this store
+    private ByteBuffer cacheDataSegment;
+    private ByteBuffer cachedIndexSegment;
     private final int maxAllowedMsgCount;
     private final AtomicLong leftAppendTime =
             new AtomicLong(TBaseConstants.META_VALUE_UNDEFINED);
@@ -79,11 +100,59 @@ public class MsgMemStore implements Closeable {
      */
     public MsgMemStore(int maxCacheSize, int maxMsgCount,
                        long writeDataStartPos, long writeIndexStartPos) {
+        this(maxCacheSize, maxMsgCount, writeDataStartPos, writeIndexStartPos, false);
+    }
+
+    /**
+     * MsgMemStore, initial message memory cache store block
+     *
+     * @param maxCacheSize     the allowed max cache data size
+     * @param maxMsgCount      the allowed max cache data size
+     * @param writeDataStartPos     the data start position
+     * @param writeIndexStartPos    the data start position
+     * @param lockFreeAppend        whether append messages in lock-free mode
+     */
+    public MsgMemStore(int maxCacheSize, int maxMsgCount,
+                       long writeDataStartPos, long writeIndexStartPos,
+                       boolean lockFreeAppend) {
+        this(maxCacheSize, maxMsgCount, writeDataStartPos,
+                writeIndexStartPos, lockFreeAppend, null);
+    }
+
+    /**
+     * MsgMemStore, initial message memory cache store block
+     *
+     * @param maxCacheSize     the allowed max cache data size
+     * @param maxMsgCount      the allowed max cache data size
+     * @param writeDataStartPos     the data start position
+     * @param writeIndexStartPos    the data start position
+     * @param lockFreeAppend        whether append messages in lock-free mode
+     * @param bufferPool            the pool to acquire the cache buffers from,
+     *                              null if allocate the buffers directly
+     */
+    public MsgMemStore(int maxCacheSize, int maxMsgCount,
+                       long writeDataStartPos, long writeIndexStartPos,
+                       boolean lockFreeAppend, DirectBufferPool bufferPool) {
         this.maxDataCacheSize = maxCacheSize;
         this.maxAllowedMsgCount = maxMsgCount;
+        this.lockFreeAppend = lockFreeAppend;
+        if (this.lockFreeAppend) {
+            this.queuesMap = new ConcurrentHashMap<>(20);
+            this.keysMap = new ConcurrentHashMap<>(100);
+            this.slotDataEnds = new AtomicIntegerArray(this.maxAllowedMsgCount);
+        } else {
+            this.queuesMap = new HashMap<>(20);
+            this.keysMap = new HashMap<>(100);
+            this.slotDataEnds = null;
+        }
         this.maxIndexCacheSize = this.maxAllowedMsgCount * DataStoreUtils.STORE_INDEX_HEAD_LEN;
-        this.cacheDataSegment = ByteBuffer.allocateDirect(this.maxDataCacheSize);
-        this.cachedIndexSegment = ByteBuffer.allocateDirect(this.maxIndexCacheSize);
+        this.bufferPool = bufferPool;
+        if (this.bufferPool == null) {
+            this.cacheDataSegment = ByteBuffer.allocateDirect(this.maxDataCacheSize);
+            this.cachedIndexSegment = ByteBuffer.allocateDirect(this.maxIndexCacheSize);
+        } else {
+            acquireBuffers();
+        }
         this.leftAppendTime.set(System.currentTimeMillis());
         this.rightAppendTime.set(System.currentTimeMillis());
         this.writeDataStartPos = writeDataStartPos;
@@ -97,13 +166,16 @@ public class MsgMemStore implements Closeable {
      * @param writeIndexStartPos    the data start position
      */
     public void resetMemStoreStatus(long writeDataStartPos, long writeIndexStartPos) {
+        this.resetLockFreeState();
         this.keysMap.clear();
         this.queuesMap.clear();
         this.cacheDataOffset.set(0);
         this.cacheIndexOffset.set(0);
         this.curMessageCount.set(0);
-        this.cacheDataSegment.rewind();
-        this.cachedIndexSegment.rewind();
+        if (this.hasBuffers()) {
+            this.cacheDataSegment.rewind();
+            this.cachedIndexSegment.rewind();
+        }
         this.writeDataStartPos = writeDataStartPos;
         this.writeIndexStartPos = writeIndexStartPos;
         this.leftAppendTime.set(System.currentTimeMillis());
@@ -128,6 +200,14 @@ public class MsgMemStore implements Closeable {
                              int partitionId, int keyCode, long timeRecv,
                              ByteBuffer indexEntry, int dataEntryLength,
                              ByteBuffer dataEntry, AppendResult appendResult) {
+        if (!this.hasBuffers()) {
+            // the buffers have not been acquired from the pool yet
+            return false;
+        }
+        if (this.lockFreeAppend) {
+            return lockFreeAppendMsg(memStatsHolder, partitionId, keyCode,
+                    timeRecv, indexEntry, dataEntryLength, dataEntry, appendResult);
+        }
         long dataOffset;
         long indexOffset;
         int indexSizePos;
@@ -194,48 +274,44 @@ public class MsgMemStore implements Closeable {
                                          boolean isFilterConsume, Set<Integer> filterKeySet,
                                          long reqRcvTime) {
         // #lizard forgives
-        Integer lastWritePos = 0;
-        boolean hasMsg = false;
+        boolean hasMsg;
         // judge memory contains the given offset or not.
         List<ByteBuffer> cacheMsgList = new ArrayList<>();
         if (lstRdIndexOffset < this.writeIndexStartPos) {
             return new GetCacheMsgResult(false, TErrCodeConstants.MOVED,
                     lstRdIndexOffset, "Request offset lower than cache minOffset");
         }
-        if (lstRdIndexOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        if (lstRdIndexOffset >= this.writeIndexStartPos + this.getIndexCacheSize()) {
             return new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
                     lstRdIndexOffset, "Request offset reached cache maxOffset");
         }
+        if (!this.hasBuffers()) {
+            return new GetCacheMsgResult(false, TErrCodeConstants.NOT_FOUND,
+                    lstRdIndexOffset, "Cache buffers have been released");
+        }
         int totalReadSize = 0;
         int currIndexOffset;
         int currDataOffset;
         long lastDataRdOff = lstRdDataOffset;
         int startReadOff = (int) (lstRdIndexOffset - this.writeIndexStartPos);
-        this.writeLock.lock();
-        try {
-            if (isFilterConsume) {
-                // filter conduct. accelerate by keysMap.
-                for (Integer keyCode : filterKeySet) {
-                    if (keyCode != null) {
-                        lastWritePos = this.keysMap.get(keyCode);
-                        if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                            hasMsg = true;
-                            break;
-                        }
-                    }
-                }
-            } else {
-                // orderly consume by partition id.
-                lastWritePos = this.queuesMap.get(partitionId);
-                if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
-                    hasMsg = true;
-                }
-            }
-            currDataOffset = this.cacheDataOffset.get();
-            currIndexOffset = this.cacheIndexOffset.get();
+        if (this.lockFreeAppend) {
+            // take the published snapshot first, the position maps may point to
+            // slots published later, which only costs an empty scan
+            long curState = this.publishedState.get();
+            currIndexOffset = getStateMsgCount(curState) * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+            currDataOffset = getStateDataOffset(curState);
             lastDataRdOff = this.writeDataStartPos + currDataOffset;
-        } finally {
-            this.writeLock.unlock();
+            hasMsg = hasMatchedMsg(partitionId, isFilterConsume, filterKeySet, startReadOff);
+        } else {
+            this.writeLock.lock();
+            try {
+                hasMsg = hasMatchedMsg(partitionId, isFilterConsume, filterKeySet, startReadOff);
+                currDataOffset = this.cacheDataOffset.get();
+                currIndexOffset = this.cacheIndexOffset.get();
+                lastDataRdOff = this.writeDataStartPos + currDataOffset;
+            } finally {
+                this.writeLock.unlock();
+            }
         }
         int limitReadSize = currIndexOffset - startReadOff;
         // cannot find message, return not found
@@ -321,32 +397,55 @@ public class MsgMemStore implements Closeable {
      */
     public void batchFlush(MsgFileStore msgFileStore,
                            StringBuilder strBuffer) throws Throwable {
-        if (this.curMessageCount.get() == 0) {
+        if (this.getCurMsgCount() == 0) {
             return;
         }
         ByteBuffer tmpIndexBuffer = this.cachedIndexSegment.asReadOnlyBuffer();
         final ByteBuffer tmpDataReadBuf = this.cacheDataSegment.asReadOnlyBuffer();
-        tmpIndexBuffer.flip();
-        tmpDataReadBuf.flip();
+        if (this.lockFreeAppend) {
+            // lock-free writers copy by absolute position, so the limit is
+            // taken from the published state rather than the buffer position
+            tmpIndexBuffer.limit(this.getIndexCacheSize());
+            tmpDataReadBuf.limit(this.getCurDataCacheSize());
+            tmpIndexBuffer.position(0);
+            tmpDataReadBuf.position(0);
+        } else {
+            tmpIndexBuffer.flip();
+            tmpDataReadBuf.flip();
+        }
         long startTime = System.currentTimeMillis();
-        msgFileStore.appendMsg(strBuffer, curMessageCount.get(),
-            cacheIndexOffset.get(), tmpIndexBuffer, cacheDataOffset.get(),
+        msgFileStore.appendMsg(strBuffer, this.getCurMsgCount(),
+                this.getIndexCacheSize(), tmpIndexBuffer, this.getCurDataCacheSize(),
                 tmpDataReadBuf, leftAppendTime.get(), rightAppendTime.get());
         BrokerSrvStatsHolder.updDiskSyncDataDlt(System.currentTimeMillis() - startTime);
     }
 
     public int getCurMsgCount() {
+        if (this.lockFreeAppend) {
+            return getStateMsgCount(this.publishedState.get());
+        }
         return this.curMessageCount.get();
     }
 
     public int getCurDataCacheSize() {
+        if (this.lockFreeAppend) {
+            return getStateDataOffset(this.publishedState.get());
+        }
         return this.cacheDataOffset.get();
     }
 
     public int getIndexCacheSize() {
+        if (this.lockFreeAppend) {
+            return getStateMsgCount(this.publishedState.get())
+                    * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        }
         return this.cacheIndexOffset.get();
     }
 
+    public boolean isLockFreeAppend() {
+        return this.lockFreeAppend;
+    }
+
     public int getMaxDataCacheSize() {
         return this.maxDataCacheSize;
     }
@@ -358,18 +457,40 @@ public class MsgMemStore implements Closeable {
     public int isOffsetInHold(long requestOffset) {
         if (requestOffset < this.writeIndexStartPos) {
             return -1;
-        } else if (requestOffset >= this.writeIndexStartPos + this.cacheIndexOffset.get()) {
+        } else if (requestOffset >= this.writeIndexStartPos + this.getIndexCacheSize()) {
             return 1;
         }
         return 0;
     }
 
+    /**
+     * Read the index entry at the given offset from the cache, the caller must
+     * block the swapping and clearing of this store.
+     *
+     * @param indexOffset   the index offset of the entry
+     * @param entryBuffer   the buffer to read the entry into
+     * @return              whether the entry is in the cache and has been read
+     */
+    public boolean readIndexEntry(long indexOffset, ByteBuffer entryBuffer) {
+        if (isOffsetInHold(indexOffset) != 0 || !this.hasBuffers()) {
+            return false;
+        }
+        int readPos = (int) (indexOffset - this.writeIndexStartPos);
+        ByteBuffer tmpIndexRdBuf = this.cachedIndexSegment.asReadOnlyBuffer();
+        tmpIndexRdBuf.limit(readPos + DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        tmpIndexRdBuf.position(readPos);
+        entryBuffer.clear();
+        entryBuffer.put(tmpIndexRdBuf);
+        entryBuffer.flip();
+        return true;
+    }
+
     public long getDataLastWritePos() {
-        return this.writeDataStartPos + this.cacheDataOffset.get();
+        return this.writeDataStartPos + this.getCurDataCacheSize();
     }
 
     public long getIndexLastWritePos() {
-        return this.writeIndexStartPos + this.cacheIndexOffset.get();
+        return this.writeIndexStartPos + this.getIndexCacheSize();
     }
 
     public long getIndexStartWritePos() {
@@ -394,6 +515,7 @@ public class MsgMemStore implements Closeable {
     }
 
     public void clear() {
+        this.resetLockFreeState();
         this.writeDataStartPos = -1;
         this.writeIndexStartPos = -1;
         this.cacheDataOffset.set(0);
@@ -401,14 +523,195 @@ public class MsgMemStore implements Closeable {
         this.curMessageCount.set(0);
         this.queuesMap.clear();
         this.keysMap.clear();
-        this.cacheDataSegment.rewind();
-        this.cachedIndexSegment.rewind();
+        if (this.hasBuffers()) {
+            this.cacheDataSegment.rewind();
+            this.cachedIndexSegment.rewind();
+        }
         this.leftAppendTime.set(System.currentTimeMillis());
         this.rightAppendTime.set(System.currentTimeMillis());
     }
 
+    /**
+     * Append message to memory cache without lock.
+     *
+     * The writer claims its slot and data range by CAS on the reserved state, copies
+     * the entries into the claimed range by absolute position, marks the slot as copied,
+     * and then helps advance the published state over all consecutive copied slots.
+     *
+     * @param memStatsHolder    statistical information object
+     * @param partitionId       the partitionId for append messages
+     * @param keyCode           the filter item hash code
+     * @param timeRecv          the received timestamp
+     * @param indexEntry        the stored index entry
+     * @param dataEntryLength   the stored data entry length
+     * @param dataEntry         the stored data entry
+     * @param appendResult      the append result
+     *
+     * @return    the process result
+     */
+    private boolean lockFreeAppendMsg(MsgStoreStatsHolder memStatsHolder,
+                                      int partitionId, int keyCode, long timeRecv,
+                                      ByteBuffer indexEntry, int dataEntryLength,
+                                      ByteBuffer dataEntry, AppendResult appendResult) {
+        int slotIndex;
+        int dataPos;
+        long curState;
+        boolean fullDataSize;
+        boolean fullIndexSize;
+        boolean fullCount;
+        // reserve the index slot and data range
+        do {
+            curState = this.reservedState.get();
+            slotIndex = getStateMsgCount(curState);
+            dataPos = getStateDataOffset(curState);
+            fullDataSize = (dataPos + dataEntryLength > this.maxDataCacheSize);
+            fullCount = (slotIndex + 1 > this.maxAllowedMsgCount);
+            fullIndexSize = ((slotIndex + 1) * DataStoreUtils.STORE_INDEX_HEAD_LEN
+                    > this.maxIndexCacheSize);
+            if (fullDataSize || fullCount || fullIndexSize) {
+                memStatsHolder.addCacheFullType(fullDataSize, fullIndexSize, fullCount);
+                return false;
+            }
+        } while (!this.reservedState.compareAndSet(curState,
+                buildState(slotIndex + 1, dataPos + dataEntryLength)));
+        // copy message into the reserved range
+        int indexSizePos = slotIndex * DataStoreUtils.STORE_INDEX_HEAD_LEN;
+        long indexOffset = this.writeIndexStartPos + indexSizePos;
+        long dataOffset = this.writeDataStartPos + dataPos;
+        indexEntry.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET, dataOffset);
+        dataEntry.putLong(DataStoreUtils.STORE_HEADER_POS_QUEUE_LOGICOFF, indexOffset);
+        ByteBuffer dataWriteBuf = this.cacheDataSegment.duplicate();
+        dataWriteBuf.position(dataPos);
+        dataWriteBuf.put(dataEntry.array(), 0, dataEntryLength);
+        ByteBuffer indexWriteBuf = this.cachedIndexSegment.duplicate();
+        indexWriteBuf.position(indexSizePos);
+        indexWriteBuf.put(indexEntry.array(), 0, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        this.queuesMap.merge(partitionId, indexSizePos, Math::max);
+        this.keysMap.merge(keyCode, indexSizePos, Math::max);
+        this.rightAppendTime.accumulateAndGet(timeRecv, Math::max);
+        if (indexSizePos == 0) {
+            this.leftAppendTime.set(timeRecv);
+        }
+        // mark copied, then publish in slot order
+        this.slotDataEnds.set(slotIndex, dataPos + dataEntryLength);
+        publishCopiedSlots();
+        memStatsHolder.addCacheMsgSize(dataEntryLength);
+        appendResult.putAppendResult(indexOffset, dataOffset);
+        return true;
+    }
+
+    private void publishCopiedSlots() {
+        long curState;
+        int slotIndex;
+        int slotDataEnd;
+        while (true) {
+            curState = this.publishedState.get();
+            slotIndex = getStateMsgCount(curState);
+            if (slotIndex >= this.maxAllowedMsgCount) {
+                return;
+            }
+            slotDataEnd = this.slotDataEnds.get(slotIndex);
+            if (slotDataEnd <= 0) {
+                // the next slot is still being copied, its writer will publish it
+                return;
+            }
+            this.publishedState.compareAndSet(curState,
+                    buildState(slotIndex + 1, slotDataEnd));
+        }
+    }
+
+    private boolean hasMatchedMsg(int partitionId, boolean isFilterConsume,
+                                  Set<Integer> filterKeySet, int startReadOff) {
+        Integer lastWritePos;
+        if (isFilterConsume) {
+            // filter conduct. accelerate by keysMap.
+            for (Integer keyCode : filterKeySet) {
+                if (keyCode != null) {
+                    lastWritePos = this.keysMap.get(keyCode);
+                    if ((lastWritePos != null) && (lastWritePos >= startReadOff)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        // orderly consume by partition id.
+        lastWritePos = this.queuesMap.get(partitionId);
+        return (lastWritePos != null) && (lastWritePos >= startReadOff);
+    }
+
+    private void resetLockFreeState() {
+        if (!this.lockFreeAppend) {
+            return;
+        }
+        int usedSlots = getStateMsgCount(this.reservedState.get());
+        for (int i = 0; i < usedSlots; i++) {
+            this.slotDataEnds.set(i, 0);
+        }
+        this.publishedState.set(0);
+        this.reservedState.set(0);
+    }
+
+    private static long buildState(int msgCount, int dataOffset) {
+        return ((long) msgCount << 32) | (dataOffset & 0xFFFFFFFFL);
+    }
+
+    private static int getStateMsgCount(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int getStateDataOffset(long state) {
+        return (int) state;
+    }
+
+    public boolean hasBuffers() {
+        return this.cacheDataSegment != null && this.cachedIndexSegment != null;
+    }
+
+    /**
+     * Acquire the cache buffers from the pool if not held, the caller must
+     * block the appends and reads of this store.
+     *
+     * @return    whether the store holds the cache buffers
+     */
+    public boolean acquireBuffers() {
+        if (this.bufferPool == null || this.hasBuffers()) {
+            return this.hasBuffers();
+        }
+        ByteBuffer dataBuffer = this.bufferPool.acquire(this.maxDataCacheSize);
+        if (dataBuffer == null) {
+            return false;
+        }
+        ByteBuffer indexBuffer = this.bufferPool.acquire(this.maxIndexCacheSize);
+        if (indexBuffer == null) {
+            this.bufferPool.release(dataBuffer);
+            return false;
+        }
+        this.cacheDataSegment = dataBuffer;
+        this.cachedIndexSegment = indexBuffer;
+        return true;
+    }
+
+    /**
+     * Release the cache buffers to the pool, the cached messages must have been flushed,
+     * and the caller must block the appends and reads of this store.
+     */
+    public void releaseBuffers() {
+        if (this.bufferPool == null) {
+            return;
+        }
+        this.bufferPool.release(this.cacheDataSegment);
+        this.bufferPool.release(this.cachedIndexSegment);
+        this.cacheDataSegment = null;
+        this.cachedIndexSegment = null;
+    }
+
     @Override
     public void close() {
+        if (this.bufferPool != null) {
+            releaseBuffers();
+            return;
+        }
         ((DirectBuffer) this.cacheDataSegment).cleaner().clean();
         ((DirectBuffer) this.cachedIndexSegment).cleaner().clean();
     }
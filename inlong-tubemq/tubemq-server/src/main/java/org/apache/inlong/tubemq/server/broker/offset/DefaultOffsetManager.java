@@ -18,6 +18,7 @@
 package org.apache.inlong.tubemq.server.broker.offset;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,10 +32,12 @@ import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple3;
 import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.exception.OffsetStoreException;
 import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.LocalLogOffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorage;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
 import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.ZkOffsetStorage;
@@ -48,7 +51,7 @@ import org.slf4j.LoggerFactory;
 public class DefaultOffsetManager extends AbstractDaemonService implements OffsetService {
     private static final Logger logger = LoggerFactory.getLogger(DefaultOffsetManager.class);
     private final BrokerConfig brokerConfig;
-    private final OffsetStorage zkOffsetStorage;
+    private final OffsetStorage offsetStorage;
     private final ConcurrentHashMap<String/* group */,
             ConcurrentHashMap<String/* topic - partitionId*/, OffsetStorageInfo>> cfmOffsetMap =
             new ConcurrentHashMap<>();
@@ -56,11 +59,24 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             ConcurrentHashMap<String/* topic - partitionId*/, Long>> tmpOffsetMap =
             new ConcurrentHashMap<>();
 
-    public DefaultOffsetManager(final BrokerConfig brokerConfig) {
-        super("[Offset Manager]", brokerConfig.getZkConfig().getZkCommitPeriodMs());
+    public DefaultOffsetManager(final BrokerConfig brokerConfig) throws OffsetStoreException {
+        super("[Offset Manager]", brokerConfig.isEnableLocalOffsetStorage()
+                ? brokerConfig.getLocalOffsetCommitPeriodMs()
+                : brokerConfig.getZkConfig().getZkCommitPeriodMs());
         this.brokerConfig = brokerConfig;
-        zkOffsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
-                true, brokerConfig.getBrokerId());
+        if (brokerConfig.isEnableLocalOffsetStorage()) {
+            OffsetStorage mirrorStorage = null;
+            if (brokerConfig.isEnableOffsetZkMirror()) {
+                mirrorStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
+                        true, brokerConfig.getBrokerId());
+            }
+            offsetStorage = new LocalLogOffsetStorage(brokerConfig.getLocalOffsetStoragePath(),
+                    brokerConfig.getBrokerId(), brokerConfig.getLocalOffsetCompactRecordCnt(),
+                    mirrorStorage, brokerConfig.getZkConfig().getZkCommitPeriodMs());
+        } else {
+            offsetStorage = new ZkOffsetStorage(brokerConfig.getZkConfig(),
+                    true, brokerConfig.getBrokerId());
+        }
         super.start();
     }
 
@@ -88,7 +104,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         this.commitTmpOffsets();
         logger.info("[Offset Manager] begin reserve final Offset.....");
         this.commitCfmOffsets(true);
-        this.zkOffsetStorage.close();
+        this.offsetStorage.close();
         logger.info("[Offset Manager] Offset Manager service stopped!");
     }
 
@@ -346,7 +362,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         Set<String> groupSet =
                 new HashSet<>(cfmOffsetMap.keySet());
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         groupSet.addAll(localGroups.keySet());
         return groupSet;
     }
@@ -369,7 +385,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
     public Set<String> getUnusedGroupInfo() {
         Set<String> unUsedGroups = new HashSet<>();
         Map<String, Set<String>> localGroups =
-                zkOffsetStorage.queryZkAllGroupTopicInfos();
+                offsetStorage.queryZkAllGroupTopicInfos();
         for (String groupName : localGroups.keySet()) {
             if (!cfmOffsetMap.containsKey(groupName)) {
                 unUsedGroups.add(groupName);
@@ -392,7 +408,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
             List<String> groupLst = new ArrayList<>(1);
             groupLst.add(group);
             Map<String, Set<String>> groupTopicInfo =
-                    zkOffsetStorage.queryZKGroupTopicInfo(groupLst);
+                    offsetStorage.queryZKGroupTopicInfo(groupLst);
             result = groupTopicInfo.get(group);
         } else {
             for (OffsetStorageInfo storageInfo : topicPartOffsetMap.values()) {
@@ -422,7 +438,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     continue;
                 }
                 Map<Integer, Long> qryResult =
-                        zkOffsetStorage.queryGroupOffsetInfo(group,
+                        offsetStorage.queryGroupOffsetInfo(group,
                                 entry.getKey(), entry.getValue());
                 Map<Integer, Tuple2<Long, Long>> offsetMap = new HashMap<>();
                 for (Map.Entry<Integer, Long> item : qryResult.entrySet()) {
@@ -568,7 +584,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
                     .append("[Offset Manager] delete offset from memory by modifier=")
                     .append(modifier).toString();
         } else {
-            zkOffsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
             printBase = strBuff
                     .append("[Offset Manager] delete offset from memory and zk by modifier=")
                     .append(modifier).toString();
@@ -658,12 +674,16 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
 
     private void commitCfmOffsets(boolean retryable) {
         long startTime = System.currentTimeMillis();
+        Map<String, Collection<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
         for (Map.Entry<String, ConcurrentHashMap<String, OffsetStorageInfo>> entry : cfmOffsetMap.entrySet()) {
             if (TStringUtils.isBlank(entry.getKey())
                     || entry.getValue() == null || entry.getValue().isEmpty()) {
                 continue;
             }
-            zkOffsetStorage.commitOffset(entry.getKey(), entry.getValue().values(), retryable);
+            groupOffsetMap.put(entry.getKey(), entry.getValue().values());
+        }
+        if (!groupOffsetMap.isEmpty()) {
+            offsetStorage.commitOffsets(groupOffsetMap, retryable);
         }
         BrokerSrvStatsHolder.updZKSyncDataDlt(System.currentTimeMillis() - startTime);
     }
@@ -693,7 +713,7 @@ public class DefaultOffsetManager extends AbstractDaemonService implements Offse
         OffsetStorageInfo regInfo = regInfoMap.get(offsetCacheKey);
         if (regInfo == null) {
             OffsetStorageInfo tmpRegInfo =
-                    zkOffsetStorage.loadOffset(group, topic, partitionId);
+                    offsetStorage.loadOffset(group, topic, partitionId);
             if (tmpRegInfo == null) {
                 tmpRegInfo = new OffsetStorageInfo(topic,
                         brokerConfig.getBrokerId(), partitionId, defOffset, 0);
@@ -61,4 +61,8 @@ public class RecordItem {
     public int getStoreId() {
         return storeId;
     }
+
+    public long getOffsetLag() {
+        return offsetLag;
+    }
 }
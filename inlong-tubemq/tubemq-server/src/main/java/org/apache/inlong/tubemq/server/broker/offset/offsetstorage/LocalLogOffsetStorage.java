@@ -0,0 +1,654 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.server.broker.exception.OffsetStoreException;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A offset storage implementation with local log.
+ *
+ * The committed offsets are appended to a local log file as records, and kept in memory.
+ * When the appended records reach the compaction threshold, the in-memory offsets are
+ * written into a snapshot file and the log file is truncated, so the broker restores
+ * the offsets by reading the snapshot file and replaying the log file sequentially.
+ *
+ * If a mirror storage is set, the committed offsets are merged by partition and
+ * committed to the mirror storage asynchronously with the mirror period, the mirror
+ * storage is also used to load the offsets not found in the local log, which keeps
+ * the offsets committed before switching to the local storage.
+ */
+public class LocalLogOffsetStorage implements OffsetStorage {
+    private static final Logger logger = LoggerFactory.getLogger(LocalLogOffsetStorage.class);
+    private static final String LOG_FILE_NAME = "offset.log";
+    private static final String SNAPSHOT_FILE_NAME = "offset.snapshot";
+    private static final byte RECORD_TYPE_COMMIT = 1;
+    private static final byte RECORD_TYPE_DELETE = 2;
+    // the record head: payload length and payload crc
+    private static final int RECORD_HEAD_LEN = 8;
+
+    private final File storeDir;
+    private final int brokerId;
+    private final int compactRecordCnt;
+    // group - (topic-partitionId) - offset record
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, OffsetRecord>> offsetMap =
+            new ConcurrentHashMap<>();
+    private final Object logLock = new Object();
+    private final FileChannel logChannel;
+    // the count of the records in the log file
+    private int logRecordCnt = 0;
+    // the asynchronous mirror storage, null if not mirrored
+    private final OffsetStorage mirrorStorage;
+    private final ScheduledExecutorService mirrorExecutor;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, OffsetStorageInfo>> mirrorOffsetMap =
+            new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Map<String, Map<String, Set<Integer>>>> mirrorDeleteQueue =
+            new ConcurrentLinkedQueue<>();
+    private final Object mirrorLock = new Object();
+
+    /**
+     * Initial local log offset storage object
+     *
+     * @param storePath          the directory of the log and snapshot files
+     * @param brokerId           the broker id
+     * @param compactRecordCnt   the appended record count that triggers the compaction
+     * @param mirrorStorage      the mirror storage, null if not mirrored
+     * @param mirrorPeriodMs     the commit period of the mirror storage
+     * @throws OffsetStoreException   the exception while loading the stored offsets
+     */
+    public LocalLogOffsetStorage(String storePath, int brokerId, int compactRecordCnt,
+                                 OffsetStorage mirrorStorage, long mirrorPeriodMs)
+            throws OffsetStoreException {
+        this.storeDir = new File(storePath);
+        this.brokerId = brokerId;
+        this.compactRecordCnt = compactRecordCnt;
+        this.mirrorStorage = mirrorStorage;
+        long startTime = System.currentTimeMillis();
+        try {
+            if (!storeDir.exists() && !storeDir.mkdirs() && !storeDir.exists()) {
+                throw new IOException("Create directory failure, path=" + storeDir);
+            }
+            loadSnapshot();
+            logRecordCnt = 0;
+            this.logChannel = new RandomAccessFile(
+                    new File(storeDir, LOG_FILE_NAME), "rw").getChannel();
+            replayLog();
+        } catch (IOException e) {
+            throw new OffsetStoreException("Load local offset storage failure, path="
+                    + storeDir.getAbsolutePath(), e);
+        }
+        if (mirrorStorage == null) {
+            this.mirrorExecutor = null;
+        } else {
+            this.mirrorExecutor =
+                    Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, "Broker Offset Mirror Thread");
+                        }
+                    });
+            this.mirrorExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        syncToMirror(false);
+                    } catch (Throwable t) {
+                        logger.error("[LocalOffsetStorage] Mirror offsets failure", t);
+                    }
+                }
+            }, mirrorPeriodMs, mirrorPeriodMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info(new StringBuilder(256)
+                .append("[LocalOffsetStorage] Local Offset Storage initiated, path=")
+                .append(storeDir.getAbsolutePath()).append(", groups=").append(offsetMap.size())
+                .append(", logRecords=").append(logRecordCnt).append(", mirrored=")
+                .append(mirrorStorage != null).append(", cost=")
+                .append(System.currentTimeMillis() - startTime).append("ms").toString());
+    }
+
+    @Override
+    public void close() {
+        if (mirrorExecutor != null) {
+            mirrorExecutor.shutdown();
+            try {
+                mirrorExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            syncToMirror(true);
+            mirrorStorage.close();
+        }
+        synchronized (logLock) {
+            try {
+                logChannel.force(true);
+                logChannel.close();
+            } catch (IOException e) {
+                logger.error("[LocalOffsetStorage] Close offset log failure", e);
+            }
+        }
+        logger.info("[LocalOffsetStorage] Local Offset Storage closed!");
+    }
+
+    @Override
+    public OffsetStorageInfo loadOffset(String group, String topic, int partitionId) {
+        Map<String, OffsetRecord> recordMap = offsetMap.get(group);
+        if (recordMap != null) {
+            OffsetRecord record = recordMap.get(buildRecordKey(topic, partitionId));
+            if (record != null) {
+                return new OffsetStorageInfo(topic, brokerId,
+                        partitionId, record.offset, record.msgId, false);
+            }
+        }
+        if (mirrorStorage != null) {
+            return mirrorStorage.loadOffset(group, topic, partitionId);
+        }
+        return null;
+    }
+
+    @Override
+    public void commitOffset(String group, Collection<OffsetStorageInfo> offsetInfoList,
+                             boolean isFailRetry) {
+        if (offsetInfoList == null || offsetInfoList.isEmpty()) {
+            return;
+        }
+        commitOffsets(Collections.singletonMap(group, offsetInfoList), isFailRetry);
+    }
+
+    @Override
+    public void commitOffsets(Map<String, ? extends Collection<OffsetStorageInfo>> groupOffsetMap,
+                              boolean isFailRetry) {
+        if (groupOffsetMap == null || groupOffsetMap.isEmpty()) {
+            return;
+        }
+        int maxRetries = isFailRetry ? TServerConstants.CFG_ZK_COMMIT_DEFAULT_RETRIES : 1;
+        for (int i = 0; i < maxRetries; i++) {
+            try {
+                cfmOffsets(groupOffsetMap);
+                return;
+            } catch (IOException e) {
+                logger.error("[LocalOffsetStorage] Commit offsets failure with retry " + i, e);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZkAllGroupTopicInfos() {
+        return queryZKGroupTopicInfo(new ArrayList<>(offsetMap.keySet()));
+    }
+
+    @Override
+    public Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet) {
+        Map<String, Set<String>> groupTopicMap = new HashMap<>();
+        if (groupSet == null || groupSet.isEmpty()) {
+            return groupTopicMap;
+        }
+        for (String group : groupSet) {
+            if (group == null) {
+                continue;
+            }
+            Map<String, OffsetRecord> recordMap = offsetMap.get(group);
+            if (recordMap == null || recordMap.isEmpty()) {
+                continue;
+            }
+            Set<String> topicSet = new HashSet<>();
+            for (OffsetRecord record : recordMap.values()) {
+                topicSet.add(record.topic);
+            }
+            groupTopicMap.put(group, topicSet);
+        }
+        return groupTopicMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryGroupOffsetInfo(String group, String topic,
+                                                  Set<Integer> partitionIds) {
+        Map<Integer, Long> offsetMap = new HashMap<>(partitionIds.size());
+        Set<Integer> missedPartIds = new HashSet<>();
+        Map<String, OffsetRecord> recordMap = this.offsetMap.get(group);
+        for (Integer partitionId : partitionIds) {
+            OffsetRecord record = (recordMap == null)
+                    ? null : recordMap.get(buildRecordKey(topic, partitionId));
+            if (record == null) {
+                missedPartIds.add(partitionId);
+                offsetMap.put(partitionId, null);
+            } else {
+                offsetMap.put(partitionId, record.offset);
+            }
+        }
+        if (mirrorStorage != null && !missedPartIds.isEmpty()) {
+            offsetMap.putAll(mirrorStorage.queryGroupOffsetInfo(group, topic, missedPartIds));
+        }
+        return offsetMap;
+    }
+
+    @Override
+    public void deleteGroupOffsetInfo(Map<String, Map<String, Set<Integer>>> groupTopicPartMap) {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream(4096);
+        Map<String, List<String>> deletedKeys = new HashMap<>();
+        int recordCnt = 0;
+        synchronized (logLock) {
+            try {
+                for (Map.Entry<String, Map<String, Set<Integer>>> entry
+                        : groupTopicPartMap.entrySet()) {
+                    if (entry.getKey() == null
+                            || entry.getValue() == null
+                            || entry.getValue().isEmpty()) {
+                        continue;
+                    }
+                    Map<String, OffsetRecord> recordMap = offsetMap.get(entry.getKey());
+                    List<String> recordKeys = new ArrayList<>();
+                    for (Map.Entry<String, Set<Integer>> topicEntry : entry.getValue().entrySet()) {
+                        if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                            continue;
+                        }
+                        for (Integer partitionId : topicEntry.getValue()) {
+                            String recordKey = buildRecordKey(topicEntry.getKey(), partitionId);
+                            recordKeys.add(recordKey);
+                            if (recordMap == null || !recordMap.containsKey(recordKey)) {
+                                continue;
+                            }
+                            writeRecord(byteOut, RECORD_TYPE_DELETE, entry.getKey(),
+                                    new OffsetRecord(topicEntry.getKey(), partitionId, 0, 0));
+                            recordCnt++;
+                        }
+                    }
+                    deletedKeys.put(entry.getKey(), recordKeys);
+                }
+                appendRecords(byteOut, recordCnt);
+            } catch (IOException e) {
+                logger.error("[LocalOffsetStorage] Delete offsets failure", e);
+                return;
+            }
+            // apply the deletions to the in-memory offsets only after they are persisted
+            for (Map.Entry<String, List<String>> entry : deletedKeys.entrySet()) {
+                Map<String, OffsetRecord> recordMap = offsetMap.get(entry.getKey());
+                Map<String, OffsetStorageInfo> mirrorMap = mirrorOffsetMap.get(entry.getKey());
+                for (String recordKey : entry.getValue()) {
+                    // drop the pending mirror commits to keep them before the deletion
+                    if (mirrorMap != null) {
+                        mirrorMap.remove(recordKey);
+                    }
+                    if (recordMap != null) {
+                        recordMap.remove(recordKey);
+                    }
+                }
+                if (recordMap != null && recordMap.isEmpty()) {
+                    offsetMap.remove(entry.getKey(), recordMap);
+                }
+            }
+        }
+        if (mirrorStorage != null) {
+            mirrorDeleteQueue.offer(groupTopicPartMap);
+        }
+    }
+
+    /**
+     * Append the modified offsets of all the groups to the log file with one force,
+     * then apply them to the in-memory and mirror offsets.
+     *
+     * @param groupOffsetMap   the group to the offsets to commit
+     * @throws IOException     the exception while writing the log file
+     */
+    private void cfmOffsets(Map<String, ? extends Collection<OffsetStorageInfo>> groupOffsetMap)
+            throws IOException {
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream(4096);
+        List<OffsetStorageInfo> committedInfos = new ArrayList<>();
+        Map<String, List<OffsetRecord>> committedRecords = new HashMap<>();
+        synchronized (logLock) {
+            for (Map.Entry<String, ? extends Collection<OffsetStorageInfo>> entry
+                    : groupOffsetMap.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                for (final OffsetStorageInfo info : entry.getValue()) {
+                    long newOffset;
+                    long msgId;
+                    synchronized (info) {
+                        if (!info.isModified()) {
+                            continue;
+                        }
+                        newOffset = info.getOffset();
+                        msgId = info.getMessageId();
+                        info.setModified(false);
+                    }
+                    OffsetRecord record = new OffsetRecord(info.getTopic(),
+                            info.getPartitionId(), newOffset, msgId);
+                    writeRecord(byteOut, RECORD_TYPE_COMMIT, entry.getKey(), record);
+                    committedInfos.add(info);
+                    committedRecords.computeIfAbsent(entry.getKey(),
+                            k -> new ArrayList<>()).add(record);
+                }
+            }
+            if (committedInfos.isEmpty()) {
+                return;
+            }
+            try {
+                appendRecords(byteOut, committedInfos.size());
+            } catch (IOException e) {
+                // keep the offsets modified to commit them in the next round
+                for (OffsetStorageInfo info : committedInfos) {
+                    synchronized (info) {
+                        info.setModified(true);
+                    }
+                }
+                throw e;
+            }
+            for (Map.Entry<String, List<OffsetRecord>> entry : committedRecords.entrySet()) {
+                ConcurrentHashMap<String, OffsetRecord> recordMap =
+                        getOrCreateMap(offsetMap, entry.getKey());
+                for (OffsetRecord record : entry.getValue()) {
+                    recordMap.put(buildRecordKey(record.topic, record.partitionId), record);
+                }
+                if (mirrorStorage != null) {
+                    ConcurrentHashMap<String, OffsetStorageInfo> mirrorMap =
+                            getOrCreateMap(mirrorOffsetMap, entry.getKey());
+                    for (OffsetRecord record : entry.getValue()) {
+                        mirrorMap.put(buildRecordKey(record.topic, record.partitionId),
+                                new OffsetStorageInfo(record.topic, brokerId,
+                                        record.partitionId, record.offset, record.msgId));
+                    }
+                }
+            }
+            if (logRecordCnt >= Math.max(compactRecordCnt, 2 * getOffsetRecordCnt())) {
+                compactLog();
+            }
+        }
+    }
+
+    /**
+     * Append the records to the log file, must be called under the log lock.
+     *
+     * @param byteOut     the serialized records
+     * @param recordCnt   the count of the records
+     * @throws IOException   the exception while writing the log file
+     */
+    private void appendRecords(ByteArrayOutputStream byteOut, int recordCnt) throws IOException {
+        if (recordCnt == 0) {
+            return;
+        }
+        long startPos = logChannel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(byteOut.toByteArray());
+        try {
+            while (buffer.hasRemaining()) {
+                logChannel.write(buffer, startPos + buffer.position());
+            }
+            logChannel.force(false);
+        } catch (IOException e) {
+            // drop the partially written records
+            logChannel.truncate(startPos);
+            throw e;
+        }
+        logRecordCnt += recordCnt;
+    }
+
+    /**
+     * Write the in-memory offsets into the snapshot file and truncate the log file,
+     * must be called under the log lock.
+     *
+     * If the broker stops after the snapshot is replaced and before the log file is
+     * truncated, replaying the log file over the snapshot still restores the same offsets,
+     * since the last record of each partition in the log file is the one in the snapshot.
+     */
+    private void compactLog() throws IOException {
+        final long startTime = System.currentTimeMillis();
+        File tmpFile = new File(storeDir, SNAPSHOT_FILE_NAME + ".tmp");
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream(4096);
+        int recordCnt = 0;
+        for (Map.Entry<String, ConcurrentHashMap<String, OffsetRecord>> entry
+                : offsetMap.entrySet()) {
+            for (OffsetRecord record : entry.getValue().values()) {
+                writeRecord(byteOut, RECORD_TYPE_COMMIT, entry.getKey(), record);
+                recordCnt++;
+            }
+        }
+        try (RandomAccessFile tmpRaf = new RandomAccessFile(tmpFile, "rw")) {
+            tmpRaf.setLength(0);
+            tmpRaf.write(byteOut.toByteArray());
+            tmpRaf.getChannel().force(true);
+        }
+        Files.move(tmpFile.toPath(), new File(storeDir, SNAPSHOT_FILE_NAME).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logChannel.truncate(0);
+        logChannel.force(true);
+        logger.info(new StringBuilder(256)
+                .append("[LocalOffsetStorage] Compacted offset log, logRecords=")
+                .append(logRecordCnt).append(", snapshotRecords=").append(recordCnt)
+                .append(", cost=").append(System.currentTimeMillis() - startTime)
+                .append("ms").toString());
+        logRecordCnt = 0;
+    }
+
+    private void loadSnapshot() throws IOException {
+        File snapshotFile = new File(storeDir, SNAPSHOT_FILE_NAME);
+        if (!snapshotFile.exists()) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(snapshotFile.toPath());
+        int validLen = readRecords(ByteBuffer.wrap(content));
+        if (validLen != content.length) {
+            throw new IOException("Snapshot file is corrupted at position "
+                    + validLen + ", path=" + snapshotFile.getAbsolutePath());
+        }
+    }
+
+    private void replayLog() throws IOException {
+        long logSize = logChannel.size();
+        if (logSize > Integer.MAX_VALUE) {
+            throw new IOException("Offset log file is too large, size=" + logSize);
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) logSize);
+        while (content.hasRemaining()) {
+            if (logChannel.read(content, content.position()) < 0) {
+                break;
+            }
+        }
+        content.flip();
+        int validLen = readRecords(content);
+        if (validLen < logSize) {
+            // the tail records are partially written, drop them
+            logger.warn(new StringBuilder(256)
+                    .append("[LocalOffsetStorage] Truncate corrupted offset log from ")
+                    .append(validLen).append(" to ").append(logSize).toString());
+            logChannel.truncate(validLen);
+            logChannel.force(true);
+        }
+    }
+
+    /**
+     * Read the records and apply them to the in-memory offsets.
+     *
+     * @param content   the serialized records
+     * @return          the length of the valid records
+     */
+    private int readRecords(ByteBuffer content) throws IOException {
+        CRC32 crc32 = new CRC32();
+        while (content.remaining() >= RECORD_HEAD_LEN) {
+            int recordPos = content.position();
+            int payloadLen = content.getInt();
+            final int payloadCrc = content.getInt();
+            if (payloadLen <= 0 || payloadLen > content.remaining()) {
+                return recordPos;
+            }
+            crc32.reset();
+            crc32.update(content.array(), content.position(), payloadLen);
+            if ((int) crc32.getValue() != payloadCrc) {
+                return recordPos;
+            }
+            DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(
+                    content.array(), content.position(), payloadLen));
+            byte recordType = dataIn.readByte();
+            String group = dataIn.readUTF();
+            String topic = dataIn.readUTF();
+            int partitionId = dataIn.readInt();
+            long offset = dataIn.readLong();
+            long msgId = dataIn.readLong();
+            content.position(content.position() + payloadLen);
+            String recordKey = buildRecordKey(topic, partitionId);
+            if (recordType == RECORD_TYPE_DELETE) {
+                Map<String, OffsetRecord> recordMap = offsetMap.get(group);
+                if (recordMap != null) {
+                    recordMap.remove(recordKey);
+                    if (recordMap.isEmpty()) {
+                        offsetMap.remove(group);
+                    }
+                }
+            } else {
+                getOrCreateMap(offsetMap, group).put(recordKey,
+                        new OffsetRecord(topic, partitionId, offset, msgId));
+            }
+            logRecordCnt++;
+        }
+        return content.position();
+    }
+
+    private void writeRecord(ByteArrayOutputStream byteOut, byte recordType,
+                             String group, OffsetRecord record) throws IOException {
+        ByteArrayOutputStream payloadOut = new ByteArrayOutputStream(128);
+        DataOutputStream dataOut = new DataOutputStream(payloadOut);
+        dataOut.writeByte(recordType);
+        dataOut.writeUTF(group);
+        dataOut.writeUTF(record.topic);
+        dataOut.writeInt(record.partitionId);
+        dataOut.writeLong(record.offset);
+        dataOut.writeLong(record.msgId);
+        dataOut.flush();
+        byte[] payload = payloadOut.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        DataOutputStream headOut = new DataOutputStream(byteOut);
+        headOut.writeInt(payload.length);
+        headOut.writeInt((int) crc32.getValue());
+        headOut.write(payload);
+        headOut.flush();
+    }
+
+    /**
+     * Commit the pending offsets and deletions to the mirror storage.
+     *
+     * @param isFailRetry   whether to retry if failed
+     */
+    private void syncToMirror(boolean isFailRetry) {
+        synchronized (mirrorLock) {
+            Map<String, Map<String, Set<Integer>>> deleteMap;
+            while ((deleteMap = mirrorDeleteQueue.poll()) != null) {
+                mirrorStorage.deleteGroupOffsetInfo(deleteMap);
+            }
+            for (Map.Entry<String, ConcurrentHashMap<String, OffsetStorageInfo>> entry
+                    : mirrorOffsetMap.entrySet()) {
+                List<OffsetStorageInfo> infoList = new ArrayList<>();
+                for (String recordKey : entry.getValue().keySet()) {
+                    OffsetStorageInfo info = entry.getValue().remove(recordKey);
+                    if (info != null) {
+                        infoList.add(info);
+                    }
+                }
+                if (infoList.isEmpty()) {
+                    continue;
+                }
+                try {
+                    mirrorStorage.commitOffset(entry.getKey(), infoList, isFailRetry);
+                } catch (Throwable t) {
+                    logger.error("[LocalOffsetStorage] Mirror offsets failure, group="
+                            + entry.getKey(), t);
+                    // keep the whole batch modified to commit them in the next round
+                    for (OffsetStorageInfo info : infoList) {
+                        synchronized (info) {
+                            info.setModified(true);
+                        }
+                    }
+                }
+                // put back the failed ones unless they have been replaced,
+                // the mirror keeps the offsets it failed to commit modified
+                for (OffsetStorageInfo info : infoList) {
+                    if (info.isModified()) {
+                        entry.getValue().putIfAbsent(
+                                buildRecordKey(info.getTopic(), info.getPartitionId()), info);
+                    }
+                }
+            }
+        }
+    }
+
+    private int getOffsetRecordCnt() {
+        int recordCnt = 0;
+        for (Map<String, OffsetRecord> recordMap : offsetMap.values()) {
+            recordCnt += recordMap.size();
+        }
+        return recordCnt;
+    }
+
+    private String buildRecordKey(String topic, int partitionId) {
+        return topic + TokenConstants.HYPHEN + partitionId;
+    }
+
+    private <T> ConcurrentHashMap<String, T> getOrCreateMap(
+            ConcurrentHashMap<String, ConcurrentHashMap<String, T>> groupMap, String group) {
+        ConcurrentHashMap<String, T> recordMap = groupMap.get(group);
+        if (recordMap == null) {
+            ConcurrentHashMap<String, T> tmpRecordMap = new ConcurrentHashMap<>();
+            recordMap = groupMap.putIfAbsent(group, tmpRecordMap);
+            if (recordMap == null) {
+                recordMap = tmpRecordMap;
+            }
+        }
+        return recordMap;
+    }
+
+    private static class OffsetRecord {
+        private final String topic;
+        private final int partitionId;
+        private final long offset;
+        private final long msgId;
+
+        OffsetRecord(String topic, int partitionId, long offset, long msgId) {
+            this.topic = topic;
+            this.partitionId = partitionId;
+            this.offset = offset;
+            this.msgId = msgId;
+        }
+    }
+}
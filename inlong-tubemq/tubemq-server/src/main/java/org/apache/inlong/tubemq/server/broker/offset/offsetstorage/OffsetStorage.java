@@ -32,6 +32,21 @@ public interface OffsetStorage {
                       Collection<OffsetStorageInfo> offsetInfoList,
                       boolean isFailRetry);
 
+    /**
+     * Commit the offsets of several groups in one round, the storages able to persist
+     * them together override it to share the cost of the commit.
+     *
+     * @param groupOffsetMap   the group to the offsets to commit
+     * @param isFailRetry      whether retry on failure
+     */
+    default void commitOffsets(Map<String, ? extends Collection<OffsetStorageInfo>> groupOffsetMap,
+                               boolean isFailRetry) {
+        for (Map.Entry<String, ? extends Collection<OffsetStorageInfo>> entry
+                : groupOffsetMap.entrySet()) {
+            commitOffset(entry.getKey(), entry.getValue(), isFailRetry);
+        }
+    }
+
     Map<String, Set<String>> queryZkAllGroupTopicInfos();
 
     Map<String, Set<String>> queryZKGroupTopicInfo(List<String> groupSet);
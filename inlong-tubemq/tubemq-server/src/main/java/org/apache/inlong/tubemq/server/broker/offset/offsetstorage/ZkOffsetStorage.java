@@ -186,6 +186,10 @@ public class ZkOffsetStorage implements OffsetStorage {
             try {
                 ZKUtil.updatePersistentPath(this.zkw, offsetPath, offsetData);
             } catch (final Throwable t) {
+                // keep the offset modified to commit it in the retry or the next round
+                synchronized (info) {
+                    info.setModified(true);
+                }
                 BrokerSrvStatsHolder.incZKExcCnt();
                 logger.error("Exception during commit offsets to ZooKeeper", t);
                 throw new OffsetStoreException(t);
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.replica;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The replication checkpoints of the follower, kept in a file beside the local stores.
+ *
+ * A checkpoint pairs an index offset of the local store with the leader offset of the
+ * partition: the messages the leader holds before the leader offset are all stored in the
+ * local store before the local offset. A checkpoint is kept until a newer one has been
+ * flushed by the local store, so after a crash the newest checkpoint within the recovered
+ * local store tells where to fetch again, the messages fetched twice are stored twice.
+ * On a clean close the local end offset of each partition is also recorded, and if the local
+ * store still reaches it, the offset committed on the leader is exact and used instead.
+ */
+public class ReplicaCheckpoint {
+    private static final Logger logger =
+            LoggerFactory.getLogger(ReplicaCheckpoint.class);
+    // the max count of the not flushed checkpoints kept of a partition
+    private static final int MAX_PENDING_CHECKPOINT_CNT = 16;
+    private final File checkpointFile;
+    // topic-partitionId to the checkpoints of the partition
+    private final Map<String, PartCheckpoint> partCheckpoints = new HashMap<>();
+    private boolean isModified = false;
+
+    public ReplicaCheckpoint(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        if (checkpointFile.exists()) {
+            try {
+                load();
+            } catch (IOException e) {
+                partCheckpoints.clear();
+                logger.warn("[Replica] Load checkpoint file " + checkpointFile
+                        + " failure, fetch from the committed offsets on the leader", e);
+            }
+        }
+    }
+
+    /**
+     * Add a checkpoint of the partition, called before storing a fetched pack.
+     *
+     * @param partKey         the topic-partitionId key
+     * @param localOffset     the index offset of the local store before the pack
+     * @param leaderOffset    the leader offset of the pack
+     * @param flushedOffset   the flushed index offset of the local store
+     */
+    public synchronized void addCheckpoint(String partKey, long localOffset,
+                                           long leaderOffset, long flushedOffset) {
+        PartCheckpoint partCheckpoint = partCheckpoints.get(partKey);
+        if (partCheckpoint == null) {
+            partCheckpoint = new PartCheckpoint();
+            partCheckpoints.put(partKey, partCheckpoint);
+        }
+        LinkedList<long[]> checkpoints = partCheckpoint.checkpoints;
+        // the older checkpoints are useless once a newer one has been flushed
+        while (checkpoints.size() > 1 && checkpoints.get(1)[0] <= flushedOffset) {
+            checkpoints.removeFirst();
+        }
+        // keep the older ones, which are flushed earlier
+        if (checkpoints.size() >= MAX_PENDING_CHECKPOINT_CNT) {
+            checkpoints.removeLast();
+        }
+        checkpoints.addLast(new long[]{localOffset, leaderOffset});
+        isModified = true;
+    }
+
+    /**
+     * Record the local end offset of the partition's stored messages, kept on close.
+     *
+     * @param partKey      the topic-partitionId key
+     * @param localEnd     the index offset of the local store after the stored messages
+     */
+    public synchronized void updStoredEnd(String partKey, long localEnd) {
+        PartCheckpoint partCheckpoint = partCheckpoints.get(partKey);
+        if (partCheckpoint != null) {
+            partCheckpoint.storedLocalEnd = localEnd;
+        }
+    }
+
+    /**
+     * Get the leader offset to fetch the partition from, by the max offset of the local store.
+     *
+     * @param partKey          the topic-partitionId key
+     * @param localMaxOffset   the max index offset of the local store
+     * @return                 the leader offset, -1 to fetch from the committed offset
+     *                         on the leader
+     */
+    public synchronized long getResumeOffset(String partKey, long localMaxOffset) {
+        PartCheckpoint partCheckpoint = partCheckpoints.get(partKey);
+        if (partCheckpoint == null) {
+            return -1L;
+        }
+        if (partCheckpoint.closedLocalEnd >= 0
+                && localMaxOffset >= partCheckpoint.closedLocalEnd) {
+            return -1L;
+        }
+        long resumeOffset = 0L;
+        for (long[] checkpoint : partCheckpoint.checkpoints) {
+            if (checkpoint[0] > localMaxOffset) {
+                break;
+            }
+            resumeOffset = checkpoint[1];
+        }
+        // fetch from the leader's min offset if none is in the local store
+        return resumeOffset;
+    }
+
+    /**
+     * Write the checkpoints to the file if modified.
+     *
+     * @param isClosing     whether the fetcher is closing, the local end offsets of
+     *                      the partitions are kept only on close
+     * @throws IOException  the exception while writing the file
+     */
+    public synchronized void flush(boolean isClosing) throws IOException {
+        if (!isModified && !isClosing) {
+            return;
+        }
+        File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmpFile))) {
+            out.writeInt(partCheckpoints.size());
+            for (Map.Entry<String, PartCheckpoint> entry : partCheckpoints.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(isClosing ? entry.getValue().storedLocalEnd : -1L);
+                out.writeInt(entry.getValue().checkpoints.size());
+                for (long[] checkpoint : entry.getValue().checkpoints) {
+                    out.writeLong(checkpoint[0]);
+                    out.writeLong(checkpoint[1]);
+                }
+            }
+            out.flush();
+        }
+        Files.move(tmpFile.toPath(), checkpointFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        isModified = false;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(checkpointFile))) {
+            int partCnt = in.readInt();
+            for (int i = 0; i < partCnt; i++) {
+                final String partKey = in.readUTF();
+                PartCheckpoint partCheckpoint = new PartCheckpoint();
+                partCheckpoint.closedLocalEnd = in.readLong();
+                partCheckpoint.storedLocalEnd = partCheckpoint.closedLocalEnd;
+                int checkpointCnt = in.readInt();
+                for (int j = 0; j < checkpointCnt; j++) {
+                    partCheckpoint.checkpoints.addLast(new long[]{in.readLong(), in.readLong()});
+                }
+                partCheckpoints.put(partKey, partCheckpoint);
+            }
+        }
+    }
+
+    private static class PartCheckpoint {
+        // the checkpoints in local offset order, each is {localOffset, leaderOffset}
+        private final LinkedList<long[]> checkpoints = new LinkedList<>();
+        // the local end offset of the stored messages on the last clean close, -1 if unknown
+        private long closedLocalEnd = -1L;
+        // the local end offset of the stored messages, kept as the closed one on close
+        private long storedLocalEnd = -1L;
+    }
+}
@@ -0,0 +1,471 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.replica;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.corebase.MessageExt;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageRequestC2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.GetMessageResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterRequestC2B;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.RegisterResponseB2C;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker.TransferedMessage;
+import org.apache.inlong.tubemq.corebase.utils.AddressUtils;
+import org.apache.inlong.tubemq.corebase.utils.MessageFlagUtils;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.TubeBroker;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.utils.BrokerSamplePrint;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetcher of the replicated partitions, on the follower side.
+ *
+ * The follower consumes the partitions from the leader broker through its read service as
+ * the consume group {@code tubemq_replica_<followerId>}, and appends the fetched messages to
+ * the local stores. The next fetch request confirms the messages of the previous response
+ * have been stored. The progress is also kept locally in {@link ReplicaCheckpoint}, since the
+ * messages confirmed to the leader may be lost with the unflushed part of the local store on
+ * a crash, and the partitions are fetched again from the local checkpoints after a restart.
+ * The partitions are spread over the fetch threads, each thread fetches its partitions
+ * in turn, and waits a while if none of them has new messages.
+ */
+public class ReplicaFetcher {
+    private static final Logger logger =
+            LoggerFactory.getLogger(ReplicaFetcher.class);
+    private final TubeBroker tubeBroker;
+    private final BrokerConfig tubeConfig;
+    private final BrokerInfo leaderBroker;
+    private final String replicaGroup;
+    private final String clientId;
+    private final int sentAddr;
+    private final Set<String> replicaTopics = new HashSet<>();
+    // topic-partitionId to the fetch state of the partition
+    private final ConcurrentHashMap<String, ReplicaPart> replicaParts =
+            new ConcurrentHashMap<>();
+    private final BrokerSamplePrint samplePrintCtrl =
+            new BrokerSamplePrint(logger);
+    private final ReplicaCheckpoint replicaCheckpoint;
+    private final AtomicBoolean stopped = new AtomicBoolean(true);
+    private BrokerReadService leaderService;
+    private Thread[] fetchThreads;
+
+    public ReplicaFetcher(TubeBroker tubeBroker, BrokerConfig tubeConfig) {
+        this.tubeBroker = tubeBroker;
+        this.tubeConfig = tubeConfig;
+        this.leaderBroker = tubeConfig.getReplicaLeaderBroker();
+        this.replicaGroup = ReplicaManager.getReplicaGroup(tubeConfig.getBrokerId());
+        this.clientId = new StringBuilder(256).append(replicaGroup)
+                .append(TokenConstants.ATTR_SEP).append(tubeConfig.getHostName())
+                .append(TokenConstants.ATTR_SEP).append(tubeConfig.getPort()).toString();
+        this.sentAddr = AddressUtils.ipToInt(tubeConfig.getHostName());
+        if (TStringUtils.isNotBlank(tubeConfig.getReplicaTopics())) {
+            for (String topic : tubeConfig.getReplicaTopics().split(TokenConstants.ARRAY_SEP)) {
+                if (TStringUtils.isNotBlank(topic)) {
+                    replicaTopics.add(topic.trim());
+                }
+            }
+        }
+        this.replicaCheckpoint = new ReplicaCheckpoint(
+                new File(tubeConfig.getPrimaryPath(), "replica.checkpoint"));
+    }
+
+    /**
+     * Whether the topic is replicated from the leader, which is read-only on the follower.
+     *
+     * @param topic   the topic name
+     * @return        whether the topic is replicated
+     */
+    public boolean isReplicaTopic(String topic) {
+        return replicaTopics.isEmpty() || replicaTopics.contains(topic);
+    }
+
+    /**
+     * Start the fetch threads.
+     */
+    public void start() {
+        if (!stopped.compareAndSet(true, false)) {
+            return;
+        }
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
+        rpcConfig.put(RpcConstants.REQUEST_TIMEOUT, tubeConfig.getRpcReadTimeoutMs());
+        this.leaderService = tubeBroker.getRpcServiceFactory()
+                .getService(BrokerReadService.class, leaderBroker, rpcConfig);
+        this.fetchThreads = new Thread[tubeConfig.getReplicaFetchThreadCnt()];
+        for (int i = 0; i < fetchThreads.length; i++) {
+            final int threadIndex = i;
+            fetchThreads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runFetchLoop(threadIndex);
+                }
+            }, "Broker Replica Fetch Thread-" + i);
+            fetchThreads[i].setDaemon(true);
+            fetchThreads[i].start();
+        }
+        logger.info(new StringBuilder(512)
+                .append("[Replica] Started replicating from leader ")
+                .append(leaderBroker.getBrokerStrInfo()).append(" as group ")
+                .append(replicaGroup).append(", topics=")
+                .append(replicaTopics.isEmpty() ? "all" : replicaTopics).toString());
+    }
+
+    /**
+     * Stop the fetch threads and unregister the partitions from the leader.
+     */
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (Thread fetchThread : fetchThreads) {
+            fetchThread.interrupt();
+        }
+        for (Thread fetchThread : fetchThreads) {
+            try {
+                fetchThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (ReplicaPart replicaPart : replicaParts.values()) {
+            if (!replicaPart.registered) {
+                continue;
+            }
+            try {
+                leaderService.consumerRegisterC2B(buildRegisterRequest(replicaPart,
+                        RpcConstants.MSG_OPTYPE_UNREGISTER, -1L), tubeConfig.getHostName(), false);
+            } catch (Throwable e) {
+                samplePrintCtrl.printExceptionCaught(e);
+            }
+        }
+        try {
+            replicaCheckpoint.flush(true);
+        } catch (Throwable e) {
+            logger.warn("[Replica] Flush checkpoint file failure", e);
+        }
+        logger.info("[Replica] Stopped replicating from leader "
+                + leaderBroker.getBrokerStrInfo());
+    }
+
+    private void runFetchLoop(int threadIndex) {
+        long lastRefreshTime = 0L;
+        long lastFlushTime = System.currentTimeMillis();
+        List<ReplicaPart> fetchParts = new ArrayList<>();
+        while (!stopped.get()) {
+            try {
+                if (threadIndex == 0 && System.currentTimeMillis() - lastFlushTime
+                        >= TServerConstants.CFG_REPLICA_CHECKPOINT_FLUSH_MS) {
+                    lastFlushTime = System.currentTimeMillis();
+                    replicaCheckpoint.flush(false);
+                }
+                if (System.currentTimeMillis() - lastRefreshTime
+                        >= TServerConstants.CFG_REPLICA_PART_REFRESH_MS) {
+                    fetchParts = getFetchParts(threadIndex);
+                    lastRefreshTime = System.currentTimeMillis();
+                }
+                boolean isFetched = false;
+                for (ReplicaPart replicaPart : fetchParts) {
+                    if (stopped.get()) {
+                        return;
+                    }
+                    isFetched |= fetchPart(replicaPart);
+                }
+                if (!isFetched) {
+                    ThreadUtils.sleep(TServerConstants.CFG_REPLICA_FETCH_IDLE_WAIT_MS);
+                }
+            } catch (Throwable e) {
+                samplePrintCtrl.printExceptionCaught(e);
+            }
+        }
+    }
+
+    /**
+     * Get the replicated partitions of the fetch thread.
+     *
+     * @param threadIndex   the index of the fetch thread
+     * @return              the partitions to fetch
+     */
+    private List<ReplicaPart> getFetchParts(int threadIndex) {
+        List<ReplicaPart> fetchParts = new ArrayList<>();
+        Map<String, TopicMetadata> topicConfigMap =
+                tubeBroker.getMetadataManager().getTopicConfigMap();
+        if (topicConfigMap == null) {
+            return fetchParts;
+        }
+        for (TopicMetadata topicMetadata : topicConfigMap.values()) {
+            if (!replicaTopics.isEmpty()
+                    && !replicaTopics.contains(topicMetadata.getTopic())) {
+                continue;
+            }
+            for (Integer partitionId : topicMetadata.getAllPartitionIds()) {
+                String partKey = topicMetadata.getTopic() + TokenConstants.HYPHEN + partitionId;
+                if (Math.abs(partKey.hashCode() % fetchThreads.length) != threadIndex) {
+                    continue;
+                }
+                ReplicaPart replicaPart = replicaParts.get(partKey);
+                if (replicaPart == null) {
+                    replicaPart = new ReplicaPart(partKey, topicMetadata.getTopic(), partitionId);
+                    replicaParts.put(partKey, replicaPart);
+                }
+                fetchParts.add(replicaPart);
+            }
+        }
+        return fetchParts;
+    }
+
+    /**
+     * Fetch the messages of the partition from the leader and append them to the local store.
+     *
+     * @param replicaPart   the replicated partition
+     * @return              whether messages fetched
+     * @throws Throwable    the exception during processing
+     */
+    private boolean fetchPart(ReplicaPart replicaPart) throws Throwable {
+        if (System.currentTimeMillis() < replicaPart.nextFetchTime) {
+            return false;
+        }
+        if (!replicaPart.registered && !registerPart(replicaPart)) {
+            return false;
+        }
+        GetMessageRequestC2B.Builder builder = GetMessageRequestC2B.newBuilder();
+        builder.setClientId(clientId);
+        builder.setGroupName(replicaGroup);
+        builder.setTopicName(replicaPart.topic);
+        builder.setPartitionId(replicaPart.partitionId);
+        builder.setLastPackConsumed(replicaPart.lastPackStored);
+        builder.setManualCommitOffset(false);
+        builder.setEscFlowCtrl(true);
+        GetMessageResponseB2C response;
+        try {
+            response = leaderService.getMessagesC2B(builder.build(),
+                    tubeConfig.getHostName(), false);
+        } catch (Throwable e) {
+            replicaPart.delayFetch(TServerConstants.CFG_REPLICA_FETCH_RETRY_WAIT_MS);
+            samplePrintCtrl.printExceptionCaught(e);
+            return false;
+        }
+        if (response.getSuccess()) {
+            return storeMessages(replicaPart, response);
+        }
+        switch (response.getErrCode()) {
+            case TErrCodeConstants.NOT_FOUND:
+                replicaPart.lastPackStored = true;
+                return false;
+            case TErrCodeConstants.SERVER_CONSUME_SPEED_LIMIT:
+                replicaPart.delayFetch(response.getMinLimitTime());
+                return false;
+            case TErrCodeConstants.HB_NO_NODE:
+            case TErrCodeConstants.DUPLICATE_PARTITION:
+                replicaPart.registered = false;
+                return false;
+            default:
+                replicaPart.delayFetch(TServerConstants.CFG_REPLICA_FETCH_RETRY_WAIT_MS);
+                logger.warn(new StringBuilder(512).append("[Replica] Fetch ")
+                        .append(replicaPart.topic).append(TokenConstants.ATTR_SEP)
+                        .append(replicaPart.partitionId).append(" from leader failure, errCode=")
+                        .append(response.getErrCode()).append(", errMsg=")
+                        .append(response.getErrMsg()).toString());
+                return false;
+        }
+    }
+
+    private boolean registerPart(ReplicaPart replicaPart) {
+        try {
+            long reqOffset = -1L;
+            if (!replicaPart.resumed) {
+                // the first register since started, fetch from the local checkpoint
+                MessageStore msgStore = tubeBroker.getStoreManager()
+                        .getOrCreateMessageStore(replicaPart.topic, replicaPart.partitionId);
+                reqOffset = replicaCheckpoint.getResumeOffset(
+                        replicaPart.partKey, msgStore.getIndexMaxOffset());
+            }
+            RegisterResponseB2C response = leaderService.consumerRegisterC2B(
+                    buildRegisterRequest(replicaPart, RpcConstants.MSG_OPTYPE_REGISTER, reqOffset),
+                    tubeConfig.getHostName(), false);
+            if (response.getSuccess()) {
+                replicaPart.resumed = true;
+                replicaPart.registered = true;
+                replicaPart.lastPackStored = true;
+                replicaPart.storedCnt = 0;
+                return true;
+            }
+            replicaPart.delayFetch(TServerConstants.CFG_REPLICA_FETCH_RETRY_WAIT_MS);
+            logger.warn(new StringBuilder(512).append("[Replica] Register ")
+                    .append(replicaPart.topic).append(TokenConstants.ATTR_SEP)
+                    .append(replicaPart.partitionId).append(" to leader failure, errCode=")
+                    .append(response.getErrCode()).append(", errMsg=")
+                    .append(response.getErrMsg()).toString());
+        } catch (Throwable e) {
+            replicaPart.delayFetch(TServerConstants.CFG_REPLICA_FETCH_RETRY_WAIT_MS);
+            samplePrintCtrl.printExceptionCaught(e);
+        }
+        return false;
+    }
+
+    private RegisterRequestC2B buildRegisterRequest(ReplicaPart replicaPart,
+                                                    int opType, long reqOffset) {
+        RegisterRequestC2B.Builder builder = RegisterRequestC2B.newBuilder();
+        builder.setOpType(opType);
+        builder.setClientId(clientId);
+        builder.setGroupName(replicaGroup);
+        builder.setTopicName(replicaPart.topic);
+        builder.setPartitionId(replicaPart.partitionId);
+        if (opType == RpcConstants.MSG_OPTYPE_REGISTER) {
+            builder.setReadStatus(TBaseConstants.CONSUME_MODEL_READ_NORMAL);
+            if (reqOffset >= 0) {
+                builder.setCurrOffset(reqOffset);
+            }
+        } else {
+            // commit the offset of the last pack only if it has been stored
+            builder.setReadStatus(replicaPart.lastPackStored ? 0 : 1);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Append the fetched messages to the local store, the messages stored by the previous
+     * attempt of the same pack are skipped.
+     *
+     * @param replicaPart   the replicated partition
+     * @param response      the fetch response
+     * @return              whether messages fetched
+     * @throws Throwable    the exception during processing
+     */
+    private boolean storeMessages(ReplicaPart replicaPart,
+                                  GetMessageResponseB2C response) throws Throwable {
+        List<TransferedMessage> messages = response.getMessagesList();
+        if (replicaPart.lastPackStored || replicaPart.packOffset != response.getCurrOffset()) {
+            replicaPart.storedCnt = 0;
+        }
+        replicaPart.packOffset = response.getCurrOffset();
+        int msgCnt = messages.size() - replicaPart.storedCnt;
+        if (msgCnt <= 0) {
+            replicaPart.lastPackStored = true;
+            replicaPart.storedCnt = 0;
+            return !messages.isEmpty();
+        }
+        final MessageStore msgStore = tubeBroker.getStoreManager()
+                .getOrCreateMessageStore(replicaPart.topic, replicaPart.partitionId);
+        final AppendResult[] appendResults = new AppendResult[msgCnt];
+        final byte[][] dataArr = new byte[msgCnt][];
+        final int[] checkSums = new int[msgCnt];
+        final int[] msgTypeCodes = new int[msgCnt];
+        final int[] msgFlags = new int[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            TransferedMessage message = messages.get(replicaPart.storedCnt + i);
+            appendResults[i] = new AppendResult();
+            dataArr[i] = message.getPayLoadData().toByteArray();
+            checkSums[i] = message.getCheckSum();
+            msgFlags[i] = message.getFlag();
+            msgTypeCodes[i] = getMsgTypeCode(replicaPart.topic, message);
+        }
+        if (replicaPart.storedCnt == 0 && response.hasCurrOffset()) {
+            replicaCheckpoint.addCheckpoint(replicaPart.partKey,
+                    msgStore.getAppendedIndexMaxOffset(),
+                    response.getCurrOffset(), msgStore.getFileIndexMaxOffset());
+        }
+        int appendedCnt = msgStore.appendMsgBatch(appendResults, dataArr,
+                checkSums, msgTypeCodes, msgFlags, replicaPart.partitionId, sentAddr);
+        if (appendedCnt < msgCnt) {
+            // fetch the pack again, and skip the stored head part
+            replicaPart.lastPackStored = false;
+            replicaPart.storedCnt += appendedCnt;
+            replicaPart.delayFetch(TServerConstants.CFG_REPLICA_FETCH_IDLE_WAIT_MS);
+        } else {
+            replicaPart.lastPackStored = true;
+            replicaPart.storedCnt = 0;
+            replicaCheckpoint.updStoredEnd(replicaPart.partKey,
+                    msgStore.getAppendedIndexMaxOffset());
+        }
+        return true;
+    }
+
+    /**
+     * Get the filter item hash code of the message from its attribute,
+     * the same as the code calculated on produce.
+     *
+     * @param topic     the topic name
+     * @param message   the fetched message
+     * @return          the hash code of the message type, -1 if not set
+     */
+    private int getMsgTypeCode(String topic, TransferedMessage message) {
+        if (!MessageFlagUtils.hasAttribute(message.getFlag())) {
+            return -1;
+        }
+        ByteBuffer payload = message.getPayLoadData().asReadOnlyByteBuffer();
+        if (payload.remaining() < 4) {
+            return -1;
+        }
+        int attrLen = payload.getInt();
+        if (attrLen <= 0 || attrLen > payload.remaining()) {
+            return -1;
+        }
+        byte[] attrData = new byte[attrLen];
+        payload.get(attrData);
+        String msgType = new MessageExt(message.getMessageId(), topic, null,
+                new String(attrData, StandardCharsets.UTF_8), message.getFlag()).getMsgType();
+        return TStringUtils.isBlank(msgType) ? -1 : msgType.trim().hashCode();
+    }
+
+    private static class ReplicaPart {
+        private final String partKey;
+        private final String topic;
+        private final int partitionId;
+        private volatile boolean registered = false;
+        // whether registered once since started
+        private boolean resumed = false;
+        private boolean lastPackStored = true;
+        // the offset of the last fetched pack, and the count of its stored messages
+        private long packOffset = -1L;
+        private int storedCnt = 0;
+        private long nextFetchTime = 0L;
+
+        ReplicaPart(String partKey, String topic, int partitionId) {
+            this.partKey = partKey;
+            this.topic = topic;
+            this.partitionId = partitionId;
+        }
+
+        void delayFetch(long waitTimeMs) {
+            this.nextFetchTime = System.currentTimeMillis() + waitTimeMs;
+        }
+    }
+}
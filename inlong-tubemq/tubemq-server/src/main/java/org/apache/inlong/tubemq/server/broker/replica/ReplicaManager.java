@@ -0,0 +1,391 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manager of the followers replicating the partitions of the broker, on the leader side.
+ *
+ * A follower broker consumes the replicated partitions as the consume group
+ * {@code tubemq_replica_<followerId>}, and each fetch request confirms the offset
+ * the follower has stored. A follower is in-sync if it caught up with the leader within
+ * the max lag time, and the acks=all send requests are responded after all the in-sync
+ * followers of the partition confirmed the appended messages, or the wait time is reached.
+ */
+public class ReplicaManager {
+    private static final Logger logger =
+            LoggerFactory.getLogger(ReplicaManager.class);
+    public static final String REPLICA_GROUP_PREFIX = "tubemq_replica_";
+    private final long maxLagMs;
+    // topic-partitionId to the replica states of the partition
+    private final ConcurrentHashMap<String, PartReplicas> partReplicas =
+            new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    public ReplicaManager(long maxLagMs) {
+        this.maxLagMs = maxLagMs;
+        this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Broker Replica Ack Thread");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the consume group name of the follower broker.
+     *
+     * @param followerId   the broker id of the follower
+     * @return             the consume group name
+     */
+    public static String getReplicaGroup(int followerId) {
+        return REPLICA_GROUP_PREFIX + followerId;
+    }
+
+    /**
+     * Get the follower broker id of the consume group.
+     *
+     * @param groupName   the consume group name
+     * @return            the broker id, -1 if not a replica group
+     */
+    public static int getFollowerId(String groupName) {
+        if (groupName == null || !groupName.startsWith(REPLICA_GROUP_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(groupName.substring(REPLICA_GROUP_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Update the replication progress of the follower, called on its fetch requests.
+     *
+     * @param groupName          the consume group name
+     * @param topic              the topic name
+     * @param partitionId        the partition id
+     * @param confirmedOffset    the index offset the follower has stored
+     * @param leaderMaxOffset    the max index offset of the leader
+     */
+    public void onFollowerFetch(String groupName, String topic, int partitionId,
+                                long confirmedOffset, long leaderMaxOffset) {
+        int followerId = getFollowerId(groupName);
+        if (followerId < 0) {
+            return;
+        }
+        PartReplicas replicas = partReplicas.get(buildPartKey(topic, partitionId));
+        if (replicas == null) {
+            PartReplicas tmpReplicas = new PartReplicas(topic, partitionId);
+            replicas = partReplicas.putIfAbsent(buildPartKey(topic, partitionId), tmpReplicas);
+            if (replicas == null) {
+                replicas = tmpReplicas;
+            }
+        }
+        FollowerState follower = replicas.followers.get(followerId);
+        if (follower == null) {
+            FollowerState tmpFollower = new FollowerState(followerId);
+            follower = replicas.followers.putIfAbsent(followerId, tmpFollower);
+            if (follower == null) {
+                follower = tmpFollower;
+            }
+        }
+        follower.updProgress(confirmedOffset, leaderMaxOffset, System.currentTimeMillis());
+        checkPendingAcks(replicas);
+    }
+
+    /**
+     * Remove the follower of the partition, called when the follower unregistered or timed out.
+     *
+     * @param groupName     the consume group name
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     */
+    public void rmvFollower(String groupName, String topic, int partitionId) {
+        int followerId = getFollowerId(groupName);
+        if (followerId < 0) {
+            return;
+        }
+        PartReplicas replicas = partReplicas.get(buildPartKey(topic, partitionId));
+        if (replicas == null) {
+            return;
+        }
+        replicas.followers.remove(followerId);
+        checkPendingAcks(replicas);
+    }
+
+    /**
+     * Wait until the in-sync followers of the partition stored the messages before the offset.
+     *
+     * @param topic            the topic name
+     * @param partitionId      the partition id
+     * @param indexEndOffset   the end index offset of the appended messages
+     * @param waitTimeMs       the max wait time
+     * @param ackTask          the task to run when the in-sync followers stored the messages
+     * @param timeoutTask      the task to run when the wait time is reached
+     * @return                 whether waiting, false if no in-sync follower needs to be waited
+     */
+    public boolean waitReplicated(String topic, int partitionId, long indexEndOffset,
+                                  long waitTimeMs, Runnable ackTask, Runnable timeoutTask) {
+        if (stopped.get()) {
+            return false;
+        }
+        PartReplicas replicas = partReplicas.get(buildPartKey(topic, partitionId));
+        if (replicas == null
+                || isReplicated(replicas, indexEndOffset, System.currentTimeMillis())) {
+            return false;
+        }
+        final PendingAck pendingAck =
+                new PendingAck(replicas, indexEndOffset, ackTask, timeoutTask);
+        replicas.pendingAcks.offer(pendingAck);
+        try {
+            pendingAck.expireFuture = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    expire(pendingAck);
+                }
+            }, waitTimeMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            expire(pendingAck);
+            return true;
+        }
+        // the followers may have confirmed the messages before the ack is queued
+        checkPendingAcks(replicas);
+        return true;
+    }
+
+    /**
+     * Get the in-sync followers of the partition.
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @return              the broker ids of the in-sync followers
+     */
+    public List<Integer> getInSyncFollowers(String topic, int partitionId) {
+        List<Integer> followerIds = new ArrayList<>();
+        PartReplicas replicas = partReplicas.get(buildPartKey(topic, partitionId));
+        if (replicas == null) {
+            return followerIds;
+        }
+        long curTime = System.currentTimeMillis();
+        for (FollowerState follower : replicas.followers.values()) {
+            if (follower.isInSync(curTime, maxLagMs)) {
+                followerIds.add(follower.followerId);
+            }
+        }
+        return followerIds;
+    }
+
+    /**
+     * Build the in-sync followers of the partitions to report to master,
+     * in topic:partitionId:followerId[,followerId] format.
+     *
+     * @return   the replica information of the partitions with in-sync followers
+     */
+    public List<String> buildReplicaInfo() {
+        List<String> replicaInfos = new ArrayList<>();
+        StringBuilder strBuffer = new StringBuilder(256);
+        for (PartReplicas replicas : partReplicas.values()) {
+            List<Integer> followerIds =
+                    getInSyncFollowers(replicas.topic, replicas.partitionId);
+            if (followerIds.isEmpty()) {
+                continue;
+            }
+            strBuffer.append(replicas.topic).append(TokenConstants.ATTR_SEP)
+                    .append(replicas.partitionId).append(TokenConstants.ATTR_SEP);
+            int count = 0;
+            for (Integer followerId : followerIds) {
+                if (count++ > 0) {
+                    strBuffer.append(TokenConstants.ARRAY_SEP);
+                }
+                strBuffer.append(followerId);
+            }
+            replicaInfos.add(strBuffer.toString());
+            strBuffer.delete(0, strBuffer.length());
+        }
+        return replicaInfos;
+    }
+
+    public int getPendingAckCnt() {
+        int pendingCnt = 0;
+        for (PartReplicas replicas : partReplicas.values()) {
+            pendingCnt += replicas.pendingAcks.size();
+        }
+        return pendingCnt;
+    }
+
+    /**
+     * Time out all the pending acks and stop the ack thread.
+     */
+    public void close() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (PartReplicas replicas : partReplicas.values()) {
+            PendingAck pendingAck;
+            while ((pendingAck = replicas.pendingAcks.poll()) != null) {
+                expire(pendingAck);
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private boolean isReplicated(PartReplicas replicas, long indexEndOffset, long curTime) {
+        for (FollowerState follower : replicas.followers.values()) {
+            if (follower.isInSync(curTime, maxLagMs)
+                    && follower.confirmedOffset < indexEndOffset) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkPendingAcks(PartReplicas replicas) {
+        if (replicas.pendingAcks.isEmpty()) {
+            return;
+        }
+        long curTime = System.currentTimeMillis();
+        for (PendingAck pendingAck : replicas.pendingAcks) {
+            if (isReplicated(replicas, pendingAck.indexEndOffset, curTime)
+                    && pendingAck.finish()) {
+                if (pendingAck.expireFuture != null) {
+                    pendingAck.expireFuture.cancel(false);
+                }
+                runTask(pendingAck.ackTask);
+            }
+        }
+    }
+
+    private void expire(PendingAck pendingAck) {
+        if (!pendingAck.finish()) {
+            return;
+        }
+        // the lagging followers may have dropped out of the in-sync followers
+        if (isReplicated(pendingAck.replicas,
+                pendingAck.indexEndOffset, System.currentTimeMillis())) {
+            runTask(pendingAck.ackTask);
+        } else {
+            runTask(pendingAck.timeoutTask);
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            logger.error("[Replica] Process pending ack failure", t);
+        }
+    }
+
+    private String buildPartKey(String topic, int partitionId) {
+        return topic + TokenConstants.HYPHEN + partitionId;
+    }
+
+    private static class PartReplicas {
+        private final String topic;
+        private final int partitionId;
+        private final Map<Integer, FollowerState> followers = new ConcurrentHashMap<>();
+        private final Queue<PendingAck> pendingAcks = new ConcurrentLinkedQueue<>();
+
+        PartReplicas(String topic, int partitionId) {
+            this.topic = topic;
+            this.partitionId = partitionId;
+        }
+    }
+
+    private static class FollowerState {
+        private final int followerId;
+        private volatile long confirmedOffset = -1L;
+        private volatile long lastCaughtUpTime = 0L;
+        private long lastFetchTime = 0L;
+        private long lastFetchMaxOffset = Long.MAX_VALUE;
+
+        FollowerState(int followerId) {
+            this.followerId = followerId;
+        }
+
+        /**
+         * Update the progress, the follower caught up at the fetch time if it confirmed
+         * the max offset of the leader, or at the last fetch time if it confirmed
+         * the max offset of the leader at that time.
+         */
+        synchronized void updProgress(long confirmedOffset, long leaderMaxOffset, long fetchTime) {
+            if (confirmedOffset >= leaderMaxOffset) {
+                this.lastCaughtUpTime = fetchTime;
+            } else if (confirmedOffset >= this.lastFetchMaxOffset) {
+                this.lastCaughtUpTime = Math.max(this.lastCaughtUpTime, this.lastFetchTime);
+            }
+            this.confirmedOffset = confirmedOffset;
+            this.lastFetchTime = fetchTime;
+            this.lastFetchMaxOffset = leaderMaxOffset;
+        }
+
+        boolean isInSync(long curTime, long maxLagMs) {
+            return curTime - lastCaughtUpTime <= maxLagMs;
+        }
+    }
+
+    private static class PendingAck {
+        private final PartReplicas replicas;
+        private final long indexEndOffset;
+        private final Runnable ackTask;
+        private final Runnable timeoutTask;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> expireFuture;
+
+        PendingAck(PartReplicas replicas, long indexEndOffset,
+                   Runnable ackTask, Runnable timeoutTask) {
+            this.replicas = replicas;
+            this.indexEndOffset = indexEndOffset;
+            this.ackTask = ackTask;
+            this.timeoutTask = timeoutTask;
+        }
+
+        /**
+         * Finish the waiting, only the first caller of the ack and expiration succeeds.
+         *
+         * @return whether finished by this call
+         */
+        boolean finish() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            replicas.pendingAcks.remove(this);
+            return true;
+        }
+    }
+}
@@ -45,6 +45,9 @@ public class BrokerJMXHolder {
     // broker web api status information
     private static final BrokerWebAPIStatusBean webAPIStatusInfo =
             new BrokerWebAPIStatusBean();
+    // broker consumer lag information
+    private static final BrokerConsumerLagBean consumerLagInfo =
+            new BrokerConsumerLagBean();
 
     /**
      * Register MXBean
@@ -64,12 +67,24 @@ public class BrokerJMXHolder {
             ObjectName webAPIMxBeanName =
                     new ObjectName("org.apache.inlong.tubemq.server.broker:type=webAPI");
             mbs.registerMBean(webAPIStatusInfo, webAPIMxBeanName);
-
+            // register consumer lag jmx
+            ObjectName consumerLagMxBeanName =
+                    new ObjectName("org.apache.inlong.tubemq.server.broker:type=consumerLag");
+            mbs.registerMBean(consumerLagInfo, consumerLagMxBeanName);
         } catch (Exception ex) {
             logger.error("Register Broker MXBean error: ", ex);
         }
     }
 
+    /**
+     * Set the consumer lag statistics exposed by the consumerLag MXBean
+     *
+     * @param consumerLagStats   the consumer lag statistics of the broker
+     */
+    public static void setConsumerLagStats(ConsumerLagStats consumerLagStats) {
+        consumerLagInfo.consumerLagStats = consumerLagStats;
+    }
+
     /**
      * BrokerServiceStatusBean
      *
@@ -113,5 +128,29 @@ public class BrokerJMXHolder {
             return metricValues;
         }
     }
-}
 
+    /**
+     * BrokerConsumerLagBean
+     *
+     * Broker consumer lag metric wrapper class, the lags are gauges,
+     * so the snapshot does not reset them
+     */
+    private static class BrokerConsumerLagBean implements MetricMXBean {
+        private volatile ConsumerLagStats consumerLagStats;
+
+        @Override
+        public Map<String, Long> getValue() {
+            Map<String, Long> metricValues = new LinkedHashMap<>();
+            ConsumerLagStats curLagStats = consumerLagStats;
+            if (curLagStats != null) {
+                curLagStats.getValue(metricValues);
+            }
+            return metricValues;
+        }
+
+        @Override
+        public Map<String, Long> snapshot() {
+            return getValue();
+        }
+    }
+}
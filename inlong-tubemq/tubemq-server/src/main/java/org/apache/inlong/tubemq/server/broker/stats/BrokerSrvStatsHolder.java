@@ -37,6 +37,14 @@ public class BrokerSrvStatsHolder {
     // Consumer client online statistic
     private static final LongOnlineCounter csmOnlineCnt =
             new LongOnlineCounter("consumer_online_cnt", null);
+    // Memory cache buffer pool statistic
+    private static final LongOnlineCounter memPoolAllocSize =
+            new LongOnlineCounter("mem_pool_alloc_size", null);
+    private static final LongOnlineCounter memPoolUsedSize =
+            new LongOnlineCounter("mem_pool_used_size", null);
+    // Long-poll fetch statistic
+    private static final LongOnlineCounter longPollParkingCnt =
+            new LongOnlineCounter("long_poll_parking_cnt", null);
     // Switchable statistic items
     private static final ServiceStatsSet[] switchableSets = new ServiceStatsSet[2];
     // Current writable index
@@ -125,6 +133,41 @@ public class BrokerSrvStatsHolder {
         switchableSets[getIndex()].zkExcStats.incValue();
     }
 
+    public static void addMemPoolAllocSize(long delta) {
+        memPoolAllocSize.addValue(delta);
+    }
+
+    public static void addMemPoolUsedSize(long delta) {
+        memPoolUsedSize.addValue(delta);
+    }
+
+    public static void incMemPoolExhaustCnt() {
+        switchableSets[getIndex()].memPoolExhaustStats.incValue();
+    }
+
+    public static void incLongPollParkedCnt() {
+        longPollParkingCnt.addValue(1);
+        switchableSets[getIndex()].longPollParkedStats.incValue();
+    }
+
+    public static void incLongPollWokenCnt() {
+        longPollParkingCnt.addValue(-1);
+        switchableSets[getIndex()].longPollWokenStats.incValue();
+    }
+
+    public static void incLongPollExpiredCnt() {
+        longPollParkingCnt.addValue(-1);
+        switchableSets[getIndex()].longPollExpiredStats.incValue();
+    }
+
+    public static void incLongPollRejectedCnt() {
+        switchableSets[getIndex()].longPollRejectedStats.incValue();
+    }
+
+    public static void incReplicaAckTimeoutCnt() {
+        switchableSets[getIndex()].replicaAckTimeoutStats.incValue();
+    }
+
     public static void updDiskSyncDataDlt(long dltTime) {
         if (diskSyncClosed) {
             return;
@@ -132,6 +175,10 @@ public class BrokerSrvStatsHolder {
         switchableSets[getIndex()].fileSyncDltStats.update(dltTime);
     }
 
+    public static void updDiskFlushDlt(long dltTime) {
+        switchableSets[getIndex()].fileFlushDltStats.update(dltTime);
+    }
+
     public static void updZKSyncDataDlt(long dltTime) {
         switchableSets[getIndex()].zkSyncDltStats.update(dltTime);
     }
@@ -159,6 +206,7 @@ public class BrokerSrvStatsHolder {
         statsMap.put("isDiskSyncClosed", (diskSyncClosed ? 1L : 0L));
         if (resetValue) {
             statsSet.fileSyncDltStats.snapShort(statsMap, false);
+            statsSet.fileFlushDltStats.snapShort(statsMap, false);
             statsMap.put(statsSet.fileIOExcStats.getFullName(),
                     statsSet.fileIOExcStats.getAndResetValue());
             statsSet.zkSyncDltStats.snapShort(statsMap, false);
@@ -172,8 +220,27 @@ public class BrokerSrvStatsHolder {
                     csmOnlineCnt.getAndResetValue());
             statsMap.put(statsSet.csmTimeoutStats.getFullName(),
                     statsSet.csmTimeoutStats.getAndResetValue());
+            statsMap.put(memPoolAllocSize.getFullName(),
+                    memPoolAllocSize.getAndResetValue());
+            statsMap.put(memPoolUsedSize.getFullName(),
+                    memPoolUsedSize.getAndResetValue());
+            statsMap.put(statsSet.memPoolExhaustStats.getFullName(),
+                    statsSet.memPoolExhaustStats.getAndResetValue());
+            statsMap.put(longPollParkingCnt.getFullName(),
+                    longPollParkingCnt.getAndResetValue());
+            statsMap.put(statsSet.longPollParkedStats.getFullName(),
+                    statsSet.longPollParkedStats.getAndResetValue());
+            statsMap.put(statsSet.longPollWokenStats.getFullName(),
+                    statsSet.longPollWokenStats.getAndResetValue());
+            statsMap.put(statsSet.longPollExpiredStats.getFullName(),
+                    statsSet.longPollExpiredStats.getAndResetValue());
+            statsMap.put(statsSet.longPollRejectedStats.getFullName(),
+                    statsSet.longPollRejectedStats.getAndResetValue());
+            statsMap.put(statsSet.replicaAckTimeoutStats.getFullName(),
+                    statsSet.replicaAckTimeoutStats.getAndResetValue());
         } else {
             statsSet.fileSyncDltStats.getValue(statsMap, false);
+            statsSet.fileFlushDltStats.getValue(statsMap, false);
             statsMap.put(statsSet.fileIOExcStats.getFullName(),
                     statsSet.fileIOExcStats.getValue());
             statsSet.zkSyncDltStats.getValue(statsMap, false);
@@ -187,6 +254,24 @@ public class BrokerSrvStatsHolder {
                     csmOnlineCnt.getValue());
             statsMap.put(statsSet.csmTimeoutStats.getFullName(),
                     statsSet.csmTimeoutStats.getValue());
+            statsMap.put(memPoolAllocSize.getFullName(),
+                    memPoolAllocSize.getValue());
+            statsMap.put(memPoolUsedSize.getFullName(),
+                    memPoolUsedSize.getValue());
+            statsMap.put(statsSet.memPoolExhaustStats.getFullName(),
+                    statsSet.memPoolExhaustStats.getValue());
+            statsMap.put(longPollParkingCnt.getFullName(),
+                    longPollParkingCnt.getValue());
+            statsMap.put(statsSet.longPollParkedStats.getFullName(),
+                    statsSet.longPollParkedStats.getValue());
+            statsMap.put(statsSet.longPollWokenStats.getFullName(),
+                    statsSet.longPollWokenStats.getValue());
+            statsMap.put(statsSet.longPollExpiredStats.getFullName(),
+                    statsSet.longPollExpiredStats.getValue());
+            statsMap.put(statsSet.longPollRejectedStats.getFullName(),
+                    statsSet.longPollRejectedStats.getValue());
+            statsMap.put(statsSet.replicaAckTimeoutStats.getFullName(),
+                    statsSet.replicaAckTimeoutStats.getValue());
         }
     }
 
@@ -199,6 +284,8 @@ public class BrokerSrvStatsHolder {
                 .append(",");
         if (resetValue) {
             statsSet.fileSyncDltStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.fileFlushDltStats.snapShort(strBuff, false);
             strBuff.append(",\"").append(statsSet.fileIOExcStats.getFullName())
                     .append("\":").append(statsSet.fileIOExcStats.getAndResetValue())
                     .append(",");
@@ -213,9 +300,29 @@ public class BrokerSrvStatsHolder {
                     .append("\":").append(csmOnlineCnt.getAndResetValue())
                     .append(",\"").append(statsSet.csmTimeoutStats.getFullName())
                     .append("\":").append(statsSet.csmTimeoutStats.getAndResetValue())
+                    .append(",\"").append(memPoolAllocSize.getFullName())
+                    .append("\":").append(memPoolAllocSize.getAndResetValue())
+                    .append(",\"").append(memPoolUsedSize.getFullName())
+                    .append("\":").append(memPoolUsedSize.getAndResetValue())
+                    .append(",\"").append(statsSet.memPoolExhaustStats.getFullName())
+                    .append("\":").append(statsSet.memPoolExhaustStats.getAndResetValue())
+                    .append(",\"").append(longPollParkingCnt.getFullName())
+                    .append("\":").append(longPollParkingCnt.getAndResetValue())
+                    .append(",\"").append(statsSet.longPollParkedStats.getFullName())
+                    .append("\":").append(statsSet.longPollParkedStats.getAndResetValue())
+                    .append(",\"").append(statsSet.longPollWokenStats.getFullName())
+                    .append("\":").append(statsSet.longPollWokenStats.getAndResetValue())
+                    .append(",\"").append(statsSet.longPollExpiredStats.getFullName())
+                    .append("\":").append(statsSet.longPollExpiredStats.getAndResetValue())
+                    .append(",\"").append(statsSet.longPollRejectedStats.getFullName())
+                    .append("\":").append(statsSet.longPollRejectedStats.getAndResetValue())
+                    .append(",\"").append(statsSet.replicaAckTimeoutStats.getFullName())
+                    .append("\":").append(statsSet.replicaAckTimeoutStats.getAndResetValue())
                     .append("}");
         } else {
-            statsSet.fileSyncDltStats.snapShort(strBuff, false);
+            statsSet.fileSyncDltStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.fileFlushDltStats.getValue(strBuff, false);
             strBuff.append(",\"").append(statsSet.fileIOExcStats.getFullName())
                     .append("\":").append(statsSet.fileIOExcStats.getValue())
                     .append(",");
@@ -230,6 +337,24 @@ public class BrokerSrvStatsHolder {
                     .append("\":").append(csmOnlineCnt.getValue())
                     .append(",\"").append(statsSet.csmTimeoutStats.getFullName())
                     .append("\":").append(statsSet.csmTimeoutStats.getValue())
+                    .append(",\"").append(memPoolAllocSize.getFullName())
+                    .append("\":").append(memPoolAllocSize.getValue())
+                    .append(",\"").append(memPoolUsedSize.getFullName())
+                    .append("\":").append(memPoolUsedSize.getValue())
+                    .append(",\"").append(statsSet.memPoolExhaustStats.getFullName())
+                    .append("\":").append(statsSet.memPoolExhaustStats.getValue())
+                    .append(",\"").append(longPollParkingCnt.getFullName())
+                    .append("\":").append(longPollParkingCnt.getValue())
+                    .append(",\"").append(statsSet.longPollParkedStats.getFullName())
+                    .append("\":").append(statsSet.longPollParkedStats.getValue())
+                    .append(",\"").append(statsSet.longPollWokenStats.getFullName())
+                    .append("\":").append(statsSet.longPollWokenStats.getValue())
+                    .append(",\"").append(statsSet.longPollExpiredStats.getFullName())
+                    .append("\":").append(statsSet.longPollExpiredStats.getValue())
+                    .append(",\"").append(statsSet.longPollRejectedStats.getFullName())
+                    .append("\":").append(statsSet.longPollRejectedStats.getValue())
+                    .append(",\"").append(statsSet.replicaAckTimeoutStats.getFullName())
+                    .append("\":").append(statsSet.replicaAckTimeoutStats.getValue())
                     .append("}");
         }
     }
@@ -264,6 +389,9 @@ public class BrokerSrvStatsHolder {
         // Delay statistics for syncing data to files
         protected final ESTHistogram fileSyncDltStats =
                 new ESTHistogram("file_sync_dlt", null);
+        // Delay statistics for flushing file data to disk
+        protected final ESTHistogram fileFlushDltStats =
+                new ESTHistogram("file_flush_dlt", null);
         // Disk IO Exception statistics
         protected final LongStatsCounter fileIOExcStats =
                 new LongStatsCounter("file_exc_cnt", null);
@@ -281,6 +409,21 @@ public class BrokerSrvStatsHolder {
         // Consumer 2 Broker status statistics
         protected final LongStatsCounter csmTimeoutStats =
                 new LongStatsCounter("consumer_timeout_cnt", null);
+        // Memory cache buffer pool exhausted statistics
+        protected final LongStatsCounter memPoolExhaustStats =
+                new LongStatsCounter("mem_pool_exhaust_cnt", null);
+        // Long-poll fetch statistics
+        protected final LongStatsCounter longPollParkedStats =
+                new LongStatsCounter("long_poll_parked_cnt", null);
+        protected final LongStatsCounter longPollWokenStats =
+                new LongStatsCounter("long_poll_woken_cnt", null);
+        protected final LongStatsCounter longPollExpiredStats =
+                new LongStatsCounter("long_poll_expired_cnt", null);
+        protected final LongStatsCounter longPollRejectedStats =
+                new LongStatsCounter("long_poll_rejected_cnt", null);
+        // Replica ack statistics
+        protected final LongStatsCounter replicaAckTimeoutStats =
+                new LongStatsCounter("replica_ack_timeout_cnt", null);
 
         public ServiceStatsSet() {
             resetSinceTime();
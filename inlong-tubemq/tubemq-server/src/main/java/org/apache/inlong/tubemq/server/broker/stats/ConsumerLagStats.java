@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * ConsumerLagStats, the consume lag of each group on each partition of the broker
+ *
+ * The lag items hold the message store and the confirmed offset object of the consumed
+ * partition, the store maintains its end offsets on append and the offset object is updated
+ * on commit, so the lags are calculated from the current values without walking the offset
+ * storage. The message lag counts the index entries behind the store end, the same as the
+ * lag reported to Master; the size and time lags are taken from the index entry at the
+ * confirmed offset, which is read only when the confirmed offset changes, and are -1 when
+ * the entry is not readable locally, e.g. it has been archived.
+ */
+public class ConsumerLagStats {
+    // the lag items of the offline consumers are kept for a while for alerting
+    private static final long DEF_OFFLINE_KEEP_MS = 10 * 60 * 1000L;
+    private final long offlineKeepMs;
+    // group:topic:partitionId to the lag item
+    private final ConcurrentHashMap<String, LagItem> lagItemMap =
+            new ConcurrentHashMap<>();
+
+    public ConsumerLagStats() {
+        this(DEF_OFFLINE_KEEP_MS);
+    }
+
+    public ConsumerLagStats(long offlineKeepMs) {
+        this.offlineKeepMs = offlineKeepMs;
+    }
+
+    /**
+     * Add or refresh the lag item when a consumer registers the partition
+     *
+     * @param group         the group name
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @param msgStore      the message store of the partition
+     * @param offsetInfo    the confirmed offset object of the group on the partition
+     */
+    public void addConsumer(String group, String topic, int partitionId,
+                            MessageStore msgStore, OffsetStorageInfo offsetInfo) {
+        if (msgStore == null || offsetInfo == null) {
+            return;
+        }
+        lagItemMap.put(buildLagKey(group, topic, partitionId),
+                new LagItem(group, topic, partitionId, msgStore, offsetInfo));
+    }
+
+    /**
+     * Mark the lag item offline when the consumer leaves the partition
+     *
+     * @param group         the group name
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     */
+    public void rmvConsumer(String group, String topic, int partitionId) {
+        LagItem lagItem = lagItemMap.get(buildLagKey(group, topic, partitionId));
+        if (lagItem != null) {
+            lagItem.offlineTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get the lag snapshot, the expired offline items are removed meanwhile
+     *
+     * @param groupSet   the groups to query, all groups if null or empty
+     * @param topicSet   the topics to query, all topics if null or empty
+     * @return  the current lags
+     */
+    public List<LagInfo> getLagInfos(Set<String> groupSet, Set<String> topicSet) {
+        final long curTime = System.currentTimeMillis();
+        final ByteBuffer entryBuffer =
+                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        List<LagInfo> lagInfos = new ArrayList<>();
+        Iterator<LagItem> iterator = lagItemMap.values().iterator();
+        while (iterator.hasNext()) {
+            LagItem lagItem = iterator.next();
+            long offlineTime = lagItem.offlineTime;
+            if (offlineTime > 0 && curTime - offlineTime > offlineKeepMs) {
+                iterator.remove();
+                continue;
+            }
+            if ((groupSet != null && !groupSet.isEmpty() && !groupSet.contains(lagItem.group))
+                    || (topicSet != null && !topicSet.isEmpty() && !topicSet.contains(lagItem.topic))) {
+                continue;
+            }
+            lagInfos.add(lagItem.calcLag(curTime, entryBuffer));
+        }
+        return lagInfos;
+    }
+
+    /**
+     * Fill the lag metrics, keyed by group#topic#partitionId.metric
+     *
+     * @param metricValues   the metric map to fill
+     */
+    public void getValue(Map<String, Long> metricValues) {
+        long maxLagMsgCnt = 0;
+        long maxLagTimeMs = 0;
+        List<LagInfo> lagInfos = getLagInfos(null, null);
+        metricValues.put("lag_item_count", (long) lagInfos.size());
+        StringBuilder strBuff = new StringBuilder(256);
+        for (LagInfo lagInfo : lagInfos) {
+            String keyPrefix = strBuff.append(lagInfo.getGroup())
+                    .append(TokenConstants.SEGMENT_SEP).append(lagInfo.getTopic())
+                    .append(TokenConstants.SEGMENT_SEP).append(lagInfo.getPartitionId())
+                    .append(".").toString();
+            strBuff.delete(0, strBuff.length());
+            metricValues.put(keyPrefix + "lag_msg_cnt", lagInfo.getLagMsgCnt());
+            metricValues.put(keyPrefix + "lag_msg_size", lagInfo.getLagMsgSize());
+            metricValues.put(keyPrefix + "lag_time_ms", lagInfo.getLagTimeMs());
+            maxLagMsgCnt = Math.max(maxLagMsgCnt, lagInfo.getLagMsgCnt());
+            maxLagTimeMs = Math.max(maxLagTimeMs, lagInfo.getLagTimeMs());
+        }
+        metricValues.put("max_lag_msg_cnt", maxLagMsgCnt);
+        metricValues.put("max_lag_time_ms", maxLagTimeMs);
+    }
+
+    private String buildLagKey(String group, String topic, int partitionId) {
+        return new StringBuilder(256).append(group)
+                .append(TokenConstants.ATTR_SEP).append(topic)
+                .append(TokenConstants.ATTR_SEP).append(partitionId).toString();
+    }
+
+    private static class LagItem {
+        private final String group;
+        private final String topic;
+        private final int partitionId;
+        private final MessageStore msgStore;
+        private final OffsetStorageInfo offsetInfo;
+        private volatile long offlineTime = 0L;
+        // the index entry information at the last calculated confirmed offset
+        private long entryOffset = -1L;
+        private long entryDataOffset = -1L;
+        private long entryRecvTime = -1L;
+
+        public LagItem(String group, String topic, int partitionId,
+                       MessageStore msgStore, OffsetStorageInfo offsetInfo) {
+            this.group = group;
+            this.topic = topic;
+            this.partitionId = partitionId;
+            this.msgStore = msgStore;
+            this.offsetInfo = offsetInfo;
+        }
+
+        public synchronized LagInfo calcLag(long curTime, ByteBuffer entryBuffer) {
+            final long indexMaxOffset = msgStore.getAppendedIndexMaxOffset();
+            final long dataMaxOffset = msgStore.getAppendedDataMaxOffset();
+            final long cfmOffset = offsetInfo.getOffset();
+            if (cfmOffset >= indexMaxOffset) {
+                return new LagInfo(group, topic, partitionId, offlineTime <= 0,
+                        indexMaxOffset, cfmOffset, 0L, 0L, 0L);
+            }
+            if (cfmOffset != entryOffset) {
+                entryOffset = cfmOffset;
+                if (msgStore.readIndexEntry(cfmOffset, entryBuffer)) {
+                    entryDataOffset =
+                            entryBuffer.getLong(DataStoreUtils.INDEX_POS_DATAOFFSET);
+                    entryRecvTime =
+                            entryBuffer.getLong(DataStoreUtils.INDEX_POS_TIME_RECV);
+                } else {
+                    entryDataOffset = -1L;
+                    entryRecvTime = -1L;
+                }
+            }
+            return new LagInfo(group, topic, partitionId, offlineTime <= 0,
+                    indexMaxOffset, cfmOffset,
+                    (indexMaxOffset - cfmOffset) / DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                    entryDataOffset < 0 ? -1L : Math.max(0L, dataMaxOffset - entryDataOffset),
+                    entryRecvTime < 0 ? -1L : Math.max(0L, curTime - entryRecvTime));
+        }
+    }
+
+    public static class LagInfo {
+        private final String group;
+        private final String topic;
+        private final int partitionId;
+        private final boolean online;
+        private final long maxOffset;
+        private final long cfmOffset;
+        private final long lagMsgCnt;
+        private final long lagMsgSize;
+        private final long lagTimeMs;
+
+        public LagInfo(String group, String topic, int partitionId,
+                       boolean online, long maxOffset, long cfmOffset,
+                       long lagMsgCnt, long lagMsgSize, long lagTimeMs) {
+            this.group = group;
+            this.topic = topic;
+            this.partitionId = partitionId;
+            this.online = online;
+            this.maxOffset = maxOffset;
+            this.cfmOffset = cfmOffset;
+            this.lagMsgCnt = lagMsgCnt;
+            this.lagMsgSize = lagMsgSize;
+            this.lagTimeMs = lagTimeMs;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public int getPartitionId() {
+            return partitionId;
+        }
+
+        public boolean isOnline() {
+            return online;
+        }
+
+        public long getMaxOffset() {
+            return maxOffset;
+        }
+
+        public long getCfmOffset() {
+            return cfmOffset;
+        }
+
+        public long getLagMsgCnt() {
+            return lagMsgCnt;
+        }
+
+        public long getLagMsgSize() {
+            return lagMsgSize;
+        }
+
+        public long getLagTimeMs() {
+            return lagTimeMs;
+        }
+
+        public StringBuilder buildLagInfo(StringBuilder sBuffer) {
+            return sBuffer.append("{\"groupName\":\"").append(group)
+                    .append("\",\"topicName\":\"").append(topic)
+                    .append("\",\"partitionId\":").append(partitionId)
+                    .append(",\"online\":").append(online)
+                    .append(",\"maxOffset\":").append(maxOffset)
+                    .append(",\"cfmOffset\":").append(cfmOffset)
+                    .append(",\"lagMsgCnt\":").append(lagMsgCnt)
+                    .append(",\"lagMsgSize\":").append(lagMsgSize)
+                    .append(",\"lagTimeMs\":").append(lagTimeMs).append("}");
+        }
+    }
+}
@@ -226,6 +226,25 @@ public class MsgStoreStatsHolder {
         }
     }
 
+    /**
+     * Add partition index read statistic.
+     *
+     * @param hitEntryCnt     the index entry count read through the partition index
+     * @param skipEntryCnt    the index entry count skipped by the partition index
+     */
+    public void addFilePartIndexStats(long hitEntryCnt, long skipEntryCnt) {
+        if (isClosed) {
+            return;
+        }
+        MsgStoreStatsItemSet tmStatsSet = msgStoreStatsSets[getIndex()];
+        if (hitEntryCnt > 0) {
+            tmStatsSet.filePartIndexHitCnt.addValue(hitEntryCnt);
+        }
+        if (skipEntryCnt > 0) {
+            tmStatsSet.filePartIndexSkipCnt.addValue(skipEntryCnt);
+        }
+    }
+
     /**
      * Check whether has exceeded the maximum self-statistics period.
      *
@@ -437,6 +456,10 @@ public class MsgStoreStatsHolder {
                 statsSet.fileMsgCountFullCnt.getValue());
         statsMap.put(statsSet.fileCachedTimeFullCnt.getFullName(),
                 statsSet.fileCachedTimeFullCnt.getValue());
+        statsMap.put(statsSet.filePartIndexHitCnt.getFullName(),
+                statsSet.filePartIndexHitCnt.getValue());
+        statsMap.put(statsSet.filePartIndexSkipCnt.getFullName(),
+                statsSet.filePartIndexSkipCnt.getValue());
         if (isWriting) {
             statsMap.put(statsSet.snapShotTime.getFullName(),
                     System.currentTimeMillis());
@@ -498,6 +521,10 @@ public class MsgStoreStatsHolder {
                 .append("\":").append(statsSet.fileMsgCountFullCnt.getValue())
                 .append(",\"").append(statsSet.fileCachedTimeFullCnt.getFullName())
                 .append("\":").append(statsSet.fileCachedTimeFullCnt.getValue())
+                .append(",\"").append(statsSet.filePartIndexHitCnt.getFullName())
+                .append("\":").append(statsSet.filePartIndexHitCnt.getValue())
+                .append(",\"").append(statsSet.filePartIndexSkipCnt.getFullName())
+                .append("\":").append(statsSet.filePartIndexSkipCnt.getValue())
                 .append(",\"").append(statsSet.snapShotTime.getFullName())
                 .append("\":\"");
         if (isWriting) {
@@ -577,6 +604,12 @@ public class MsgStoreStatsHolder {
         // The cache timeout refresh amount statistics
         protected final LongStatsCounter fileCachedTimeFullCnt =
                 new LongStatsCounter("file_time_full", null);
+        // The index entry count read through the partition index
+        protected final LongStatsCounter filePartIndexHitCnt =
+                new LongStatsCounter("file_pidx_hit", null);
+        // The index entry count skipped by the partition index
+        protected final LongStatsCounter filePartIndexSkipCnt =
+                new LongStatsCounter("file_pidx_skip", null);
         // The snapshot time of statistics set
         protected final SinceTime snapShotTime =
                 new SinceTime("end_time", null);
@@ -603,6 +636,8 @@ public class MsgStoreStatsHolder {
             this.fileMetaFlushCnt.clear();
             this.fileMsgCountFullCnt.clear();
             this.fileCachedTimeFullCnt.clear();
+            this.filePartIndexHitCnt.clear();
+            this.filePartIndexSkipCnt.clear();
             // for cache metric items
             this.cacheMsgRcvStats.clear();
             this.cacheWriteFailCnt.clear();
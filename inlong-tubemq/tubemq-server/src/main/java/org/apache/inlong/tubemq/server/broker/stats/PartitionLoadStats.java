@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.metric.TrafficStatsUnit;
+import org.apache.inlong.tubemq.server.broker.offset.OffsetRecordInfo;
+import org.apache.inlong.tubemq.server.broker.offset.RecordItem;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+
+/**
+ * PartitionLoadStats, the produced and consumed traffic of each partition
+ *
+ * The statistics are reported to the Master along with the consumer lags, and used by
+ * the load balancer to weight the partitions. The statistics maps are replaced at each
+ * report, a few records added concurrently with the replacement may be lost, which is
+ * acceptable for the balance purpose.
+ */
+public class PartitionLoadStats {
+    // topic:partitionId to the produced traffic
+    private volatile ConcurrentHashMap<String, TrafficStatsUnit> inStatsMap =
+            new ConcurrentHashMap<>();
+    // group:topic:partitionId to the consumed traffic
+    private volatile ConcurrentHashMap<String, TrafficStatsUnit> outStatsMap =
+            new ConcurrentHashMap<>();
+    // the start time of current statistics period
+    private volatile long statsStartTime = System.currentTimeMillis();
+
+    /**
+     * Add produced traffic of the partition
+     *
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @param msgCnt        the message count
+     * @param msgSize       the message size
+     */
+    public void addInTraffic(String topic, int partitionId, long msgCnt, long msgSize) {
+        getStatsUnit(inStatsMap, topic + TokenConstants.ATTR_SEP + partitionId)
+                .addMsgCntAndSize(msgCnt, msgSize);
+    }
+
+    /**
+     * Add consumed traffic of the group on the partition
+     *
+     * @param group         the group name
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @param msgCnt        the message count
+     * @param msgSize       the message size
+     */
+    public void addOutTraffic(String group, String topic,
+                              int partitionId, long msgCnt, long msgSize) {
+        getStatsUnit(outStatsMap, group + TokenConstants.ATTR_SEP
+                + topic + TokenConstants.ATTR_SEP + partitionId)
+                .addMsgCntAndSize(msgCnt, msgSize);
+    }
+
+    /**
+     * Build the load information reported to Master, and start a new statistics period
+     *
+     * @param groupOffsetMap    the online group offsets, filled with the store offsets
+     * @param partLoadInfos     the output partition load information,
+     *                          in topic:partitionId:inMsgCnt:inMsgSize format
+     * @param groupLoadInfos    the output group load information, in
+     *                          group:topic:partitionId:outMsgCnt:outMsgSize:lagMsgCnt format
+     * @return  the statistics period in milliseconds
+     */
+    public long buildLoadInfo(Map<String, OffsetRecordInfo> groupOffsetMap,
+                              List<String> partLoadInfos, List<String> groupLoadInfos) {
+        long curTime = System.currentTimeMillis();
+        final long statsDltMs = curTime - statsStartTime;
+        statsStartTime = curTime;
+        ConcurrentHashMap<String, TrafficStatsUnit> curInStatsMap = inStatsMap;
+        inStatsMap = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, TrafficStatsUnit> curOutStatsMap = outStatsMap;
+        outStatsMap = new ConcurrentHashMap<>();
+        StringBuilder strBuff = new StringBuilder(256);
+        for (Map.Entry<String, TrafficStatsUnit> entry : curInStatsMap.entrySet()) {
+            partLoadInfos.add(strBuff.append(entry.getKey())
+                    .append(TokenConstants.ATTR_SEP).append(entry.getValue().msgCnt.getValue())
+                    .append(TokenConstants.ATTR_SEP).append(entry.getValue().msgSize.getValue())
+                    .toString());
+            strBuff.delete(0, strBuff.length());
+        }
+        long lagMsgCnt;
+        String loadKey;
+        TrafficStatsUnit outStats;
+        if (groupOffsetMap != null) {
+            for (Map.Entry<String, OffsetRecordInfo> entry : groupOffsetMap.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                for (Map.Entry<String, Map<Integer, RecordItem>> topicEntry
+                        : entry.getValue().getOffsetMap().entrySet()) {
+                    if (topicEntry.getKey() == null || topicEntry.getValue() == null) {
+                        continue;
+                    }
+                    for (Map.Entry<Integer, RecordItem> partEntry
+                            : topicEntry.getValue().entrySet()) {
+                        loadKey = strBuff.append(entry.getKey())
+                                .append(TokenConstants.ATTR_SEP).append(topicEntry.getKey())
+                                .append(TokenConstants.ATTR_SEP).append(partEntry.getKey())
+                                .toString();
+                        strBuff.delete(0, strBuff.length());
+                        lagMsgCnt = Math.max(0L, partEntry.getValue().getOffsetLag())
+                                / DataStoreUtils.STORE_INDEX_HEAD_LEN;
+                        outStats = curOutStatsMap.remove(loadKey);
+                        groupLoadInfos.add(buildGroupLoadInfo(strBuff, loadKey, outStats, lagMsgCnt));
+                    }
+                }
+            }
+        }
+        // the groups consumed in this period but not online now
+        for (Map.Entry<String, TrafficStatsUnit> entry : curOutStatsMap.entrySet()) {
+            groupLoadInfos.add(buildGroupLoadInfo(strBuff, entry.getKey(), entry.getValue(), 0L));
+        }
+        return statsDltMs;
+    }
+
+    private String buildGroupLoadInfo(StringBuilder strBuff, String loadKey,
+                                      TrafficStatsUnit outStats, long lagMsgCnt) {
+        strBuff.append(loadKey).append(TokenConstants.ATTR_SEP);
+        if (outStats == null) {
+            strBuff.append(0L).append(TokenConstants.ATTR_SEP).append(0L);
+        } else {
+            strBuff.append(outStats.msgCnt.getValue())
+                    .append(TokenConstants.ATTR_SEP).append(outStats.msgSize.getValue());
+        }
+        String result = strBuff.append(TokenConstants.ATTR_SEP).append(lagMsgCnt).toString();
+        strBuff.delete(0, strBuff.length());
+        return result;
+    }
+
+    private TrafficStatsUnit getStatsUnit(ConcurrentHashMap<String, TrafficStatsUnit> statsMap,
+                                          String statsKey) {
+        TrafficStatsUnit statsUnit = statsMap.get(statsKey);
+        if (statsUnit == null) {
+            TrafficStatsUnit tmpStatsUnit = new TrafficStatsUnit("msg_cnt", "msg_size", null);
+            statsUnit = statsMap.putIfAbsent(statsKey, tmpStatsUnit);
+            if (statsUnit == null) {
+                statsUnit = tmpStatsUnit;
+            }
+        }
+        return statsUnit;
+    }
+}
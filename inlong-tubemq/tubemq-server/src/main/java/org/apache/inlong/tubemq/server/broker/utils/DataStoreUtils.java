@@ -81,6 +81,8 @@ public class DataStoreUtils {
     public static final int INDEX_POS_MSG_SIZE = 12;
     public static final int INDEX_POS_KEY_CODE = 16;
     public static final int INDEX_POS_TIME_RECV = 20;
+    // the index entry count between two samples of the time index
+    public static final int TIME_INDEX_SAMPLE_INTERVAL = 256;
 
     public static final int MAX_MSG_DATA_STORE_SIZE =
             TBaseConstants.META_MAX_MESSAGE_DATA_SIZE_UPPER_LIMIT
@@ -90,6 +92,8 @@ public class DataStoreUtils {
 
     public static final String DATA_FILE_SUFFIX = ".tube";
     public static final String INDEX_FILE_SUFFIX = ".index";
+    public static final String PART_INDEX_FILE_SUFFIX = ".partidx";
+    public static final String TIME_INDEX_FILE_SUFFIX = ".timeidx";
 
     public static int getInt(final int offset, final byte[] data) {
         return ByteBuffer.wrap(data, offset, 4).getInt();
@@ -117,7 +121,7 @@ public class DataStoreUtils {
                                                                 HashMap<String, TrafficInfo> countMap,
                                                                 String statisKeyBase,
                                                                 StringBuilder sBuilder) {
-        if (dataBuffer.array().length < dataTotalSize) {
+        if (dataBuffer.capacity() < dataTotalSize) {
             return null;
         }
         final int msgLen =
@@ -136,14 +140,23 @@ public class DataStoreUtils {
         final long msgId = dataBuffer.getLong(DataStoreUtils.STORE_HEADER_POS_MSGID);
         final int flag = dataBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_MSGFLAG);
         final int payLoadLen2 = payLoadLen;
-        final byte[] payLoadData = new byte[payLoadLen];
-        System.arraycopy(dataBuffer.array(), payLoadOffset, payLoadData, 0, payLoadLen);
         ClientBroker.TransferedMessage.Builder dataBuilder =
                 ClientBroker.TransferedMessage.newBuilder();
         dataBuilder.setMessageId(msgId);
         dataBuilder.setCheckSum(checkSum);
         dataBuilder.setFlag(flag);
-        dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadData));
+        if (dataBuffer.hasArray()) {
+            // the heap read buffer is reused by the caller, so copy the payload
+            dataBuilder.setPayLoadData(ByteString.copyFrom(dataBuffer.array(),
+                    dataBuffer.arrayOffset() + payLoadOffset, payLoadLen));
+        } else {
+            // copy from the mapped region directly, the region is
+            // unmapped once the segment is released by the readers
+            ByteBuffer payLoadView = dataBuffer.duplicate();
+            payLoadView.limit(payLoadOffset + payLoadLen);
+            payLoadView.position(payLoadOffset);
+            dataBuilder.setPayLoadData(ByteString.copyFrom(payLoadView));
+        }
         // get statistic data
         int attrLen = 0;
         String attribute = null;
@@ -159,7 +172,9 @@ public class DataStoreUtils {
             }
             if (attrLen > 0) {
                 final byte[] attrData = new byte[attrLen];
-                System.arraycopy(dataBuffer.array(), payLoadOffset, attrData, 0, attrLen);
+                ByteBuffer attrView = dataBuffer.duplicate();
+                attrView.position(payLoadOffset);
+                attrView.get(attrData);
                 try {
                     attribute = new String(attrData, TBaseConstants.META_DEFAULT_CHARSET_NAME);
                 } catch (final UnsupportedEncodingException e) {
@@ -47,6 +47,7 @@ import org.apache.inlong.tubemq.server.broker.nodeinfo.ConsumerNodeInfo;
 import org.apache.inlong.tubemq.server.broker.offset.OffsetService;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerStatsType;
 import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.broker.stats.ConsumerLagStats;
 import org.apache.inlong.tubemq.server.broker.utils.GroupOffsetInfo;
 import org.apache.inlong.tubemq.server.broker.utils.TopicPubStoreInfo;
 import org.apache.inlong.tubemq.server.common.TServerConstants;
@@ -112,6 +113,9 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         // remove group's offset info
         innRegisterWebMethod("admin_rmv_offset",
                 "adminRemoveGroupOffSet", false);
+        // query the consume lags of the groups
+        innRegisterWebMethod("admin_query_consumer_lag",
+                "adminQueryConsumerLag", false);
         // get offset by consume timestamp
         innRegisterWebMethod("admin_get_group_history_offset",
                 "adminQueryGroupHistoryOffSet", false);
@@ -759,6 +763,43 @@ public class BrokerAdminServlet extends AbstractWebHandler {
         sBuffer.append("],\"totalCnt\":").append(totalCnt).append("}");
     }
 
+    /**
+     * Query the consume lags of the groups, calculated from the in-memory
+     * store end offsets and confirmed offsets, without visiting the offset storage.
+     *
+     * @param req      request
+     * @param sBuffer  process result
+     */
+    public void adminQueryConsumerLag(HttpServletRequest req,
+                                      StringBuilder sBuffer) {
+        ProcessResult result = new ProcessResult();
+        // get group list
+        if (!WebParameterUtils.getStringParamValue(req,
+                WebFieldDef.COMPSGROUPNAME, false, null, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return;
+        }
+        Set<String> groupNameSet = (Set<String>) result.getRetData();
+        // get the topic set to be queried
+        if (!WebParameterUtils.getStringParamValue(req,
+                WebFieldDef.COMPSTOPICNAME, false, null, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return;
+        }
+        Set<String> topicSet = (Set<String>) result.getRetData();
+        List<ConsumerLagStats.LagInfo> lagInfos = broker.getBrokerServiceServer()
+                .getConsumerLagStats().getLagInfos(groupNameSet, topicSet);
+        int totalCnt = 0;
+        WebParameterUtils.buildSuccessWithDataRetBegin(sBuffer);
+        for (ConsumerLagStats.LagInfo lagInfo : lagInfos) {
+            if (totalCnt++ > 0) {
+                sBuffer.append(",");
+            }
+            lagInfo.buildLagInfo(sBuffer);
+        }
+        WebParameterUtils.buildSuccessWithDataRetEnd(sBuffer, totalCnt);
+    }
+
     /**
      * Query consumer group history offset by timestamp.
      *
@@ -107,4 +107,25 @@ public final class TServerConstants {
 
     // max statistics token type length
     public static final int META_MAX_STATSTYPE_LENGTH = 256;
+
+    // the time reserved to write the response of a parked long-poll fetch request
+    // before the request times out on the client side
+    public static final long CFG_LONG_POLL_RSP_RESERVE_MS = 500L;
+
+    // the wait time of the replica fetch threads if no message fetched in a round
+    public static final long CFG_REPLICA_FETCH_IDLE_WAIT_MS = 20L;
+    // the wait time before retrying the failed replica register or fetch
+    public static final long CFG_REPLICA_FETCH_RETRY_WAIT_MS = 1000L;
+    // the refresh period of the replicated partitions of the fetch threads
+    public static final long CFG_REPLICA_PART_REFRESH_MS = 10000L;
+    // the flush period of the replica checkpoint file
+    public static final long CFG_REPLICA_CHECKPOINT_FLUSH_MS = 1000L;
+
+    // the tick duration and the wheel size of the heartbeat timeout timer
+    public static final long CFG_HEARTBEAT_TIMER_TICK_MS = 100L;
+    public static final int CFG_HEARTBEAT_TIMER_WHEEL_SIZE = 512;
+
+    // the max count of the removed topics kept for the incremental broker configure sync,
+    // the brokers take a full sync once the count exceeded
+    public static final int CFG_BROKER_SYNC_MAX_RMV_TOPICS = 10000;
 }
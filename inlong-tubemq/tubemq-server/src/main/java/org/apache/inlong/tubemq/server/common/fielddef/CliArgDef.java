@@ -112,7 +112,10 @@ public enum CliArgDef {
     AUTHTOKEN("token", "auth-token",
             "String: API operation authorization code",
             "API operation authorization code,"
-                    + " required when adding or modifying, optional when querying");
+                    + " required when adding or modifying, optional when querying"),
+    IMBALANCEPERCENT(null, "imbalance-percent",
+            "Int: percentage",
+            "The allowed imbalance percentage of the consumers' loads.(default: 20)");
 
     CliArgDef(String opt, String longOpt, String optDesc) {
         this(opt, longOpt, false, "", optDesc);
@@ -17,20 +17,30 @@
 
 package org.apache.inlong.tubemq.server.common.heartbeat;
 
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
 import org.apache.inlong.tubemq.corebase.rv.ProcessResult;
-import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.exception.HeartbeatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Heartbeat manager, checks the heartbeat timeout of the registered broker, producer and consumer nodes
+ *
+ * Each registered node has one pending task in a timing wheel. A heartbeat only updates the
+ * timeout time of the node, and the task re-schedules itself with the remaining time when it
+ * fires before the updated timeout time, so the cost of the heartbeats and the timeout checks
+ * does not grow with the number of the registered nodes.
+ */
 public class HeartbeatManager {
 
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatManager.class);
@@ -41,14 +51,25 @@ public class HeartbeatManager {
             new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, TimeoutInfo> consumerRegMap =
             new ConcurrentHashMap<>();
-    private final ExecutorService timeoutScanService = Executors.newCachedThreadPool();
-    private long brokerTimeoutDlt = 0;
-    private long producerTimeoutDlt = 0;
-    private long consumerTimeoutDlt = 0;
-    private boolean isStopped = false;
+    private final NodeChecker brokerChecker =
+            new NodeChecker("Broker Node", brokerRegMap);
+    private final NodeChecker producerChecker =
+            new NodeChecker("Producer Node", producerRegMap);
+    private final NodeChecker consumerChecker =
+            new NodeChecker("Consumer Node", consumerRegMap);
+    private final HashedWheelTimer timeoutTimer;
+    private volatile boolean isStopped = false;
 
     public HeartbeatManager() {
-
+        this.timeoutTimer = new HashedWheelTimer(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Heartbeat Timeout Timer");
+                t.setDaemon(true);
+                return t;
+            }
+        }, TServerConstants.CFG_HEARTBEAT_TIMER_TICK_MS, TimeUnit.MILLISECONDS,
+                TServerConstants.CFG_HEARTBEAT_TIMER_WHEEL_SIZE);
     }
 
     /**
@@ -84,7 +105,7 @@ public class HeartbeatManager {
      * @return the timeout delta of a consumer
      */
     public long getConsumerTimeoutDlt() {
-        return consumerTimeoutDlt;
+        return consumerChecker.timeoutDlt;
     }
 
     /**
@@ -94,8 +115,7 @@ public class HeartbeatManager {
      * @param listener the listener used in the broker for timeout business
      */
     public void regBrokerCheckBusiness(final long timeout, final TimeoutListener listener) {
-        this.brokerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Broker Node", this.brokerRegMap, listener);
+        this.brokerChecker.register(timeout, listener);
     }
 
     /**
@@ -105,8 +125,7 @@ public class HeartbeatManager {
      * @param listener the listener used in the producer for timeout business
      */
     public void regProducerCheckBusiness(final long timeout, final TimeoutListener listener) {
-        this.producerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Producer Node", this.producerRegMap, listener);
+        this.producerChecker.register(timeout, listener);
     }
 
     /**
@@ -116,49 +135,7 @@ public class HeartbeatManager {
      * @param listener the listener used in the consumer for timeout business
      */
     public void regConsumerCheckBusiness(final long timeout, final TimeoutListener listener) {
-        this.consumerTimeoutDlt = timeout;
-        this.registerCheckBusiness("Consumer Node", this.consumerRegMap, listener);
-    }
-
-    private void registerCheckBusiness(final String businessType,
-                                       final Map<String, TimeoutInfo> nodeMap,
-                                       final TimeoutListener listener) {
-
-        timeoutScanService.submit(new Runnable() {
-            @Override
-            public void run() {
-                while (!isStopped) {
-                    try {
-                        long currentTime = System.currentTimeMillis();
-                        Set<String> removedNodeKey = new HashSet<>();
-                        for (Map.Entry<String, TimeoutInfo> entry : nodeMap.entrySet()) {
-                            if (TStringUtils.isBlank(entry.getKey()) || entry.getValue() == null) {
-                                continue;
-                            }
-                            if (currentTime >= entry.getValue().getTimeoutTime()) {
-                                removedNodeKey.add(entry.getKey());
-                            }
-                        }
-                        if (!removedNodeKey.isEmpty()) {
-                            for (String nodeKey : removedNodeKey) {
-                                TimeoutInfo timeoutInfo = nodeMap.get(nodeKey);
-                                if (timeoutInfo == null) {
-                                    continue;
-                                }
-                                if (currentTime >= timeoutInfo.getTimeoutTime()) {
-                                    nodeMap.remove(nodeKey);
-                                    listener.onTimeout(nodeKey, timeoutInfo);
-                                }
-                            }
-                        }
-                        Thread.sleep(1000 * 1);
-                    } catch (Throwable t) {
-                        logger.error(new StringBuilder(256)
-                                .append(businessType).append(" heartbeat scan error!").toString(), t);
-                    }
-                }
-            }
-        });
+        this.consumerChecker.register(timeout, listener);
     }
 
     /**
@@ -169,8 +146,8 @@ public class HeartbeatManager {
      * @return the timeout info for the registered node
      */
     public TimeoutInfo regBrokerNode(String nodeId, String createId) {
-        return this.brokerRegMap.put(nodeId,
-                new TimeoutInfo(createId, this.brokerTimeoutDlt));
+        return brokerChecker.regNode(nodeId,
+                new TimeoutInfo(createId, brokerChecker.timeoutDlt));
     }
 
     /**
@@ -180,7 +157,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regProducerNode(final String nodeId) {
-        return this.producerRegMap.put(nodeId, new TimeoutInfo(this.producerTimeoutDlt));
+        return producerChecker.regNode(nodeId,
+                new TimeoutInfo(producerChecker.timeoutDlt));
     }
 
     /**
@@ -190,7 +168,8 @@ public class HeartbeatManager {
      * @return the timeout info of the registered node
      */
     public TimeoutInfo regConsumerNode(final String nodeId) {
-        return this.consumerRegMap.put(nodeId, new TimeoutInfo(this.consumerTimeoutDlt));
+        return consumerChecker.regNode(nodeId,
+                new TimeoutInfo(consumerChecker.timeoutDlt));
     }
 
     /**
@@ -204,8 +183,8 @@ public class HeartbeatManager {
     public TimeoutInfo regConsumerNode(final String nodeId,
                                        final String consumerId,
                                        final String partStr) {
-        return this.consumerRegMap.put(nodeId,
-                new TimeoutInfo(consumerId, partStr, this.consumerTimeoutDlt));
+        return consumerChecker.regNode(nodeId,
+                new TimeoutInfo(consumerId, partStr, consumerChecker.timeoutDlt));
     }
 
     /**
@@ -269,7 +248,7 @@ public class HeartbeatManager {
             sBuffer.delete(0, sBuffer.length());
             return result.isSuccess();
         }
-        timeoutInfo.updTimeoutTime(this.brokerTimeoutDlt);
+        timeoutInfo.updTimeoutTime(brokerChecker.timeoutDlt);
         result.setSuccResult(null);
         return result.isSuccess();
     }
@@ -287,7 +266,7 @@ public class HeartbeatManager {
                     .append("Invalid node id:").append(nodeId)
                     .append(", you have to append node first!").toString());
         }
-        timeoutInfo.updTimeoutTime(this.producerTimeoutDlt);
+        timeoutInfo.updTimeoutTime(producerChecker.timeoutDlt);
     }
 
     /**
@@ -303,7 +282,7 @@ public class HeartbeatManager {
                     .append("Invalid node id:").append(nodeId)
                     .append(", you have to append node first!").toString());
         }
-        timeoutInfo.updTimeoutTime(this.consumerTimeoutDlt);
+        timeoutInfo.updTimeoutTime(consumerChecker.timeoutDlt);
     }
 
     /**
@@ -311,6 +290,10 @@ public class HeartbeatManager {
      */
     public void stop() {
         isStopped = true;
+        timeoutTimer.stop();
+        brokerChecker.close();
+        producerChecker.close();
+        consumerChecker.close();
     }
 
     /**
@@ -321,4 +304,120 @@ public class HeartbeatManager {
         producerRegMap.clear();
         consumerRegMap.clear();
     }
+
+    /**
+     * The timeout check business of a node type
+     */
+    private class NodeChecker {
+        private final String businessType;
+        private final ConcurrentHashMap<String, TimeoutInfo> nodeMap;
+        private volatile long timeoutDlt = 0;
+        private volatile TimeoutListener listener = null;
+        // the thread to notify the timeout nodes, not to block the timer thread
+        private volatile ExecutorService notifyService = null;
+
+        public NodeChecker(String businessType,
+                           ConcurrentHashMap<String, TimeoutInfo> nodeMap) {
+            this.businessType = businessType;
+            this.nodeMap = nodeMap;
+        }
+
+        public synchronized void register(long timeoutDlt, TimeoutListener listener) {
+            this.timeoutDlt = timeoutDlt;
+            this.listener = listener;
+            if (notifyService == null) {
+                notifyService = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, businessType + " Timeout Thread");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+        }
+
+        public TimeoutInfo regNode(String nodeId, TimeoutInfo timeoutInfo) {
+            // the task of the replaced node is discarded when it fires
+            TimeoutInfo oldInfo = nodeMap.put(nodeId, timeoutInfo);
+            schedule(new NodeTimeoutTask(this, nodeId, timeoutInfo),
+                    timeoutInfo.getTimeoutTime() - System.currentTimeMillis());
+            return oldInfo;
+        }
+
+        public void onTimeout(final String nodeId, final TimeoutInfo timeoutInfo) {
+            final TimeoutListener curListener = listener;
+            final ExecutorService curService = notifyService;
+            if (curListener == null || curService == null) {
+                return;
+            }
+            try {
+                curService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            curListener.onTimeout(nodeId, timeoutInfo);
+                        } catch (Throwable t) {
+                            logger.error(new StringBuilder(256).append(businessType)
+                                    .append(" heartbeat timeout process error!").toString(), t);
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                if (!isStopped) {
+                    logger.error(new StringBuilder(256).append(businessType)
+                            .append(" heartbeat timeout notify error!").toString(), t);
+                }
+            }
+        }
+
+        public synchronized void close() {
+            if (notifyService != null) {
+                notifyService.shutdown();
+            }
+        }
+    }
+
+    /**
+     * The timeout task of a registered node in the timing wheel
+     */
+    private class NodeTimeoutTask implements TimerTask {
+        private final NodeChecker checker;
+        private final String nodeId;
+        private final TimeoutInfo timeoutInfo;
+
+        public NodeTimeoutTask(NodeChecker checker, String nodeId, TimeoutInfo timeoutInfo) {
+            this.checker = checker;
+            this.nodeId = nodeId;
+            this.timeoutInfo = timeoutInfo;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            // the node has been unregistered or registered again
+            if (isStopped || checker.nodeMap.get(nodeId) != timeoutInfo) {
+                return;
+            }
+            // the node's heartbeats have extended the timeout time
+            long waitTime = timeoutInfo.getTimeoutTime() - System.currentTimeMillis();
+            if (waitTime > 0) {
+                schedule(this, waitTime);
+                return;
+            }
+            if (checker.nodeMap.remove(nodeId, timeoutInfo)) {
+                checker.onTimeout(nodeId, timeoutInfo);
+            }
+        }
+    }
+
+    private void schedule(NodeTimeoutTask timeoutTask, long waitTime) {
+        if (isStopped) {
+            return;
+        }
+        try {
+            timeoutTimer.newTimeout(timeoutTask, Math.max(waitTime, 0), TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // the timer has been stopped
+        }
+    }
 }
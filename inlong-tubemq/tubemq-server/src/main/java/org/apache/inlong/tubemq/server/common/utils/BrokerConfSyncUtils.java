@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.codec.binary.StringUtils;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The utilities of the broker configure synchronized between the Master and the Broker.
+ */
+public class BrokerConfSyncUtils {
+    private static final Logger logger =
+            LoggerFactory.getLogger(BrokerConfSyncUtils.class);
+
+    /**
+     * Calculate the crc32 value of the broker configure
+     *
+     * @param brokerConfInfo  broker default config
+     * @param topicConfInfos  topic config set
+     *
+     * @return the crc32 value
+     */
+    public static int calcConfCheckSum(String brokerConfInfo,
+                                       Collection<String> topicConfInfos) {
+        int result = -1;
+        int capacity = 0;
+        List<String> topicConfInfoLst = new ArrayList<>(topicConfInfos);
+        Collections.sort(topicConfInfoLst);
+        capacity += brokerConfInfo.length();
+        for (String itemStr : topicConfInfoLst) {
+            capacity += itemStr.length();
+        }
+        capacity *= 2;
+        for (int i = 1; i < 3; i++) {
+            result = inCalcBufferResult(capacity, brokerConfInfo, topicConfInfoLst);
+            if (result >= 0) {
+                return result;
+            }
+            capacity *= i + 1;
+        }
+        logger.error("Calculate the CRC32 value of Broker Configure error!");
+        return 0;
+    }
+
+    /**
+     * Calculate the payload size of the synchronized configure
+     *
+     * @param brokerConfInfo  broker default config
+     * @param topicConfInfos  topic config set
+     * @param rmvTopics       the removed topics, null if not a delta configure
+     *
+     * @return the total length of the configure
+     */
+    public static long calcConfSyncSize(String brokerConfInfo,
+                                        Collection<String> topicConfInfos,
+                                        Collection<String> rmvTopics) {
+        long syncSize = brokerConfInfo == null ? 0 : brokerConfInfo.length();
+        for (String itemStr : topicConfInfos) {
+            syncSize += itemStr.length();
+        }
+        if (rmvTopics != null) {
+            for (String itemStr : rmvTopics) {
+                syncSize += itemStr.length();
+            }
+        }
+        return syncSize;
+    }
+
+    /**
+     * Get the topic name of the topic configure
+     *
+     * @param topicConfInfo  the topic configure, starts with the topic name
+     *
+     * @return the topic name
+     */
+    public static String getTopicName(String topicConfInfo) {
+        int index = topicConfInfo.indexOf(TokenConstants.ATTR_SEP);
+        return index < 0 ? topicConfInfo : topicConfInfo.substring(0, index);
+    }
+
+    private static int inCalcBufferResult(int capacity, String brokerConfInfo,
+                                          List<String> topicConfInfoLst) {
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.put(StringUtils.getBytesUtf8(brokerConfInfo));
+        for (String itemStr : topicConfInfoLst) {
+            byte[] itemData = StringUtils.getBytesUtf8(itemStr);
+            if (itemData.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(itemData);
+        }
+        return CheckSum.crc32(buffer.array());
+    }
+}
@@ -81,6 +81,15 @@ public class MasterConfig extends AbstractFileConfig {
     private long authValidTimeStampPeriodMs = TBaseConstants.CFG_DEFAULT_AUTH_TIMESTAMP_VALID_INTERVAL;
     private int rebalanceParallel = 4;
     private long maxMetaForceUpdatePeriodMs = TBaseConstants.CFG_DEF_META_FORCE_UPDATE_PERIOD;
+    // the server side load balance strategy, "default" or "weighted"
+    private String balanceStrategy = "default";
+    // the allowed imbalance percentage of the consumers' loads for the weighted strategy
+    private int balanceImbalancePercent = 20;
+    // the expected period to drain the consumer lag for the weighted strategy, in seconds
+    private long balanceLagDrainSec = 300L;
+    // whether a consumer acquires its new partitions once they are released,
+    // instead of once all the consumers of the group have released their partitions
+    private boolean cooperativeRebalance = false;
 
     /**
      * getters
@@ -266,6 +275,22 @@ public class MasterConfig extends AbstractFileConfig {
         return maxMetaForceUpdatePeriodMs;
     }
 
+    public String getBalanceStrategy() {
+        return balanceStrategy;
+    }
+
+    public int getBalanceImbalancePercent() {
+        return balanceImbalancePercent;
+    }
+
+    public long getBalanceLagDrainSec() {
+        return balanceLagDrainSec;
+    }
+
+    public boolean isCooperativeRebalance() {
+        return cooperativeRebalance;
+    }
+
     public boolean isUseBdbStoreMetaData() {
         return useBdbStoreMetaData;
     }
@@ -504,6 +529,27 @@ public class MasterConfig extends AbstractFileConfig {
             }
             this.maxMetaForceUpdatePeriodMs = tmpPeriodMs;
         }
+        if (TStringUtils.isNotBlank(masterConf.get("balanceStrategy"))) {
+            String tmpStrategy = masterConf.get("balanceStrategy").trim();
+            if (!"default".equalsIgnoreCase(tmpStrategy)
+                    && !"weighted".equalsIgnoreCase(tmpStrategy)) {
+                throw new IllegalArgumentException(new StringBuilder(256)
+                        .append("balanceStrategy only supports default or weighted in ")
+                        .append(SECT_TOKEN_MASTER).append(" section!").toString());
+            }
+            this.balanceStrategy = tmpStrategy.toLowerCase();
+        }
+        if (TStringUtils.isNotBlank(masterConf.get("balanceImbalancePercent"))) {
+            this.balanceImbalancePercent = MixedUtils.mid(
+                    this.getInt(masterConf, "balanceImbalancePercent"), 1, 100);
+        }
+        if (TStringUtils.isNotBlank(masterConf.get("balanceLagDrainSec"))) {
+            this.balanceLagDrainSec = MixedUtils.mid(
+                    this.getLong(masterConf, "balanceLagDrainSec"), 1L, 86400L);
+        }
+        if (TStringUtils.isNotBlank(masterConf.get("cooperativeRebalance"))) {
+            this.cooperativeRebalance = this.getBoolean(masterConf, "cooperativeRebalance");
+        }
     }
 
     /**
@@ -804,6 +850,10 @@ public class MasterConfig extends AbstractFileConfig {
                 .append("authValidTimeStampPeriodMs", authValidTimeStampPeriodMs)
                 .append("rebalanceParallel", rebalanceParallel)
                 .append("maxMetaForceUpdatePeriodMs", maxMetaForceUpdatePeriodMs)
+                .append("balanceStrategy", balanceStrategy)
+                .append("balanceImbalancePercent", balanceImbalancePercent)
+                .append("balanceLagDrainSec", balanceLagDrainSec)
+                .append("cooperativeRebalance", cooperativeRebalance)
                 .toString();
     }
 }
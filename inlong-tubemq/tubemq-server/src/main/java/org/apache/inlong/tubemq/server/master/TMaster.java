@@ -103,6 +103,8 @@ import org.apache.inlong.tubemq.server.common.utils.RowLock;
 import org.apache.inlong.tubemq.server.common.utils.Sleeper;
 import org.apache.inlong.tubemq.server.master.balance.DefaultLoadBalancer;
 import org.apache.inlong.tubemq.server.master.balance.LoadBalancer;
+import org.apache.inlong.tubemq.server.master.balance.PartitionLoadHolder;
+import org.apache.inlong.tubemq.server.master.balance.WeightedLoadBalancer;
 import org.apache.inlong.tubemq.server.master.metamanage.DefaultMetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.MetaDataService;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.BrokerConfEntity;
@@ -147,6 +149,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
     private final RowLock masterRowLock;                        //lock
     private final WebServer webServer;                          //web server
     private final LoadBalancer loadBalancer;                    //load balance
+    private final PartitionLoadHolder partLoadHolder =          //partition load
+            new PartitionLoadHolder();
     private final MasterConfig masterConfig;                    //master config
     private final NodeAddrInfo masterAddInfo;                   //master address info
     private final HeartbeatManager heartbeatManager;            //heartbeat manager
@@ -188,15 +192,24 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         this.heartbeatManager = new HeartbeatManager();
         this.producerHolder = new ProducerInfoHolder();
         this.consumerHolder = new ConsumerInfoHolder(this);
-        this.consumerEventManager = new ConsumerEventManager(consumerHolder);
+        this.consumerEventManager = new ConsumerEventManager(
+                consumerHolder, masterConfig.isCooperativeRebalance());
         this.topicPSInfoManager = new TopicPSInfoManager(this);
-        this.loadBalancer = new DefaultLoadBalancer();
+        if ("weighted".equals(masterConfig.getBalanceStrategy())) {
+            this.loadBalancer = new WeightedLoadBalancer(partLoadHolder,
+                    masterConfig.getBalanceImbalancePercent() / 100.0,
+                    masterConfig.getBalanceLagDrainSec());
+        } else {
+            this.loadBalancer = new DefaultLoadBalancer();
+        }
         heartbeatManager.regConsumerCheckBusiness(masterConfig.getConsumerHeartbeatTimeoutMs(),
                 new TimeoutListener() {
                     @Override
                     public void onTimeout(String nodeId, TimeoutInfo nodeInfo) {
                         logger.info(new StringBuilder(512).append("[Consumer Timeout] ")
                                 .append(nodeId).toString());
+                        MasterSrvStatsHolder.updConsumerTimeoutDelay(
+                                System.currentTimeMillis() - nodeInfo.getTimeoutTime());
                         new ReleaseConsumer().run(nodeId, true);
                     }
                 });
@@ -206,6 +219,8 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
                     public void onTimeout(final String nodeId, TimeoutInfo nodeInfo) {
                         logger.info(new StringBuilder(512).append("[Producer Timeout] ")
                                 .append(nodeId).toString());
+                        MasterSrvStatsHolder.updProducerTimeoutDelay(
+                                System.currentTimeMillis() - nodeInfo.getTimeoutTime());
                         new ReleaseProducer().run(nodeId, true);
                     }
                 });
@@ -1094,6 +1109,12 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             builder.setErrMsg(result.getErrMsg());
             return builder.build();
         }
+        if (request.hasLoadStatsDltMs()) {
+            partLoadHolder.updBrokerLoadInfo(brokerId, request.getLoadStatsDltMs(),
+                    request.getPartLoadInfoList(), request.getGroupLoadInfoList());
+        }
+        brokerRunManager.getBrokerReplicaHolder()
+                .updBrokerReplicaInfo(brokerId, request.getReplicaInfoList());
         if (request.getTakeConfInfo()) {
             strBuffer.append("[Broker Report] heartbeat report: brokerId=")
                 .append(request.getBrokerId()).append(", configureId=")
@@ -1110,7 +1131,9 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             strBuffer.delete(0, strBuffer.length());
         }
         // create response
-        brokerRunManager.setHeatBeatDownConfInfo(brokerId, strBuffer, builder);
+        brokerRunManager.setHeatBeatDownConfInfo(brokerId,
+                request.hasConfSyncVersion() ? request.getConfSyncVersion()
+                        : TBaseConstants.META_VALUE_UNDEFINED, strBuffer, builder);
         BrokerConfEntity brokerConfEntity =
                 defMetaDataService.getBrokerConfByBrokerId(brokerId);
         builder.setTakeRemoveTopicInfo(true);
@@ -1183,6 +1206,7 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
             builder.setErrMsg(result.getErrMsg());
             return builder.build();
         }
+        partLoadHolder.rmvBrokerLoadInfo(brokerId);
         builder.setSuccess(true);
         builder.setErrCode(TErrCodeConstants.SUCCESS);
         builder.setErrMsg("OK!");
@@ -2516,6 +2540,10 @@ public class TMaster extends HasThread implements MasterService, Stoppable {
         return consumerHolder;
     }
 
+    public PartitionLoadHolder getPartLoadHolder() {
+        return partLoadHolder;
+    }
+
     /**
      * check bdb meta-data path, create it if not exist
      *
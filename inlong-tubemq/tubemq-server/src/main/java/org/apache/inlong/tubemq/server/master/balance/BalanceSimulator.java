@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Balance simulator, replays the recorded cluster states of a consume group
+ * against the balance strategies offline
+ *
+ * The cluster states are recorded by the admin_query_group_load web API of the Master.
+ * Each state contains the online consumers, the partition weights and the actual assignment
+ * of the group. The strategies start from the first recorded assignment, and re-balance
+ * at each state with the previous simulated assignment, the "recorded" strategy is the
+ * actual assignment of the Master for comparison.
+ */
+public class BalanceSimulator {
+    public static final String STRATEGY_RECORDED = "recorded";
+    public static final String STRATEGY_COUNT = "count";
+    public static final String STRATEGY_WEIGHTED = "weighted";
+
+    private final WeightedStickyAssignor assignor;
+
+    public BalanceSimulator(double imbalanceRatio) {
+        this.assignor = new WeightedStickyAssignor(imbalanceRatio);
+    }
+
+    /**
+     * Simulate the strategies on the recorded cluster states of a group
+     *
+     * @param states    the cluster states in record order
+     * @return  the simulation result of each strategy
+     */
+    public List<SimResult> simulate(List<ClusterState> states) {
+        List<SimResult> results = new ArrayList<>();
+        SimResult recordedResult = new SimResult(STRATEGY_RECORDED);
+        SimResult countResult = new SimResult(STRATEGY_COUNT);
+        SimResult weightedResult = new SimResult(STRATEGY_WEIGHTED);
+        if (states.isEmpty()) {
+            return results;
+        }
+        Map<String, List<String>> recordedAssignment = states.get(0).assignment;
+        Map<String, List<String>> countAssignment = states.get(0).assignment;
+        Map<String, List<String>> weightedAssignment = states.get(0).assignment;
+        for (ClusterState state : states) {
+            // the recorded assignment
+            recordedResult.addRound(state.partWeights,
+                    recordedAssignment, state.assignment);
+            recordedAssignment = state.assignment;
+            // the unit weight assignment, evaluated with the actual weights
+            Map<String, Double> unitWeights = new HashMap<>();
+            for (String partKey : state.partWeights.keySet()) {
+                unitWeights.put(partKey, 1.0);
+            }
+            Map<String, List<String>> newAssignment = assignor.assign(
+                    countAssignment, unitWeights, state.consumers, null, true);
+            countResult.addRound(state.partWeights, countAssignment, newAssignment);
+            countAssignment = newAssignment;
+            // the weighted assignment
+            newAssignment = assignor.assign(
+                    weightedAssignment, state.partWeights, state.consumers, null, true);
+            weightedResult.addRound(state.partWeights, weightedAssignment, newAssignment);
+            weightedAssignment = newAssignment;
+        }
+        results.add(recordedResult);
+        results.add(countResult);
+        results.add(weightedResult);
+        return results;
+    }
+
+    /**
+     * Parse a recorded cluster state, either the record itself or
+     * the response of the admin_query_group_load web API
+     *
+     * @param jsonStr   the json string
+     * @return  the cluster state
+     */
+    public static ClusterState parseState(String jsonStr) {
+        JsonParser jsonParser = new JsonParser();
+        JsonObject jsonObject = jsonParser.parse(jsonStr).getAsJsonObject();
+        if (jsonObject.has("data")) {
+            jsonObject = jsonObject.getAsJsonArray("data").get(0).getAsJsonObject();
+        }
+        ClusterState state = new ClusterState(jsonObject.get("groupName").getAsString());
+        for (JsonElement element : jsonObject.getAsJsonArray("consumers")) {
+            state.consumers.add(element.getAsString());
+        }
+        for (Map.Entry<String, JsonElement> entry
+                : jsonObject.getAsJsonObject("partWeights").entrySet()) {
+            state.partWeights.put(entry.getKey(), entry.getValue().getAsDouble());
+        }
+        for (Map.Entry<String, JsonElement> entry
+                : jsonObject.getAsJsonObject("assignment").entrySet()) {
+            List<String> partKeys = new ArrayList<>();
+            JsonArray partArray = entry.getValue().getAsJsonArray();
+            for (JsonElement element : partArray) {
+                partKeys.add(element.getAsString());
+            }
+            state.assignment.put(entry.getKey(), partKeys);
+        }
+        return state;
+    }
+
+    public static class ClusterState {
+        private final String groupName;
+        private final List<String> consumers = new ArrayList<>();
+        private final Map<String, Double> partWeights = new HashMap<>();
+        private final Map<String, List<String>> assignment = new HashMap<>();
+
+        public ClusterState(String groupName) {
+            this.groupName = groupName;
+        }
+
+        public String getGroupName() {
+            return groupName;
+        }
+
+        public List<String> getConsumers() {
+            return consumers;
+        }
+
+        public Map<String, Double> getPartWeights() {
+            return partWeights;
+        }
+
+        public Map<String, List<String>> getAssignment() {
+            return assignment;
+        }
+    }
+
+    public static class SimResult {
+        private final String strategy;
+        private int roundCnt = 0;
+        private double totalMaxLoadRatio = 0;
+        private double worstMaxLoadRatio = 0;
+        private long movedPartCnt = 0;
+
+        public SimResult(String strategy) {
+            this.strategy = strategy;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public int getRoundCnt() {
+            return roundCnt;
+        }
+
+        public double getAvgMaxLoadRatio() {
+            return roundCnt == 0 ? 0 : totalMaxLoadRatio / roundCnt;
+        }
+
+        public double getWorstMaxLoadRatio() {
+            return worstMaxLoadRatio;
+        }
+
+        public long getMovedPartCnt() {
+            return movedPartCnt;
+        }
+
+        private void addRound(Map<String, Double> partWeights,
+                              Map<String, List<String>> befAssignment,
+                              Map<String, List<String>> aftAssignment) {
+            double maxLoadRatio =
+                    WeightedStickyAssignor.getMaxLoadRatio(aftAssignment, partWeights);
+            roundCnt++;
+            totalMaxLoadRatio += maxLoadRatio;
+            worstMaxLoadRatio = Math.max(worstMaxLoadRatio, maxLoadRatio);
+            // count the partitions assigned to another consumer
+            Map<String, String> befPartOwners = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : befAssignment.entrySet()) {
+                for (String partKey : entry.getValue()) {
+                    befPartOwners.put(partKey, entry.getKey());
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : aftAssignment.entrySet()) {
+                for (String partKey : entry.getValue()) {
+                    String befOwner = befPartOwners.get(partKey);
+                    if (befOwner != null && !befOwner.equals(entry.getKey())) {
+                        movedPartCnt++;
+                    }
+                }
+            }
+        }
+    }
+}
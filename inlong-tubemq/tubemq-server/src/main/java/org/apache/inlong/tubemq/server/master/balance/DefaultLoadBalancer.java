@@ -190,7 +190,7 @@ public class DefaultLoadBalancer implements LoadBalancer {
             if (!partMap.isEmpty()) {
                 onlineOfflineGroupSet.add(group);
                 if (!newConsumerList2.isEmpty()) {
-                    this.randomAssign(partMap, newConsumerList2,
+                    this.assignPartitions(group, partMap, newConsumerList2,
                             finalSubInfoMap, clusterState, rebProcessInfo.needProcessList);
                 }
             }
@@ -277,83 +277,100 @@ public class DefaultLoadBalancer implements LoadBalancer {
             if (CollectionUtils.isEmpty(consumerList)) {
                 continue;
             }
-            // sort consumer and partitions, then mod
-            Set<String> topics = consumeGroupInfo.getTopicSet();
-            Map<String, Partition> psPartMap =
-                    brokerRunManager.getSubBrokerAcceptSubParts(topics);
-            int min = psPartMap.size() / consumerList.size();
-            int max = psPartMap.size() % consumerList.size() == 0 ? min : min + 1;
-            int serverNumToLoadMax = psPartMap.size() % consumerList.size();
-            Queue<Partition> partitionToMove = new LinkedBlockingQueue<>();
-            Map<String, Integer> serverToTake = new HashMap<>();
-            for (ConsumerInfo consumer : consumerList) {
-                Map<String, List<Partition>> partitions =
-                        clusterState.get(consumer.getConsumerId());
-                if (partitions == null) {
-                    partitions = new HashMap<>();
-                }
-                int load = 0;
-                for (List<Partition> entry : partitions.values()) {
-                    load += entry.size();
+            balanceGroup(group, consumeGroupInfo.getTopicSet(),
+                    consumerList, clusterState, brokerRunManager);
+        }
+    }
+
+    /**
+     * Balance the partitions between the consumers of the group,
+     * (partition size) mod (consumer size)
+     *
+     * @param group              the group name
+     * @param topics             the topics consumed by the group
+     * @param consumerList       the consumers to balance between
+     * @param clusterState       the current assignment, updated with the balanced result
+     * @param brokerRunManager   the broker run manager
+     */
+    protected void balanceGroup(String group, Set<String> topics,
+                                List<ConsumerInfo> consumerList,
+                                Map<String, Map<String, List<Partition>>> clusterState,
+                                BrokerRunManager brokerRunManager) {
+        // sort consumer and partitions, then mod
+        Map<String, Partition> psPartMap =
+                brokerRunManager.getSubBrokerAcceptSubParts(topics);
+        int min = psPartMap.size() / consumerList.size();
+        int max = psPartMap.size() % consumerList.size() == 0 ? min : min + 1;
+        int serverNumToLoadMax = psPartMap.size() % consumerList.size();
+        Queue<Partition> partitionToMove = new LinkedBlockingQueue<>();
+        Map<String, Integer> serverToTake = new HashMap<>();
+        for (ConsumerInfo consumer : consumerList) {
+            Map<String, List<Partition>> partitions =
+                    clusterState.get(consumer.getConsumerId());
+            if (partitions == null) {
+                partitions = new HashMap<>();
+            }
+            int load = 0;
+            for (List<Partition> entry : partitions.values()) {
+                load += entry.size();
+            }
+            if (load < max) {
+                if (load == 0) {
+                    serverToTake.put(consumer.getConsumerId(), max - load);
+                } else if (load < min) {
+                    serverToTake.put(consumer.getConsumerId(), max - load);
                 }
-                if (load < max) {
-                    if (load == 0) {
-                        serverToTake.put(consumer.getConsumerId(), max - load);
-                    } else if (load < min) {
-                        serverToTake.put(consumer.getConsumerId(), max - load);
+                continue;
+            }
+            int numToOffload;
+            if (serverNumToLoadMax > 0) {
+                serverNumToLoadMax--;
+                numToOffload = load - max;
+            } else {
+                numToOffload = load - min;
+            }
+            // calculate if current consumer partition need to release or add
+            for (List<Partition> entry : partitions.values()) {
+                if (entry.size() > numToOffload) {
+                    int condition = numToOffload;
+                    for (int i = 0; i < condition; i++) {
+                        partitionToMove.add(entry.remove(0));
+                        numToOffload--;
+                    }
+                    if (numToOffload <= 0) {
+                        break;
                     }
-                    continue;
-                }
-                int numToOffload;
-                if (serverNumToLoadMax > 0) {
-                    serverNumToLoadMax--;
-                    numToOffload = load - max;
                 } else {
-                    numToOffload = load - min;
-                }
-                // calculate if current consumer partition need to release or add
-                for (List<Partition> entry : partitions.values()) {
-                    if (entry.size() > numToOffload) {
-                        int condition = numToOffload;
-                        for (int i = 0; i < condition; i++) {
-                            partitionToMove.add(entry.remove(0));
-                            numToOffload--;
-                        }
-                        if (numToOffload <= 0) {
-                            break;
-                        }
-                    } else {
-                        numToOffload -= entry.size();
-                        partitionToMove.addAll(entry);
-                        entry.clear();
-                        if (numToOffload <= 0) {
-                            break;
-                        }
+                    numToOffload -= entry.size();
+                    partitionToMove.addAll(entry);
+                    entry.clear();
+                    if (numToOffload <= 0) {
+                        break;
                     }
                 }
             }
-            // random allocate the rest partition
-            for (Entry<String, Integer> entry : serverToTake.entrySet()) {
-                for (int i = 0; i < entry.getValue() && partitionToMove.size() > 0; i++) {
-                    Partition partition = partitionToMove.poll();
-                    assign(partition, clusterState, entry.getKey());
-                }
+        }
+        // random allocate the rest partition
+        for (Entry<String, Integer> entry : serverToTake.entrySet()) {
+            for (int i = 0; i < entry.getValue() && partitionToMove.size() > 0; i++) {
+                Partition partition = partitionToMove.poll();
+                assign(partition, clusterState, entry.getKey());
             }
-            // load balance partition between consumer
-            if (!partitionToMove.isEmpty()) {
-                for (String consumerId : serverToTake.keySet()) {
-                    if (partitionToMove.isEmpty()) {
-                        break;
-                    }
-                    assign(partitionToMove.poll(), clusterState, consumerId);
+        }
+        // load balance partition between consumer
+        if (!partitionToMove.isEmpty()) {
+            for (String consumerId : serverToTake.keySet()) {
+                if (partitionToMove.isEmpty()) {
+                    break;
                 }
+                assign(partitionToMove.poll(), clusterState, consumerId);
             }
         }
     }
 
-    private void assign(Partition partition,
-                        Map<String, Map<String, List<Partition>>> clusterState,
-                        String consumerId) {
+    protected void assign(Partition partition,
+                          Map<String, Map<String, List<Partition>>> clusterState,
+                          String consumerId) {
         Map<String, List<Partition>> partitions =
                 clusterState.computeIfAbsent(consumerId, k -> new HashMap<>());
         List<Partition> ps = partitions.computeIfAbsent(
@@ -361,6 +378,26 @@ public class DefaultLoadBalancer implements LoadBalancer {
         ps.add(partition);
     }
 
+    /**
+     * Assign the unassigned partitions of the group, random assign
+     *
+     * @param group                  the group name
+     * @param partitionToAssignMap   the partitions to assign
+     * @param consumerList           the consumers to assign to
+     * @param clusterState           the current assignment, updated with the assigned result
+     * @param oldClusterState        the previous assignment
+     * @param filterList             the consumers not to assign their previous partitions
+     */
+    protected void assignPartitions(String group,
+                                    Map<String, Partition> partitionToAssignMap,
+                                    List<ConsumerInfo> consumerList,
+                                    Map<String, Map<String, List<Partition>>> clusterState,
+                                    Map<String, Map<String, Map<String, Partition>>> oldClusterState,
+                                    List<String> filterList) {
+        randomAssign(partitionToAssignMap, consumerList,
+                clusterState, oldClusterState, filterList);
+    }
+
     /**
      * Random assign partition
      *
@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+
+/**
+ * The partition load information reported by the brokers
+ *
+ * Each broker periodically reports the produced traffic of its partitions, and the
+ * consumed traffic and the lag of the consume groups on its partitions. The load of
+ * a broker is replaced as a whole at each report, and ignored if the broker has not
+ * reported for 3 report periods.
+ */
+public class PartitionLoadHolder {
+    private static final int EXPIRED_REPORT_PERIODS = 3;
+    // brokerId to the latest load information of the broker
+    private final ConcurrentHashMap<Integer, BrokerLoadInfo> brokerLoadMap =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Update the load information reported by the broker
+     *
+     * @param brokerId         the broker id
+     * @param statsDltMs       the statistics period of the load information
+     * @param partLoadInfos    the partition load information,
+     *                         in topic:partitionId:inMsgCnt:inMsgSize format
+     * @param groupLoadInfos   the group load information, in
+     *                         group:topic:partitionId:outMsgCnt:outMsgSize:lagMsgCnt format
+     */
+    public void updBrokerLoadInfo(int brokerId, long statsDltMs,
+                                  List<String> partLoadInfos, List<String> groupLoadInfos) {
+        if (statsDltMs <= 0) {
+            return;
+        }
+        double periodSec = statsDltMs / 1000.0;
+        BrokerLoadInfo loadInfo = new BrokerLoadInfo(statsDltMs);
+        for (String partLoadInfo : partLoadInfos) {
+            String[] items = partLoadInfo.split(TokenConstants.ATTR_SEP);
+            if (items.length != 4) {
+                continue;
+            }
+            try {
+                loadInfo.partInRates.put(items[0] + TokenConstants.ATTR_SEP + items[1],
+                        Long.parseLong(items[2]) / periodSec);
+            } catch (NumberFormatException e) {
+                //
+            }
+        }
+        for (String groupLoadInfo : groupLoadInfos) {
+            String[] items = groupLoadInfo.split(TokenConstants.ATTR_SEP);
+            if (items.length != 6) {
+                continue;
+            }
+            try {
+                Map<String, GroupPartLoad> partLoadMap =
+                        loadInfo.groupLoads.computeIfAbsent(items[0], k -> new HashMap<>());
+                partLoadMap.put(items[1] + TokenConstants.ATTR_SEP + items[2],
+                        new GroupPartLoad(Long.parseLong(items[3]) / periodSec,
+                                Long.parseLong(items[5])));
+            } catch (NumberFormatException e) {
+                //
+            }
+        }
+        brokerLoadMap.put(brokerId, loadInfo);
+    }
+
+    /**
+     * Remove the load information of the broker
+     *
+     * @param brokerId   the broker id
+     */
+    public void rmvBrokerLoadInfo(int brokerId) {
+        brokerLoadMap.remove(brokerId);
+    }
+
+    /**
+     * Get the produced message rate of the partition
+     *
+     * @param partition   the partition
+     * @return  the message count per second, 0 if not reported
+     */
+    public double getPartInMsgRate(Partition partition) {
+        BrokerLoadInfo loadInfo = getBrokerLoadInfo(partition.getBrokerId());
+        if (loadInfo == null) {
+            return 0;
+        }
+        Double inMsgRate = loadInfo.partInRates.get(buildLoadKey(partition));
+        return inMsgRate == null ? 0 : inMsgRate;
+    }
+
+    /**
+     * Get the consumed message rate of the group on the partition
+     *
+     * @param group       the group name
+     * @param partition   the partition
+     * @return  the message count per second, 0 if not reported
+     */
+    public double getGroupOutMsgRate(String group, Partition partition) {
+        GroupPartLoad groupPartLoad = getGroupPartLoad(group, partition);
+        return groupPartLoad == null ? 0 : groupPartLoad.outMsgRate;
+    }
+
+    /**
+     * Get the lag of the group on the partition
+     *
+     * @param group       the group name
+     * @param partition   the partition
+     * @return  the count of the messages not consumed, 0 if not reported
+     */
+    public long getGroupLagMsgCnt(String group, Partition partition) {
+        GroupPartLoad groupPartLoad = getGroupPartLoad(group, partition);
+        return groupPartLoad == null ? 0 : groupPartLoad.lagMsgCnt;
+    }
+
+    /**
+     * Calculate the weights of the partitions consumed by the group
+     *
+     * The demand of a partition is the larger one of its produced and consumed message rates,
+     * plus the rate required to drain its lag within the drain period. The weight of a
+     * partition is 1 plus its demand relative to the average demand, so that an idle
+     * partition weighs 1, and all partitions weigh 1 if no load is reported.
+     *
+     * @param group          the group name
+     * @param partitions     the partitions consumed by the group
+     * @param lagDrainSec    the expected period to drain the lag, in seconds
+     * @return  the partition key to the partition weight
+     */
+    public Map<String, Double> getPartWeights(String group,
+                                              Collection<Partition> partitions,
+                                              long lagDrainSec) {
+        double totalDemand = 0;
+        Map<String, Double> demandMap = new HashMap<>();
+        for (Partition partition : partitions) {
+            double demand = Math.max(getPartInMsgRate(partition),
+                    getGroupOutMsgRate(group, partition))
+                    + getGroupLagMsgCnt(group, partition) / (double) Math.max(1L, lagDrainSec);
+            demandMap.put(partition.getPartitionKey(), demand);
+            totalDemand += demand;
+        }
+        Map<String, Double> weightMap = new HashMap<>();
+        double avgDemand = demandMap.isEmpty() ? 0 : totalDemand / demandMap.size();
+        for (Map.Entry<String, Double> entry : demandMap.entrySet()) {
+            weightMap.put(entry.getKey(),
+                    avgDemand > 0 ? 1 + entry.getValue() / avgDemand : 1.0);
+        }
+        return weightMap;
+    }
+
+    private GroupPartLoad getGroupPartLoad(String group, Partition partition) {
+        BrokerLoadInfo loadInfo = getBrokerLoadInfo(partition.getBrokerId());
+        if (loadInfo == null) {
+            return null;
+        }
+        Map<String, GroupPartLoad> partLoadMap = loadInfo.groupLoads.get(group);
+        if (partLoadMap == null) {
+            return null;
+        }
+        return partLoadMap.get(buildLoadKey(partition));
+    }
+
+    private BrokerLoadInfo getBrokerLoadInfo(int brokerId) {
+        BrokerLoadInfo loadInfo = brokerLoadMap.get(brokerId);
+        if (loadInfo == null
+                || System.currentTimeMillis() - loadInfo.updateTime
+                > EXPIRED_REPORT_PERIODS * loadInfo.statsDltMs) {
+            return null;
+        }
+        return loadInfo;
+    }
+
+    private String buildLoadKey(Partition partition) {
+        return partition.getTopic() + TokenConstants.ATTR_SEP + partition.getPartitionId();
+    }
+
+    private static class BrokerLoadInfo {
+        private final long updateTime = System.currentTimeMillis();
+        private final long statsDltMs;
+        // topic:partitionId to the produced message rate
+        private final Map<String, Double> partInRates = new HashMap<>();
+        // group to the topic:partitionId to the group load
+        private final Map<String, Map<String, GroupPartLoad>> groupLoads = new HashMap<>();
+
+        BrokerLoadInfo(long statsDltMs) {
+            this.statsDltMs = statsDltMs;
+        }
+    }
+
+    private static class GroupPartLoad {
+        private final double outMsgRate;
+        private final long lagMsgCnt;
+
+        GroupPartLoad(double outMsgRate, long lagMsgCnt) {
+            this.outMsgRate = outMsgRate;
+            this.lagMsgCnt = lagMsgCnt;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer.ConsumerInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Load balance class for server side load balance, weighted by the partition load
+ *
+ * The partitions are weighted by their traffic and the consumer lag reported by the brokers,
+ * and assigned by {@link WeightedStickyAssignor}, which keeps the current assignment
+ * unless the consumers' loads are out of the allowed imbalance ratio. The bound consumption
+ * and the first assignment after the Master starts are the same as the default balancer.
+ */
+public class WeightedLoadBalancer extends DefaultLoadBalancer {
+    private static final Logger logger =
+            LoggerFactory.getLogger(WeightedLoadBalancer.class);
+    private final PartitionLoadHolder partLoadHolder;
+    private final WeightedStickyAssignor assignor;
+    private final long lagDrainSec;
+
+    public WeightedLoadBalancer(PartitionLoadHolder partLoadHolder,
+                                double imbalanceRatio, long lagDrainSec) {
+        super();
+        this.partLoadHolder = partLoadHolder;
+        this.assignor = new WeightedStickyAssignor(imbalanceRatio);
+        this.lagDrainSec = lagDrainSec;
+    }
+
+    @Override
+    protected void assignPartitions(String group,
+                                    Map<String, Partition> partitionToAssignMap,
+                                    List<ConsumerInfo> consumerList,
+                                    Map<String, Map<String, List<Partition>>> clusterState,
+                                    Map<String, Map<String, Map<String, Partition>>> oldClusterState,
+                                    List<String> filterList) {
+        Map<String, Partition> partitionMap = new HashMap<>(partitionToAssignMap);
+        List<String> consumers = new ArrayList<>();
+        Map<String, List<String>> curAssignment =
+                getCurAssignment(consumerList, clusterState, partitionMap, consumers);
+        // the filtered consumers should not take back their previous partitions
+        Map<String, Set<String>> excludeMap = new HashMap<>();
+        if (consumers.size() > 1) {
+            for (String consumerId : filterList) {
+                Map<String, Map<String, Partition>> oldTopicParts =
+                        oldClusterState.get(consumerId);
+                if (oldTopicParts == null) {
+                    continue;
+                }
+                Set<String> excludedParts = new HashSet<>();
+                for (Map<String, Partition> oldParts : oldTopicParts.values()) {
+                    excludedParts.addAll(oldParts.keySet());
+                }
+                excludeMap.put(consumerId, excludedParts);
+            }
+        }
+        Map<String, List<String>> assignment = assignor.assign(curAssignment,
+                partLoadHolder.getPartWeights(group, partitionMap.values(), lagDrainSec),
+                consumers, excludeMap, false);
+        for (Map.Entry<String, List<String>> entry : assignment.entrySet()) {
+            for (String partKey : entry.getValue()) {
+                if (partitionToAssignMap.containsKey(partKey)) {
+                    assign(partitionMap.get(partKey), clusterState, entry.getKey());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void balanceGroup(String group, Set<String> topics,
+                                List<ConsumerInfo> consumerList,
+                                Map<String, Map<String, List<Partition>>> clusterState,
+                                BrokerRunManager brokerRunManager) {
+        Map<String, Partition> partitionMap =
+                new HashMap<>(brokerRunManager.getSubBrokerAcceptSubParts(topics));
+        List<String> consumers = new ArrayList<>();
+        Map<String, List<String>> curAssignment =
+                getCurAssignment(consumerList, clusterState, partitionMap, consumers);
+        Map<String, Double> partWeights =
+                partLoadHolder.getPartWeights(group, partitionMap.values(), lagDrainSec);
+        Map<String, List<String>> assignment =
+                assignor.assign(curAssignment, partWeights, consumers, null, true);
+        // replace the assignment of the consumers
+        int movedCnt = 0;
+        for (Map.Entry<String, List<String>> entry : assignment.entrySet()) {
+            Map<String, List<Partition>> topicParts = clusterState.get(entry.getKey());
+            if (topicParts != null) {
+                for (List<Partition> parts : topicParts.values()) {
+                    parts.clear();
+                }
+            }
+            List<String> curPartKeys = curAssignment.get(entry.getKey());
+            for (String partKey : entry.getValue()) {
+                if (!curPartKeys.contains(partKey)) {
+                    movedCnt++;
+                }
+                assign(partitionMap.get(partKey), clusterState, entry.getKey());
+            }
+        }
+        if (movedCnt > 0) {
+            logger.info(new StringBuilder(512)
+                    .append("[Weighted Balance] group(").append(group)
+                    .append(") moved ").append(movedCnt).append(" partitions, max load ratio ")
+                    .append(String.format("%.2f",
+                            WeightedStickyAssignor.getMaxLoadRatio(curAssignment, partWeights)))
+                    .append(" -> ").append(String.format("%.2f",
+                            WeightedStickyAssignor.getMaxLoadRatio(assignment, partWeights)))
+                    .toString());
+        }
+    }
+
+    private Map<String, List<String>> getCurAssignment(
+            List<ConsumerInfo> consumerList,
+            Map<String, Map<String, List<Partition>>> clusterState,
+            Map<String, Partition> partitionMap,
+            List<String> consumers) {
+        Map<String, List<String>> curAssignment = new HashMap<>();
+        for (ConsumerInfo consumer : consumerList) {
+            String consumerId = consumer.getConsumerId();
+            consumers.add(consumerId);
+            List<String> partKeys = new ArrayList<>();
+            curAssignment.put(consumerId, partKeys);
+            Map<String, List<Partition>> topicParts = clusterState.get(consumerId);
+            if (topicParts == null) {
+                continue;
+            }
+            for (List<Partition> parts : topicParts.values()) {
+                for (Partition partition : parts) {
+                    partitionMap.putIfAbsent(partition.getPartitionKey(), partition);
+                    partKeys.add(partition.getPartitionKey());
+                }
+            }
+        }
+        return curAssignment;
+    }
+}
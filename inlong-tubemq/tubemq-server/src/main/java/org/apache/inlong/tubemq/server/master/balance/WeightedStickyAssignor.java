@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Weighted and sticky partition assignor
+ *
+ * The partitions keep their current consumers if possible, the unassigned partitions are
+ * assigned to the least loaded consumers from the heaviest one, then the partitions are
+ * moved from the most loaded consumer to the least loaded one until the load of every
+ * consumer is within the allowed imbalance ratio of the average load, or no move can
+ * reduce the load difference. Each move strictly reduces the load difference between
+ * the two consumers, so the partitions do not move back and forth.
+ *
+ * The assignor only works on partition keys and weights, so it can run both in the
+ * Master and offline against recorded cluster states.
+ */
+public class WeightedStickyAssignor {
+    private static final double EPSILON = 1e-9;
+    private final double imbalanceRatio;
+
+    /**
+     * Initial the assignor
+     *
+     * @param imbalanceRatio   the allowed ratio of a consumer's load above or below
+     *                         the average load, such as 0.2
+     */
+    public WeightedStickyAssignor(double imbalanceRatio) {
+        this.imbalanceRatio = imbalanceRatio;
+    }
+
+    /**
+     * Assign the partitions to the consumers
+     *
+     * @param curAssignment   the current consumer to the assigned partition keys
+     * @param partWeights     the partition key to the weight of all partitions to assign
+     * @param consumers       the consumers to assign to
+     * @param excludeMap      the consumer to the partition keys not allowed to assign to it,
+     *                        may be null
+     * @param rebalance       whether to move the assigned partitions to balance the load,
+     *                        otherwise only the unassigned partitions are assigned
+     * @return  the consumer to the assigned partition keys, the partitions not allowed
+     *          to assign to any consumer are left out
+     */
+    public Map<String, List<String>> assign(Map<String, List<String>> curAssignment,
+                                            Map<String, Double> partWeights,
+                                            List<String> consumers,
+                                            Map<String, Set<String>> excludeMap,
+                                            boolean rebalance) {
+        Map<String, List<String>> assignment = new TreeMap<>();
+        if (consumers.isEmpty()) {
+            return assignment;
+        }
+        Map<String, Double> loads = new HashMap<>();
+        Set<String> assignedParts = new HashSet<>();
+        for (String consumer : consumers) {
+            List<String> partKeys = new ArrayList<>();
+            double load = 0;
+            List<String> curPartKeys = curAssignment.get(consumer);
+            if (curPartKeys != null) {
+                for (String partKey : curPartKeys) {
+                    Double weight = partWeights.get(partKey);
+                    if (weight != null && assignedParts.add(partKey)) {
+                        partKeys.add(partKey);
+                        load += weight;
+                    }
+                }
+            }
+            assignment.put(consumer, partKeys);
+            loads.put(consumer, load);
+        }
+        // assign the unassigned partitions, from the heaviest one
+        List<String> unassignedParts = new ArrayList<>();
+        for (String partKey : partWeights.keySet()) {
+            if (!assignedParts.contains(partKey)) {
+                unassignedParts.add(partKey);
+            }
+        }
+        Collections.sort(unassignedParts, (o1, o2) -> {
+            int result = Double.compare(partWeights.get(o2), partWeights.get(o1));
+            return result != 0 ? result : o1.compareTo(o2);
+        });
+        for (String partKey : unassignedParts) {
+            String selected = null;
+            for (Map.Entry<String, List<String>> entry : assignment.entrySet()) {
+                if (isExcluded(excludeMap, entry.getKey(), partKey)) {
+                    continue;
+                }
+                if (selected == null || loads.get(entry.getKey()) < loads.get(selected)) {
+                    selected = entry.getKey();
+                }
+            }
+            if (selected != null) {
+                assignment.get(selected).add(partKey);
+                loads.put(selected, loads.get(selected) + partWeights.get(partKey));
+            }
+        }
+        if (rebalance) {
+            rebalance(assignment, loads, partWeights, excludeMap);
+        }
+        return assignment;
+    }
+
+    /**
+     * Calculate the ratio of the max consumer load to the average consumer load
+     *
+     * @param assignment    the consumer to the assigned partition keys
+     * @param partWeights   the partition key to the weight
+     * @return  the ratio, 1 means the load is totally balanced
+     */
+    public static double getMaxLoadRatio(Map<String, List<String>> assignment,
+                                         Map<String, Double> partWeights) {
+        double maxLoad = 0;
+        double totalLoad = 0;
+        for (List<String> partKeys : assignment.values()) {
+            double load = 0;
+            for (String partKey : partKeys) {
+                Double weight = partWeights.get(partKey);
+                if (weight != null) {
+                    load += weight;
+                }
+            }
+            maxLoad = Math.max(maxLoad, load);
+            totalLoad += load;
+        }
+        if (assignment.isEmpty() || totalLoad <= 0) {
+            return 1.0;
+        }
+        return maxLoad / (totalLoad / assignment.size());
+    }
+
+    private void rebalance(Map<String, List<String>> assignment,
+                           Map<String, Double> loads,
+                           Map<String, Double> partWeights,
+                           Map<String, Set<String>> excludeMap) {
+        double totalLoad = 0;
+        for (Double load : loads.values()) {
+            totalLoad += load;
+        }
+        double avgLoad = totalLoad / assignment.size();
+        double maxAllowed = avgLoad * (1 + imbalanceRatio);
+        double minAllowed = avgLoad * (1 - imbalanceRatio);
+        int maxMoves = partWeights.size();
+        for (int moves = 0; moves < maxMoves; moves++) {
+            String maxConsumer = null;
+            String minConsumer = null;
+            for (String consumer : assignment.keySet()) {
+                if (maxConsumer == null || loads.get(consumer) > loads.get(maxConsumer)) {
+                    maxConsumer = consumer;
+                }
+                if (minConsumer == null || loads.get(consumer) < loads.get(minConsumer)) {
+                    minConsumer = consumer;
+                }
+            }
+            double maxLoad = loads.get(maxConsumer);
+            double minLoad = loads.get(minConsumer);
+            if (maxLoad <= maxAllowed + EPSILON && minLoad >= minAllowed - EPSILON) {
+                return;
+            }
+            // select the partition closest to half of the difference,
+            // a partition not lighter than the difference can not reduce it
+            double loadDiff = maxLoad - minLoad;
+            String selected = null;
+            double selectedDist = 0;
+            for (String partKey : assignment.get(maxConsumer)) {
+                double weight = partWeights.get(partKey);
+                if (weight >= loadDiff - EPSILON
+                        || isExcluded(excludeMap, minConsumer, partKey)) {
+                    continue;
+                }
+                double dist = Math.abs(weight - loadDiff / 2);
+                if (selected == null || dist < selectedDist) {
+                    selected = partKey;
+                    selectedDist = dist;
+                }
+            }
+            if (selected == null) {
+                return;
+            }
+            assignment.get(maxConsumer).remove(selected);
+            assignment.get(minConsumer).add(selected);
+            loads.put(maxConsumer, maxLoad - partWeights.get(selected));
+            loads.put(minConsumer, minLoad + partWeights.get(selected));
+        }
+    }
+
+    private boolean isExcluded(Map<String, Set<String>> excludeMap,
+                               String consumer, String partKey) {
+        if (excludeMap == null) {
+            return false;
+        }
+        Set<String> excludedParts = excludeMap.get(consumer);
+        return excludedParts != null && excludedParts.contains(partKey);
+    }
+}
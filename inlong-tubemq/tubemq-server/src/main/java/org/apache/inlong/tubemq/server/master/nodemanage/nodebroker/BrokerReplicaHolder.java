@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.inlong.tubemq.corebase.TokenConstants;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * The in-sync replicas of the partitions, reported by the leader brokers in heartbeat
+ */
+public class BrokerReplicaHolder {
+    private static final Logger logger =
+            LoggerFactory.getLogger(BrokerReplicaHolder.class);
+    // leader brokerId -- topic:partitionId -- in-sync follower brokerIds
+    private final ConcurrentHashMap<Integer, Map<String, List<Integer>>> brokerReplicaMap =
+            new ConcurrentHashMap<>();
+
+    public BrokerReplicaHolder() {
+
+    }
+
+    /**
+     * Update the in-sync replicas of the leader broker
+     *
+     * @param brokerId       the leader broker id
+     * @param replicaInfos   the reported replicas, in topic:partitionId:followerId[,followerId] format
+     */
+    public void updBrokerReplicaInfo(int brokerId, List<String> replicaInfos) {
+        if (replicaInfos == null || replicaInfos.isEmpty()) {
+            brokerReplicaMap.remove(brokerId);
+            return;
+        }
+        Map<String, List<Integer>> partReplicas = new HashMap<>();
+        for (String replicaInfo : replicaInfos) {
+            if (TStringUtils.isBlank(replicaInfo)) {
+                continue;
+            }
+            int followerPos = replicaInfo.lastIndexOf(TokenConstants.ATTR_SEP);
+            if (followerPos <= 0) {
+                continue;
+            }
+            List<Integer> followerIds = new ArrayList<>();
+            try {
+                for (String followerId : replicaInfo.substring(followerPos + 1)
+                        .split(TokenConstants.ARRAY_SEP)) {
+                    followerIds.add(Integer.parseInt(followerId.trim()));
+                }
+            } catch (NumberFormatException e) {
+                logger.warn(new StringBuilder(512)
+                        .append("[Broker Replica] illegal replica info ").append(replicaInfo)
+                        .append(" from broker ").append(brokerId).toString());
+                continue;
+            }
+            partReplicas.put(replicaInfo.substring(0, followerPos), followerIds);
+        }
+        brokerReplicaMap.put(brokerId, partReplicas);
+    }
+
+    /**
+     * Remove the replicas of the broker, as the leader and as the follower
+     *
+     * @param brokerId   the broker id
+     */
+    public void rmvBrokerReplicaInfo(int brokerId) {
+        brokerReplicaMap.remove(brokerId);
+        for (Map.Entry<Integer, Map<String, List<Integer>>> entry : brokerReplicaMap.entrySet()) {
+            Map<String, List<Integer>> partReplicas = new HashMap<>();
+            boolean isRemoved = false;
+            for (Map.Entry<String, List<Integer>> partEntry : entry.getValue().entrySet()) {
+                List<Integer> followerIds = new ArrayList<>(partEntry.getValue());
+                isRemoved |= followerIds.remove(Integer.valueOf(brokerId));
+                if (!followerIds.isEmpty()) {
+                    partReplicas.put(partEntry.getKey(), followerIds);
+                }
+            }
+            if (isRemoved) {
+                brokerReplicaMap.replace(entry.getKey(), entry.getValue(), partReplicas);
+            }
+        }
+    }
+
+    /**
+     * Get the in-sync follower brokers of the partition
+     *
+     * @param brokerId      the leader broker id
+     * @param topic         the topic name
+     * @param partitionId   the partition id
+     * @return    the in-sync follower broker ids
+     */
+    public List<Integer> getInSyncReplicas(int brokerId, String topic, int partitionId) {
+        Map<String, List<Integer>> partReplicas = brokerReplicaMap.get(brokerId);
+        if (partReplicas == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> followerIds = partReplicas.get(topic + TokenConstants.ATTR_SEP + partitionId);
+        return followerIds == null ? Collections.emptyList() : followerIds;
+    }
+
+    /**
+     * Get the in-sync replicas of the partitions led by the broker
+     *
+     * @param brokerId   the leader broker id
+     * @return    topic:partitionId -- the in-sync follower broker ids
+     */
+    public Map<String, List<Integer>> getBrokerReplicaInfo(int brokerId) {
+        Map<String, List<Integer>> partReplicas = brokerReplicaMap.get(brokerId);
+        return partReplicas == null ? Collections.emptyMap() : partReplicas;
+    }
+
+    public Map<Integer, Map<String, List<Integer>>> getAllBrokerReplicaInfo() {
+        return brokerReplicaMap;
+    }
+}
@@ -72,7 +72,7 @@ public interface BrokerRunManager {
     void setRegisterDownConfInfo(int brokerId, StringBuilder sBuffer,
                                  RegisterResponseM2B.Builder builder);
 
-    void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
+    void setHeatBeatDownConfInfo(int brokerId, long rptSyncVersion, StringBuilder sBuffer,
                                  HeartResponseM2B.Builder builder);
 
     BrokerInfo getBrokerInfo(int brokerId);
@@ -89,6 +89,8 @@ public interface BrokerRunManager {
 
     BrokerAbnHolder getBrokerAbnHolder();
 
+    BrokerReplicaHolder getBrokerReplicaHolder();
+
     Map<String, String> getPubBrokerAcceptPubPartInfo(Set<String> topicSet);
 
     int getSubTopicMaxBrokerCount(Set<String> topicSet);
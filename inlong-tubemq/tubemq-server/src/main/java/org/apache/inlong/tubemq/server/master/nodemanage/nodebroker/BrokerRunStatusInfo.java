@@ -145,6 +145,21 @@ public class BrokerRunStatusInfo {
         return brokerSyncData.getBrokerSyncData();
     }
 
+    /**
+     * Get the changes of the sync data since the version the broker reported
+     *
+     * @param rptSyncVersion  the version of the configure applied by the broker
+     * @return null if the broker needs a full sync, or the changed data
+     */
+    public Tuple4<Long, String, List<String>, List<String>> getNeedSyncDeltaData(
+            long rptSyncVersion) {
+        return brokerSyncData.getBrokerSyncDeltaData(rptSyncVersion);
+    }
+
+    public long getSyncDownDataVersion() {
+        return brokerSyncData.getSyncDownDataVersion();
+    }
+
     /**
      * Book broker report info
      *
@@ -17,24 +17,22 @@
 
 package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
-import org.apache.commons.codec.binary.StringUtils;
 import org.apache.inlong.tubemq.corebase.TBaseConstants;
 import org.apache.inlong.tubemq.corebase.TokenConstants;
 import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
 import org.apache.inlong.tubemq.corebase.cluster.TopicInfo;
-import org.apache.inlong.tubemq.corebase.utils.CheckSum;
 import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
 import org.apache.inlong.tubemq.corebase.utils.Tuple2;
 import org.apache.inlong.tubemq.corebase.utils.Tuple4;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
 import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+import org.apache.inlong.tubemq.server.common.utils.BrokerConfSyncUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +53,15 @@ public class BrokerSyncData {
     private Map<String, String> syncDownTopicConfInfoMap = new HashMap<>();
     private boolean isStatusChanged = false;
     private boolean isConfChanged = false;
+    // the version of the sync data, increased on each change of the configure,
+    // and the versions of the topic configures and the removed topics changed last time,
+    // the broker reports the version it applied and gets the changes since the version
+    private final AtomicLong syncDownDataVersion =
+            new AtomicLong(System.currentTimeMillis());
+    private final Map<String, Long> topicConfVersionMap = new HashMap<>();
+    private final Map<String, Long> rmvTopicVersionMap = new HashMap<>();
+    // the min version the changes can be gotten since
+    private long minDeltaBaseVersion = syncDownDataVersion.get();
 
     // report info
     private long syncUpDataConfId = TBaseConstants.META_VALUE_UNDEFINED;
@@ -98,14 +105,8 @@ public class BrokerSyncData {
         }
 
         if (isForceSync || isSyncDataChanged(brokerConfInfo, topicConfInfoMap)) {
-            this.syncDownBrokerConfInfo = brokerConfInfo;
-            if (topicConfInfoMap == null) {
-                this.syncDownTopicConfInfoMap = new HashMap<>();
-            } else {
-                this.syncDownTopicConfInfoMap = topicConfInfoMap;
-            }
-            this.syncDownDataChkSumId =
-                    calculateConfigCrc32Value(syncDownBrokerConfInfo, syncDownTopicConfInfoMap);
+            updSyncDownConfData(brokerConfInfo,
+                    (topicConfInfoMap == null) ? new HashMap<>() : topicConfInfoMap);
             isConfChanged = true;
         }
         if (isStatusChanged && isConfChanged) {
@@ -184,6 +185,49 @@ public class BrokerSyncData {
         }
     }
 
+    public long getSyncDownDataVersion() {
+        return syncDownDataVersion.get();
+    }
+
+    /**
+     * Get the changes of the sync data since the version the broker reported
+     *
+     * @param rptSyncVersion  the version of the configure applied by the broker
+     *
+     * @return null if the changes are unavailable and the broker needs a full sync, or
+     *         f0 : the current version
+     *         f1 : broker default configure
+     *         f2 : the topic configures changed since the reported version
+     *         f3 : the topics removed since the reported version
+     */
+    public synchronized Tuple4<Long, String, List<String>, List<String>> getBrokerSyncDeltaData(
+            long rptSyncVersion) {
+        long curVersion = syncDownDataVersion.get();
+        if (rptSyncVersion < minDeltaBaseVersion || rptSyncVersion >= curVersion) {
+            return null;
+        }
+        List<String> updTopicConfInfos = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : topicConfVersionMap.entrySet()) {
+            if (entry.getValue() > rptSyncVersion) {
+                String topicConfInfo = syncDownTopicConfInfoMap.get(entry.getKey());
+                if (topicConfInfo != null) {
+                    updTopicConfInfos.add(topicConfInfo);
+                }
+            }
+        }
+        // the full configure is preferred if most of the topics changed
+        if (updTopicConfInfos.size() * 2 > syncDownTopicConfInfoMap.size()) {
+            return null;
+        }
+        List<String> rmvTopics = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : rmvTopicVersionMap.entrySet()) {
+            if (entry.getValue() > rptSyncVersion) {
+                rmvTopics.add(entry.getKey());
+            }
+        }
+        return new Tuple4<>(curVersion, syncDownBrokerConfInfo, updTopicConfInfos, rmvTopics);
+    }
+
     /**
      * Get the broker publish info
      * @return need sync data
@@ -215,6 +259,53 @@ public class BrokerSyncData {
                 || !Objects.equals(syncDownTopicConfInfoMap, topicConfInfoMap);
     }
 
+    /**
+     * Update the sync data, increase its version and record the changed topics
+     *
+     * @param brokerConfInfo     the new broker default config
+     * @param topicConfInfoMap   the new topic config set
+     */
+    private synchronized void updSyncDownConfData(String brokerConfInfo,
+                                                  Map<String, String> topicConfInfoMap) {
+        if (!Objects.equals(syncDownBrokerConfInfo, brokerConfInfo)
+                || !Objects.equals(syncDownTopicConfInfoMap, topicConfInfoMap)) {
+            updSyncDownDataVersion(brokerConfInfo, topicConfInfoMap);
+        }
+        this.syncDownBrokerConfInfo = brokerConfInfo;
+        this.syncDownTopicConfInfoMap = topicConfInfoMap;
+        this.syncDownDataChkSumId = BrokerConfSyncUtils.calcConfCheckSum(
+                syncDownBrokerConfInfo, syncDownTopicConfInfoMap.values());
+    }
+
+    private void updSyncDownDataVersion(String brokerConfInfo,
+                                        Map<String, String> topicConfInfoMap) {
+        long newVersion = syncDownDataVersion.incrementAndGet();
+        if (!Objects.equals(syncDownBrokerConfInfo, brokerConfInfo)
+                || rmvTopicVersionMap.size() >= TServerConstants.CFG_BROKER_SYNC_MAX_RMV_TOPICS) {
+            // all the topic configures depend on the broker default config,
+            // the brokers need a full sync
+            topicConfVersionMap.clear();
+            rmvTopicVersionMap.clear();
+            for (String topic : topicConfInfoMap.keySet()) {
+                topicConfVersionMap.put(topic, newVersion);
+            }
+            minDeltaBaseVersion = newVersion;
+            return;
+        }
+        for (Map.Entry<String, String> entry : topicConfInfoMap.entrySet()) {
+            if (!Objects.equals(syncDownTopicConfInfoMap.get(entry.getKey()), entry.getValue())) {
+                topicConfVersionMap.put(entry.getKey(), newVersion);
+                rmvTopicVersionMap.remove(entry.getKey());
+            }
+        }
+        for (String topic : syncDownTopicConfInfoMap.keySet()) {
+            if (!topicConfInfoMap.containsKey(topic)) {
+                topicConfVersionMap.remove(topic);
+                rmvTopicVersionMap.put(topic, newVersion);
+            }
+        }
+    }
+
     /**
      * Format broker sync data to json string
      *
@@ -226,6 +317,8 @@ public class BrokerSyncData {
                 .append(",\"mngStatus\":\"").append(mngStatus.getDescription())
                 .append("\",\"syncDownDataConfId\":").append(syncDownDataConfId.get())
                 .append(",\"syncDownDataChkSumId\":").append(syncDownDataChkSumId)
+                .append(",\"syncDownDataVersion\":").append(syncDownDataVersion.get())
+                .append(",\"minDeltaBaseVersion\":").append(minDeltaBaseVersion)
                 .append(",\"isStatusChanged\":").append(isStatusChanged)
                 .append(",\"isConfChanged\":").append(isConfChanged)
                 .append(",\"syncDownBrokerConfInfo\":\"").append(syncDownBrokerConfInfo)
@@ -293,50 +386,4 @@ public class BrokerSyncData {
         }
         return topicInfoMap;
     }
-
-    /**
-     * Calculate the sync-data's crc32 value
-     *
-     * @param brokerConfInfo  broker default config
-     * @param topicConfInfoMap topic config set
-     *
-     * @return the crc32 value
-     */
-    private int calculateConfigCrc32Value(String brokerConfInfo,
-                                          Map<String, String> topicConfInfoMap) {
-        int result = -1;
-        int capacity = 0;
-        List<String> topicConfInfoLst =
-                new ArrayList<>(topicConfInfoMap.values());
-        Collections.sort(topicConfInfoLst);
-        capacity += brokerConfInfo.length();
-        for (String itemStr : topicConfInfoLst) {
-            capacity += itemStr.length();
-        }
-        capacity *= 2;
-        for (int i = 1; i < 3; i++) {
-            result = inCalcBufferResult(capacity, brokerConfInfo, topicConfInfoLst);
-            if (result >= 0) {
-                return result;
-            }
-            capacity *= i + 1;
-        }
-        logger.error("Calculate the CRC32 value of Broker Configure error!");
-        return 0;
-    }
-
-    private int inCalcBufferResult(int capacity, String brokerConfInfo,
-                                   List<String> topicConfInfoLst) {
-        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
-        buffer.put(StringUtils.getBytesUtf8(brokerConfInfo));
-        for (String itemStr : topicConfInfoLst) {
-            byte[] itemData = StringUtils.getBytesUtf8(itemStr);
-            if (itemData.length > buffer.remaining()) {
-                return -1;
-            }
-            buffer.put(itemData);
-        }
-        return CheckSum.crc32(buffer.array());
-    }
-
 }
@@ -39,6 +39,7 @@ import org.apache.inlong.tubemq.server.common.heartbeat.HeartbeatManager;
 import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutInfo;
 import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutListener;
 import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+import org.apache.inlong.tubemq.server.common.utils.BrokerConfSyncUtils;
 import org.apache.inlong.tubemq.server.common.utils.SerialIdUtils;
 import org.apache.inlong.tubemq.server.master.MasterConfig;
 import org.apache.inlong.tubemq.server.master.TMaster;
@@ -76,6 +77,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
     private final BrokerAbnHolder brokerAbnHolder;
     // broker topic configure for consumer and producer
     private final BrokerPSInfoHolder brokerPubSubInfo = new BrokerPSInfoHolder();
+    // the in-sync replicas of the partitions
+    private final BrokerReplicaHolder brokerReplicaHolder = new BrokerReplicaHolder();
 
     /**
      * Constructor by TMaster
@@ -94,6 +97,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
                     public void onTimeout(final String nodeId, TimeoutInfo nodeInfo) throws Exception {
                         logger.info(new StringBuilder(512).append("[Broker Timeout] ")
                                 .append(nodeId).toString());
+                        MasterSrvStatsHolder.updBrokerTimeoutDelay(
+                                System.currentTimeMillis() - nodeInfo.getTimeoutTime());
                         releaseBrokerRunInfo(Integer.parseInt(nodeId),
                                 nodeInfo.getSecondKey(), true);
                     }
@@ -182,6 +187,11 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         return this.brokerAbnHolder;
     }
 
+    @Override
+    public BrokerReplicaHolder getBrokerReplicaHolder() {
+        return this.brokerReplicaHolder;
+    }
+
     @Override
     public boolean brokerRegister2M(String clientId, BrokerInfo brokerInfo,
                                     long reportConfigId, int reportCheckSumId,
@@ -354,6 +364,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
             sBuffer.delete(0, sBuffer.length());
             return;
         }
+        // read the version before the data, the newer data is re-sent in the next delta
+        final long syncVersion = runStatusInfo.getSyncDownDataVersion();
         Tuple4<Long, Integer, String, List<String>> retTuple =
                 runStatusInfo.getNeedSyncData();
         builder.setCurBrokerConfId(retTuple.getF0());
@@ -366,8 +378,11 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
             builder.setTakeConfInfo(false);
         } else {
             builder.setTakeConfInfo(true);
+            builder.setConfSyncVersion(syncVersion);
             builder.setBrokerDefaultConfInfo(retTuple.getF2());
             builder.addAllBrokerTopicSetConfInfo(retTuple.getF3());
+            MasterSrvStatsHolder.updBrokerFullSyncSize(BrokerConfSyncUtils
+                    .calcConfSyncSize(retTuple.getF2(), retTuple.getF3(), null));
             logger.info(sBuffer.append("[TMaster sync] push broker configure: brokerId = ")
                     .append(brokerId).append(",configureId=").append(retTuple.getF0())
                     .append(",stopWrite=").append(builder.getStopWrite())
@@ -380,7 +395,8 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
     }
 
     @Override
-    public void setHeatBeatDownConfInfo(int brokerId, StringBuilder sBuffer,
+    public void setHeatBeatDownConfInfo(int brokerId, long rptSyncVersion,
+                                        StringBuilder sBuffer,
                                         HeartResponseM2B.Builder builder) {
         BrokerRunStatusInfo runStatusInfo =
                 brokerRunSyncManageMap.get(brokerId);
@@ -391,6 +407,7 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
             sBuffer.delete(0, sBuffer.length());
             return;
         }
+        final long syncVersion = runStatusInfo.getSyncDownDataVersion();
         Tuple4<Long, Integer, String, List<String>> retTuple =
                 runStatusInfo.getNeedSyncData();
         builder.setCurBrokerConfId(retTuple.getF0());
@@ -402,20 +419,47 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         if (retTuple.getF2() == null) {
             builder.setNeedReportData(false);
             builder.setTakeConfInfo(false);
-        } else {
-            builder.setNeedReportData(true);
-            builder.setTakeConfInfo(true);
-            builder.setBrokerDefaultConfInfo(retTuple.getF2());
-            builder.addAllBrokerTopicSetConfInfo(retTuple.getF3());
-            logger.info(sBuffer.append("[TMaster sync] heartbeat sync config: brokerId = ")
+            return;
+        }
+        builder.setNeedReportData(true);
+        builder.setTakeConfInfo(true);
+        // only push the changes if the broker applied a recent version
+        Tuple4<Long, String, List<String>, List<String>> deltaTuple =
+                runStatusInfo.getNeedSyncDeltaData(rptSyncVersion);
+        if (deltaTuple != null) {
+            builder.setTakeDeltaConf(true);
+            builder.setConfSyncVersion(deltaTuple.getF0());
+            builder.setBrokerDefaultConfInfo(deltaTuple.getF1());
+            builder.addAllBrokerTopicSetConfInfo(deltaTuple.getF2());
+            builder.addAllDeltaRmvTopics(deltaTuple.getF3());
+            MasterSrvStatsHolder.updBrokerDeltaSyncSize(BrokerConfSyncUtils
+                    .calcConfSyncSize(deltaTuple.getF1(), deltaTuple.getF2(), deltaTuple.getF3()));
+            logger.info(sBuffer.append("[TMaster sync] heartbeat sync config delta: brokerId = ")
                     .append(brokerId).append(",configureId=").append(retTuple.getF0())
                     .append(",stopWrite=").append(builder.getStopWrite())
                     .append(",stopRead=").append(builder.getStopRead())
                     .append(",checksumId=").append(retTuple.getF1())
-                    .append(",default configure is ").append(retTuple.getF2())
-                    .append(",topic configure is ").append(retTuple.getF3()).toString());
+                    .append(",version=").append(rptSyncVersion)
+                    .append("->").append(deltaTuple.getF0())
+                    .append(",updated topic configure is ").append(deltaTuple.getF2())
+                    .append(",removed topics are ").append(deltaTuple.getF3()).toString());
             sBuffer.delete(0, sBuffer.length());
+            return;
         }
+        builder.setConfSyncVersion(syncVersion);
+        builder.setBrokerDefaultConfInfo(retTuple.getF2());
+        builder.addAllBrokerTopicSetConfInfo(retTuple.getF3());
+        MasterSrvStatsHolder.updBrokerFullSyncSize(BrokerConfSyncUtils
+                .calcConfSyncSize(retTuple.getF2(), retTuple.getF3(), null));
+        logger.info(sBuffer.append("[TMaster sync] heartbeat sync config: brokerId = ")
+                .append(brokerId).append(",configureId=").append(retTuple.getF0())
+                .append(",stopWrite=").append(builder.getStopWrite())
+                .append(",stopRead=").append(builder.getStopRead())
+                .append(",checksumId=").append(retTuple.getF1())
+                .append(",version=").append(syncVersion)
+                .append(",default configure is ").append(retTuple.getF2())
+                .append(",topic configure is ").append(retTuple.getF3()).toString());
+        sBuffer.delete(0, sBuffer.length());
     }
 
     @Override
@@ -483,6 +527,7 @@ public class DefBrokerRunManager implements BrokerRunManager, ConfigObserver {
         brokerTotalCount.decrementAndGet();
         brokerAbnHolder.removeBroker(brokerId);
         brokerPubSubInfo.rmvBrokerAllPushedInfo(brokerId);
+        brokerReplicaHolder.rmvBrokerReplicaInfo(brokerId);
         logger.info(sBuffer.append("[Broker Release] brokerId=").append(brokerId)
                 .append(", isTimeout=").append(isTimeout)
                 .append(", release success!").toString());
@@ -26,6 +26,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.inlong.tubemq.corebase.balance.ConsumerEvent;
+import org.apache.inlong.tubemq.corebase.balance.EventStatus;
+import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.apache.inlong.tubemq.server.master.stats.MasterSrvStatsHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,9 +44,24 @@ public class ConsumerEventManager {
             new ConcurrentHashMap<>();
 
     private final ConsumerInfoHolder consumerHolder;
+    // whether the connect events wait only for the partitions they acquire
+    private final boolean cooperative;
 
     public ConsumerEventManager(ConsumerInfoHolder consumerHolder) {
+        this(consumerHolder, false);
+    }
+
+    /**
+     * Initial the consumer event manager
+     *
+     * @param consumerHolder   the consumer holder
+     * @param cooperative      whether to push a connect event once none of its partitions
+     *                         are still to be released by the other consumers of the group,
+     *                         instead of once all the disconnect events of the group are done
+     */
+    public ConsumerEventManager(ConsumerInfoHolder consumerHolder, boolean cooperative) {
         this.consumerHolder = consumerHolder;
+        this.cooperative = cooperative;
     }
 
     public boolean addDisconnectEvent(String consumerId,
@@ -96,6 +113,9 @@ public class ConsumerEventManager {
         String group =
                 consumerHolder.getGroupName(consumerId);
         if (group != null) {
+            if (cooperative) {
+                return peekCooperative(group, consumerId);
+            }
             ConcurrentHashMap<String, LinkedList<ConsumerEvent>> currentEventMap =
                     hasDisconnectEvent(group)
                             ? disconnectEventMap : connectEventMap;
@@ -124,7 +144,8 @@ public class ConsumerEventManager {
     public ConsumerEvent removeFirst(String consumerId) {
         ConsumerEvent event = null;
         String group = consumerHolder.getGroupName(consumerId);
-        boolean selDisConnMap = hasDisconnectEvent(group);
+        boolean selDisConnMap = cooperative
+                ? hasConsumerEvent(disconnectEventMap, consumerId) : hasDisconnectEvent(group);
         ConcurrentHashMap<String, LinkedList<ConsumerEvent>> currentEventMap =
                 selDisConnMap ? disconnectEventMap : connectEventMap;
         LinkedList<ConsumerEvent> eventList = currentEventMap.get(consumerId);
@@ -280,6 +301,93 @@ public class ConsumerEventManager {
         return consumerIdSet;
     }
 
+    /**
+     * Peek a consumer event in cooperative mode, the consumer's own disconnect
+     * events go first, and a connect event waits only until the partitions it acquires
+     * are released by the other consumers of the group
+     *
+     * @param group        the group name of the consumer
+     * @param consumerId   the consumer id
+     * @return the head event of the consumer, or null if no event can be pushed now
+     */
+    private ConsumerEvent peekCooperative(String group, String consumerId) {
+        LinkedList<ConsumerEvent> eventList = disconnectEventMap.get(consumerId);
+        if (eventList != null) {
+            synchronized (eventList) {
+                if (!eventList.isEmpty()) {
+                    return eventList.peek();
+                }
+            }
+        }
+        ConsumerEvent event = null;
+        eventList = connectEventMap.get(consumerId);
+        if (eventList != null) {
+            synchronized (eventList) {
+                event = eventList.peek();
+            }
+        }
+        if (event == null
+                || event.getStatus() == EventStatus.PROCESSING
+                || event.getSubscribeInfoList() == null) {
+            return event;
+        }
+        Set<String> releasingParts = getReleasingPartKeys(group);
+        if (releasingParts.isEmpty()) {
+            return event;
+        }
+        for (SubscribeInfo info : event.getSubscribeInfoList()) {
+            if (releasingParts.contains(info.getPartition().getPartitionKey())) {
+                return null;
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Get the partitions in the unfinished disconnect events of a group
+     *
+     * @param group    the group name
+     * @return the partition key set
+     */
+    private Set<String> getReleasingPartKeys(String group) {
+        Set<String> partKeys = new HashSet<>();
+        List<String> consumerIdList = consumerHolder.getConsumerIdList(group);
+        if (CollectionUtils.isEmpty(consumerIdList)) {
+            return partKeys;
+        }
+        for (String consumerId : consumerIdList) {
+            if (consumerId == null) {
+                continue;
+            }
+            LinkedList<ConsumerEvent> eventList = disconnectEventMap.get(consumerId);
+            if (eventList == null) {
+                continue;
+            }
+            synchronized (eventList) {
+                for (ConsumerEvent event : eventList) {
+                    if (event.getSubscribeInfoList() == null) {
+                        continue;
+                    }
+                    for (SubscribeInfo info : event.getSubscribeInfoList()) {
+                        partKeys.add(info.getPartition().getPartitionKey());
+                    }
+                }
+            }
+        }
+        return partKeys;
+    }
+
+    private boolean hasConsumerEvent(ConcurrentHashMap<String, LinkedList<ConsumerEvent>> eventMap,
+                                     String consumerId) {
+        LinkedList<ConsumerEvent> eventList = eventMap.get(consumerId);
+        if (eventList == null) {
+            return false;
+        }
+        synchronized (eventList) {
+            return !eventList.isEmpty();
+        }
+    }
+
     public void clear() {
         disconnectEventMap.clear();
         connectEventMap.clear();
@@ -210,6 +210,26 @@ public class MasterSrvStatsHolder {
     public static void updSvrBalResetDurations(long dltTime) {
         switchableSets[getIndex()].svrResetBalanceStats.update(dltTime);
     }
+
+    public static void updConsumerTimeoutDelay(long dltTime) {
+        switchableSets[getIndex()].consumerTmoDelayStats.update(dltTime);
+    }
+
+    public static void updProducerTimeoutDelay(long dltTime) {
+        switchableSets[getIndex()].producerTmoDelayStats.update(dltTime);
+    }
+
+    public static void updBrokerTimeoutDelay(long dltTime) {
+        switchableSets[getIndex()].brokerTmoDelayStats.update(dltTime);
+    }
+
+    public static void updBrokerFullSyncSize(long syncSize) {
+        switchableSets[getIndex()].brokerFullSyncSizeStats.update(syncSize);
+    }
+
+    public static void updBrokerDeltaSyncSize(long syncSize) {
+        switchableSets[getIndex()].brokerDeltaSyncSizeStats.update(syncSize);
+    }
     // metric set operate APIs end
 
     // private functions
@@ -252,11 +272,13 @@ public class MasterSrvStatsHolder {
                     consumerInConnectCount.getAndResetValue());
             statsMap.put(consumerInDisConnectCount.getFullName(),
                     consumerInDisConnectCount.getAndResetValue());
+            statsSet.consumerTmoDelayStats.snapShort(statsMap, false);
             // for producer
             statsMap.put(producerOnlineCnt.getFullName(),
                     producerOnlineCnt.getAndResetValue());
             statsMap.put(statsSet.producerTmoTotCnt.getFullName(),
                     statsSet.producerTmoTotCnt.getAndResetValue());
+            statsSet.producerTmoDelayStats.snapShort(statsMap, false);
             // for broker
             statsMap.put(brokerConfiguredCnt.getFullName(),
                     brokerConfiguredCnt.getAndResetValue());
@@ -268,6 +290,9 @@ public class MasterSrvStatsHolder {
                     brokerAbnCurCnt.getAndResetValue());
             statsMap.put(brokerFbdCurCnt.getFullName(),
                     brokerFbdCurCnt.getAndResetValue());
+            statsSet.brokerTmoDelayStats.snapShort(statsMap, false);
+            statsSet.brokerFullSyncSizeStats.snapShort(statsMap, false);
+            statsSet.brokerDeltaSyncSizeStats.snapShort(statsMap, false);
         } else {
             // for consume group
             statsMap.put(csmOnlineGroupCnt.getFullName(),
@@ -289,11 +314,13 @@ public class MasterSrvStatsHolder {
                     consumerInConnectCount.getValue());
             statsMap.put(consumerInDisConnectCount.getFullName(),
                     consumerInDisConnectCount.getValue());
+            statsSet.consumerTmoDelayStats.getValue(statsMap, false);
             // for producer
             statsMap.put(producerOnlineCnt.getFullName(),
                     producerOnlineCnt.getValue());
             statsMap.put(statsSet.producerTmoTotCnt.getFullName(),
                     statsSet.producerTmoTotCnt.getValue());
+            statsSet.producerTmoDelayStats.getValue(statsMap, false);
             // for broker
             statsMap.put(brokerConfiguredCnt.getFullName(),
                     brokerConfiguredCnt.getValue());
@@ -305,6 +332,9 @@ public class MasterSrvStatsHolder {
                     brokerAbnCurCnt.getValue());
             statsMap.put(brokerFbdCurCnt.getFullName(),
                     brokerFbdCurCnt.getValue());
+            statsSet.brokerTmoDelayStats.getValue(statsMap, false);
+            statsSet.brokerFullSyncSizeStats.getValue(statsMap, false);
+            statsSet.brokerDeltaSyncSizeStats.getValue(statsMap, false);
         }
     }
 
@@ -353,7 +383,17 @@ public class MasterSrvStatsHolder {
                     .append("\":").append(brokerAbnCurCnt.getAndResetValue())
                     .append(",\"").append(brokerFbdCurCnt.getFullName())
                     .append("\":").append(brokerFbdCurCnt.getAndResetValue())
-                    .append("}");
+                    .append(",");
+            statsSet.consumerTmoDelayStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.producerTmoDelayStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerTmoDelayStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerFullSyncSizeStats.snapShort(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerDeltaSyncSizeStats.snapShort(strBuff, false);
+            strBuff.append("}");
         } else {
             // for consume group
             strBuff.append(",\"").append(csmOnlineGroupCnt.getFullName())
@@ -393,7 +433,17 @@ public class MasterSrvStatsHolder {
                     .append("\":").append(brokerAbnCurCnt.getValue())
                     .append(",\"").append(brokerFbdCurCnt.getFullName())
                     .append("\":").append(brokerFbdCurCnt.getValue())
-                    .append("}");
+                    .append(",");
+            statsSet.consumerTmoDelayStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.producerTmoDelayStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerTmoDelayStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerFullSyncSizeStats.getValue(strBuff, false);
+            strBuff.append(",");
+            statsSet.brokerDeltaSyncSizeStats.getValue(strBuff, false);
+            strBuff.append("}");
         }
     }
 
@@ -445,6 +495,18 @@ public class MasterSrvStatsHolder {
         // reset server balance delta time statistics
         protected final ESTHistogram svrResetBalanceStats =
                 new ESTHistogram("server_balance_reset", null);
+        // delay time statistics between the heartbeat timeout time and the timeout detected
+        protected final ESTHistogram consumerTmoDelayStats =
+                new ESTHistogram("consumer_timeout_delay", null);
+        protected final ESTHistogram producerTmoDelayStats =
+                new ESTHistogram("producer_timeout_delay", null);
+        protected final ESTHistogram brokerTmoDelayStats =
+                new ESTHistogram("broker_timeout_delay", null);
+        // payload size statistics of the full and the incremental configure sync to brokers
+        protected final ESTHistogram brokerFullSyncSizeStats =
+                new ESTHistogram("broker_conf_sync_full", null);
+        protected final ESTHistogram brokerDeltaSyncSizeStats =
+                new ESTHistogram("broker_conf_sync_delta", null);
 
         public ServiceStatsSet() {
             resetSinceTime();
@@ -44,6 +44,7 @@ import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.Cl
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.TopicDeployEntity;
 import org.apache.inlong.tubemq.server.master.metamanage.metastore.dao.entity.TopicPropGroup;
 import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerAbnHolder;
+import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerReplicaHolder;
 import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunManager;
 import org.apache.inlong.tubemq.server.master.nodemanage.nodebroker.BrokerRunStatusInfo;
 
@@ -75,6 +76,8 @@ public class WebBrokerConfHandler extends AbstractWebHandler {
                 "adminQueryBrokerConfInfo");
         registerQueryWebMethod("admin_query_broker_run_status",
                 "adminQueryBrokerRunStatusInfo");
+        registerQueryWebMethod("admin_query_broker_replica_info",
+                "adminQueryBrokerReplicaInfo");
 
         // register modify method
         registerModifyWebMethod("admin_add_broker_configure",
@@ -707,6 +710,53 @@ public class WebBrokerConfHandler extends AbstractWebHandler {
         return sBuffer;
     }
 
+    /**
+     * Query the in-sync replicas of the partitions led by the brokers
+     *
+     * @param req       Http Servlet Request
+     * @param sBuffer   string buffer
+     * @param result    process result
+     * @return    process result
+     */
+    public StringBuilder adminQueryBrokerReplicaInfo(HttpServletRequest req,
+                                                     StringBuilder sBuffer,
+                                                     ProcessResult result) {
+        // check and get brokerId field
+        if (!WebParameterUtils.getIntParamValue(req,
+                WebFieldDef.COMPSBROKERID, false, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return sBuffer;
+        }
+        final Set<Integer> brokerIds = (Set<Integer>) result.getRetData();
+        BrokerReplicaHolder replicaHolder =
+                master.getBrokerRunManager().getBrokerReplicaHolder();
+        int totalCnt = 0;
+        WebParameterUtils.buildSuccessWithDataRetBegin(sBuffer);
+        for (Map.Entry<Integer, Map<String, List<Integer>>> entry
+                : replicaHolder.getAllBrokerReplicaInfo().entrySet()) {
+            if (!brokerIds.isEmpty() && !brokerIds.contains(entry.getKey())) {
+                continue;
+            }
+            if (totalCnt++ > 0) {
+                sBuffer.append(",");
+            }
+            sBuffer.append("{\"brokerId\":").append(entry.getKey())
+                    .append(",\"partReplicas\":[");
+            int partCnt = 0;
+            for (Map.Entry<String, List<Integer>> partEntry : entry.getValue().entrySet()) {
+                if (partCnt++ > 0) {
+                    sBuffer.append(",");
+                }
+                sBuffer.append("{\"partKey\":\"").append(partEntry.getKey())
+                        .append("\",\"inSyncReplicas\":").append(partEntry.getValue())
+                        .append("}");
+            }
+            sBuffer.append("]}");
+        }
+        WebParameterUtils.buildSuccessWithDataRetEnd(sBuffer, totalCnt);
+        return sBuffer;
+    }
+
     private StringBuilder innAddOrUpdBrokerConfInfo(HttpServletRequest req,
                                                     StringBuilder sBuffer,
                                                     ProcessResult result,
@@ -64,6 +64,8 @@ public class WebOtherInfoHandler extends AbstractWebHandler {
                 "getSubscribeInfo");
         registerQueryWebMethod("admin_query_consume_group_detail",
                 "getConsumeGroupDetailInfo");
+        registerQueryWebMethod("admin_query_group_load",
+                "getConsumeGroupLoadInfo");
         // query master's version
         registerQueryWebMethod("admin_query_server_version",
                 "adminQueryMasterVersion");
@@ -317,6 +319,85 @@ public class WebOtherInfoHandler extends AbstractWebHandler {
         return sBuffer;
     }
 
+    /**
+     * Get the partition load and the assignment of the server side balance consume group,
+     * the result can be recorded and replayed by the balance simulator
+     *
+     * @param req       Http Servlet Request
+     * @param sBuffer   string buffer
+     * @param result    process result
+     * @return    process result
+     */
+    public StringBuilder getConsumeGroupLoadInfo(HttpServletRequest req,
+                                                 StringBuilder sBuffer,
+                                                 ProcessResult result) {
+        // get group name
+        if (!WebParameterUtils.getStringParamValue(req,
+                WebFieldDef.GROUPNAME, true, null, sBuffer, result)) {
+            WebParameterUtils.buildFailResult(sBuffer, result.getErrMsg());
+            return sBuffer;
+        }
+        String groupName = (String) result.getRetData();
+        ConsumeGroupInfo consumeGroupInfo =
+                master.getConsumerHolder().getConsumeGroupInfo(groupName);
+        if (consumeGroupInfo == null) {
+            WebParameterUtils.buildFailResult(sBuffer,
+                    "The group is not found or has no online consumer!");
+            return sBuffer;
+        }
+        Map<String, Partition> partitionMap = master.getBrokerRunManager()
+                .getSubBrokerAcceptSubParts(consumeGroupInfo.getTopicSet());
+        final Map<String, Double> partWeights = master.getPartLoadHolder().getPartWeights(
+                groupName, partitionMap.values(), master.getMasterConfig().getBalanceLagDrainSec());
+        Map<String, Map<String, Map<String, Partition>>> currentSubInfo =
+                master.getCurrentSubInfoMap();
+        int itemCnt = 0;
+        WebParameterUtils.buildSuccessWithDataRetBegin(sBuffer);
+        sBuffer.append("{\"groupName\":\"").append(groupName)
+                .append("\",\"recordTime\":").append(System.currentTimeMillis())
+                .append(",\"consumers\":[");
+        List<String> consumerIds = consumeGroupInfo.getConsumerIdList();
+        for (String consumerId : consumerIds) {
+            if (itemCnt++ > 0) {
+                sBuffer.append(",");
+            }
+            sBuffer.append("\"").append(consumerId).append("\"");
+        }
+        itemCnt = 0;
+        sBuffer.append("],\"partWeights\":{");
+        for (Map.Entry<String, Double> entry : partWeights.entrySet()) {
+            if (itemCnt++ > 0) {
+                sBuffer.append(",");
+            }
+            sBuffer.append("\"").append(entry.getKey()).append("\":")
+                    .append(String.format("%.4f", entry.getValue()));
+        }
+        int consumerCnt = 0;
+        sBuffer.append("},\"assignment\":{");
+        for (String consumerId : consumerIds) {
+            if (consumerCnt++ > 0) {
+                sBuffer.append(",");
+            }
+            itemCnt = 0;
+            sBuffer.append("\"").append(consumerId).append("\":[");
+            Map<String, Map<String, Partition>> topicSubInfo = currentSubInfo.get(consumerId);
+            if (topicSubInfo != null) {
+                for (Map<String, Partition> partSubInfo : topicSubInfo.values()) {
+                    for (String partKey : partSubInfo.keySet()) {
+                        if (itemCnt++ > 0) {
+                            sBuffer.append(",");
+                        }
+                        sBuffer.append("\"").append(partKey).append("\"");
+                    }
+                }
+            }
+            sBuffer.append("]");
+        }
+        sBuffer.append("}}");
+        WebParameterUtils.buildSuccessWithDataRetEnd(sBuffer, 1);
+        return sBuffer;
+    }
+
     /**
      * Get master's metric information
      *
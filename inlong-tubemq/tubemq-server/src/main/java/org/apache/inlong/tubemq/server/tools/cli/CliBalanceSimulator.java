@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.tools.cli;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.cli.CommandLine;
+import org.apache.inlong.tubemq.corebase.utils.MixedUtils;
+import org.apache.inlong.tubemq.corebase.utils.TStringUtils;
+import org.apache.inlong.tubemq.server.common.fielddef.CliArgDef;
+import org.apache.inlong.tubemq.server.master.balance.BalanceSimulator;
+import org.apache.inlong.tubemq.server.master.balance.BalanceSimulator.ClusterState;
+import org.apache.inlong.tubemq.server.master.balance.BalanceSimulator.SimResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CliBalanceSimulator, the consumer load balance simulator.
+ * The utility class for script #{bin/tubemq-balance-simulator.sh} to
+ * replay the recorded cluster states against the balance strategies.
+ *
+ * The record file contains one cluster state per line, which is the result of
+ * the Master's admin_query_group_load web API, recorded periodically.
+ */
+public class CliBalanceSimulator extends CliAbstractBase {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(CliBalanceSimulator.class);
+    // cli parameters
+    private File recordFile = null;
+    private int imbalancePercent = 20;
+
+    public CliBalanceSimulator() {
+        super("tubemq-balance-simulator.sh");
+        initCommandOptions();
+    }
+
+    /**
+     * Init command options
+     */
+    @Override
+    protected void initCommandOptions() {
+        // add the cli required parameters
+        addCommandOption(CliArgDef.FILEPATH);
+        addCommandOption(CliArgDef.IMBALANCEPERCENT);
+    }
+
+    @Override
+    public boolean processParams(String[] args) throws Exception {
+        // parse parameters and check value
+        CommandLine cli = parser.parse(options, args);
+        if (cli == null) {
+            throw new org.apache.commons.cli.ParseException("Parse args failure");
+        }
+        if (cli.hasOption(CliArgDef.VERSION.longOpt)) {
+            version();
+        }
+        if (cli.hasOption(CliArgDef.HELP.longOpt)) {
+            help();
+        }
+        // get record file
+        String filePath = cli.getOptionValue(CliArgDef.FILEPATH.longOpt);
+        if (TStringUtils.isBlank(filePath)) {
+            throw new Exception(CliArgDef.FILEPATH.longOpt + " is required!");
+        }
+        recordFile = new File(filePath.trim());
+        if (!recordFile.isFile() || !recordFile.canRead()) {
+            throw new Exception(new StringBuilder(512)
+                    .append("File ").append(filePath)
+                    .append(" is not a readable file!").toString());
+        }
+        // get imbalance percentage
+        if (cli.hasOption(CliArgDef.IMBALANCEPERCENT.longOpt)) {
+            String percent = cli.getOptionValue(CliArgDef.IMBALANCEPERCENT.longOpt);
+            if (TStringUtils.isNotBlank(percent)) {
+                imbalancePercent = MixedUtils.mid(Integer.parseInt(percent.trim()), 1, 100);
+            }
+        }
+        return true;
+    }
+
+    public static void main(final String[] args) {
+        CliBalanceSimulator cliBalanceSimulator = new CliBalanceSimulator();
+        try {
+            boolean result = cliBalanceSimulator.processParams(args);
+            if (!result) {
+                throw new Exception("Parse parameters failure!");
+            }
+            cliBalanceSimulator.processSimulation();
+        } catch (Throwable ex) {
+            ex.printStackTrace();
+            logger.error(ex.getMessage());
+            cliBalanceSimulator.help();
+        }
+    }
+
+    public void processSimulation() throws Exception {
+        // read the recorded states by group
+        Map<String, List<ClusterState>> groupStates = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(recordFile.toPath(), StandardCharsets.UTF_8)) {
+            if (TStringUtils.isBlank(line)) {
+                continue;
+            }
+            ClusterState state = BalanceSimulator.parseState(line.trim());
+            groupStates.computeIfAbsent(state.getGroupName(),
+                    k -> new ArrayList<>()).add(state);
+        }
+        BalanceSimulator simulator = new BalanceSimulator(imbalancePercent / 100.0);
+        System.out.println(String.format("%-32s %-10s %8s %14s %16s %12s", "group",
+                "strategy", "rounds", "avgLoadRatio", "worstLoadRatio", "movedParts"));
+        for (Map.Entry<String, List<ClusterState>> entry : groupStates.entrySet()) {
+            for (SimResult simResult : simulator.simulate(entry.getValue())) {
+                System.out.println(String.format("%-32s %-10s %8d %14.3f %16.3f %12d",
+                        entry.getKey(), simResult.getStrategy(), simResult.getRoundCnt(),
+                        simResult.getAvgMaxLoadRatio(), simResult.getWorstMaxLoadRatio(),
+                        simResult.getMovedPartCnt()));
+            }
+        }
+    }
+}
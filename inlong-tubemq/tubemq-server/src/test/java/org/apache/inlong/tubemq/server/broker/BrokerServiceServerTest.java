@@ -0,0 +1,222 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
+import org.apache.inlong.tubemq.server.common.aaaserver.CertifiedResult;
+import org.apache.inlong.tubemq.server.common.aaaserver.SimpleCertificateBrokerHandler;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * BrokerServiceServer test, covers the batch produce path.
+ */
+public class BrokerServiceServerTest {
+    private static final String TOPIC = "test";
+    private static final int MAX_MSG_SIZE = 64;
+    private MessageStoreManager storeManager;
+    private MessageStore messageStore;
+    private SimpleCertificateBrokerHandler authHandler;
+    private BrokerServiceServer brokerService;
+
+    @Before
+    public void setUp() throws Throwable {
+        TopicMetadata topicMetadata = mock(TopicMetadata.class);
+        when(topicMetadata.getTopic()).thenReturn(TOPIC);
+        when(topicMetadata.getNumPartitions()).thenReturn(1);
+        when(topicMetadata.getMaxMsgSize()).thenReturn(MAX_MSG_SIZE);
+        MetadataManager metadataManager = mock(MetadataManager.class);
+        when(metadataManager.getTopicMetadata(TOPIC)).thenReturn(topicMetadata);
+        messageStore = mock(MessageStore.class);
+        storeManager = mock(MessageStoreManager.class);
+        when(storeManager.getOrCreateMessageStore(TOPIC, 0)).thenReturn(messageStore);
+        CertifiedResult certResult = new CertifiedResult();
+        certResult.setSuccessResult("user", "");
+        CertifiedResult authorizeResult = new CertifiedResult();
+        authorizeResult.setSuccessResult("user", "");
+        authHandler = mock(SimpleCertificateBrokerHandler.class);
+        when(authHandler.identityValidUserInfo(any(ClientBroker.AuthorizedInfo.class), eq(true)))
+                .thenReturn(certResult);
+        when(authHandler.validProduceAuthorizeInfo(anyString(), anyString(), any(), any()))
+                .thenReturn(authorizeResult);
+        BrokerConfig tubeConfig = mock(BrokerConfig.class);
+        when(tubeConfig.getAllowedReadIOExcptCnt()).thenReturn(10);
+        when(tubeConfig.getAllowedWriteIOExcptCnt()).thenReturn(10);
+        when(tubeConfig.getIoExcptStatsDurationMs()).thenReturn(120000L);
+        when(tubeConfig.getRowLockWaitDurMs()).thenReturn(3000);
+        when(tubeConfig.getConsumerRegTimeoutMs()).thenReturn(30000);
+        when(tubeConfig.getReplicaMaxLagMs()).thenReturn(10000L);
+        TubeBroker tubeBroker = mock(TubeBroker.class);
+        when(tubeBroker.getMetadataManager()).thenReturn(metadataManager);
+        when(tubeBroker.getStoreManager()).thenReturn(storeManager);
+        when(tubeBroker.getServerAuthHandler()).thenReturn(authHandler);
+        when(tubeBroker.getRpcServiceFactory()).thenReturn(mock(RpcServiceFactory.class));
+        brokerService = new BrokerServiceServer(tubeBroker, tubeConfig);
+        brokerService.start();
+    }
+
+    @After
+    public void tearDown() {
+        brokerService.stop();
+    }
+
+    @Test
+    public void testAllMessagesAppended() throws Throwable {
+        mockAppendedCount(3);
+        ClientBroker.SendMessageBatchResponseB2P response =
+                brokerService.sendMessagesP2B(buildRequest(3), "127.0.0.1", false);
+        Assert.assertTrue(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.SUCCESS, response.getErrCode());
+        Assert.assertEquals(3, response.getMessageIdsCount());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(100L + i, response.getMessageIds(i));
+            Assert.assertEquals(i * 28L, response.getAppendOffsets(i));
+        }
+    }
+
+    @Test
+    public void testPartialAppend() throws Throwable {
+        mockAppendedCount(2);
+        ClientBroker.SendMessageBatchResponseB2P response =
+                brokerService.sendMessagesP2B(buildRequest(5), "127.0.0.1", false);
+        // only the head of the batch is stored, the response carries its ids and offsets
+        Assert.assertFalse(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.SERVER_RECEIVE_OVERFLOW, response.getErrCode());
+        Assert.assertEquals(2, response.getMessageIdsCount());
+        Assert.assertEquals(2, response.getAppendOffsetsCount());
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(100L + i, response.getMessageIds(i));
+            Assert.assertEquals(i * 28L, response.getAppendOffsets(i));
+        }
+    }
+
+    @Test
+    public void testRejectMessageCount() throws Throwable {
+        ClientBroker.SendMessageBatchResponseB2P response = brokerService.sendMessagesP2B(
+                buildRequest(TBaseConstants.META_MAX_BATCH_MESSAGE_COUNT + 1), "127.0.0.1", false);
+        Assert.assertFalse(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.BAD_REQUEST, response.getErrCode());
+        response = brokerService.sendMessagesP2B(buildRequest(0), "127.0.0.1", false);
+        Assert.assertFalse(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.BAD_REQUEST, response.getErrCode());
+        verify(storeManager, never()).getOrCreateMessageStore(anyString(), anyInt());
+    }
+
+    @Test
+    public void testRejectInvalidMessage() throws Throwable {
+        // empty data
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder = buildRequest(3).toBuilder();
+        builder.setMessages(1, builder.getMessages(1).toBuilder().setData(ByteString.EMPTY));
+        ClientBroker.SendMessageBatchResponseB2P response =
+                brokerService.sendMessagesP2B(builder.build(), "127.0.0.1", false);
+        Assert.assertEquals(TErrCodeConstants.BAD_REQUEST, response.getErrCode());
+        Assert.assertTrue(response.getErrMsg().endsWith("message index is 1"));
+        // over the max message size of the topic
+        builder = buildRequest(3).toBuilder();
+        builder.setMessages(2, builder.getMessages(2).toBuilder()
+                .setData(ByteString.copyFrom(new byte[MAX_MSG_SIZE + 1])));
+        response = brokerService.sendMessagesP2B(builder.build(), "127.0.0.1", false);
+        Assert.assertEquals(TErrCodeConstants.BAD_REQUEST, response.getErrCode());
+        Assert.assertTrue(response.getErrMsg().endsWith("message index is 2"));
+        // checksum mismatch
+        builder = buildRequest(3).toBuilder();
+        builder.setMessages(0, builder.getMessages(0).toBuilder().setCheckSum(12345));
+        response = brokerService.sendMessagesP2B(builder.build(), "127.0.0.1", false);
+        Assert.assertEquals(TErrCodeConstants.FORBIDDEN, response.getErrCode());
+        Assert.assertTrue(response.getErrMsg().endsWith("message index is 0"));
+        verify(storeManager, never()).getOrCreateMessageStore(anyString(), anyInt());
+        // the right checksum is accepted
+        mockAppendedCount(3);
+        builder = buildRequest(3).toBuilder();
+        builder.setMessages(0, builder.getMessages(0).toBuilder()
+                .setCheckSum(CheckSum.crc32(builder.getMessages(0).getData().toByteArray())));
+        response = brokerService.sendMessagesP2B(builder.build(), "127.0.0.1", false);
+        Assert.assertTrue(response.getSuccess());
+    }
+
+    @Test
+    public void testRejectUnauthorizedMsgType() throws Throwable {
+        CertifiedResult failedResult = new CertifiedResult();
+        failedResult.setFailureResult(TErrCodeConstants.CERTIFICATE_FAILURE, "not authorized");
+        when(authHandler.validProduceAuthorizeInfo(anyString(), eq(TOPIC), eq("forbidden"), any()))
+                .thenReturn(failedResult);
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder = buildRequest(3).toBuilder();
+        builder.setMessages(2, builder.getMessages(2).toBuilder().setMsgType("forbidden"));
+        ClientBroker.SendMessageBatchResponseB2P response =
+                brokerService.sendMessagesP2B(builder.build(), "127.0.0.1", false);
+        Assert.assertFalse(response.getSuccess());
+        Assert.assertEquals(TErrCodeConstants.CERTIFICATE_FAILURE, response.getErrCode());
+        verify(storeManager, never()).getOrCreateMessageStore(anyString(), anyInt());
+        // the batch without the forbidden type is checked once with a null type and accepted
+        mockAppendedCount(3);
+        response = brokerService.sendMessagesP2B(buildRequest(3), "127.0.0.1", false);
+        Assert.assertTrue(response.getSuccess());
+        verify(authHandler).validProduceAuthorizeInfo(anyString(), eq(TOPIC), isNull(), any());
+    }
+
+    private void mockAppendedCount(final int appendedCnt) throws Exception {
+        doAnswer(invocation -> {
+            AppendResult[] appendResults = invocation.getArgument(0);
+            for (int i = 0; i < appendedCnt; i++) {
+                appendResults[i].putReceivedInfo(100L + i, System.currentTimeMillis());
+                appendResults[i].putAppendResult(i * 28L, i * 64L);
+            }
+            return appendedCnt;
+        }).when(messageStore).appendMsgBatch(any(), any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    private ClientBroker.SendMessageBatchRequestP2B buildRequest(int msgCnt) {
+        ClientBroker.SendMessageBatchRequestP2B.Builder builder =
+                ClientBroker.SendMessageBatchRequestP2B.newBuilder();
+        builder.setClientId("producer-test");
+        builder.setTopicName(TOPIC);
+        builder.setPartitionId(0);
+        builder.setSentAddr(0);
+        builder.setAuthInfo(ClientBroker.AuthorizedInfo.newBuilder()
+                .setVisitAuthorizedToken(1L).build());
+        for (int i = 0; i < msgCnt; i++) {
+            builder.addMessages(ClientBroker.BatchMessageItem.newBuilder()
+                    .setData(ByteString.copyFrom("message-" + i, StandardCharsets.UTF_8))
+                    .setFlag(0).setCheckSum(-1).build());
+        }
+        return builder.build();
+    }
+}
@@ -17,9 +17,13 @@
 
 package org.apache.inlong.tubemq.server.broker.metadata;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.server.common.TServerConstants;
+import org.apache.inlong.tubemq.server.common.utils.BrokerConfSyncUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -72,4 +76,43 @@ public class BrokerMetadataManagerTest {
         topicMetadataMap = brokerMetadataManager.getRemovedTopicConfigMap();
         Assert.assertEquals(topicMetadataMap.size(), 1);
     }
+
+    @Test
+    public void updateBrokerTopicConfigDelta() {
+        brokerMetadataManager = new BrokerMetadataManager();
+        String newBrokerDefMetaConfInfo = "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+        List<String> newTopicMetaConfInfoList = new LinkedList<>();
+        newTopicMetaConfInfoList.add("topic1:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        newTopicMetaConfInfoList.add("topic2:4:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        brokerMetadataManager.updateBrokerTopicConfigMap(0L, 0,
+                newBrokerDefMetaConfInfo, newTopicMetaConfInfoList, true, new StringBuilder());
+        brokerMetadataManager.setBrokerConfSyncVersion(10L);
+        // update topic2, add topic3 and remove topic1
+        List<String> updTopicMetaConfInfoList = new LinkedList<>();
+        updTopicMetaConfInfoList.add("topic2:8:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        updTopicMetaConfInfoList.add("topic3:6:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        List<String> rmvTopics = Collections.singletonList("topic1");
+        List<String> fullTopicMetaConfInfoList = new LinkedList<>(updTopicMetaConfInfoList);
+        int checkSumId = BrokerConfSyncUtils.calcConfCheckSum(
+                newBrokerDefMetaConfInfo, fullTopicMetaConfInfoList);
+        Assert.assertTrue(brokerMetadataManager.updateBrokerTopicConfigDelta(1L, checkSumId, 12L,
+                newBrokerDefMetaConfInfo, updTopicMetaConfInfoList, rmvTopics, new StringBuilder()));
+        Assert.assertEquals(12L, brokerMetadataManager.getBrokerConfSyncVersion());
+        Assert.assertEquals(checkSumId, brokerMetadataManager.getBrokerConfCheckSumId());
+        Assert.assertEquals(8, brokerMetadataManager.getNumPartitions("topic2"));
+        Assert.assertEquals(6, brokerMetadataManager.getNumPartitions("topic3"));
+        Assert.assertNull(brokerMetadataManager.getTopicMetadata("topic1"));
+        Assert.assertFalse(brokerMetadataManager.getTopics().contains("topic1"));
+        Assert.assertTrue(brokerMetadataManager.getTopics().contains(TServerConstants.OFFSET_HISTORY_NAME));
+        // the mismatched checksum resets the version for a full sync
+        updTopicMetaConfInfoList.clear();
+        updTopicMetaConfInfoList.add("topic4:2:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000:1");
+        Assert.assertFalse(brokerMetadataManager.updateBrokerTopicConfigDelta(2L, checkSumId, 13L,
+                newBrokerDefMetaConfInfo, updTopicMetaConfInfoList,
+                Collections.<String>emptyList(), new StringBuilder()));
+        Assert.assertEquals(TBaseConstants.META_VALUE_UNDEFINED,
+                brokerMetadataManager.getBrokerConfSyncVersion());
+        Assert.assertEquals(1L, brokerMetadataManager.getBrokerMetadataConfId());
+        Assert.assertNull(brokerMetadataManager.getTopicMetadata("topic4"));
+    }
 }
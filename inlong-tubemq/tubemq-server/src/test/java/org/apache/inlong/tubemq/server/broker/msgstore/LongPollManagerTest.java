@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * LongPollManager test.
+ */
+public class LongPollManagerTest {
+
+    private static final BooleanSupplier NOT_ARRIVED = new BooleanSupplier() {
+        @Override
+        public boolean getAsBoolean() {
+            return false;
+        }
+    };
+
+    @Test
+    public void wakeUpAndExpire() throws Exception {
+        LongPollManager longPollManager = new LongPollManager(2, 2);
+        final CountDownLatch wokenLatch = new CountDownLatch(1);
+        final CountDownLatch expiredLatch = new CountDownLatch(1);
+        // woken up by the arrival of the same partition
+        Assert.assertTrue(longPollManager.park("topic", 0, 60000L, NOT_ARRIVED,
+                new CountDownTask(wokenLatch), new CountDownTask(expiredLatch)));
+        Assert.assertEquals(1, longPollManager.getParkedCnt());
+        Assert.assertEquals(1, longPollManager.getParkedPartCnt());
+        longPollManager.notifyMsgArrival("topic", 1);
+        Assert.assertEquals(1, longPollManager.getParkedCnt());
+        longPollManager.notifyMsgArrival("topic", 0);
+        Assert.assertTrue(wokenLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, expiredLatch.getCount());
+        Assert.assertEquals(0, longPollManager.getParkedCnt());
+        // the drained partition queue is removed
+        Assert.assertEquals(0, longPollManager.getParkedPartCnt());
+        // expired after the wait time
+        final CountDownLatch wokenLatch2 = new CountDownLatch(1);
+        Assert.assertTrue(longPollManager.park("topic", 0, 10L, NOT_ARRIVED,
+                new CountDownTask(wokenLatch2), new CountDownTask(expiredLatch)));
+        Assert.assertTrue(expiredLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, wokenLatch2.getCount());
+        Assert.assertEquals(0, longPollManager.getParkedCnt());
+        Assert.assertEquals(0, longPollManager.getParkedPartCnt());
+        longPollManager.close();
+    }
+
+    @Test
+    public void missedArrivalAndLimit() throws Exception {
+        LongPollManager longPollManager = new LongPollManager(1, 1);
+        final CountDownLatch wokenLatch = new CountDownLatch(1);
+        final CountDownLatch expiredLatch = new CountDownLatch(2);
+        // the messages arrived before parked wake up the request at once
+        Assert.assertTrue(longPollManager.park("topic", 0, 60000L, new BooleanSupplier() {
+            @Override
+            public boolean getAsBoolean() {
+                return true;
+            }
+        }, new CountDownTask(wokenLatch), new CountDownTask(expiredLatch)));
+        Assert.assertTrue(wokenLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, longPollManager.getParkedPartCnt());
+        // reject the requests over the max parked count
+        Assert.assertTrue(longPollManager.park("topic", 0, 60000L, NOT_ARRIVED,
+                new CountDownTask(wokenLatch), new CountDownTask(expiredLatch)));
+        Assert.assertFalse(longPollManager.park("topic", 1, 60000L, NOT_ARRIVED,
+                new CountDownTask(wokenLatch), new CountDownTask(expiredLatch)));
+        // the parked requests are expired on close
+        longPollManager.close();
+        Assert.assertEquals(1, expiredLatch.getCount());
+        Assert.assertEquals(0, longPollManager.getParkedCnt());
+    }
+
+    private static class CountDownTask implements Runnable {
+        private final CountDownLatch latch;
+
+        CountDownTask(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
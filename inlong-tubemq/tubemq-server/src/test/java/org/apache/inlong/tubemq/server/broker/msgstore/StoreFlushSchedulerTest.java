@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.inlong.tubemq.corebase.utils.CheckSum;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.stats.BrokerSrvStatsHolder;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * StoreFlushScheduler test.
+ */
+public class StoreFlushSchedulerTest {
+    private static final String STORE_PATH = "/data/tubemq";
+    private final Map<String, ConcurrentHashMap<Integer, MessageStore>> dataStores =
+            new ConcurrentHashMap<>();
+    private final List<MessageStore> openedStores = new ArrayList<>();
+    private StoreFlushScheduler flushScheduler;
+    private File primaryPath;
+
+    @After
+    public void tearDown() throws Exception {
+        if (flushScheduler != null) {
+            flushScheduler.close();
+        }
+        for (MessageStore msgStore : openedStores) {
+            msgStore.close();
+        }
+        if (primaryPath != null) {
+            FileUtils.deleteQuietly(primaryPath);
+        }
+        BrokerSrvStatsHolder.setDiskSyncStatsStatus(true);
+    }
+
+    @Test
+    public void testCoalesceFlushRequests() throws Exception {
+        flushScheduler = new StoreFlushScheduler(newConfig(1), dataStores);
+        // hold the only shard thread, so that the requests queue up behind it
+        final CountDownLatch flushEntered = new CountDownLatch(1);
+        final CountDownLatch flushReleased = new CountDownLatch(1);
+        MessageStore blockedStore = newStore("blocked-0");
+        doAnswer(invocation -> {
+            flushEntered.countDown();
+            flushReleased.await();
+            return false;
+        }).when(blockedStore).flushFile(true);
+        flushScheduler.requestFlush(blockedStore);
+        Assert.assertTrue(flushEntered.await(5, TimeUnit.SECONDS));
+        MessageStore msgStore = newStore("test-0");
+        for (int i = 0; i < 10; i++) {
+            flushScheduler.requestFlush(msgStore);
+        }
+        flushReleased.countDown();
+        // the ten requests arrived before the flush ran are merged into one flush
+        verify(msgStore, timeout(5000)).flushFile(true);
+        Thread.sleep(200);
+        verify(msgStore, times(1)).flushFile(true);
+        // a later request after the group commit is flushed again
+        flushScheduler.requestFlush(msgStore);
+        verify(msgStore, timeout(5000).times(2)).flushFile(true);
+    }
+
+    @Test
+    public void testStoreShardMapping() throws Exception {
+        final int shardCnt = 4;
+        flushScheduler = new StoreFlushScheduler(newConfig(shardCnt), dataStores);
+        // find the store keys whose store directories hash to negative values
+        List<String> storeKeys = new CopyOnWriteArrayList<>();
+        for (int i = 0; storeKeys.size() < 8; i++) {
+            String storeKey = "topic_" + i + "-0";
+            if ((STORE_PATH + File.separator + storeKey).hashCode() < 0) {
+                storeKeys.add(storeKey);
+            }
+        }
+        storeKeys.add("topic-0");
+        for (String storeKey : storeKeys) {
+            final MessageStore msgStore = newStore(storeKey);
+            final int shardIndex = flushScheduler.getShardIndex(msgStore);
+            Assert.assertTrue(shardIndex >= 0 && shardIndex < shardCnt);
+            // the same directory maps to the same shard, even for another store object
+            Assert.assertEquals(shardIndex, flushScheduler.getShardIndex(newStore(storeKey)));
+            // and the store is flushed by the thread of its shard
+            final List<String> flushThreads = new CopyOnWriteArrayList<>();
+            doAnswer(invocation -> {
+                flushThreads.add(Thread.currentThread().getName());
+                return false;
+            }).when(msgStore).flushFile(true);
+            for (int i = 0; i < 3; i++) {
+                flushScheduler.requestFlush(msgStore);
+                verify(msgStore, timeout(5000).times(i + 1)).flushFile(true);
+            }
+            for (String threadName : flushThreads) {
+                Assert.assertEquals("Broker Log Disk Flush Thread-" + shardIndex, threadName);
+            }
+        }
+    }
+
+    @Test
+    public void testPeriodicFlushOverDataHold() throws Exception {
+        primaryPath = Files.createTempDirectory("flush_scheduler").toFile();
+        BrokerConfig tubeConfig = spy(new BrokerConfig());
+        doReturn(primaryPath.getAbsolutePath()).when(tubeConfig).getPrimaryPath();
+        doReturn(true).when(tubeConfig).isEnableGroupCommitFlush();
+        doReturn(1).when(tubeConfig).getLogFlushThreadCnt();
+        doReturn(50L).when(tubeConfig).getLogFlushDiskDurMs();
+        doReturn(50L).when(tubeConfig).getLogFlushMemDurMs();
+        // keep the broker-wide statistics untouched for the other tests
+        BrokerSrvStatsHolder.setDiskSyncStatsStatus(false);
+        // no store manager, the group commit requests of the file appends are dropped,
+        // only the periodic flush can persist the messages flushed from the memory cache
+        MessageStore overHoldStore = new MessageStore(null,
+                newTopicMetadata("over_hold", 256), 0, tubeConfig, 1024 * 1024);
+        openedStores.add(overHoldStore);
+        MessageStore belowHoldStore = new MessageStore(null,
+                newTopicMetadata("below_hold", 1024 * 1024), 0, tubeConfig, 1024 * 1024);
+        openedStores.add(belowHoldStore);
+        final List<Boolean> overHoldFlushes = addScheduledStore(overHoldStore);
+        final List<Boolean> belowHoldFlushes = addScheduledStore(belowHoldStore);
+        appendMessages(overHoldStore, 10, 64);
+        appendMessages(belowHoldStore, 10, 64);
+        flushScheduler = new StoreFlushScheduler(tubeConfig, dataStores);
+        flushScheduler.start();
+        Thread.sleep(1000);
+        flushScheduler.close();
+        // the store over its unflushDataHold has been flushed by the periodic flush,
+        // the other one still waits for its unflushInterval
+        Assert.assertTrue(overHoldFlushes.contains(true));
+        Assert.assertFalse(belowHoldFlushes.isEmpty());
+        Assert.assertFalse(belowHoldFlushes.contains(true));
+        Assert.assertFalse(overHoldStore.flushFile(true));
+        Assert.assertTrue(belowHoldStore.flushFile(true));
+    }
+
+    private BrokerConfig newConfig(int shardCnt) {
+        BrokerConfig tubeConfig = mock(BrokerConfig.class);
+        when(tubeConfig.getLogFlushThreadCnt()).thenReturn(shardCnt);
+        return tubeConfig;
+    }
+
+    private MessageStore newStore(String storeKey) {
+        MessageStore msgStore = mock(MessageStore.class);
+        when(msgStore.getPrimStorePath()).thenReturn(STORE_PATH);
+        when(msgStore.getStoreKey()).thenReturn(storeKey);
+        return msgStore;
+    }
+
+    private TopicMetadata newTopicMetadata(String topic, int unflushDataHold) {
+        TopicMetadata topicMetadata = mock(TopicMetadata.class);
+        when(topicMetadata.getTopic()).thenReturn(topic);
+        when(topicMetadata.getNumPartitions()).thenReturn(1);
+        when(topicMetadata.getUnflushInterval()).thenReturn(3600 * 1000);
+        when(topicMetadata.getUnflushThreshold()).thenReturn(1000000);
+        when(topicMetadata.getUnflushDataHold()).thenReturn(unflushDataHold);
+        when(topicMetadata.getDeletePolicy()).thenReturn("delete,168h");
+        when(topicMetadata.getMemCacheMsgSize()).thenReturn(1024 * 1024);
+        when(topicMetadata.getMemCacheMsgCnt()).thenReturn(1000);
+        when(topicMetadata.getMemCacheFlushIntvl()).thenReturn(10);
+        return topicMetadata;
+    }
+
+    private List<Boolean> addScheduledStore(final MessageStore realStore) throws Exception {
+        // schedule a proxy of the store, which records the results of the periodic
+        // flushes and reports nothing flushed to keep the broker-wide statistics untouched
+        final List<Boolean> periodicFlushes = new CopyOnWriteArrayList<>();
+        MessageStore msgStore = newStore(realStore.getStoreKey());
+        doAnswer(invocation -> {
+            realStore.flushMemCacheData();
+            return null;
+        }).when(msgStore).flushMemCacheData();
+        doAnswer(invocation -> {
+            periodicFlushes.add(realStore.flushFile(invocation.getArgument(0)));
+            return false;
+        }).when(msgStore).flushFile(anyBoolean());
+        ConcurrentHashMap<Integer, MessageStore> storeMap = new ConcurrentHashMap<>();
+        storeMap.put(realStore.getStoreId(), msgStore);
+        dataStores.put(realStore.getTopic(), storeMap);
+        return periodicFlushes;
+    }
+
+    private void appendMessages(MessageStore msgStore, int msgCnt, int msgSize) throws Exception {
+        AppendResult[] appendResults = new AppendResult[msgCnt];
+        byte[][] dataArr = new byte[msgCnt][];
+        int[] checkSums = new int[msgCnt];
+        int[] msgTypeCodes = new int[msgCnt];
+        int[] msgFlags = new int[msgCnt];
+        for (int i = 0; i < msgCnt; i++) {
+            appendResults[i] = new AppendResult();
+            dataArr[i] = new byte[msgSize];
+            checkSums[i] = CheckSum.crc32(dataArr[i]);
+            msgTypeCodes[i] = -1;
+        }
+        Assert.assertEquals(msgCnt, msgStore.appendMsgBatch(appendResults,
+                dataArr, checkSums, msgTypeCodes, msgFlags, 0, 0));
+    }
+}
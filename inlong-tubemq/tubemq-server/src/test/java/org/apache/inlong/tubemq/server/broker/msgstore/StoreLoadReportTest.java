@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * StoreLoadReport test.
+ */
+public class StoreLoadReportTest {
+
+    @Test
+    public void buildReport() {
+        StoreLoadReport loadReport = new StoreLoadReport();
+        loadReport.addPhaseTime(StoreLoadReport.Phase.DATA_LOAD, 30);
+        loadReport.addPhaseTime(StoreLoadReport.Phase.DATA_LOAD, 50);
+        loadReport.addPhaseTime(StoreLoadReport.Phase.INDEX_LOAD, 20);
+        loadReport.addStoreTime("topic-0", 80, true);
+        loadReport.addStoreTime("topic-1", 120, false);
+        loadReport.markScanFinished();
+        Assert.assertEquals(80, loadReport.getPhaseTotalMs(StoreLoadReport.Phase.DATA_LOAD));
+        Assert.assertEquals(50, loadReport.getPhaseMaxMs(StoreLoadReport.Phase.DATA_LOAD));
+        Assert.assertEquals(0, loadReport.getPhaseTotalMs(StoreLoadReport.Phase.MEM_INIT));
+        Assert.assertEquals(2, loadReport.getStoreCnt());
+        Assert.assertEquals(1, loadReport.getFailedCnt());
+        String report = loadReport.buildReport(new StringBuilder(512), 4).toString();
+        Assert.assertTrue(report.contains("stores=2"));
+        Assert.assertTrue(report.contains("data_load(total/max)=80/50ms"));
+        Assert.assertTrue(report.contains("slowest=topic-1(120ms)"));
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.LocalDirSegmentArchiveStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.archive.SegmentArchiveStore;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ArchivedSegmentList test
+ */
+public class ArchivedSegmentListTest {
+
+    @Test
+    public void archiveAndRead() throws Exception {
+        File baseDir = Files.createTempDirectory("archive-test").toFile();
+        try {
+            SegmentArchiveStore archiveStore =
+                    new LocalDirSegmentArchiveStore(new File(baseDir, "remote"));
+            File segFile = new File(baseDir,
+                    DataStoreUtils.nameFromOffset(100L, DataStoreUtils.DATA_FILE_SUFFIX));
+            Segment segment = new FileSegment(100L, segFile, true, SegmentType.DATA);
+            long appendTime = System.currentTimeMillis();
+            segment.append(ByteBuffer.wrap("abcdef".getBytes()), appendTime, appendTime);
+            segment.flush(true);
+            segment.setMutable(false);
+            // archive the segment, then remove the local file
+            ArchivedSegmentList archivedSegs = new ArchivedSegmentList(archiveStore,
+                    SegmentType.DATA, "test-0/data", new File(baseDir, "cache"), 1);
+            Assert.assertTrue(archivedSegs.isEmpty());
+            archivedSegs.archive(segment);
+            segment.deleteFile();
+            Assert.assertTrue(archivedSegs.isArchived(100L));
+            Assert.assertTrue(archivedSegs.contains(105L));
+            Assert.assertFalse(archivedSegs.contains(106L));
+            Assert.assertEquals(100L, archivedSegs.getMinOffset());
+            // read back from the archive store
+            Segment archivedSeg = archivedSegs.getRecordSeg(102L);
+            Assert.assertNotNull(archivedSeg);
+            ByteBuffer readBuf = ByteBuffer.allocate(3);
+            archivedSeg.read(readBuf, 102L);
+            readBuf.flip();
+            Assert.assertEquals("cde", new String(readBuf.array(), 0, readBuf.limit()));
+            archivedSeg.relViewRef();
+            Assert.assertNull(archivedSegs.getRecordSeg(99L));
+            // reload from the archive store, only the segments before local min offset are kept
+            ArchivedSegmentList reloadSegs = new ArchivedSegmentList(archiveStore,
+                    SegmentType.DATA, "test-0/data", new File(baseDir, "cache2"), 1);
+            reloadSegs.load(106L);
+            Assert.assertTrue(reloadSegs.contains(100L));
+            reloadSegs.load(100L);
+            Assert.assertTrue(reloadSegs.isEmpty());
+            // the removed object is dropped from the archived list
+            reloadSegs.load(106L);
+            archiveStore.delete("test-0/data/" + segFile.getName());
+            Assert.assertNull(reloadSegs.getRecordSeg(100L));
+            Assert.assertTrue(reloadSegs.isEmpty());
+            archivedSegs.close();
+            reloadSegs.close();
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void downloadOutsideCacheLock() throws Exception {
+        File baseDir = Files.createTempDirectory("archive-test").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final CountDownLatch downloadStarted = new CountDownLatch(1);
+            final CountDownLatch releaseDownload = new CountDownLatch(1);
+            final AtomicInteger downloadCnt = new AtomicInteger(0);
+            // blocks the download of the segment at offset 200 until released
+            SegmentArchiveStore archiveStore =
+                    new LocalDirSegmentArchiveStore(new File(baseDir, "remote")) {
+                        @Override
+                        public boolean download(String key, File targetFile) throws IOException {
+                            downloadCnt.incrementAndGet();
+                            if (key.endsWith(DataStoreUtils.nameFromOffset(200L,
+                                    DataStoreUtils.DATA_FILE_SUFFIX))) {
+                                downloadStarted.countDown();
+                                try {
+                                    releaseDownload.await();
+                                } catch (InterruptedException e) {
+                                    throw new InterruptedIOException();
+                                }
+                            }
+                            return super.download(key, targetFile);
+                        }
+                    };
+            final ArchivedSegmentList archivedSegs = new ArchivedSegmentList(archiveStore,
+                    SegmentType.DATA, "test-0/data", new File(baseDir, "cache"), 2);
+            archivedSegs.archive(createSegment(baseDir, 100L));
+            archivedSegs.archive(createSegment(baseDir, 200L));
+            // cache the segment at offset 100
+            archivedSegs.getRecordSeg(100L).relViewRef();
+            Assert.assertEquals(1, downloadCnt.get());
+            // two readers of the segment at offset 200, only one downloads it
+            final Future<Segment> reader1 = executor.submit(() -> archivedSegs.getRecordSeg(201L));
+            Assert.assertTrue(downloadStarted.await(10, TimeUnit.SECONDS));
+            final Future<Segment> reader2 = executor.submit(() -> archivedSegs.getRecordSeg(202L));
+            // the cached segment is read while the download is in flight
+            Segment cachedSeg = archivedSegs.getRecordSeg(103L);
+            Assert.assertNotNull(cachedSeg);
+            cachedSeg.relViewRef();
+            Assert.assertFalse(reader1.isDone());
+            Assert.assertFalse(reader2.isDone());
+            releaseDownload.countDown();
+            Segment readSeg1 = reader1.get(10, TimeUnit.SECONDS);
+            Segment readSeg2 = reader2.get(10, TimeUnit.SECONDS);
+            Assert.assertSame(readSeg1, readSeg2);
+            Assert.assertEquals(200L, readSeg1.getStart());
+            Assert.assertEquals(2, downloadCnt.get());
+            readSeg1.relViewRef();
+            readSeg2.relViewRef();
+            archivedSegs.close();
+        } finally {
+            executor.shutdownNow();
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    private Segment createSegment(File baseDir, long start) throws Exception {
+        File segFile = new File(baseDir,
+                DataStoreUtils.nameFromOffset(start, DataStoreUtils.DATA_FILE_SUFFIX));
+        Segment segment = new FileSegment(start, segFile, true, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        segment.append(ByteBuffer.wrap("abcdef".getBytes()), appendTime, appendTime);
+        segment.flush(true);
+        segment.setMutable(false);
+        return segment;
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.inlong.tubemq.server.broker.msgstore.disk;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.junit.Assert;
 
 /**
  * FileSegment test.
@@ -83,4 +85,148 @@ public class FileSegmentTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @org.junit.Test
+    public void mappedRead() throws IOException {
+        long start = 100;
+        File file = File.createTempFile("testdata", null);
+        file.deleteOnExit();
+        String data = "abcdefg";
+        // write data then reopen the file as an immutable segment
+        fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        fileSegment.append(ByteBuffer.wrap(data.getBytes()), appendTime, appendTime);
+        Assert.assertNull(fileSegment.mappedRead(start, data.length()));
+        fileSegment.close();
+        fileSegment = new FileSegment(start, file, false, SegmentType.DATA);
+        // read mapped region
+        ByteBuffer mapped = fileSegment.mappedRead(start + 2, 3);
+        Assert.assertNotNull(mapped);
+        byte[] readBytes = new byte[mapped.remaining()];
+        mapped.get(readBytes);
+        Assert.assertEquals("cde", new String(readBytes));
+        Assert.assertNull(fileSegment.mappedRead(start + 5, 3));
+        // the deletion is deferred until the view reference is released
+        fileSegment.addViewRef();
+        fileSegment.deleteFile();
+        Assert.assertTrue(file.exists());
+        fileSegment.relViewRef();
+        Assert.assertFalse(file.exists());
+    }
+
+    @org.junit.Test
+    public void mappedReadAfterClose() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testdata", null);
+        file.deleteOnExit();
+        String data = "abcdefg";
+        fileSegment = new FileSegment(start, file, true, SegmentType.DATA);
+        long appendTime = System.currentTimeMillis();
+        fileSegment.append(ByteBuffer.wrap(data.getBytes()), appendTime, appendTime);
+        fileSegment.close();
+        fileSegment = new FileSegment(start, file, false, SegmentType.DATA);
+        // the mapped region is kept while the reader references the segment
+        fileSegment.addViewRef();
+        ByteBuffer mapped = fileSegment.mappedRead(start, 3);
+        Assert.assertNotNull(mapped);
+        fileSegment.close();
+        Assert.assertNull(fileSegment.mappedRead(start, 3));
+        byte[] readBytes = new byte[mapped.remaining()];
+        mapped.get(readBytes);
+        Assert.assertEquals("abc", new String(readBytes));
+        // the last reader releases the mapped region
+        fileSegment.relViewRef();
+    }
+
+    @org.junit.Test
+    public void partitionIndex() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testindex", null);
+        file.deleteOnExit();
+        fileSegment = new FileSegment(start, file, true,
+                SegmentType.INDEX, Long.MAX_VALUE, true, false);
+        // append index entries of partition 0, 1, 2 in turn
+        long appendTime = System.currentTimeMillis();
+        ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN * 3);
+        for (int i = 0; i < 10; i++) {
+            indexBuffer.clear();
+            for (int partitionId = 0; partitionId < 3; partitionId++) {
+                indexBuffer.putInt(partitionId);
+                indexBuffer.putLong(i * 3L + partitionId);
+                indexBuffer.putInt(100);
+                indexBuffer.putInt(0);
+                indexBuffer.putLong(appendTime);
+            }
+            indexBuffer.flip();
+            fileSegment.append(indexBuffer, appendTime, appendTime);
+        }
+        PartitionIndex partIndex = fileSegment.getPartitionIndex();
+        Assert.assertEquals(30, partIndex.getEntryCount());
+        PartitionIndex.LookupResult lookup = partIndex.lookup(1, 5, 30, 4);
+        Assert.assertEquals(4, lookup.count);
+        Assert.assertArrayEquals(new int[]{7, 10, 13, 16}, lookup.ordinals);
+        Assert.assertEquals(17, lookup.checkedCount);
+        lookup = partIndex.lookup(2, 25, 30, 10);
+        Assert.assertEquals(2, lookup.count);
+        Assert.assertEquals(30, lookup.checkedCount);
+        lookup = partIndex.lookup(5, 0, 30, 10);
+        Assert.assertEquals(0, lookup.count);
+        Assert.assertEquals(30, lookup.checkedCount);
+        // the partition index is persisted and reloaded when the segment is immutable
+        fileSegment.setMutable(false);
+        fileSegment.close();
+        File partIndexFile = new File(file.getParentFile(),
+                file.getName() + DataStoreUtils.PART_INDEX_FILE_SUFFIX);
+        Assert.assertTrue(partIndexFile.exists());
+        fileSegment = new FileSegment(start, file, false,
+                SegmentType.INDEX, Long.MAX_VALUE, true, false);
+        partIndex = fileSegment.getPartitionIndex();
+        Assert.assertEquals(30, partIndex.getEntryCount());
+        lookup = partIndex.lookup(0, 0, 30, 20);
+        Assert.assertEquals(10, lookup.count);
+        Assert.assertEquals(27, lookup.ordinals[9]);
+        fileSegment.deleteFile();
+        Assert.assertFalse(partIndexFile.exists());
+    }
+
+    @org.junit.Test
+    public void timeIndex() throws IOException {
+        long start = 0;
+        File file = File.createTempFile("testindex", null);
+        file.deleteOnExit();
+        fileSegment = new FileSegment(start, file, true,
+                SegmentType.INDEX, Long.MAX_VALUE, false, true);
+        // append 1000 index entries, the receive time of entry i is 10000 + i * 10
+        ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        for (int i = 0; i < 1000; i++) {
+            indexBuffer.clear();
+            indexBuffer.putInt(0);
+            indexBuffer.putLong(i);
+            indexBuffer.putInt(100);
+            indexBuffer.putInt(0);
+            indexBuffer.putLong(10000L + i * 10L);
+            indexBuffer.flip();
+            fileSegment.append(indexBuffer, 10000L + i * 10L, 10000L + i * 10L);
+        }
+        TimeIndex timeIndex = fileSegment.getTimeIndex();
+        Assert.assertEquals(1000, timeIndex.getEntryCount());
+        int interval = DataStoreUtils.TIME_INDEX_SAMPLE_INTERVAL;
+        Assert.assertEquals(-1, timeIndex.lookup(10000L));
+        Assert.assertEquals(0, timeIndex.lookup(10001L));
+        Assert.assertEquals(interval, timeIndex.lookup(10000L + interval * 10L + 1));
+        Assert.assertEquals((999 / interval) * interval, timeIndex.lookup(Long.MAX_VALUE));
+        // the time index is persisted and reloaded when the segment is immutable
+        fileSegment.setMutable(false);
+        fileSegment.close();
+        File timeIndexFile = new File(file.getParentFile(),
+                file.getName() + DataStoreUtils.TIME_INDEX_FILE_SUFFIX);
+        Assert.assertTrue(timeIndexFile.exists());
+        fileSegment = new FileSegment(start, file, false,
+                SegmentType.INDEX, Long.MAX_VALUE, false, true);
+        timeIndex = fileSegment.getTimeIndex();
+        Assert.assertEquals(1000, timeIndex.getEntryCount());
+        Assert.assertEquals(2 * interval, timeIndex.lookup(10000L + 2 * interval * 10L + 5));
+        fileSegment.deleteFile();
+        Assert.assertFalse(timeIndexFile.exists());
+    }
+}
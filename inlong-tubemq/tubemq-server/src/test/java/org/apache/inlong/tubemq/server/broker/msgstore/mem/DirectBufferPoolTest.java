@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.msgstore.mem;
+
+import java.nio.ByteBuffer;
+import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * DirectBufferPool test.
+ */
+public class DirectBufferPoolTest {
+
+    @Test
+    public void acquireAndRelease() {
+        DirectBufferPool bufferPool = new DirectBufferPool(4096, 1024);
+        // the capacity is rounded up to whole blocks
+        ByteBuffer buffer1 = bufferPool.acquire(1500);
+        Assert.assertNotNull(buffer1);
+        Assert.assertEquals(2048, buffer1.capacity());
+        Assert.assertEquals(2048, bufferPool.getUsedSize());
+        ByteBuffer buffer2 = bufferPool.acquire(2048);
+        Assert.assertNotNull(buffer2);
+        Assert.assertEquals(4096, bufferPool.getAllocatedSize());
+        // exceed the max pool size
+        Assert.assertNull(bufferPool.acquire(1));
+        Assert.assertEquals(1, bufferPool.getExhaustedCnt());
+        // the released buffer is reused by the same size
+        bufferPool.release(buffer1);
+        Assert.assertEquals(2048, bufferPool.getUsedSize());
+        Assert.assertSame(buffer1, bufferPool.acquire(2000));
+        bufferPool.release(buffer1);
+        // the idle buffer of other size is freed to make room
+        ByteBuffer buffer3 = bufferPool.acquire(1024);
+        Assert.assertNotNull(buffer3);
+        Assert.assertEquals(1024, buffer3.capacity());
+        Assert.assertEquals(3072, bufferPool.getAllocatedSize());
+        bufferPool.release(buffer2);
+        bufferPool.release(buffer3);
+        Assert.assertEquals(0, bufferPool.getUsedSize());
+        bufferPool.close();
+        Assert.assertEquals(0, bufferPool.getAllocatedSize());
+    }
+
+    @Test
+    public void pooledMemStore() {
+        DirectBufferPool bufferPool = new DirectBufferPool(1024 * 1024, 4096);
+        MsgMemStore msgMemStore =
+                new MsgMemStore(8192, 10, 0L, 0L, false, bufferPool);
+        Assert.assertTrue(msgMemStore.hasBuffers());
+        MsgStoreStatsHolder statsHolder = new MsgStoreStatsHolder();
+        Assert.assertTrue(msgMemStore.appendMsg(statsHolder, 0, 0,
+                System.currentTimeMillis(), buildIndexBuffer(), 100,
+                buildDataBuffer(100), new AppendResult()));
+        // the released store rejects the appends until the buffers are acquired
+        msgMemStore.releaseBuffers();
+        Assert.assertFalse(msgMemStore.hasBuffers());
+        Assert.assertEquals(0, bufferPool.getUsedSize());
+        msgMemStore.resetMemStoreStatus(100L, DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        Assert.assertFalse(msgMemStore.appendMsg(statsHolder, 0, 0,
+                System.currentTimeMillis(), buildIndexBuffer(), 100,
+                buildDataBuffer(100), new AppendResult()));
+        Assert.assertTrue(msgMemStore.acquireBuffers());
+        Assert.assertTrue(msgMemStore.appendMsg(statsHolder, 0, 0,
+                System.currentTimeMillis(), buildIndexBuffer(), 100,
+                buildDataBuffer(100), new AppendResult()));
+        msgMemStore.close();
+        Assert.assertEquals(0, bufferPool.getUsedSize());
+        bufferPool.close();
+    }
+
+    private ByteBuffer buildIndexBuffer() {
+        ByteBuffer indexBuffer = ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        indexBuffer.putInt(0);
+        indexBuffer.putLong(-1L);
+        indexBuffer.putInt(100);
+        indexBuffer.putInt(0);
+        indexBuffer.putLong(System.currentTimeMillis());
+        indexBuffer.flip();
+        return indexBuffer;
+    }
+
+    private ByteBuffer buildDataBuffer(int size) {
+        ByteBuffer dataBuffer = ByteBuffer.allocate(size);
+        dataBuffer.putInt(size - 4);
+        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+        dataBuffer.position(0);
+        return dataBuffer;
+    }
+}
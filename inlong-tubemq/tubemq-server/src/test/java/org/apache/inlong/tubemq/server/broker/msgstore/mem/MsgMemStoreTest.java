@@ -18,9 +18,11 @@
 package org.apache.inlong.tubemq.server.broker.msgstore.mem;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
 import org.apache.inlong.tubemq.server.broker.stats.MsgStoreStatsHolder;
 import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
 import org.apache.inlong.tubemq.server.common.utils.AppendResult;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -103,4 +105,70 @@ public class MsgMemStoreTest {
         // get messages
         GetCacheMsgResult getCacheMsgResult = msgMemStore.getMessages(0, 2, 1024, 1000, 0, false, false, null, 0);
     }
+
+    @Test
+    public void lockFreeAppendAndGetMessages() throws Exception {
+        final int threadCnt = 4;
+        final int msgCntPerThread = 500;
+        final byte[] testData = "abcabdcdsdsdasdfasdfasdfsadfasdfasdfasdfasdfaaaaaaaaaaa".getBytes();
+        final int msgBufLen = DataStoreUtils.STORE_DATA_HEADER_LEN + testData.length;
+        final MsgMemStore msgMemStore =
+                new MsgMemStore(2 * 1024 * 1024, 10000, 0, 0, true);
+        final MsgStoreStatsHolder memStatsHolder = new MsgStoreStatsHolder();
+        final CountDownLatch latch = new CountDownLatch(threadCnt);
+        for (int i = 0; i < threadCnt; i++) {
+            final int partitionId = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < msgCntPerThread; j++) {
+                        // build data buffer
+                        ByteBuffer dataBuffer = ByteBuffer.allocate(msgBufLen);
+                        dataBuffer.putInt(DataStoreUtils.STORE_DATA_PREFX_LEN + testData.length);
+                        dataBuffer.putInt(DataStoreUtils.STORE_DATA_TOKER_BEGIN_VALUE);
+                        dataBuffer.putInt(33);
+                        dataBuffer.putInt(partitionId);
+                        dataBuffer.putLong(-1L);
+                        dataBuffer.putLong(2222L);
+                        dataBuffer.putInt(255555);
+                        dataBuffer.putInt(11);
+                        dataBuffer.putLong(j);
+                        dataBuffer.putInt(1);
+                        dataBuffer.put(testData);
+                        dataBuffer.flip();
+                        // build index buffer
+                        ByteBuffer indexBuffer =
+                                ByteBuffer.allocate(DataStoreUtils.STORE_INDEX_HEAD_LEN);
+                        indexBuffer.putInt(partitionId);
+                        indexBuffer.putLong(-1L);
+                        indexBuffer.putInt(msgBufLen);
+                        indexBuffer.putInt(11);
+                        indexBuffer.putLong(System.currentTimeMillis());
+                        indexBuffer.flip();
+                        msgMemStore.appendMsg(memStatsHolder, partitionId, 11,
+                                System.currentTimeMillis(), indexBuffer,
+                                msgBufLen, dataBuffer, new AppendResult());
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        Assert.assertEquals(threadCnt * msgCntPerThread, msgMemStore.getCurMsgCount());
+        Assert.assertEquals(threadCnt * msgCntPerThread * msgBufLen,
+                msgMemStore.getCurDataCacheSize());
+        Assert.assertEquals(threadCnt * msgCntPerThread * DataStoreUtils.STORE_INDEX_HEAD_LEN,
+                msgMemStore.getIndexCacheSize());
+        // read back all messages of one partition
+        GetCacheMsgResult getCacheMsgResult =
+                msgMemStore.getMessages(0, 0, Integer.MAX_VALUE,
+                        threadCnt * msgCntPerThread, 1, false, false, null, 0);
+        Assert.assertTrue(getCacheMsgResult.isSuccess);
+        Assert.assertEquals(msgCntPerThread, getCacheMsgResult.cacheMsgList.size());
+        for (ByteBuffer msgBuffer : getCacheMsgResult.cacheMsgList) {
+            Assert.assertEquals(1,
+                    msgBuffer.getInt(DataStoreUtils.STORE_HEADER_POS_QUEUEID));
+        }
+        msgMemStore.close();
+    }
 }
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.offset.offsetstorage;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.inlong.tubemq.server.common.utils.FileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * LocalLogOffsetStorage test.
+ */
+public class LocalLogOffsetStorageTest {
+
+    @Test
+    public void commitAndReplay() throws Exception {
+        File baseDir = Files.createTempDirectory("offset-test").toFile();
+        try {
+            LocalLogOffsetStorage offsetStorage =
+                    new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            OffsetStorageInfo info0 = new OffsetStorageInfo("topic", 1, 0, 280L, 10L);
+            OffsetStorageInfo info1 = new OffsetStorageInfo("topic", 1, 1, 560L, 20L);
+            offsetStorage.commitOffset("group", Arrays.asList(info0, info1), false);
+            Assert.assertFalse(info0.isModified());
+            info0.getAndSetOffset(840L);
+            offsetStorage.commitOffset("group", Arrays.asList(info0, info1), false);
+            Assert.assertEquals(840L, offsetStorage.loadOffset("group", "topic", 0).getOffset());
+            Assert.assertNull(offsetStorage.loadOffset("group", "topic", 2));
+            offsetStorage.close();
+            // append a partially written record, which is dropped while replaying
+            File logFile = new File(baseDir, "offset.log");
+            long logSize = logFile.length();
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.seek(logSize);
+                raf.writeInt(100);
+            }
+            offsetStorage = new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            Assert.assertEquals(logSize, logFile.length());
+            OffsetStorageInfo loadedInfo = offsetStorage.loadOffset("group", "topic", 0);
+            Assert.assertEquals(840L, loadedInfo.getOffset());
+            Assert.assertEquals(10L, loadedInfo.getMessageId());
+            Assert.assertFalse(loadedInfo.isModified());
+            Assert.assertEquals(Collections.singleton("topic"),
+                    offsetStorage.queryZkAllGroupTopicInfos().get("group"));
+            // delete a partition
+            Map<String, Set<Integer>> topicPartMap = new HashMap<>();
+            topicPartMap.put("topic", new HashSet<>(Collections.singletonList(0)));
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+            groupTopicPartMap.put("group", topicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            Map<Integer, Long> offsetMap = offsetStorage.queryGroupOffsetInfo("group",
+                    "topic", new HashSet<>(Arrays.asList(0, 1)));
+            Assert.assertNull(offsetMap.get(0));
+            Assert.assertEquals(560L, offsetMap.get(1).longValue());
+            offsetStorage.close();
+            offsetStorage = new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            Assert.assertNull(offsetStorage.loadOffset("group", "topic", 0));
+            Assert.assertEquals(560L, offsetStorage.loadOffset("group", "topic", 1).getOffset());
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void commitGroupsInOneRound() throws Exception {
+        File baseDir = Files.createTempDirectory("offset-test").toFile();
+        try {
+            LocalLogOffsetStorage offsetStorage =
+                    new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            OffsetStorageInfo info0 = new OffsetStorageInfo("topic", 1, 0, 280L, 10L);
+            OffsetStorageInfo info1 = new OffsetStorageInfo("topic", 1, 1, 560L, 20L);
+            Map<String, List<OffsetStorageInfo>> groupOffsetMap = new HashMap<>();
+            groupOffsetMap.put("group1", Collections.singletonList(info0));
+            groupOffsetMap.put("group2", Collections.singletonList(info1));
+            offsetStorage.commitOffsets(groupOffsetMap, false);
+            Assert.assertFalse(info0.isModified());
+            Assert.assertFalse(info1.isModified());
+            // the unmodified offsets are not appended again
+            File logFile = new File(baseDir, "offset.log");
+            long logSize = logFile.length();
+            offsetStorage.commitOffsets(groupOffsetMap, false);
+            Assert.assertEquals(logSize, logFile.length());
+            offsetStorage.close();
+            offsetStorage = new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            Assert.assertEquals(280L, offsetStorage.loadOffset("group1", "topic", 0).getOffset());
+            Assert.assertEquals(560L, offsetStorage.loadOffset("group2", "topic", 1).getOffset());
+            Assert.assertNull(offsetStorage.loadOffset("group1", "topic", 1));
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void keepOffsetsOnFailedDeletion() throws Exception {
+        File baseDir = Files.createTempDirectory("offset-test").toFile();
+        try {
+            LocalLogOffsetStorage offsetStorage =
+                    new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            OffsetStorageInfo info0 = new OffsetStorageInfo("topic", 1, 0, 280L, 10L);
+            offsetStorage.commitOffset("group", Collections.singletonList(info0), false);
+            // the closed log file fails the deletion, the offset stays in memory
+            offsetStorage.close();
+            Map<String, Set<Integer>> topicPartMap = new HashMap<>();
+            topicPartMap.put("topic", new HashSet<>(Collections.singletonList(0)));
+            Map<String, Map<String, Set<Integer>>> groupTopicPartMap = new HashMap<>();
+            groupTopicPartMap.put("group", topicPartMap);
+            offsetStorage.deleteGroupOffsetInfo(groupTopicPartMap);
+            Assert.assertEquals(280L, offsetStorage.queryGroupOffsetInfo("group",
+                    "topic", Collections.singleton(0)).get(0).longValue());
+            Assert.assertEquals(Collections.singleton("topic"),
+                    offsetStorage.queryZkAllGroupTopicInfos().get("group"));
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void retryFailedMirrorCommits() throws Exception {
+        File baseDir = Files.createTempDirectory("offset-test").toFile();
+        final AtomicInteger commitCnt = new AtomicInteger(0);
+        final Map<Integer, Long> mirroredOffsets = new ConcurrentHashMap<>();
+        OffsetStorage mirrorStorage = mock(OffsetStorage.class);
+        doAnswer(invocation -> {
+            Collection<OffsetStorageInfo> infoList = invocation.getArgument(1);
+            int curCnt = commitCnt.incrementAndGet();
+            for (OffsetStorageInfo info : infoList) {
+                // clear the flag before writing, as the ZooKeeper storage does
+                info.setModified(false);
+                if (curCnt == 1) {
+                    throw new IllegalStateException("mirror storage unavailable");
+                }
+                if (curCnt == 2) {
+                    // a swallowed failure keeps the offset modified
+                    info.setModified(true);
+                    continue;
+                }
+                mirroredOffsets.put(info.getPartitionId(), info.getOffset());
+            }
+            return null;
+        }).when(mirrorStorage).commitOffset(anyString(), any(), anyBoolean());
+        try {
+            LocalLogOffsetStorage offsetStorage =
+                    new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, mirrorStorage, 50);
+            OffsetStorageInfo info0 = new OffsetStorageInfo("topic", 1, 0, 280L, 10L);
+            OffsetStorageInfo info1 = new OffsetStorageInfo("topic", 1, 1, 560L, 20L);
+            offsetStorage.commitOffset("group", Arrays.asList(info0, info1), false);
+            // the failed batch is committed again in the following rounds
+            long deadline = System.currentTimeMillis() + 5000;
+            while (mirroredOffsets.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            offsetStorage.close();
+            Assert.assertEquals(3, commitCnt.get());
+            Assert.assertEquals(280L, mirroredOffsets.get(0).longValue());
+            Assert.assertEquals(560L, mirroredOffsets.get(1).longValue());
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+
+    @Test
+    public void compactLog() throws Exception {
+        File baseDir = Files.createTempDirectory("offset-test").toFile();
+        try {
+            LocalLogOffsetStorage offsetStorage =
+                    new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            OffsetStorageInfo info = new OffsetStorageInfo("topic", 1, 0, 0L, 0L);
+            for (int i = 1; i <= 1500; i++) {
+                info.getAndSetOffset(i * 28L);
+                offsetStorage.commitOffset("group", Collections.singletonList(info), false);
+            }
+            offsetStorage.close();
+            // the log is compacted into the snapshot after 1000 records
+            Assert.assertTrue(new File(baseDir, "offset.snapshot").exists());
+            offsetStorage = new LocalLogOffsetStorage(baseDir.getPath(), 1, 1000, null, 1000);
+            Assert.assertEquals(1500 * 28L,
+                    offsetStorage.loadOffset("group", "topic", 0).getOffset());
+            offsetStorage.close();
+        } finally {
+            FileUtil.fullyDelete(baseDir);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.replica;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.inlong.tubemq.corebase.TErrCodeConstants;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.protobuf.generated.ClientBroker;
+import org.apache.inlong.tubemq.corebase.utils.ThreadUtils;
+import org.apache.inlong.tubemq.corerpc.RpcConfig;
+import org.apache.inlong.tubemq.corerpc.RpcConstants;
+import org.apache.inlong.tubemq.corerpc.RpcServiceFactory;
+import org.apache.inlong.tubemq.corerpc.netty.NettyClientFactory;
+import org.apache.inlong.tubemq.corerpc.service.BrokerReadService;
+import org.apache.inlong.tubemq.server.broker.BrokerConfig;
+import org.apache.inlong.tubemq.server.broker.TubeBroker;
+import org.apache.inlong.tubemq.server.broker.metadata.MetadataManager;
+import org.apache.inlong.tubemq.server.broker.metadata.TopicMetadata;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStoreManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ReplicaFetcher test, the follower replicates from a leader served on localhost.
+ */
+public class ReplicaFetcherTest {
+    private static final String TOPIC = "replica_topic";
+    private static final int LEADER_MSG_SIZE = 20;
+    private static final int LOCAL_MSG_SIZE = 28;
+    private final RpcServiceFactory leaderRpcFactory =
+            new RpcServiceFactory(new NettyClientFactory());
+    private final NettyClientFactory followerClientFactory = new NettyClientFactory();
+    private final RpcServiceFactory followerRpcFactory =
+            new RpcServiceFactory(followerClientFactory);
+    private final LeaderReadService leaderService = new LeaderReadService();
+    // the messages stored by the follower, and the index offsets of its local store
+    private final List<String> storedMsgs = new CopyOnWriteArrayList<>();
+    private final AtomicLong localMaxOffset = new AtomicLong(0L);
+    private File primaryPath;
+    private TubeBroker tubeBroker;
+    private BrokerConfig tubeConfig;
+
+    @Before
+    public void setUp() throws Throwable {
+        primaryPath = Files.createTempDirectory("replica").toFile();
+        int leaderPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            leaderPort = socket.getLocalPort();
+        }
+        leaderRpcFactory.publishService(BrokerReadService.class,
+                leaderService, leaderPort, new RpcConfig());
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.put(RpcConstants.CONNECT_TIMEOUT, 3000);
+        rpcConfig.put(RpcConstants.REQUEST_TIMEOUT, 10000L);
+        followerClientFactory.configure(rpcConfig);
+        tubeConfig = mock(BrokerConfig.class);
+        when(tubeConfig.getBrokerId()).thenReturn(2);
+        when(tubeConfig.getHostName()).thenReturn("127.0.0.1");
+        when(tubeConfig.getPort()).thenReturn(8123);
+        when(tubeConfig.getPrimaryPath()).thenReturn(primaryPath.getPath());
+        when(tubeConfig.getReplicaLeaderBroker())
+                .thenReturn(new BrokerInfo(1, "127.0.0.1", leaderPort));
+        when(tubeConfig.getReplicaTopics()).thenReturn(TOPIC);
+        when(tubeConfig.getReplicaFetchThreadCnt()).thenReturn(1);
+        when(tubeConfig.getRpcReadTimeoutMs()).thenReturn(10000L);
+        TopicMetadata topicMetadata = mock(TopicMetadata.class);
+        when(topicMetadata.getTopic()).thenReturn(TOPIC);
+        when(topicMetadata.getAllPartitionIds()).thenReturn(Collections.singleton(0));
+        MetadataManager metadataManager = mock(MetadataManager.class);
+        when(metadataManager.getTopicConfigMap())
+                .thenReturn(Collections.singletonMap(TOPIC, topicMetadata));
+        MessageStore msgStore = mock(MessageStore.class);
+        doAnswer(invocation -> {
+            byte[][] dataArr = invocation.getArgument(1);
+            for (byte[] data : dataArr) {
+                storedMsgs.add(new String(data, StandardCharsets.UTF_8));
+                localMaxOffset.addAndGet(LOCAL_MSG_SIZE);
+            }
+            return dataArr.length;
+        }).when(msgStore).appendMsgBatch(any(), any(), any(), any(), any(), anyInt(), anyInt());
+        when(msgStore.getAppendedIndexMaxOffset()).thenAnswer(invocation -> localMaxOffset.get());
+        when(msgStore.getIndexMaxOffset()).thenAnswer(invocation -> localMaxOffset.get());
+        when(msgStore.getFileIndexMaxOffset()).thenReturn(0L);
+        MessageStoreManager storeManager = mock(MessageStoreManager.class);
+        when(storeManager.getOrCreateMessageStore(anyString(), anyInt())).thenReturn(msgStore);
+        tubeBroker = mock(TubeBroker.class);
+        when(tubeBroker.getRpcServiceFactory()).thenReturn(followerRpcFactory);
+        when(tubeBroker.getMetadataManager()).thenReturn(metadataManager);
+        when(tubeBroker.getStoreManager()).thenReturn(storeManager);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        followerRpcFactory.destroy();
+        leaderRpcFactory.destroyAllPublishedService();
+        FileUtils.deleteQuietly(primaryPath);
+    }
+
+    @Test
+    public void testReplicateFromLeader() throws Exception {
+        leaderService.addMessage("msg-0");
+        leaderService.addMessage("msg-1");
+        ReplicaFetcher replicaFetcher = new ReplicaFetcher(tubeBroker, tubeConfig);
+        Assert.assertTrue(replicaFetcher.isReplicaTopic(TOPIC));
+        Assert.assertFalse(replicaFetcher.isReplicaTopic("other_topic"));
+        replicaFetcher.start();
+        waitStoredCnt(2);
+        replicaFetcher.close();
+        Assert.assertEquals(2, storedMsgs.size());
+        Assert.assertEquals("msg-0", storedMsgs.get(0));
+        Assert.assertEquals("msg-1", storedMsgs.get(1));
+        // no checkpoint before, fetch from the offset committed on the leader
+        Assert.assertFalse(leaderService.getRegisterRequests().get(0).hasCurrOffset());
+        // the local store is complete after a clean close, the leader offset is exact
+        leaderService.clearRegisterRequests();
+        replicaFetcher = new ReplicaFetcher(tubeBroker, tubeConfig);
+        replicaFetcher.start();
+        leaderService.addMessage("msg-2");
+        waitStoredCnt(3);
+        replicaFetcher.close();
+        Assert.assertEquals("msg-2", storedMsgs.get(2));
+        Assert.assertFalse(leaderService.getRegisterRequests().get(0).hasCurrOffset());
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        leaderService.addMessage("msg-0");
+        leaderService.addMessage("msg-1");
+        ReplicaFetcher replicaFetcher = new ReplicaFetcher(tubeBroker, tubeConfig);
+        replicaFetcher.start();
+        waitStoredCnt(2);
+        replicaFetcher.close();
+        Assert.assertEquals(2, leaderService.getCommittedIndex());
+        // the second message is lost from the local store though committed on the leader
+        storedMsgs.remove(1);
+        localMaxOffset.set(LOCAL_MSG_SIZE);
+        leaderService.clearRegisterRequests();
+        replicaFetcher = new ReplicaFetcher(tubeBroker, tubeConfig);
+        replicaFetcher.start();
+        waitStoredCnt(2);
+        replicaFetcher.close();
+        Assert.assertEquals("msg-1", storedMsgs.get(1));
+        ClientBroker.RegisterRequestC2B request = leaderService.getRegisterRequests().get(0);
+        Assert.assertTrue(request.hasCurrOffset());
+        Assert.assertEquals(LEADER_MSG_SIZE, request.getCurrOffset());
+    }
+
+    private void waitStoredCnt(int storedCnt) {
+        long waitEndTime = System.currentTimeMillis() + 10000L;
+        while (storedMsgs.size() < storedCnt && System.currentTimeMillis() < waitEndTime) {
+            ThreadUtils.sleep(20);
+        }
+        Assert.assertEquals(storedCnt, storedMsgs.size());
+    }
+
+    /**
+     * The read service of the leader, serves one message a pack, the leader offset of
+     * the i-th message is {@code i * LEADER_MSG_SIZE}.
+     */
+    public static class LeaderReadService implements BrokerReadService {
+        private final List<String> messages = new ArrayList<>();
+        private final List<ClientBroker.RegisterRequestC2B> registerRequests =
+                new ArrayList<>();
+        // the index of the next message to fetch, and of the last sent one
+        private int committedIndex = 0;
+        private int sentIndex = -1;
+
+        synchronized void addMessage(String message) {
+            messages.add(message);
+        }
+
+        synchronized int getCommittedIndex() {
+            return committedIndex;
+        }
+
+        synchronized List<ClientBroker.RegisterRequestC2B> getRegisterRequests() {
+            return new ArrayList<>(registerRequests);
+        }
+
+        synchronized void clearRegisterRequests() {
+            registerRequests.clear();
+        }
+
+        @Override
+        public synchronized ClientBroker.RegisterResponseB2C consumerRegisterC2B(
+                ClientBroker.RegisterRequestC2B request,
+                String rmtAddress, boolean overtls) throws Throwable {
+            if (request.getOpType() == RpcConstants.MSG_OPTYPE_REGISTER) {
+                registerRequests.add(request);
+                sentIndex = -1;
+                if (request.hasCurrOffset()) {
+                    committedIndex = (int) (request.getCurrOffset() / LEADER_MSG_SIZE);
+                }
+            } else if (request.getReadStatus() == 0 && sentIndex >= 0) {
+                committedIndex = sentIndex + 1;
+                sentIndex = -1;
+            }
+            return ClientBroker.RegisterResponseB2C.newBuilder().setSuccess(true)
+                    .setErrCode(TErrCodeConstants.SUCCESS).setErrMsg("OK!").build();
+        }
+
+        @Override
+        public ClientBroker.HeartBeatResponseB2C consumerHeartbeatC2B(
+                ClientBroker.HeartBeatRequestC2B request,
+                String rmtAddress, boolean overtls) throws Throwable {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized ClientBroker.GetMessageResponseB2C getMessagesC2B(
+                ClientBroker.GetMessageRequestC2B request,
+                String rmtAddress, boolean overtls) throws Throwable {
+            if (request.getLastPackConsumed() && sentIndex >= 0) {
+                committedIndex = sentIndex + 1;
+            }
+            sentIndex = -1;
+            ClientBroker.GetMessageResponseB2C.Builder builder =
+                    ClientBroker.GetMessageResponseB2C.newBuilder();
+            if (committedIndex >= messages.size()) {
+                return builder.setSuccess(false).setErrCode(TErrCodeConstants.NOT_FOUND)
+                        .setErrMsg("No new message!").build();
+            }
+            sentIndex = committedIndex;
+            byte[] data = messages.get(sentIndex).getBytes(StandardCharsets.UTF_8);
+            builder.addMessages(ClientBroker.TransferedMessage.newBuilder()
+                    .setMessageId(sentIndex).setCheckSum(-1).setFlag(0)
+                    .setPayLoadData(ByteString.copyFrom(data)).build());
+            return builder.setSuccess(true).setErrCode(TErrCodeConstants.SUCCESS)
+                    .setErrMsg("OK!").setCurrOffset((long) sentIndex * LEADER_MSG_SIZE).build();
+        }
+
+        @Override
+        public ClientBroker.CommitOffsetResponseB2C consumerCommitC2B(
+                ClientBroker.CommitOffsetRequestC2B request,
+                String rmtAddress, boolean overtls) throws Throwable {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.replica;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ReplicaManager test.
+ */
+public class ReplicaManagerTest {
+    private ReplicaManager replicaManager;
+
+    @Before
+    public void setUp() {
+        replicaManager = new ReplicaManager(10000L);
+    }
+
+    @After
+    public void tearDown() {
+        replicaManager.close();
+    }
+
+    @Test
+    public void testReplicaGroup() {
+        Assert.assertEquals("tubemq_replica_12", ReplicaManager.getReplicaGroup(12));
+        Assert.assertEquals(12, ReplicaManager.getFollowerId("tubemq_replica_12"));
+        Assert.assertEquals(-1, ReplicaManager.getFollowerId("test_group"));
+        Assert.assertEquals(-1, ReplicaManager.getFollowerId("tubemq_replica_x"));
+        Assert.assertEquals(-1, ReplicaManager.getFollowerId(null));
+    }
+
+    @Test
+    public void testInSyncFollowers() {
+        // normal consume groups are not followers
+        replicaManager.onFollowerFetch("test_group", "topic", 0, 100L, 100L);
+        Assert.assertTrue(replicaManager.getInSyncFollowers("topic", 0).isEmpty());
+        // the lagging follower is not in-sync until it catches up
+        replicaManager.onFollowerFetch(ReplicaManager.getReplicaGroup(2), "topic", 0, 0L, 100L);
+        Assert.assertTrue(replicaManager.getInSyncFollowers("topic", 0).isEmpty());
+        replicaManager.onFollowerFetch(ReplicaManager.getReplicaGroup(2), "topic", 0, 100L, 150L);
+        Assert.assertEquals(Collections.singletonList(2),
+                replicaManager.getInSyncFollowers("topic", 0));
+        replicaManager.onFollowerFetch(ReplicaManager.getReplicaGroup(3), "topic", 0, 150L, 150L);
+        Assert.assertEquals(Arrays.asList(2, 3),
+                replicaManager.getInSyncFollowers("topic", 0));
+        Assert.assertEquals(Collections.singletonList("topic:0:2,3"),
+                replicaManager.buildReplicaInfo());
+        replicaManager.rmvFollower(ReplicaManager.getReplicaGroup(2), "topic", 0);
+        Assert.assertEquals(Collections.singletonList("topic:0:3"),
+                replicaManager.buildReplicaInfo());
+    }
+
+    @Test
+    public void testWaitReplicated() throws Exception {
+        final AtomicInteger ackCnt = new AtomicInteger(0);
+        final AtomicInteger timeoutCnt = new AtomicInteger(0);
+        Runnable ackTask = new Runnable() {
+            @Override
+            public void run() {
+                ackCnt.incrementAndGet();
+            }
+        };
+        Runnable timeoutTask = new Runnable() {
+            @Override
+            public void run() {
+                timeoutCnt.incrementAndGet();
+            }
+        };
+        // no follower, not waiting
+        Assert.assertFalse(replicaManager.waitReplicated("topic", 0,
+                100L, 1000L, ackTask, timeoutTask));
+        String followerGroup = ReplicaManager.getReplicaGroup(2);
+        replicaManager.onFollowerFetch(followerGroup, "topic", 0, 100L, 100L);
+        Assert.assertFalse(replicaManager.waitReplicated("topic", 0,
+                100L, 1000L, ackTask, timeoutTask));
+        // acked after the follower confirmed the messages
+        Assert.assertTrue(replicaManager.waitReplicated("topic", 0,
+                200L, 5000L, ackTask, timeoutTask));
+        Assert.assertEquals(1, replicaManager.getPendingAckCnt());
+        replicaManager.onFollowerFetch(followerGroup, "topic", 0, 150L, 200L);
+        Assert.assertEquals(0, ackCnt.get());
+        replicaManager.onFollowerFetch(followerGroup, "topic", 0, 200L, 200L);
+        Assert.assertEquals(1, ackCnt.get());
+        Assert.assertEquals(0, replicaManager.getPendingAckCnt());
+        // timed out if the follower does not confirm the messages
+        final CountDownLatch timeoutLatch = new CountDownLatch(1);
+        Assert.assertTrue(replicaManager.waitReplicated("topic", 0, 300L, 50L,
+                ackTask, new Runnable() {
+                    @Override
+                    public void run() {
+                        timeoutCnt.incrementAndGet();
+                        timeoutLatch.countDown();
+                    }
+                }));
+        Assert.assertTrue(timeoutLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, timeoutCnt.get());
+        Assert.assertEquals(1, ackCnt.get());
+        // acked once the follower is removed
+        Assert.assertTrue(replicaManager.waitReplicated("topic", 0,
+                300L, 5000L, ackTask, timeoutTask));
+        replicaManager.rmvFollower(followerGroup, "topic", 0);
+        Assert.assertEquals(2, ackCnt.get());
+        Assert.assertEquals(1, timeoutCnt.get());
+    }
+}
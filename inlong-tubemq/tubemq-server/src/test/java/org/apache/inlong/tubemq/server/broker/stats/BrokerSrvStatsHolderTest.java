@@ -52,6 +52,8 @@ public class BrokerSrvStatsHolderTest {
         // add disk dlt time, add 2
         BrokerSrvStatsHolder.updDiskSyncDataDlt(100);
         BrokerSrvStatsHolder.updDiskSyncDataDlt(10);
+        // add disk flush dlt time, add 1
+        BrokerSrvStatsHolder.updDiskFlushDlt(20);
         // add IO exception, add 2
         BrokerSrvStatsHolder.incDiskIOExcCnt();
         BrokerSrvStatsHolder.incDiskIOExcCnt();
@@ -75,6 +77,8 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(10, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_8t16").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_64t128").longValue());
+        Assert.assertEquals(1, retMap.get("file_flush_dlt_count").longValue());
+        Assert.assertEquals(1, retMap.get("file_flush_dlt_cell_16t32").longValue());
         final long sinceTime1 = retMap.get("reset_time");
         // verify snapshot
         BrokerSrvStatsHolder.snapShort(retMap);
@@ -97,6 +101,7 @@ public class BrokerSrvStatsHolderTest {
         Assert.assertEquals(999, retMap.get("file_sync_dlt_max").longValue());
         Assert.assertEquals(999, retMap.get("file_sync_dlt_min").longValue());
         Assert.assertEquals(1, retMap.get("file_sync_dlt_cell_512t1024").longValue());
+        Assert.assertEquals(0, retMap.get("file_flush_dlt_count").longValue());
         // get content by StringBuilder
         StringBuilder strBuff = new StringBuilder(TBaseConstants.BUILDER_DEFAULT_SIZE);
         BrokerSrvStatsHolder.getValue(strBuff);
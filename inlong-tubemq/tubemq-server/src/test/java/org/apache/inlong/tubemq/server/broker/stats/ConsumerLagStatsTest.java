@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.broker.stats;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.server.broker.msgstore.MessageStore;
+import org.apache.inlong.tubemq.server.broker.offset.offsetstorage.OffsetStorageInfo;
+import org.apache.inlong.tubemq.server.broker.utils.DataStoreUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ConsumerLagStats test.
+ */
+public class ConsumerLagStatsTest {
+
+    @Test
+    public void calcConsumerLag() {
+        final long recvTime = System.currentTimeMillis() - 5000L;
+        MessageStore msgStore = mock(MessageStore.class);
+        // 10 messages appended, 100 bytes each
+        when(msgStore.getAppendedIndexMaxOffset())
+                .thenReturn(10L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        when(msgStore.getAppendedDataMaxOffset()).thenReturn(1000L);
+        when(msgStore.readIndexEntry(anyLong(), any(ByteBuffer.class))).thenAnswer(invocation -> {
+            long indexOffset = invocation.getArgument(0);
+            ByteBuffer entryBuffer = invocation.getArgument(1);
+            entryBuffer.clear();
+            entryBuffer.putLong(DataStoreUtils.INDEX_POS_DATAOFFSET,
+                    indexOffset / DataStoreUtils.STORE_INDEX_HEAD_LEN * 100L);
+            entryBuffer.putLong(DataStoreUtils.INDEX_POS_TIME_RECV, recvTime);
+            return true;
+        });
+        OffsetStorageInfo offsetInfo = new OffsetStorageInfo("topic", 1, 0,
+                4L * DataStoreUtils.STORE_INDEX_HEAD_LEN, 0);
+        ConsumerLagStats lagStats = new ConsumerLagStats();
+        lagStats.addConsumer("group", "topic", 0, msgStore, offsetInfo);
+        List<ConsumerLagStats.LagInfo> lagInfos = lagStats.getLagInfos(null, null);
+        Assert.assertEquals(1, lagInfos.size());
+        ConsumerLagStats.LagInfo lagInfo = lagInfos.get(0);
+        Assert.assertTrue(lagInfo.isOnline());
+        Assert.assertEquals(6L, lagInfo.getLagMsgCnt());
+        Assert.assertEquals(600L, lagInfo.getLagMsgSize());
+        Assert.assertTrue(lagInfo.getLagTimeMs() >= 5000L);
+        // the index entry is read once for the same confirmed offset
+        lagStats.getLagInfos(Collections.singleton("group"), null);
+        verify(msgStore, times(1)).readIndexEntry(anyLong(), any(ByteBuffer.class));
+        Assert.assertTrue(lagStats.getLagInfos(Collections.singleton("group2"), null).isEmpty());
+        Assert.assertTrue(lagStats.getLagInfos(null, Collections.singleton("topic2")).isEmpty());
+        // the commits are seen without notification
+        offsetInfo.getAndSetOffset(10L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        lagInfo = lagStats.getLagInfos(null, null).get(0);
+        Assert.assertEquals(0L, lagInfo.getLagMsgCnt());
+        Assert.assertEquals(0L, lagInfo.getLagMsgSize());
+        Assert.assertEquals(0L, lagInfo.getLagTimeMs());
+        Map<String, Long> metricValues = new LinkedHashMap<>();
+        lagStats.getValue(metricValues);
+        Assert.assertEquals(Long.valueOf(1L), metricValues.get("lag_item_count"));
+        Assert.assertEquals(Long.valueOf(0L), metricValues.get("group#topic#0.lag_msg_cnt"));
+    }
+
+    @Test
+    public void unreadableEntryAndOfflineExpire() throws Exception {
+        MessageStore msgStore = mock(MessageStore.class);
+        when(msgStore.getAppendedIndexMaxOffset())
+                .thenReturn(10L * DataStoreUtils.STORE_INDEX_HEAD_LEN);
+        when(msgStore.getAppendedDataMaxOffset()).thenReturn(1000L);
+        when(msgStore.readIndexEntry(anyLong(), any(ByteBuffer.class))).thenReturn(false);
+        ConsumerLagStats lagStats = new ConsumerLagStats(50L);
+        lagStats.addConsumer("group", "topic", 0, msgStore,
+                new OffsetStorageInfo("topic", 1, 0, 0L, 0));
+        ConsumerLagStats.LagInfo lagInfo = lagStats.getLagInfos(null, null).get(0);
+        Assert.assertEquals(10L, lagInfo.getLagMsgCnt());
+        Assert.assertEquals(-1L, lagInfo.getLagMsgSize());
+        Assert.assertEquals(-1L, lagInfo.getLagTimeMs());
+        // the offline item is kept for a while
+        lagStats.rmvConsumer("group", "topic", 0);
+        lagInfo = lagStats.getLagInfos(null, null).get(0);
+        Assert.assertFalse(lagInfo.isOnline());
+        Thread.sleep(100L);
+        Assert.assertTrue(lagStats.getLagInfos(null, null).isEmpty());
+    }
+}
@@ -17,6 +17,9 @@
 
 package org.apache.inlong.tubemq.server.common;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.apache.inlong.tubemq.server.common.heartbeat.HeartbeatManager;
 import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutInfo;
 import org.apache.inlong.tubemq.server.common.heartbeat.TimeoutListener;
@@ -85,4 +88,42 @@ public class HeartbeatManagerTest {
         Assert.assertTrue(heartbeatManager.getProducerRegMap().get("node1").getTimeoutTime()
                 > System.currentTimeMillis());
     }
+
+    @Test
+    public void testTimeoutExpiry() throws Exception {
+        final HeartbeatManager expiryManager = new HeartbeatManager();
+        final ConcurrentHashMap<String, Long> timeoutNodes = new ConcurrentHashMap<>();
+        final CountDownLatch timeoutLatch = new CountDownLatch(2);
+        expiryManager.regConsumerCheckBusiness(300,
+                new TimeoutListener() {
+                    @Override
+                    public void onTimeout(final String nodeId, TimeoutInfo nodeInfo) {
+                        timeoutNodes.put(nodeId, System.currentTimeMillis());
+                        timeoutLatch.countDown();
+                    }
+                });
+        try {
+            expiryManager.regConsumerNode("node1");
+            expiryManager.regConsumerNode("node2");
+            expiryManager.regConsumerNode("node3");
+            expiryManager.unRegConsumerNode("node3");
+            // node1 keeps the heartbeat, node2 times out
+            for (int i = 0; i < 8; i++) {
+                Thread.sleep(100);
+                expiryManager.updConsumerNode("node1");
+            }
+            Assert.assertTrue(timeoutNodes.containsKey("node2"));
+            Assert.assertFalse(timeoutNodes.containsKey("node1"));
+            Assert.assertNotNull(expiryManager.getConsumerRegMap().get("node1"));
+            Assert.assertNull(expiryManager.getConsumerRegMap().get("node2"));
+            // node1 times out after the heartbeat stopped
+            long stopTime = System.currentTimeMillis();
+            Assert.assertTrue(timeoutLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(timeoutNodes.get("node1") >= stopTime + 200);
+            Assert.assertFalse(timeoutNodes.containsKey("node3"));
+            Assert.assertTrue(expiryManager.getConsumerRegMap().isEmpty());
+        } finally {
+            expiryManager.stop();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.balance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * WeightedStickyAssignor test.
+ */
+public class WeightedStickyAssignorTest {
+
+    @Test
+    public void spreadHotPartitions() {
+        final WeightedStickyAssignor assignor = new WeightedStickyAssignor(0.2);
+        // 4 hot partitions and 4 idle partitions, the hot ones all on consumer c1
+        Map<String, Double> partWeights = new HashMap<>();
+        Map<String, List<String>> curAssignment = new HashMap<>();
+        curAssignment.put("c1", new ArrayList<>());
+        curAssignment.put("c2", new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            partWeights.put("hot-" + i, 10.0);
+            partWeights.put("idle-" + i, 1.0);
+            curAssignment.get("c1").add("hot-" + i);
+            curAssignment.get("c2").add("idle-" + i);
+        }
+        List<String> consumers = Arrays.asList("c1", "c2");
+        Assert.assertTrue(WeightedStickyAssignor.getMaxLoadRatio(curAssignment, partWeights) > 1.8);
+        Map<String, List<String>> assignment =
+                assignor.assign(curAssignment, partWeights, consumers, null, true);
+        Assert.assertTrue(WeightedStickyAssignor.getMaxLoadRatio(assignment, partWeights) <= 1.2);
+        Assert.assertEquals(8, assignment.get("c1").size() + assignment.get("c2").size());
+        // the balanced assignment is kept as it is
+        Map<String, List<String>> assignment2 =
+                assignor.assign(assignment, partWeights, consumers, null, true);
+        Assert.assertEquals(new HashSet<>(assignment.get("c1")), new HashSet<>(assignment2.get("c1")));
+        Assert.assertEquals(new HashSet<>(assignment.get("c2")), new HashSet<>(assignment2.get("c2")));
+    }
+
+    @Test
+    public void assignUnassignedPartitions() {
+        final WeightedStickyAssignor assignor = new WeightedStickyAssignor(0.2);
+        Map<String, Double> partWeights = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            partWeights.put("part-" + i, 1.0);
+        }
+        Map<String, List<String>> curAssignment = new HashMap<>();
+        curAssignment.put("c1", new ArrayList<>(Arrays.asList("part-0", "part-1")));
+        // the excluded partitions are not assigned to the consumer
+        Map<String, Set<String>> excludeMap = new HashMap<>();
+        excludeMap.put("c2", new HashSet<>(Arrays.asList("part-2", "part-3", "part-4", "part-5")));
+        Map<String, List<String>> assignment = assignor.assign(curAssignment,
+                partWeights, Arrays.asList("c1", "c2", "c3"), excludeMap, false);
+        Assert.assertTrue(assignment.get("c1").containsAll(Arrays.asList("part-0", "part-1")));
+        Assert.assertTrue(assignment.get("c2").isEmpty());
+        Assert.assertEquals(3, assignment.get("c1").size());
+        Assert.assertEquals(3, assignment.get("c3").size());
+        // the idle consumer takes over a share of the partitions when rebalancing
+        assignment = assignor.assign(assignment, partWeights,
+                Arrays.asList("c1", "c2", "c3"), null, true);
+        Assert.assertEquals(2, assignment.get("c1").size());
+        Assert.assertEquals(2, assignment.get("c2").size());
+        Assert.assertEquals(2, assignment.get("c3").size());
+    }
+
+    @Test
+    public void weightPartitionsByLoad() {
+        PartitionLoadHolder partLoadHolder = new PartitionLoadHolder();
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        Partition partition0 = new Partition(brokerInfo, "topic", 0);
+        Partition partition1 = new Partition(brokerInfo, "topic", 1);
+        Partition partition2 = new Partition(brokerInfo, "topic", 2);
+        List<Partition> partitions = Arrays.asList(partition0, partition1, partition2);
+        // no load reported
+        Map<String, Double> partWeights = partLoadHolder.getPartWeights("group", partitions, 100);
+        Assert.assertEquals(1.0, partWeights.get(partition0.getPartitionKey()), 0.001);
+        Assert.assertEquals(1.0, partWeights.get(partition2.getPartitionKey()), 0.001);
+        // partition 0 produces 10 msgs/s, partition 1 lags 2000 messages
+        partLoadHolder.updBrokerLoadInfo(1, 60000L,
+                Collections.singletonList("topic:0:600:6000"),
+                Arrays.asList("group:topic:0:600:6000:0", "group:topic:1:0:0:2000",
+                        "group:topic:bad:0:0"));
+        Assert.assertEquals(10.0, partLoadHolder.getPartInMsgRate(partition0), 0.001);
+        Assert.assertEquals(2000L, partLoadHolder.getGroupLagMsgCnt("group", partition1));
+        Assert.assertEquals(0L, partLoadHolder.getGroupLagMsgCnt("group2", partition1));
+        partWeights = partLoadHolder.getPartWeights("group", partitions, 100);
+        Assert.assertEquals(1 + 10 / 10.0, partWeights.get(partition0.getPartitionKey()), 0.001);
+        Assert.assertEquals(1 + 20 / 10.0, partWeights.get(partition1.getPartitionKey()), 0.001);
+        Assert.assertEquals(1.0, partWeights.get(partition2.getPartitionKey()), 0.001);
+        partLoadHolder.rmvBrokerLoadInfo(1);
+        Assert.assertEquals(0.0, partLoadHolder.getPartInMsgRate(partition0), 0.001);
+    }
+}
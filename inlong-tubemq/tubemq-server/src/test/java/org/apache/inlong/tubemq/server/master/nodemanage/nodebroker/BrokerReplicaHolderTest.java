@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BrokerReplicaHolder test.
+ */
+public class BrokerReplicaHolderTest {
+
+    @Test
+    public void testUpdAndRmvReplicaInfo() {
+        BrokerReplicaHolder replicaHolder = new BrokerReplicaHolder();
+        replicaHolder.updBrokerReplicaInfo(1,
+                Arrays.asList("topic:0:2,3", "topic:1:2", "topic:bad:x", ""));
+        Assert.assertEquals(Arrays.asList(2, 3),
+                replicaHolder.getInSyncReplicas(1, "topic", 0));
+        Assert.assertEquals(Collections.singletonList(2),
+                replicaHolder.getInSyncReplicas(1, "topic", 1));
+        Assert.assertTrue(replicaHolder.getInSyncReplicas(1, "topic", 2).isEmpty());
+        Assert.assertEquals(2, replicaHolder.getBrokerReplicaInfo(1).size());
+        // the offline follower is removed from the in-sync replicas
+        replicaHolder.rmvBrokerReplicaInfo(2);
+        Assert.assertEquals(Collections.singletonList(3),
+                replicaHolder.getInSyncReplicas(1, "topic", 0));
+        Assert.assertTrue(replicaHolder.getInSyncReplicas(1, "topic", 1).isEmpty());
+        // the empty report clears the replicas of the leader
+        replicaHolder.updBrokerReplicaInfo(1, Collections.emptyList());
+        Assert.assertTrue(replicaHolder.getBrokerReplicaInfo(1).isEmpty());
+        Assert.assertTrue(replicaHolder.getAllBrokerReplicaInfo().isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.tubemq.server.master.nodemanage.nodebroker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.inlong.tubemq.corebase.TBaseConstants;
+import org.apache.inlong.tubemq.corebase.utils.Tuple4;
+import org.apache.inlong.tubemq.server.common.statusdef.ManageStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * BrokerSyncData test.
+ */
+public class BrokerSyncDataTest {
+
+    private static final String BROKER_DEF_CONF =
+            "1:true:true:1000:10000:0,0,6:delete,168h:1:1000:1024:1000:1000";
+
+    @Test
+    public void testGetBrokerSyncDeltaData() {
+        BrokerSyncData syncData = new BrokerSyncData();
+        Map<String, String> topicConfMap = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            topicConfMap.put("topic" + i, "topic" + i + ":2:true");
+        }
+        syncData.updBrokerSyncData(true, 1L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF, new HashMap<>(topicConfMap));
+        final long baseVersion = syncData.getSyncDownDataVersion();
+        // the unknown or the current version takes a full sync
+        Assert.assertNull(syncData.getBrokerSyncDeltaData(TBaseConstants.META_VALUE_UNDEFINED));
+        Assert.assertNull(syncData.getBrokerSyncDeltaData(baseVersion));
+        // the unchanged configure keeps the version
+        syncData.updBrokerSyncData(true, 2L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF, new HashMap<>(topicConfMap));
+        Assert.assertEquals(baseVersion, syncData.getSyncDownDataVersion());
+        // update topic1 and remove topic2
+        topicConfMap.put("topic1", "topic1:4:true");
+        topicConfMap.remove("topic2");
+        syncData.updBrokerSyncData(false, 3L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF, new HashMap<>(topicConfMap));
+        Assert.assertEquals(baseVersion + 1, syncData.getSyncDownDataVersion());
+        Tuple4<Long, String, List<String>, List<String>> deltaTuple =
+                syncData.getBrokerSyncDeltaData(baseVersion);
+        Assert.assertNotNull(deltaTuple);
+        Assert.assertEquals(baseVersion + 1, deltaTuple.getF0().longValue());
+        Assert.assertEquals(BROKER_DEF_CONF, deltaTuple.getF1());
+        Assert.assertEquals(Collections.singletonList("topic1:4:true"), deltaTuple.getF2());
+        Assert.assertEquals(Collections.singletonList("topic2"), deltaTuple.getF3());
+        // the re-added topic is not reported as removed
+        topicConfMap.put("topic2", "topic2:2:true");
+        syncData.updBrokerSyncData(false, 4L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF, new HashMap<>(topicConfMap));
+        deltaTuple = syncData.getBrokerSyncDeltaData(baseVersion);
+        Assert.assertNotNull(deltaTuple);
+        Assert.assertEquals(2, deltaTuple.getF2().size());
+        Assert.assertTrue(deltaTuple.getF3().isEmpty());
+        deltaTuple = syncData.getBrokerSyncDeltaData(baseVersion + 1);
+        Assert.assertEquals(Collections.singletonList("topic2:2:true"), deltaTuple.getF2());
+        // most of the topics changed, take a full sync
+        for (int i = 0; i < 8; i++) {
+            topicConfMap.put("topic" + i, "topic" + i + ":8:true");
+        }
+        syncData.updBrokerSyncData(false, 5L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF, new HashMap<>(topicConfMap));
+        Assert.assertNull(syncData.getBrokerSyncDeltaData(baseVersion));
+        // the changed default configure invalidates the previous versions
+        final long curVersion = syncData.getSyncDownDataVersion();
+        syncData.updBrokerSyncData(false, 6L, ManageStatus.STATUS_MANAGE_ONLINE,
+                BROKER_DEF_CONF.replace("168h", "72h"), new HashMap<>(topicConfMap));
+        Assert.assertNull(syncData.getBrokerSyncDeltaData(curVersion));
+    }
+}
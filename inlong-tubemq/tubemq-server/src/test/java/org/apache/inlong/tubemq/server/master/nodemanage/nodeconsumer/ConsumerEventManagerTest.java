@@ -18,7 +18,15 @@
 package org.apache.inlong.tubemq.server.master.nodemanage.nodeconsumer;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import java.util.Arrays;
+import java.util.Collections;
 import org.apache.inlong.tubemq.corebase.balance.ConsumerEvent;
+import org.apache.inlong.tubemq.corebase.balance.EventStatus;
+import org.apache.inlong.tubemq.corebase.balance.EventType;
+import org.apache.inlong.tubemq.corebase.cluster.BrokerInfo;
+import org.apache.inlong.tubemq.corebase.cluster.Partition;
+import org.apache.inlong.tubemq.corebase.cluster.SubscribeInfo;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -53,4 +61,49 @@ public class ConsumerEventManagerTest {
         consumerEventManager.removeAll("consumer002");
         Assert.assertFalse(consumerEventManager.hasEvent());
     }
+
+    @Test
+    public void cooperativeEventTest() {
+        ConsumerInfoHolder holder = mock(ConsumerInfoHolder.class);
+        for (String consumerId : Arrays.asList("consumer001", "consumer002", "consumer003")) {
+            when(holder.getGroupName(consumerId)).thenReturn("group");
+        }
+        when(holder.getConsumerIdList("group"))
+                .thenReturn(Arrays.asList("consumer001", "consumer002", "consumer003"));
+        BrokerInfo brokerInfo = new BrokerInfo(1, "127.0.0.1", 8123);
+        Partition partition1 = new Partition(brokerInfo, "topic", 1);
+        Partition partition2 = new Partition(brokerInfo, "topic", 2);
+        // consumer001 releases partition1 to consumer002,
+        // consumer003 acquires partition2 which is not owned by others
+        ConsumerEvent disconnectEvent = new ConsumerEvent(1L, EventType.ONLY_DISCONNECT,
+                Collections.singletonList(new SubscribeInfo("consumer001", "group", partition1)),
+                EventStatus.TODO);
+        ConsumerEvent connectEvent2 = new ConsumerEvent(1L, EventType.ONLY_CONNECT,
+                Collections.singletonList(new SubscribeInfo("consumer002", "group", partition1)),
+                EventStatus.TODO);
+        ConsumerEvent connectEvent3 = new ConsumerEvent(1L, EventType.ONLY_CONNECT,
+                Collections.singletonList(new SubscribeInfo("consumer003", "group", partition2)),
+                EventStatus.TODO);
+        ConsumerEventManager defaultManager = new ConsumerEventManager(holder);
+        ConsumerEventManager cooperativeManager = new ConsumerEventManager(holder, true);
+        for (ConsumerEventManager manager : Arrays.asList(defaultManager, cooperativeManager)) {
+            manager.addDisconnectEvent("consumer001", disconnectEvent);
+            manager.addConnectEvent("consumer002", connectEvent2);
+            manager.addConnectEvent("consumer003", connectEvent3);
+            Assert.assertEquals(disconnectEvent, manager.peek("consumer001"));
+            Assert.assertNull(manager.peek("consumer002"));
+        }
+        // the default manager waits for all the disconnect events of the group
+        Assert.assertNull(defaultManager.peek("consumer003"));
+        Assert.assertEquals(connectEvent3, cooperativeManager.peek("consumer003"));
+        Assert.assertEquals(connectEvent3, cooperativeManager.removeFirst("consumer003"));
+        // partition1 is released
+        for (ConsumerEventManager manager : Arrays.asList(defaultManager, cooperativeManager)) {
+            Assert.assertEquals(disconnectEvent, manager.removeFirst("consumer001"));
+            Assert.assertEquals(connectEvent2, manager.peek("consumer002"));
+            Assert.assertEquals(connectEvent2, manager.removeFirst("consumer002"));
+        }
+        Assert.assertEquals(connectEvent3, defaultManager.peek("consumer003"));
+        Assert.assertFalse(cooperativeManager.hasEvent());
+    }
 }
@@ -105,6 +105,11 @@ public class MasterSrvStatsHolderTest {
         strBuff.delete(0, strBuff.length());
         MasterSrvStatsHolder.updSvrBalanceDurations(32);
         MasterSrvStatsHolder.updSvrBalResetDurations(100);
+        MasterSrvStatsHolder.updConsumerTimeoutDelay(50);
+        MasterSrvStatsHolder.updBrokerTimeoutDelay(120);
+        MasterSrvStatsHolder.updBrokerFullSyncSize(4096);
+        MasterSrvStatsHolder.updBrokerDeltaSyncSize(128);
+        MasterSrvStatsHolder.updBrokerDeltaSyncSize(256);
         MasterSrvStatsHolder.getValue(retMap);
         Assert.assertEquals(-6, retMap.get("csm_online_group_cnt").longValue());
         Assert.assertEquals(0, retMap.get("csm_group_timeout_cnt").longValue());
@@ -122,5 +127,10 @@ public class MasterSrvStatsHolderTest {
         Assert.assertEquals(0, retMap.get("broker_forbidden_cnt").longValue());
         Assert.assertEquals(1, retMap.get("server_balance_normal_count").longValue());
         Assert.assertEquals(1, retMap.get("server_balance_reset_count").longValue());
+        Assert.assertEquals(1, retMap.get("consumer_timeout_delay_count").longValue());
+        Assert.assertEquals(0, retMap.get("producer_timeout_delay_count").longValue());
+        Assert.assertEquals(1, retMap.get("broker_timeout_delay_count").longValue());
+        Assert.assertEquals(1, retMap.get("broker_conf_sync_full_count").longValue());
+        Assert.assertEquals(2, retMap.get("broker_conf_sync_delta_count").longValue());
     }
 }